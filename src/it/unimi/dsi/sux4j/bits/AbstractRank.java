@@ -33,6 +33,11 @@ public abstract class AbstractRank implements Rank {
 		return rank( to ) - rank( from );
 	}
 
+	public long[] rank( final long[] pos, final long[] dest ) {
+		for( int i = 0; i < pos.length; i++ ) dest[ i ] = rank( pos[ i ] );
+		return dest;
+	}
+
 	public long rankZero( final long pos ) {
 		return pos - rank( pos );
 	}
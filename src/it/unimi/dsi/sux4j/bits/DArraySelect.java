@@ -0,0 +1,267 @@
+package it.unimi.dsi.sux4j.bits;
+
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2016 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+import it.unimi.dsi.bits.BitVector;
+import it.unimi.dsi.bits.Fast;
+import it.unimi.dsi.bits.LongArrayBitVector;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
+/** A select implementation in the style of Okanohara and Sadakane's <code>darray</code>, in which the space
+ * devoted to each block of the inventory depends on the length of the block.
+ *
+ * <p>The inventory records the position of one bit every {@value #ONES_PER_BLOCK}. For each such block, the subinventory records the
+ * position of one bit every 2<sup><var>t</var></sup>, where <var>t</var> is chosen so that the expected distance between two
+ * recorded bits is about {@value #TARGET_SPAN} bits: dense blocks use a small subinventory and are
+ * completed with a short broadword scan, whereas sparse blocks record more positions, up to all of them. Positions are recorded
+ * using 16, 32 or 64 bits depending on the length of the block. Thus, unlike {@link SimpleSelect}, this structure adapts
+ * to bit vectors whose density varies wildly, as no block ever requires long scans, and no space is wasted on dense blocks.
+ *
+ * <p>An additional {@linkplain #select(long, long[], int, int) bulk method} makes it possible
+ * to select several consecutive bits at high speed, if the array is reasonably uniform.
+ *
+ * @see DArraySelectZero
+ */
+
+public class DArraySelect implements Select {
+	private static final boolean ASSERTS = false;
+	private static final long serialVersionUID = 1L;
+
+	private static final int LOG2_ONES_PER_BLOCK = 10;
+	/** The number of ones per {@link #inventory} entry. */
+	private static final int ONES_PER_BLOCK = 1 << LOG2_ONES_PER_BLOCK;
+	private static final int ONES_PER_BLOCK_MASK = ONES_PER_BLOCK - 1;
+	/** The expected number of bits between two consecutive positions recorded in the subinventory. */
+	private static final int TARGET_SPAN = 256;
+
+	/** The underlying bit vector. */
+	private final BitVector bitVector;
+	/** The number of ones in {@link #bitVector}. */
+	private final long numOnes;
+	/** The cached result of {@link BitVector#bits() bitVector.bits()}. */
+	private transient long[] bits;
+	/** The position of one bit each {@link #ONES_PER_BLOCK}, followed by the length of {@link #bitVector}. */
+	private final long[] inventory;
+	/** For each block, the base of its subinventory (in units of its width) shifted left by 8, the logarithm of its width
+	 * in bits minus four shifted left by 5, and the logarithm of the number of ones per entry. */
+	private final long[] descriptor;
+	/** The concatenated subinventories of all blocks. */
+	private final long[] subinventory;
+
+	/** Creates a new selection structure using a bit vector specified by an array of longs and a number of bits.
+	 *
+	 * @param bits an array of longs representing a bit array.
+	 * @param length the number of bits to use from <code>bits</code>.
+	 */
+	public DArraySelect( long[] bits, long length ) {
+		this( LongArrayBitVector.wrap( bits, length ) );
+	}
+
+	/** Creates a new selection structure using the specified bit vector.
+	 *
+	 * @param bitVector a bit vector.
+	 */
+	public DArraySelect( final BitVector bitVector ) {
+		this.bitVector = bitVector;
+		this.bits = bitVector.bits();
+		final long length = bitVector.length();
+		final int numWords = (int)( ( length + 63 ) / 64 );
+
+		long d = 0;
+		for( int i = numWords; i-- != 0; ) d += Long.bitCount( word( i, length ) );
+		numOnes = d;
+
+		final int numBlocks = (int)( ( numOnes + ONES_PER_BLOCK - 1 ) >>> LOG2_ONES_PER_BLOCK );
+		inventory = new long[ numBlocks + 1 ];
+		descriptor = new long[ numBlocks ];
+
+		// First phase: we build an inventory for each one out of ONES_PER_BLOCK.
+		d = 0;
+		for( int i = 0; i < numWords; i++ )
+			for( long w = word( i, length ); w != 0; w &= w - 1 ) {
+				if ( ( d & ONES_PER_BLOCK_MASK ) == 0 ) inventory[ (int)( d >>> LOG2_ONES_PER_BLOCK ) ] = i * 64L + Long.numberOfTrailingZeros( w );
+				d++;
+			}
+
+		inventory[ numBlocks ] = length;
+
+		// Second phase: we choose sampling rate and width of each subinventory.
+		long offset = 0; // In bits
+		for( int block = 0; block < numBlocks; block++ ) {
+			final long span = inventory[ block + 1 ] - inventory[ block ];
+			final int ones = (int)Math.min( ONES_PER_BLOCK, numOnes - ( (long)block << LOG2_ONES_PER_BLOCK ) );
+			final int log2Step = Math.min( LOG2_ONES_PER_BLOCK, Fast.mostSignificantBit( Math.max( 1, ONES_PER_BLOCK * (long)TARGET_SPAN / Math.max( 1, span ) ) ) );
+			final int log2Width = span < 1 << 16 ? 4 : span < 1L << 32 ? 5 : 6;
+			if ( log2Step == LOG2_ONES_PER_BLOCK ) {
+				// Just the inventory
+				descriptor[ block ] = log2Step;
+				continue;
+			}
+			final long base = offset + ( 1 << log2Width ) - 1 >>> log2Width;
+			descriptor[ block ] = base << 8 | ( log2Width - 4 ) << 5 | log2Step;
+			offset = ( base + ( ( ones + ( 1 << log2Step ) - 1 ) >>> log2Step ) ) << log2Width;
+		}
+
+		if ( ( offset + 63 ) / 64 > Integer.MAX_VALUE ) throw new IllegalArgumentException( "Subinventory too large" );
+		subinventory = new long[ (int)( ( offset + 63 ) / 64 ) ];
+
+		// Third phase: we fill the subinventories.
+		d = 0;
+		for( int i = 0; i < numWords; i++ )
+			for( long w = word( i, length ); w != 0; w &= w - 1 ) {
+				final int block = (int)( d >>> LOG2_ONES_PER_BLOCK );
+				final long desc = descriptor[ block ];
+				final int log2Step = (int)( desc & 0x1F );
+				final int sub = (int)( d & ONES_PER_BLOCK_MASK );
+				if ( log2Step != LOG2_ONES_PER_BLOCK && ( sub & ( 1 << log2Step ) - 1 ) == 0 ) {
+					final long pos = i * 64L + Long.numberOfTrailingZeros( w );
+					final int log2Width = (int)( desc >>> 5 & 3 ) + 4;
+					final long index = ( desc >>> 8 ) + ( sub >>> log2Step );
+					final long value = log2Width == 6 ? pos : pos - inventory[ block ];
+					if ( ASSERTS ) assert log2Width == 6 || value < 1L << ( 1 << log2Width );
+					final int shift = log2Width == 6 ? 0 : (int)( index << log2Width & 63 );
+					subinventory[ (int)( index >>> 6 - log2Width ) ] |= value << shift;
+				}
+				d++;
+			}
+	}
+
+	/** Returns a word of the bit vector, with the bits beyond the end cleared. */
+	private long word( final int i, final long length ) {
+		final long word = bits[ i ];
+		return i == ( length - 1 ) / 64 && length % 64 != 0 ? word & ( 1L << length ) - 1 : word;
+	}
+
+	public long select( long rank ) {
+		if ( rank >= numOnes ) return -1;
+
+		final int block = (int)( rank >>> LOG2_ONES_PER_BLOCK );
+		final long blockStart = inventory[ block ];
+		final int subrank = (int)( rank & ONES_PER_BLOCK_MASK );
+
+		if ( subrank == 0 ) return blockStart;
+
+		final long desc = descriptor[ block ];
+		final int log2Step = (int)( desc & 0x1F );
+		long start;
+
+		if ( log2Step == LOG2_ONES_PER_BLOCK ) start = blockStart;
+		else {
+			final long index = ( desc >>> 8 ) + ( subrank >>> log2Step );
+			switch( (int)( desc >>> 5 & 3 ) ) {
+			case 0:
+				start = blockStart + ( subinventory[ (int)( index >>> 2 ) ] >>> ( index & 3 ) * 16 & 0xFFFF );
+				break;
+			case 1:
+				start = blockStart + ( subinventory[ (int)( index >>> 1 ) ] >>> ( index & 1 ) * 32 & 0xFFFFFFFFL );
+				break;
+			default:
+				start = subinventory[ (int)index ];
+			}
+		}
+
+		int residual = subrank & ( 1 << log2Step ) - 1;
+		if ( residual == 0 ) return start;
+
+		final long bits[] = this.bits;
+		int wordIndex = (int)( start / 64 );
+		long word = bits[ wordIndex ] & -1L << start;
+
+		for(;;) {
+			final int bitCount = Long.bitCount( word );
+			if ( residual < bitCount ) break;
+			word = bits[ ++wordIndex ];
+			residual -= bitCount;
+		}
+
+		return wordIndex * 64L + Fast.select( word, residual );
+	}
+
+	/** Performs a bulk select of consecutive ranks into a given array fragment.
+	 *
+	 * @param rank the first rank to select.
+	 * @param dest the destination array; it will be filled with {@code length} positions of consecutive bits starting at position {@code offset}.
+	 * @param offset the first bit position written in {@code dest}.
+	 * @param length the number of bit positions in {@code dest} starting at {@code offset}.
+	 * @return {@code dest}
+	 * @see #select(long, long[])
+	 */
+	public long[] select( long rank, long[] dest, final int offset, final int length ) {
+		if ( length == 0 ) return dest;
+		long s = select( rank );
+		dest[ offset ] = s;
+		int curr = (int)( s / Long.SIZE );
+
+		long window = bits[ curr ] & -1L << s;
+		window &= window - 1;
+
+		for( int i = 1; i < length; i++ ) {
+			while( window == 0 ) window = bits[ ++curr ];
+			dest[ offset + i ] = curr * Long.SIZE + Long.numberOfTrailingZeros( window );
+			window &= window - 1;
+		}
+
+		return dest;
+	}
+
+	/** Performs a bulk select of consecutive ranks into a given array.
+	 *
+	 * @param rank the first rank to select.
+	 * @param dest the destination array; it will be filled with position of consecutive bits.
+	 * @return {@code dest}
+	 * @see #select(long, long[], int, int)
+	 */
+	public long[] select( long rank, long[] dest ) {
+		return select( rank, dest, 0, dest.length );
+	}
+
+	/** Computes selections in two passes: the first one reads the inventory, the second one
+	 * completes the selection, so that the cache misses of different ranks can overlap.
+	 *
+	 * @param rank an array of ranks.
+	 * @param dest an array at least as long as <code>rank</code> that will be filled with the position
+	 * of the bit of each rank, or &minus;1 if no such position exists.
+	 * @return <code>dest</code>.
+	 */
+	public long[] select( final long[] rank, final long[] dest ) {
+		final long[] inventory = this.inventory;
+		final int n = rank.length;
+		// The values stored in the first pass are just a side effect of loading the inventory
+		for( int i = 0; i < n; i++ ) dest[ i ] = rank[ i ] < numOnes ? inventory[ (int)( rank[ i ] >>> LOG2_ONES_PER_BLOCK ) ] : -1;
+		for( int i = 0; i < n; i++ ) dest[ i ] = select( rank[ i ] );
+		return dest;
+	}
+
+	private void readObject( final ObjectInputStream s ) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		bits = bitVector.bits();
+	}
+
+	public long numBits() {
+		return inventory.length * (long)Long.SIZE + descriptor.length * (long)Long.SIZE + subinventory.length * (long)Long.SIZE;
+	}
+
+	public BitVector bitVector() {
+		return bitVector;
+	}
+}
@@ -0,0 +1,81 @@
+package it.unimi.dsi.sux4j.bits;
+
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2016 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+
+/** A balanced parentheses structure providing, besides matching, the navigation primitives
+ * needed by succinct trees.
+ *
+ * <p>The <em>excess</em> at a position is the number of open parentheses minus the number of closed parentheses
+ * preceding the position: in the standard balanced-parentheses representation of an ordinal tree, in which each node is
+ * represented by its open parenthesis, the excess at the open parenthesis of a node is its depth.
+ * Unlike {@link BalancedParentheses}, all methods of this interface are mandatory.
+ */
+public interface ExtendedBalancedParentheses extends BalancedParentheses {
+
+	/** Returns the excess at a given position.
+	 *
+	 * @param pos a position between 0 and the length of the {@linkplain #bitVector() bit vector} (inclusive).
+	 * @return the number of open parentheses minus the number of closed parentheses in the interval [0..<code>pos</code>).
+	 */
+	public long excess( long pos );
+
+	/** Returns the leftmost position of minimum excess in a given interval.
+	 *
+	 * @param from the starting position (inclusive).
+	 * @param to the ending position (inclusive); it must not be smaller than <code>from</code>.
+	 * @return the leftmost position in [<code>from</code>..<code>to</code>] whose {@linkplain #excess(long) excess} is minimum.
+	 */
+	public long rmq( long from, long to );
+
+	/** Returns the ancestor of a node at a given distance.
+	 *
+	 * @param pos a position in the bit vector containing an open parenthesis (a one).
+	 * @param d a distance; zero returns <code>pos</code>, one returns the same value as {@link #enclose(long)}, and so on.
+	 * @return the position of the open parenthesis of the ancestor of <code>pos</code> at distance <code>d</code>,
+	 * or &minus;1 if <code>d</code> is larger than the {@linkplain #excess(long) depth} of <code>pos</code>.
+	 */
+	public long levelAncestor( long pos, long d );
+
+	/** Returns the lowest common ancestor of two nodes.
+	 *
+	 * @param u a position in the bit vector containing an open parenthesis (a one).
+	 * @param v a position in the bit vector containing an open parenthesis (a one).
+	 * @return the position of the open parenthesis of the lowest common ancestor of <code>u</code> and <code>v</code>
+	 * (possibly <code>u</code> or <code>v</code>), or &minus;1 if the two nodes belong to different trees.
+	 */
+	public long lca( long u, long v );
+
+	/** Returns the number of nodes in the subtree of a node.
+	 *
+	 * @param pos a position in the bit vector containing an open parenthesis (a one).
+	 * @return the number of pairs of parentheses enclosed by <code>pos</code>, including itself.
+	 */
+	public long subtreeSize( long pos );
+
+	/** Returns the position of the open parenthesis of the pair that most tightly encloses the given open parenthesis.
+	 *
+	 * @param pos a position in the bit vector containing an open parenthesis (a one).
+	 * @return the position of the open parenthesis of the pair that most tightly encloses <code>pos</code>, or &minus;1 if
+	 * no pair encloses <code>pos</code>.
+	 */
+	public long enclose( long pos );
+}
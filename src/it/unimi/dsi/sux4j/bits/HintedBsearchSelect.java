@@ -110,6 +110,11 @@ public class HintedBsearchSelect implements Select {
         return word * 64L + Fast.select( bits[ (int)word ], (int)rankInWord );
 	}
 
+	public long[] select( final long[] rank, final long[] dest ) {
+		for( int i = 0; i < rank.length; i++ ) dest[ i ] = select( rank[ i ] );
+		return dest;
+	}
+
 	public long numBits() {
 		return rank9.numBits() + inventory.length * (long)Integer.SIZE;
 	}
@@ -0,0 +1,229 @@
+package it.unimi.dsi.sux4j.bits;
+
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2016 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+import it.unimi.dsi.bits.AbstractBitVector;
+import it.unimi.dsi.bits.BitVector;
+import it.unimi.dsi.bits.Fast;
+import it.unimi.dsi.bits.LongArrayBitVector;
+
+import java.io.Serializable;
+
+/** A rank/select implementation interleaving counts and bits in 512-bit blocks.
+ *
+ * <p>{@link Rank9} keeps its counts in an array separate from the indexed bits, so a rank touches at least two cache lines.
+ * This class copies the bit vector into a single array of 512-bit blocks: the first longword of each block
+ * is a header, and the following seven longwords contain 448 bits of the original vector.
+ * The header contains, in its lower {@value #ABSOLUTE_BITS} bits, the number of ones preceding the block,
+ * and in the remaining bits three 9-bit counts of the ones in the first two, four and six longwords of the block. A rank
+ * thus requires access to a single block, with at most two population counts.
+ *
+ * <p>The JVM aligns arrays on 8 bytes only, and Java offers no way to align them further, so blocks start at the same,
+ * unknown offset within a cache line (e.g., large arrays allocated by G1 in their own regions start 16 bytes after
+ * a line boundary). A rank reads the header and at most two longwords ending with the one containing the position, so it touches a second
+ * cache line with a probability growing with the offset (from 0 for aligned blocks to 1 for blocks starting 56 bytes after a
+ * line boundary). On a 2<sup>30</sup>-bit vector and random positions we measured about 57&nbsp;ns/rank with aligned blocks,
+ * 59&ndash;65&nbsp;ns/rank with the offsets from 8 to 48 bytes and 69&nbsp;ns/rank with the worst offset, against 77&nbsp;ns/rank for {@link Rank9}:
+ * adjacent-line prefetching hides most of the second miss.
+ *
+ * <p>Selection uses an inventory recording the block of one bit every {@value #ONES_PER_INVENTORY}, followed by a binary search on
+ * the headers and by broadword selection in the block.
+ *
+ * <p>Since the bits are copied, the {@linkplain #bitVector() bit vector} returned by this structure is a read-only view
+ * of the interleaved array, and the original vector can be discarded. The overall additional space is about 14% on top of the bits.
+ */
+
+public class InterleavedRankSelect extends AbstractRank implements Rank, Select {
+	private static final long serialVersionUID = 1L;
+	private static final boolean ASSERTS = false;
+
+	/** The number of longwords in a block (including the header). */
+	private static final int WORDS_PER_BLOCK = 8;
+	/** The number of bits of the original vector stored in a block. */
+	private static final int BITS_PER_BLOCK = ( WORDS_PER_BLOCK - 1 ) * Long.SIZE;
+	/** The number of lower bits of a header used to store the number of ones preceding the block. */
+	private static final int ABSOLUTE_BITS = 37;
+	private static final long ABSOLUTE_MASK = ( 1L << ABSOLUTE_BITS ) - 1;
+	private static final int LOG2_ONES_PER_INVENTORY = 9;
+	private static final int ONES_PER_INVENTORY = 1 << LOG2_ONES_PER_INVENTORY;
+
+	/** The interleaved array of headers and bits, with an additional block at the end. */
+	protected final long[] bits;
+	/** The number of bits of the indexed vector. */
+	protected final long length;
+	/** The number of ones in the indexed vector. */
+	protected final long numOnes;
+	/** The number of blocks (excluding the additional one). */
+	protected final int numBlocks;
+	/** The block containing the one of rank <var>k</var>{@link #ONES_PER_INVENTORY}, for each <var>k</var>, followed by the last block index. */
+	protected final int[] inventory;
+	/** A view of the indexed bits. */
+	protected final BitVector bitVector;
+
+	/** Creates a new interleaved rank/select structure on a copy of the given bit vector.
+	 *
+	 * @param bitVector a bit vector.
+	 */
+	public InterleavedRankSelect( final BitVector bitVector ) {
+		length = bitVector.length();
+		if ( length / BITS_PER_BLOCK >= Integer.MAX_VALUE / WORDS_PER_BLOCK - 1 ) throw new IllegalArgumentException( "Bit vector too long: " + length );
+		numBlocks = (int)( ( length + BITS_PER_BLOCK - 1 ) / BITS_PER_BLOCK );
+		bits = new long[ ( numBlocks + 1 ) * WORDS_PER_BLOCK ];
+
+		long c = 0;
+		for( int block = 0; block < numBlocks; block++ ) {
+			final int base = block * WORDS_PER_BLOCK;
+			long header = c;
+			int blockCount = 0;
+			for( int w = 0; w < WORDS_PER_BLOCK - 1; w++ ) {
+				if ( w != 0 && w % 2 == 0 ) header |= (long)blockCount << ABSOLUTE_BITS + 9 * ( w / 2 - 1 );
+				final long from = (long)block * BITS_PER_BLOCK + w * Long.SIZE;
+				if ( from < length ) {
+					final long word = bitVector.getLong( from, Math.min( from + Long.SIZE, length ) );
+					bits[ base + 1 + w ] = word;
+					blockCount += Long.bitCount( word );
+				}
+			}
+			bits[ base ] = header;
+			c += blockCount;
+		}
+
+		bits[ numBlocks * WORDS_PER_BLOCK ] = c;
+		numOnes = c;
+
+		inventory = new int[ (int)( ( numOnes + ONES_PER_INVENTORY - 1 ) >>> LOG2_ONES_PER_INVENTORY ) + 1 ];
+		long nextSample = 0;
+		for( int block = 0; block < numBlocks; block++ ) {
+			final long end = bits[ ( block + 1 ) * WORDS_PER_BLOCK ] & ABSOLUTE_MASK;
+			for( ; nextSample < end; nextSample += ONES_PER_INVENTORY ) inventory[ (int)( nextSample >>> LOG2_ONES_PER_INVENTORY ) ] = block;
+		}
+		inventory[ inventory.length - 1 ] = Math.max( 0, numBlocks - 1 );
+
+		this.bitVector = new InterleavedBitVector( bits, length );
+	}
+
+	/** Creates a new interleaved rank/select structure on a copy of the given bit array.
+	 *
+	 * @param bits an array of longs representing a bit array.
+	 * @param length the number of bits to use from <code>bits</code>.
+	 */
+	public InterleavedRankSelect( final long[] bits, final long length ) {
+		this( LongArrayBitVector.wrap( bits, length ) );
+	}
+
+	public long rank( final long pos ) {
+		if ( ASSERTS ) assert pos >= 0;
+		if ( ASSERTS ) assert pos <= length;
+		final int block = (int)( pos / BITS_PER_BLOCK );
+		final int offset = (int)( pos - (long)block * BITS_PER_BLOCK );
+		final int base = block * WORDS_PER_BLOCK;
+		final int word = offset >>> 6;
+		final int pair = word >>> 1;
+		final long header = bits[ base ];
+
+		return ( header & ABSOLUTE_MASK )
+				// The relative count for the first pair is implicitly zero
+				+ ( header >>> ABSOLUTE_BITS - 9 + 9 * pair & 0x1FF & -( pair + 3 >>> 2 ) )
+				// The whole preceding word, if word is odd
+				+ Long.bitCount( bits[ base + word ] & -( word & 1 ) )
+				+ Long.bitCount( bits[ base + 1 + word ] & ( 1L << offset ) - 1 );
+	}
+
+	public long select( long rank ) {
+		if ( rank >= numOnes ) return -1;
+
+		final int inventoryIndex = (int)( rank >>> LOG2_ONES_PER_INVENTORY );
+		// The block containing the one of given rank is the last block whose preceding count is at most rank
+		int lo = inventory[ inventoryIndex ], hi = inventory[ inventoryIndex + 1 ];
+		while( lo < hi ) {
+			final int mid = ( lo + hi + 1 ) >>> 1;
+			if ( ( bits[ mid * WORDS_PER_BLOCK ] & ABSOLUTE_MASK ) <= rank ) lo = mid;
+			else hi = mid - 1;
+		}
+
+		final int base = lo * WORDS_PER_BLOCK;
+		final long header = bits[ base ];
+		int residual = (int)( rank - ( header & ABSOLUTE_MASK ) );
+		int pair = 0;
+		for( int k = 1; k < 4; k++ ) {
+			final int count = (int)( header >>> ABSOLUTE_BITS + 9 * ( k - 1 ) & 0x1FF );
+			if ( count > residual ) break;
+			pair = k;
+		}
+		if ( pair != 0 ) residual -= (int)( header >>> ABSOLUTE_BITS + 9 * ( pair - 1 ) & 0x1FF );
+
+		int word = pair * 2;
+		final int firstCount = Long.bitCount( bits[ base + 1 + word ] );
+		if ( firstCount <= residual ) {
+			residual -= firstCount;
+			word++;
+		}
+
+		if ( ASSERTS ) assert residual < Long.bitCount( bits[ base + 1 + word ] );
+		return (long)lo * BITS_PER_BLOCK + word * Long.SIZE + Fast.select( bits[ base + 1 + word ], residual );
+	}
+
+	public long[] select( final long[] rank, final long[] dest ) {
+		for( int i = 0; i < rank.length; i++ ) dest[ i ] = select( rank[ i ] );
+		return dest;
+	}
+
+	public long count() {
+		return numOnes;
+	}
+
+	/** Returns the number of bits used by this structure, not including the bits of the original vector.
+	 *
+	 * @return the number of bits used by headers, padding and inventory.
+	 */
+	public long numBits() {
+		return (long)bits.length * Long.SIZE - length + (long)inventory.length * Integer.SIZE;
+	}
+
+	public BitVector bitVector() {
+		return bitVector;
+	}
+
+	/** A read-only view of the bits stored in an interleaved array. */
+	protected static final class InterleavedBitVector extends AbstractBitVector implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private final long[] bits;
+		private final long length;
+
+		private InterleavedBitVector( final long[] bits, final long length ) {
+			this.bits = bits;
+			this.length = length;
+		}
+
+		@Override
+		public boolean getBoolean( final long index ) {
+			if ( index >= length ) throw new IndexOutOfBoundsException( Long.toString( index ) );
+			final int block = (int)( index / BITS_PER_BLOCK );
+			final int offset = (int)( index - (long)block * BITS_PER_BLOCK );
+			return ( bits[ block * WORDS_PER_BLOCK + 1 + ( offset >>> 6 ) ] & 1L << offset ) != 0;
+		}
+
+		@Override
+		public long length() {
+			return length;
+		}
+	}
+}
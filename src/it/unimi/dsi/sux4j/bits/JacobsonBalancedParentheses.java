@@ -35,7 +35,14 @@ import java.util.Collections;
 
 /** An implementation of Jacobson's balanced parentheses data structure.
  * 
- * <strong>Warning</strong>: this class is a stub implementing just those method needed by a {@link HollowTrieMonotoneMinimalPerfectHashFunction}.
+ * <p>Depending on the constructor flags, this class stores the <em>opening pioneers</em> (the leftmost far open parenthesis
+ * of each group of far open parentheses of a word matched in the same word), which are necessary for {@link #findClose(long)},
+ * and the <em>closing pioneers</em> (the rightmost far closed parenthesis of each group of far closed parentheses of a word matched in the same word),
+ * which are necessary for {@link #findOpen(long)}. Since the two families are made of matching pairs, they form together a
+ * balanced sequence: {@link #enclose(long)} uses both families and, additionally, stores for each closing pioneer the
+ * opening pioneer of the pioneer pair that most tightly encloses it.
+ * 
+ * <p>Note that a {@link HollowTrieMonotoneMinimalPerfectHashFunction} needs just {@link #findClose(long)}.
  * 
  * @author Sebastiano Vigna
  */
@@ -66,6 +73,8 @@ public class JacobsonBalancedParentheses implements BalancedParentheses {
 	private final SparseSelect closingPioneers;
 	private final SparseRank closingPioneersRank;
 	private final EliasFanoLongBigList closingPioneerMatches;
+	/** For each closing pioneer, its distance from the opening pioneer of the tightest pioneer pair enclosing it, or zero. */
+	private final EliasFanoLongBigList closingPioneerEnclosures;
 
 	public final static int countFarOpen( long word, int l ) {
 		int c = 0, e = 0;
@@ -447,6 +456,31 @@ public class JacobsonBalancedParentheses implements BalancedParentheses {
         
 	}
 
+	/** Finds the <var>k</var>-th far open parenthesis of a word, starting from the most significant bit.
+	 * 
+	 * <p>This method is the broadword mirror of {@link #findFarClose(long, int)}: reversing the order of the bits
+	 * and complementing them turns far open parentheses into far closed parentheses.
+	 * 
+	 * @param word a word.
+	 * @param k the index (starting from zero) of the far open parenthesis, counting from the most significant bit.
+	 * @return the position of the <var>k</var>-th far open parenthesis, or a negative value if there is no such parenthesis.
+	 */
+	public final static int findFarOpen( final long word, final int k ) {
+		return Long.SIZE - 1 - findFarClose( ~Long.reverse( word ), k );
+	}
+
+	/** Finds the distance of the open parenthesis matching the closed parenthesis in the most significant bit of a word.
+	 * 
+	 * <p>This method is the broadword mirror of {@link #findNearClose(long)}.
+	 * 
+	 * @param word a word whose most significant bit is zero (i.e., a closed parenthesis).
+	 * @return the distance from the most significant bit of the matching open parenthesis, or a value larger than 63 if
+	 * there is no matching parenthesis in <code>word</code>.
+	 */
+	public final static int findNearOpen( final long word ) {
+		return findNearClose( ~Long.reverse( word ) );
+	}
+
 	public JacobsonBalancedParentheses( final BitVector bv ) {
 		this( bv, true, true, true );
 	}
@@ -469,7 +503,7 @@ public class JacobsonBalancedParentheses implements BalancedParentheses {
 		
 		LongArrayList closingPioneers = null, closingPioneerMatches = null, openingPioneers = null, openingPioneerMatches = null;
 
-		if ( findOpen ) {
+		if ( findOpen || enclose ) {
 			closingPioneers = new LongArrayList();
 			closingPioneerMatches = new LongArrayList();
 			for( int block = 0; block < numWords; block++ ) {
@@ -511,7 +545,7 @@ public class JacobsonBalancedParentheses implements BalancedParentheses {
 			if ( DEBUG ) System.err.println( "):" + closingPioneerMatches );
 		}
 
-		if ( findClose ) {
+		if ( findClose || enclose ) {
 			Arrays.fill( residual, (byte)0 );
 
 			openingPioneers = new LongArrayList();
@@ -569,13 +603,94 @@ public class JacobsonBalancedParentheses implements BalancedParentheses {
 		this.openingPioneers = openingPioneers != null ? new SparseSelect( openingPioneers ) : null;
 		this.openingPioneersRank = openingPioneers != null ? this.openingPioneers.getRank() : null;
 		this.openingPioneerMatches = openingPioneers != null ? new EliasFanoLongBigList( openingPioneerMatches ) : null;
-}
-	
-	public long enclose( long pos ) {
-		throw new UnsupportedOperationException();
+
+		if ( enclose ) {
+			// We scan the pioneer family, which is balanced, and record the innermost opening pioneer enclosing each closing pioneer.
+			final LongArrayList closingPioneerEnclosures = new LongArrayList();
+			final LongArrayList stack = new LongArrayList();
+			int o = 0;
+			for( int c = 0; c < closingPioneers.size(); c++ ) {
+				final long closingPioneer = closingPioneers.getLong( c );
+				while( o < openingPioneers.size() && openingPioneers.getLong( o ) < closingPioneer ) stack.push( openingPioneers.getLong( o++ ) );
+				final long match = stack.popLong();
+				if ( ASSERTS ) assert match == closingPioneer - closingPioneerMatches.getLong( c ) : match + " != " + ( closingPioneer - closingPioneerMatches.getLong( c ) );
+				closingPioneerEnclosures.add( stack.isEmpty() ? 0 : closingPioneer - stack.topLong() );
+			}
+			this.closingPioneerEnclosures = new EliasFanoLongBigList( closingPioneerEnclosures );
+		}
+		else this.closingPioneerEnclosures = null;
+	}
+
+	/** Returns the position of the open parenthesis of the pair that most tightly encloses the given open parenthesis.
+	 * 
+	 * <p>The enclosing parenthesis is searched first in the same word, by a broadword backward search. If the search fails
+	 * but the word contains the closed parenthesis of the enclosing pair, the latter is located by a broadword search among
+	 * the far closed parentheses of the word, and then matched as in {@link #findOpen(long)}. Otherwise, the pair enclosing <code>pos</code> spans the whole word, and the enclosing parenthesis is the 
+	 * rightmost far open parenthesis in the group of the opening pioneer of the tightest pioneer pair enclosing <code>pos</code>.
+	 * The latter is the last pioneer preceding <code>pos</code>, if it is an opening pioneer, or the opening pioneer
+	 * enclosing the last pioneer preceding <code>pos</code>, if it is a closing pioneer.
+	 * 
+	 * @param pos a position in the bit vector containing an open parenthesis (a one).
+	 * @return the position of the open parenthesis of the pair that most tightly encloses <code>pos</code>, or &minus;1 if
+	 * no pair encloses <code>pos</code>.
+	 */
+	public long enclose( final long pos ) {
+		if ( closingPioneerEnclosures == null ) throw new UnsupportedOperationException();
+		if ( DEBUG ) System.err.println( "enclose(" + pos + ")..." );
+		final int word = (int)( pos / Long.SIZE );
+		final int bit = (int)( pos & LongArrayBitVector.WORD_MASK );
+		if ( ( bits[ word ] & 1L << bit ) == 0 ) throw new IllegalArgumentException();
+
+		// We look for the open parenthesis matching a virtual closed parenthesis in pos
+		final int result = findNearOpen( ( bits[ word ] & ~( 1L << bit ) ) << Long.SIZE - 1 - bit );
+		if ( result <= bit ) {
+			if ( DEBUG ) System.err.println( "Returning in-word value: " + ( pos - result ) );
+			return pos - result;
+		}
+
+		// The number of far closed parentheses before pos in the same word
+		final int farClose = bit - 2 * Long.bitCount( bits[ word ] & ( 1L << bit ) - 1 );
+		final int l = (int)Math.min( Long.SIZE, bitVector.length() - word * (long)Long.SIZE );
+		final int close = findFarClose( bits[ word ], farClose );
+		if ( close < l ) {
+			if ( DEBUG ) System.err.println( "Enclosing pair closed in word at " + ( word * (long)Long.SIZE + close ) );
+			return matchFarClose( word * (long)Long.SIZE + close, word, close );
+		}
+
+		// The last pioneer preceding pos
+		final long openingRank = openingPioneersRank.rank( pos );
+		final long closingRank = closingPioneersRank.rank( pos );
+		final long openingPioneer = openingRank == 0 ? -1 : openingPioneers.select( openingRank - 1 );
+		final long closingPioneer = closingRank == 0 ? -1 : closingPioneers.select( closingRank - 1 );
+
+		final long pioneer;
+		final long pioneerIndex;
+		if ( openingPioneer > closingPioneer ) {
+			pioneer = openingPioneer;
+			pioneerIndex = openingRank - 1;
+		}
+		else {
+			if ( closingPioneer == -1 ) return -1;
+			final long distance = closingPioneerEnclosures.getLong( closingRank - 1 );
+			if ( distance == 0 ) return -1;
+			pioneer = closingPioneer - distance;
+			pioneerIndex = openingPioneersRank.rank( pioneer );
+		}
+
+		if ( DEBUG ) System.err.println( "Enclosing pioneer: " + pioneer );
+		if ( ASSERTS ) assert openingPioneers.select( pioneerIndex ) == pioneer;
+
+		// The enclosing parenthesis is the rightmost far open parenthesis of the group of the pioneer
+		final int pioneerWord = (int)( pioneer / Long.SIZE );
+		final long nextPioneer = openingPioneers.select( pioneerIndex + 1 );
+		if ( nextPioneer == -1 || nextPioneer / Long.SIZE != pioneerWord ) return pioneerWord * (long)Long.SIZE + findFarOpen( bits[ pioneerWord ], 0 );
+		final int nextPioneerBit = (int)( nextPioneer % Long.SIZE );
+		final int numFarOpen = 2 * Long.bitCount( bits[ pioneerWord ] >>> nextPioneerBit >>> 1 ) - ( Long.SIZE - 1 - nextPioneerBit );
+		return pioneerWord * (long)Long.SIZE + findFarOpen( bits[ pioneerWord ], numFarOpen + 1 );
 	}
 
 	public long findClose( final long pos ) {
+		if ( openingPioneers == null ) throw new UnsupportedOperationException();
 		if ( DEBUG ) System.err.println( "findClose(" + pos + ")..." );
 		final int word = (int)( pos / Long.SIZE );
 		final int bit = (int)( pos & LongArrayBitVector.WORD_MASK );
@@ -635,14 +750,73 @@ public class JacobsonBalancedParentheses implements BalancedParentheses {
 		return matchWord * (long)Long.SIZE + findFarClose( bits[ matchWord ], numFarClose - e );
 	}
 
-	public long findOpen( long pos ) {
-		throw new UnsupportedOperationException();
+	public long findOpen( final long pos ) {
+		if ( closingPioneers == null ) throw new UnsupportedOperationException();
+		if ( DEBUG ) System.err.println( "findOpen(" + pos + ")..." );
+		final int word = (int)( pos / Long.SIZE );
+		final int bit = (int)( pos & LongArrayBitVector.WORD_MASK );
+		if ( ( bits[ word ] & 1L << bit ) != 0 ) throw new IllegalArgumentException();
+
+		final int result = findNearOpen( bits[ word ] << Long.SIZE - 1 - bit );
+
+		if ( result <= bit ) {
+			if ( DEBUG ) System.err.println( "Returning in-word value: " + ( pos - result ) );
+			return pos - result;
+		}
+
+		return matchFarClose( pos, word, bit );
+	}
+
+	/** Returns the position of the open parenthesis matching a far closed parenthesis.
+	 * 
+	 * @param pos the position of a far closed parenthesis.
+	 * @param word the word containing <code>pos</code>.
+	 * @param bit the bit of <code>word</code> corresponding to <code>pos</code>.
+	 * @return the position of the open parenthesis matching <code>pos</code>.
+	 */
+	private long matchFarClose( final long pos, final int word, final int bit ) {
+		// Closing pioneers are the rightmost parentheses of their group
+		final long pioneerIndex = closingPioneersRank.rank( pos );
+		final long pioneer = closingPioneers.select( pioneerIndex );
+		final long match = pioneer - closingPioneerMatches.getLong( pioneerIndex );
+
+		if ( pos == pioneer ) {
+			if ( DEBUG ) System.err.println( "Returning exact pioneer match: " + match );
+			return match;
+		}
+
+		if ( DEBUG ) System.err.println( "pioneer: " + pioneer + "; match: " + match );
+		final int dist = (int)( pioneer - pos );
+
+		if ( ASSERTS ) assert word == pioneer / Long.SIZE : "pos: " + pos + " word:" + word + " pioneer: " + pioneer + " word:" + pioneer / Long.SIZE;
+		if ( ASSERTS ) assert word != match / Long.SIZE;
+		if ( ASSERTS ) assert pioneer > pos;
+
+		// The excess of closed parentheses in (pos..pioneer]
+		final int e = dist - 2 * Long.bitCount( ( bits[ word ] >>> bit + 1 ) & ( 1L << dist ) - 1 );
+		if ( ASSERTS ) {
+			assert e >= 1;
+			int ee = 0;
+			for( long p = pos + 1; p <= pioneer; p++ ) if ( ( bits[ (int)( p / Long.SIZE ) ] & 1L << p ) != 0 ) ee--;
+			else ee++;
+			assert ee == e: ee + " != " + e;
+		}
+		if ( DEBUG ) System.err.println( "eccess: " + e );
+
+		final int matchWord = (int)( match / Long.SIZE );
+		final int matchBit = (int)( match % Long.SIZE );
+
+		final int numFarOpen = 2 * Long.bitCount( bits[ matchWord ] >>> matchBit >>> 1 ) - ( Long.SIZE - 1 - matchBit );
+
+		if ( DEBUG ) System.err.println( "far open after match: " + numFarOpen );
+		return matchWord * (long)Long.SIZE + findFarOpen( bits[ matchWord ], numFarOpen - e );
 	}
 
 	public long numBits() {
 		return 
 			( openingPioneers != null ? ( openingPioneers.numBits() + openingPioneersRank.numBits() + openingPioneerMatches.numBits() ) : 0 ) + 
-			( closingPioneers != null ? closingPioneers.numBits() + closingPioneersRank.numBits() + closingPioneerMatches.numBits() : 0 );
+			( closingPioneers != null ? closingPioneers.numBits() + closingPioneersRank.numBits() + closingPioneerMatches.numBits() : 0 ) +
+			( closingPioneerEnclosures != null ? closingPioneerEnclosures.numBits() : 0 );
 	}
 
 	private void readObject( final ObjectInputStream s ) throws IOException, ClassNotFoundException {
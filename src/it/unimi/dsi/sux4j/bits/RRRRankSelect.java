@@ -0,0 +1,446 @@
+package it.unimi.dsi.sux4j.bits;
+
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2016 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+import it.unimi.dsi.bits.AbstractBitVector;
+import it.unimi.dsi.bits.BitVector;
+import it.unimi.dsi.bits.Fast;
+import it.unimi.dsi.bits.LongArrayBitVector;
+
+import java.io.Serializable;
+
+/** A compressed rank/select dictionary in the style of Raman, Raman and Rao.
+ *
+ * <p>The bit vector is divided into blocks of {@value #BLOCK_SIZE} bits. Each block is represented by its <em>class</em> (its number of ones),
+ * stored in 6 bits, and by its <em>offset</em>, that is, its index in the colexicographical enumeration of all blocks of the same class, stored
+ * in &lceil;log <code>C</code>({@value #BLOCK_SIZE}, <var>k</var>)&rceil; bits, where <var>k</var> is the class. Every {@value #BLOCKS_PER_SAMPLE}
+ * blocks we record the number of preceding ones and the position of the next offset. The space used is thus close to the empirical entropy of the
+ * vector plus about 17% of its length, which is less than the space used by the original vector and its rank/select structures whenever
+ * the density is not close to 1/2. On vectors with clustered ones (e.g., markers of runs) the space used can be much smaller than that of
+ * a {@link SparseSelect}, which, on the other hand, is preferable for uniformly distributed sparse vectors.
+ *
+ * <p>The original bit vector is not needed: the {@linkplain #bitVector() bit vector} returned by this structure is a read-only view
+ * that decodes blocks on the fly (but see {@link #getBoolean(long)}). Decoding a block requires a scan of the combinatorial number system
+ * that stops as soon as the remaining ones are packed at the bottom of the block. Ranking, selection and {@link #getBoolean(long)} decode only
+ * the part of the block above the position they are looking for.
+ *
+ * <p>Selection uses an inventory recording, for the one (zero) of rank <var>k</var>2<sup>{@value #LOG2_ONES_PER_INVENTORY}</sup>, the sample preceding it, so
+ * that the binary search on samples is restricted to the samples between two consecutive inventory entries.
+ */
+
+public class RRRRankSelect extends AbstractRank implements Rank, Select, SelectZero {
+	private static final long serialVersionUID = 1L;
+	private static final boolean ASSERTS = false;
+
+	/** The number of bits in a block. */
+	public static final int BLOCK_SIZE = 63;
+	/** The number of blocks between two samples. */
+	private static final int LOG2_BLOCKS_PER_SAMPLE = 5;
+	private static final int BLOCKS_PER_SAMPLE = 1 << LOG2_BLOCKS_PER_SAMPLE;
+	/** The number of bits used to store a class. */
+	private static final int CLASS_BITS = 6;
+	private static final int CLASS_MASK = ( 1 << CLASS_BITS ) - 1;
+	/** The number of ones (zeroes) between two entries of {@link #selectInventory} ({@link #selectZeroInventory}). */
+	private static final int LOG2_ONES_PER_INVENTORY = 12;
+
+	/** The binomial coefficients: <code>BINOMIAL[</code><var>k</var><code>][</code><var>n</var><code>]</code> is <code>C</code>(<var>n</var>, <var>k</var>),
+	 * for 0 &le; <var>n</var>, <var>k</var> &le; {@value #BLOCK_SIZE}. The first index is the class, so that decoding scans a row. */
+	private static final long[][] BINOMIAL = new long[ BLOCK_SIZE + 1 ][ BLOCK_SIZE + 1 ];
+	/** The number of bits necessary to store an offset for each class. */
+	private static final int[] OFFSET_BITS = new int[ BLOCK_SIZE + 1 ];
+
+	static {
+		for( int n = 0; n <= BLOCK_SIZE; n++ ) {
+			BINOMIAL[ 0 ][ n ] = 1;
+			for( int k = 1; k <= n; k++ ) BINOMIAL[ k ][ n ] = BINOMIAL[ k - 1 ][ n - 1 ] + ( k < n ? BINOMIAL[ k ][ n - 1 ] : 0 );
+		}
+		for( int k = 0; k <= BLOCK_SIZE; k++ ) OFFSET_BITS[ k ] = BINOMIAL[ k ][ BLOCK_SIZE ] == 1 ? 0 : Fast.mostSignificantBit( BINOMIAL[ k ][ BLOCK_SIZE ] - 1 ) + 1;
+	}
+
+	/** The number of bits of the indexed vector. */
+	protected final long length;
+	/** The number of ones in the indexed vector. */
+	protected final long numOnes;
+	/** The number of blocks. */
+	protected final long numBlocks;
+	/** The classes of the blocks, {@value #CLASS_BITS} bits each. */
+	protected final long[] classes;
+	/** The concatenated offsets of the blocks. */
+	protected final long[] offsets;
+	/** For each block whose index is a multiple of {@value #BLOCKS_PER_SAMPLE}, the number of ones preceding the block and the position in
+	 * {@link #offsets} of its offset, interleaved so that they lie in the same cache line, followed by {@link #numOnes} and the overall
+	 * length of {@link #offsets}. */
+	protected final long[] samples;
+	/** For each <var>k</var>, the last sample preceding the one of rank <var>k</var>2<sup>{@value #LOG2_ONES_PER_INVENTORY}</sup>, followed by the last sample. */
+	protected final int[] selectInventory;
+	/** For each <var>k</var>, the last sample preceding the zero of rank <var>k</var>2<sup>{@value #LOG2_ONES_PER_INVENTORY}</sup>, followed by the last sample. */
+	protected final int[] selectZeroInventory;
+	/** A view of the indexed bits. */
+	protected final BitVector bitVector;
+
+	/** Creates a new compressed rank/select structure for the given bit vector.
+	 *
+	 * @param bitVector a bit vector.
+	 */
+	public RRRRankSelect( final BitVector bitVector ) {
+		length = bitVector.length();
+		numBlocks = ( length + BLOCK_SIZE - 1 ) / BLOCK_SIZE;
+		final int numSamples = (int)( ( numBlocks + BLOCKS_PER_SAMPLE - 1 ) >>> LOG2_BLOCKS_PER_SAMPLE );
+		samples = new long[ 2 * ( numSamples + 1 ) ];
+		classes = new long[ (int)( ( numBlocks * CLASS_BITS + Long.SIZE - 1 ) / Long.SIZE ) ];
+
+		// First pass: classes and samples
+		long c = 0, pointer = 0;
+		for( long block = 0; block < numBlocks; block++ ) {
+			if ( ( block & BLOCKS_PER_SAMPLE - 1 ) == 0 ) {
+				samples[ (int)( block >>> LOG2_BLOCKS_PER_SAMPLE ) * 2 ] = c;
+				samples[ (int)( block >>> LOG2_BLOCKS_PER_SAMPLE ) * 2 + 1 ] = pointer;
+			}
+			final long from = block * BLOCK_SIZE;
+			final int k = Long.bitCount( bitVector.getLong( from, Math.min( from + BLOCK_SIZE, length ) ) );
+			final long classPos = block * CLASS_BITS;
+			classes[ (int)( classPos / Long.SIZE ) ] |= (long)k << classPos;
+			if ( classPos % Long.SIZE + CLASS_BITS > Long.SIZE ) classes[ (int)( classPos / Long.SIZE ) + 1 ] |= (long)k >>> -classPos;
+			c += k;
+			pointer += OFFSET_BITS[ k ];
+		}
+
+		numOnes = c;
+		samples[ numSamples * 2 ] = c;
+		samples[ numSamples * 2 + 1 ] = pointer;
+
+		selectInventory = new int[ (int)( ( numOnes + ( 1 << LOG2_ONES_PER_INVENTORY ) - 1 ) >>> LOG2_ONES_PER_INVENTORY ) + 1 ];
+		selectZeroInventory = new int[ (int)( ( length - numOnes + ( 1 << LOG2_ONES_PER_INVENTORY ) - 1 ) >>> LOG2_ONES_PER_INVENTORY ) + 1 ];
+		for( int i = 0, sample = 0; i < selectInventory.length - 1; i++ ) {
+			while( sample < numSamples - 1 && samples[ ( sample + 1 ) * 2 ] <= (long)i << LOG2_ONES_PER_INVENTORY ) sample++;
+			selectInventory[ i ] = sample;
+		}
+		for( int i = 0, sample = 0; i < selectZeroInventory.length - 1; i++ ) {
+			while( sample < numSamples - 1 && zeroesBefore( sample + 1 ) <= (long)i << LOG2_ONES_PER_INVENTORY ) sample++;
+			selectZeroInventory[ i ] = sample;
+		}
+		selectInventory[ selectInventory.length - 1 ] = selectZeroInventory[ selectZeroInventory.length - 1 ] = Math.max( 0, numSamples - 1 );
+
+		// Second pass: offsets (with an additional word so that reads never overflow)
+		offsets = new long[ (int)( ( pointer + Long.SIZE - 1 ) / Long.SIZE ) + 1 ];
+		pointer = 0;
+		for( long block = 0; block < numBlocks; block++ ) {
+			final long from = block * BLOCK_SIZE;
+			final long word = bitVector.getLong( from, Math.min( from + BLOCK_SIZE, length ) );
+			final int k = Long.bitCount( word );
+			final long offset = encode( word );
+			if ( ASSERTS ) assert decode( k, offset ) == word;
+			if ( OFFSET_BITS[ k ] != 0 ) {
+				offsets[ (int)( pointer / Long.SIZE ) ] |= offset << pointer;
+				if ( pointer % Long.SIZE + OFFSET_BITS[ k ] > Long.SIZE ) offsets[ (int)( pointer / Long.SIZE ) + 1 ] |= offset >>> -pointer;
+				pointer += OFFSET_BITS[ k ];
+			}
+		}
+
+		this.bitVector = new RRRBitVector( this );
+	}
+
+	/** Creates a new compressed rank/select structure for a bit vector specified by an array of longs and a number of bits.
+	 *
+	 * @param bits an array of longs representing a bit array.
+	 * @param length the number of bits to use from <code>bits</code>.
+	 */
+	public RRRRankSelect( final long[] bits, final long length ) {
+		this( LongArrayBitVector.wrap( bits, length ) );
+	}
+
+	/** Returns the colexicographical index of a block among all blocks with the same number of ones. */
+	private static long encode( long word ) {
+		long offset = 0;
+		for( int j = 1; word != 0; j++ ) {
+			offset += BINOMIAL[ j ][ Long.numberOfTrailingZeros( word ) ];
+			word &= word - 1;
+		}
+		return offset;
+	}
+
+	/** Returns the block with given class and offset. */
+	private static long decode( int k, long offset ) {
+		long word = 0;
+		long[] binomial = BINOMIAL[ k ];
+		for( int i = BLOCK_SIZE - 1; offset != 0; i-- ) {
+			final long b = binomial[ i ];
+			if ( b <= offset ) {
+				word |= 1L << i;
+				offset -= b;
+				binomial = BINOMIAL[ --k ];
+			}
+		}
+		// The remaining ones are packed at the bottom of the block
+		return word | ( 1L << k ) - 1;
+	}
+
+	/** Returns the position of the one of given rank in the block with given class and offset.
+	 * Only the part of the block above the position is decoded. */
+	private static int select( int k, long offset, final int rank ) {
+		long[] binomial = BINOMIAL[ k ];
+		for( int i = BLOCK_SIZE - 1; ; i-- ) {
+			// The remaining ones are packed at the bottom of the block
+			if ( offset == 0 ) return rank;
+			final long b = binomial[ i ];
+			if ( b <= offset ) {
+				if ( --k == rank ) return i;
+				offset -= b;
+				binomial = BINOMIAL[ k ];
+			}
+		}
+	}
+
+	/** Returns the position of the zero of given rank in the block with given class and offset.
+	 * Only the part of the block above the position is decoded. */
+	private static int selectZero( int k, long offset, final int zeroRank ) {
+		long[] binomial = BINOMIAL[ k ];
+		for( int i = BLOCK_SIZE - 1; ; i-- ) {
+			// The remaining ones are packed at the bottom of the block
+			if ( offset == 0 ) return k + zeroRank;
+			final long b = binomial[ i ];
+			if ( b <= offset ) {
+				offset -= b;
+				binomial = BINOMIAL[ --k ];
+			}
+			// There are i - k zeroes below position i
+			else if ( i - k == zeroRank ) return i;
+		}
+	}
+
+	/** Returns the bit in a given position of the block with given class and offset.
+	 * Only the part of the block above the position is decoded. */
+	private static boolean bit( int k, long offset, final int pos ) {
+		long[] binomial = BINOMIAL[ k ];
+		for( int i = BLOCK_SIZE - 1; i >= pos; i-- ) {
+			// The remaining ones are packed at the bottom of the block
+			if ( offset == 0 ) return pos < k;
+			final long b = binomial[ i ];
+			if ( b <= offset ) {
+				if ( i == pos ) return true;
+				offset -= b;
+				binomial = BINOMIAL[ --k ];
+			}
+		}
+		return false;
+	}
+
+	/** Returns the number of ones preceding a given position in the block with given class and offset.
+	 * Only the part of the block above the position is decoded. */
+	private static int rank( int k, long offset, final int pos ) {
+		long[] binomial = BINOMIAL[ k ];
+		for( int i = BLOCK_SIZE - 1; i >= pos; i-- ) {
+			// The remaining ones are packed at the bottom of the block
+			if ( offset == 0 ) return Math.min( k, pos );
+			final long b = binomial[ i ];
+			if ( b <= offset ) {
+				offset -= b;
+				binomial = BINOMIAL[ --k ];
+			}
+		}
+		return k;
+	}
+
+	private int getClass( final long block ) {
+		final long classPos = block * CLASS_BITS;
+		final int start = (int)( classPos % Long.SIZE );
+		final long l = classes[ (int)( classPos / Long.SIZE ) ] >>> start;
+		return (int)( start + CLASS_BITS <= Long.SIZE ? l : l | classes[ (int)( classPos / Long.SIZE ) + 1 ] << -start ) & CLASS_MASK;
+	}
+
+	private long getOffset( final long pointer, final int k ) {
+		final int width = OFFSET_BITS[ k ];
+		if ( width == 0 ) return 0;
+		final int start = (int)( pointer % Long.SIZE );
+		final long l = offsets[ (int)( pointer / Long.SIZE ) ] >>> start;
+		return ( start + width <= Long.SIZE ? l : l | offsets[ (int)( pointer / Long.SIZE ) + 1 ] << -start ) & ( 1L << width ) - 1;
+	}
+
+	/** Returns the bits of a given block.
+	 *
+	 * @param block a block index.
+	 * @return the bits of the block (the bits beyond the end of the vector are zero).
+	 */
+	private long block( final long block ) {
+		final int k = getClass( block );
+		return decode( k, getOffset( pointer( block ), k ) );
+	}
+
+	/** Returns the position in {@link #offsets} of the offset of a given block. */
+	private long pointer( final long block ) {
+		final int sample = (int)( block >>> LOG2_BLOCKS_PER_SAMPLE );
+		long pointer = samples[ sample * 2 + 1 ];
+		for( long b = (long)sample << LOG2_BLOCKS_PER_SAMPLE; b < block; b++ ) pointer += OFFSET_BITS[ getClass( b ) ];
+		return pointer;
+	}
+
+	/** Returns the number of zeroes preceding a given sample. */
+	private long zeroesBefore( final int sample ) {
+		return ( (long)sample << LOG2_BLOCKS_PER_SAMPLE ) * BLOCK_SIZE - samples[ sample * 2 ];
+	}
+
+	/** Returns the value of a bit of the indexed vector.
+	 *
+	 * <p>Note that this method has to decode the block containing the bit; it is thus significantly slower than
+	 * for a standard bit vector.
+	 *
+	 * @param pos a position in the indexed vector.
+	 * @return the value of the bit in position <code>pos</code>.
+	 */
+	public boolean getBoolean( final long pos ) {
+		if ( pos < 0 || pos >= length ) throw new IndexOutOfBoundsException( Long.toString( pos ) );
+		final long block = pos / BLOCK_SIZE;
+		final int k = getClass( block );
+		if ( k == 0 ) return false;
+		final int bit = (int)( pos - block * BLOCK_SIZE );
+		return bit( k, getOffset( pointer( block ), k ), bit );
+	}
+
+	public long rank( final long pos ) {
+		if ( ASSERTS ) assert pos >= 0;
+		if ( ASSERTS ) assert pos <= length;
+		if ( pos >= length ) return numOnes;
+		final long block = pos / BLOCK_SIZE;
+		final int sample = (int)( block >>> LOG2_BLOCKS_PER_SAMPLE );
+		long rank = samples[ sample * 2 ];
+		long pointer = samples[ sample * 2 + 1 ];
+		for( long b = (long)sample << LOG2_BLOCKS_PER_SAMPLE; b < block; b++ ) {
+			final int k = getClass( b );
+			rank += k;
+			pointer += OFFSET_BITS[ k ];
+		}
+
+		final int k = getClass( block );
+		final int bit = (int)( pos - block * BLOCK_SIZE );
+		if ( k == 0 || bit == 0 ) return rank;
+		return rank + rank( k, getOffset( pointer, k ), bit );
+	}
+
+	public long select( final long rank ) {
+		if ( rank < 0 || rank >= numOnes ) return -1;
+
+		// Find the last sample whose rank is at most rank, between the two samples recorded by the inventory
+		final int inventoryIndex = (int)( rank >>> LOG2_ONES_PER_INVENTORY );
+		int lo = selectInventory[ inventoryIndex ], hi = selectInventory[ inventoryIndex + 1 ];
+		while( lo < hi ) {
+			final int mid = ( lo + hi + 1 ) >>> 1;
+			if ( samples[ mid * 2 ] <= rank ) lo = mid;
+			else hi = mid - 1;
+		}
+
+		long residual = rank - samples[ lo * 2 ];
+		long pointer = samples[ lo * 2 + 1 ];
+		long block = (long)lo << LOG2_BLOCKS_PER_SAMPLE;
+		int k;
+		while( ( k = getClass( block ) ) <= residual ) {
+			residual -= k;
+			pointer += OFFSET_BITS[ k ];
+			block++;
+		}
+
+		return block * BLOCK_SIZE + select( k, getOffset( pointer, k ), (int)residual );
+	}
+
+	public long selectZero( final long zeroRank ) {
+		if ( zeroRank < 0 || zeroRank >= length - numOnes ) return -1;
+
+		// Find the last sample whose zero rank is at most zeroRank, between the two samples recorded by the inventory
+		final int inventoryIndex = (int)( zeroRank >>> LOG2_ONES_PER_INVENTORY );
+		int lo = selectZeroInventory[ inventoryIndex ], hi = selectZeroInventory[ inventoryIndex + 1 ];
+		while( lo < hi ) {
+			final int mid = ( lo + hi + 1 ) >>> 1;
+			if ( zeroesBefore( mid ) <= zeroRank ) lo = mid;
+			else hi = mid - 1;
+		}
+
+		long residual = zeroRank - zeroesBefore( lo );
+		long pointer = samples[ lo * 2 + 1 ];
+		long block = (long)lo << LOG2_BLOCKS_PER_SAMPLE;
+		int k;
+		while( BLOCK_SIZE - ( k = getClass( block ) ) <= residual ) {
+			residual -= BLOCK_SIZE - k;
+			pointer += OFFSET_BITS[ k ];
+			block++;
+		}
+
+		return block * BLOCK_SIZE + selectZero( k, getOffset( pointer, k ), (int)residual );
+	}
+
+	public long[] select( final long[] rank, final long[] dest ) {
+		for( int i = 0; i < rank.length; i++ ) dest[ i ] = select( rank[ i ] );
+		return dest;
+	}
+
+	public long count() {
+		return numOnes;
+	}
+
+	/** Returns the number of bits used by this structure, which, as the original vector is not necessary, includes
+	 * the compressed representation of the vector.
+	 *
+	 * @return the number of bits used by this structure.
+	 */
+	public long numBits() {
+		return ( classes.length + offsets.length + samples.length ) * (long)Long.SIZE + ( selectInventory.length + selectZeroInventory.length ) * (long)Integer.SIZE;
+	}
+
+	public BitVector bitVector() {
+		return bitVector;
+	}
+
+	/** A read-only view of the bits represented by an instance. */
+	protected static final class RRRBitVector extends AbstractBitVector implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private final RRRRankSelect rrr;
+
+		private RRRBitVector( final RRRRankSelect rrr ) {
+			this.rrr = rrr;
+		}
+
+		@Override
+		public boolean getBoolean( final long index ) {
+			return rrr.getBoolean( index );
+		}
+
+		@Override
+		public long getLong( final long from, final long to ) {
+			if ( to - from > Long.SIZE ) throw new IllegalArgumentException( "Range too large: " + ( to - from ) );
+			if ( from == to ) return 0;
+			final long startBlock = from / BLOCK_SIZE;
+			final long endBlock = ( to - 1 ) / BLOCK_SIZE;
+			long result = 0;
+			int shift = 0;
+			for( long b = startBlock; b <= endBlock; b++ ) {
+				final long s = Math.max( from, b * BLOCK_SIZE ), e = Math.min( to, ( b + 1 ) * BLOCK_SIZE );
+				final long bits = rrr.block( b ) >>> ( s - b * BLOCK_SIZE );
+				final int w = (int)( e - s );
+				result |= ( bits & ( 1L << w ) - 1 ) << shift;
+				shift += w;
+			}
+			return result;
+		}
+
+		@Override
+		public long length() {
+			return rrr.length;
+		}
+	}
+}
@@ -0,0 +1,454 @@
+package it.unimi.dsi.sux4j.bits;
+
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2016 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+import it.unimi.dsi.bits.BitVector;
+import it.unimi.dsi.bits.LongArrayBitVector;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+
+/** An implementation of balanced parentheses based on a range min-max tree.
+ *
+ * <p>This class implements all primitives of {@link ExtendedBalancedParentheses} by reducing them to
+ * forward and backward searches for a given {@linkplain #excess(long) excess}, and to range-minimum queries
+ * on the excess, following the approach of Gonzalo Navarro and Kunihiko Sadakane (&ldquo;Fully functional static and dynamic succinct trees&rdquo;,
+ * <i>ACM Transactions on Algorithms</i>, 2014). It can be used in place of a {@link JacobsonBalancedParentheses}
+ * wherever a {@link BalancedParentheses} is expected, and works on any balanced sequence, such as
+ * the BP or DFUDS representation of an ordinal tree.
+ *
+ * <p>The bit vector is divided into blocks of {@value #BLOCK_SIZE} bits: we store the excess at the start of each block, and a complete
+ * binary tree whose leaves contain the minimum excess in each block, and whose internal nodes contain the minimum of their children.
+ * A search first looks into the current word using the broadword methods of {@link JacobsonBalancedParentheses},
+ * then into the current block, and finally climbs the tree to locate the block containing the answer. Blocks are scanned a byte at a time
+ * using small lookup tables. The space occupancy is 64 bits per block, that is, {@value #BLOCK_SIZE}
+ * bits of the bit vector, and all operations require time logarithmic in the number of blocks.
+ *
+ * <p>This class cannot handle sequences whose excess exceeds {@link Integer#MAX_VALUE}.
+ */
+
+public class RangeMinMaxTreeBalancedParentheses implements ExtendedBalancedParentheses {
+	private static final long serialVersionUID = 0L;
+	private static final boolean ASSERTS = false;
+
+	/** The logarithm of the block size. */
+	private static final int LOG2_BLOCK_SIZE = 9;
+	/** The number of bits in a block. */
+	public static final int BLOCK_SIZE = 1 << LOG2_BLOCK_SIZE;
+
+	/** The excess of each byte. */
+	private static final byte[] EXCESS = new byte[ 256 ];
+	/** The minimum excess of each byte after reading one to eight bits. */
+	private static final byte[] MIN_PREFIX = new byte[ 256 ];
+	/** The number of bits (one to eight) that must be read to reach the (first) minimum excess of each byte. */
+	private static final byte[] MIN_POS = new byte[ 256 ];
+	/** Given a byte <var>b</var> and an excess &minus;<var>r</var>, with 0 &lt; <var>r</var> &le; 8,
+	 * the entry of index 8<var>b</var> + <var>r</var> &minus; 1 is the minimum number of bits of <var>b</var> that must be read to reach excess &minus;<var>r</var>. */
+	private static final byte[] FWD_POS = new byte[ 256 * 8 ];
+	/** The maximum excess of each byte after reading backwards one to eight bits. */
+	private static final byte[] MAX_SUFFIX = new byte[ 256 ];
+	/** Given a byte <var>b</var> and an excess <var>s</var>, with 0 &lt; <var>s</var> &le; 8,
+	 * the entry of index 8<var>b</var> + <var>s</var> &minus; 1 is the minimum number of bits of <var>b</var> that must be read backwards to reach excess <var>s</var>. */
+	private static final byte[] BWD_POS = new byte[ 256 * 8 ];
+
+	static {
+		for( int b = 0; b < 256; b++ ) {
+			int e = 0, min = Integer.MAX_VALUE;
+			for( int k = 1; k <= 8; k++ ) {
+				e += ( b & 1 << k - 1 ) != 0 ? 1 : -1;
+				if ( e < min ) {
+					min = e;
+					MIN_POS[ b ] = (byte)k;
+					if ( e < 0 ) FWD_POS[ b << 3 | -e - 1 ] = (byte)k;
+				}
+			}
+			EXCESS[ b ] = (byte)e;
+			MIN_PREFIX[ b ] = (byte)min;
+
+			int s = 0, max = Integer.MIN_VALUE;
+			for( int k = 1; k <= 8; k++ ) {
+				s += ( b & 1 << 8 - k ) != 0 ? 1 : -1;
+				if ( s > max ) {
+					max = s;
+					if ( s > 0 ) BWD_POS[ b << 3 | s - 1 ] = (byte)k;
+				}
+			}
+			MAX_SUFFIX[ b ] = (byte)max;
+		}
+	}
+
+	/** The bit vector. */
+	protected final BitVector bitVector;
+	/** The bits of {@link #bitVector}. */
+	private transient long[] bits;
+	/** The length of {@link #bitVector}. */
+	private final long length;
+	/** The number of leaves of {@link #tree} (the smallest power of two larger than or equal to the number of blocks). */
+	private final int numLeaves;
+	/** The excess at the start of each block (there is an additional final entry). */
+	private final int[] blockExcess;
+	/** The range min-max tree, in heap order, starting from index one. The leaves of index {@link #numLeaves} + <var>k</var> contain the minimum excess
+	 * attained at positions (<var>k</var>{@link #BLOCK_SIZE}..(<var>k</var> + 1){@link #BLOCK_SIZE}], or {@link Integer#MAX_VALUE} if there is no such block. */
+	private final int[] tree;
+
+	/** Creates a new range min-max tree on a given bit vector.
+	 *
+	 * @param bitVector a bit vector representing a balanced sequence of parentheses.
+	 */
+	public RangeMinMaxTreeBalancedParentheses( final BitVector bitVector ) {
+		this.bitVector = bitVector;
+		this.bits = bitVector.bits();
+		final long length = this.length = bitVector.length();
+		final long numBlocks = ( length + BLOCK_SIZE - 1 ) >>> LOG2_BLOCK_SIZE;
+		if ( numBlocks > 1 << 30 ) throw new IllegalArgumentException( "Bit vector too long: " + length );
+		int numLeaves = 1;
+		while( numLeaves < numBlocks ) numLeaves <<= 1;
+		this.numLeaves = numLeaves;
+		blockExcess = new int[ (int)numBlocks + 1 ];
+		tree = new int[ 2 * numLeaves ];
+		Arrays.fill( tree, Integer.MAX_VALUE );
+
+		long e = 0;
+		for( int k = 0; k < numBlocks; k++ ) {
+			blockExcess[ k ] = (int)e;
+			final long end = Math.min( (long)( k + 1 ) << LOG2_BLOCK_SIZE, length );
+			long min = Long.MAX_VALUE;
+			long x = (long)k << LOG2_BLOCK_SIZE;
+			for( ; x + 8 <= end; x += 8 ) {
+				final int b = (int)( bits[ (int)( x >>> 6 ) ] >>> x ) & 0xFF;
+				min = Math.min( min, e + MIN_PREFIX[ b ] );
+				e += EXCESS[ b ];
+			}
+			for( ; x < end; x++ ) {
+				e += ( bits[ (int)( x >>> 6 ) ] & 1L << x ) != 0 ? 1 : -1;
+				min = Math.min( min, e );
+			}
+			if ( min < 0 ) throw new IllegalArgumentException( "Unbalanced parentheses" );
+			if ( e > Integer.MAX_VALUE ) throw new IllegalArgumentException( "Excess too large: " + e );
+			tree[ numLeaves + k ] = (int)min;
+		}
+		if ( e != 0 ) throw new IllegalArgumentException( "Unbalanced parentheses" );
+		blockExcess[ (int)numBlocks ] = 0;
+
+		for( int v = numLeaves; v-- != 1; ) tree[ v ] = Math.min( tree[ 2 * v ], tree[ 2 * v + 1 ] );
+	}
+
+	public RangeMinMaxTreeBalancedParentheses( final long[] bits, final long length ) {
+		this( LongArrayBitVector.wrap( bits, length ) );
+	}
+
+	private boolean bit( final long pos ) {
+		return ( bits[ (int)( pos >>> 6 ) ] & 1L << pos ) != 0;
+	}
+
+	/** Scans forward for a given excess.
+	 *
+	 * @param from the starting position.
+	 * @param to the ending position (exclusive) of the bits to scan.
+	 * @param e the excess at <code>from</code>.
+	 * @param t the target excess, smaller than <code>e</code>.
+	 * @return the smallest position in (<code>from</code>..<code>to</code>] with excess <code>t</code>, or &minus;1.
+	 */
+	private long fwdScan( final long from, final long to, long e, final long t ) {
+		long x = from;
+		for( ; ( x & 7 ) != 0 && x < to; ) {
+			e += bit( x++ ) ? 1 : -1;
+			if ( e == t ) return x;
+		}
+		for( ; x + 8 <= to; x += 8 ) {
+			final int b = (int)( bits[ (int)( x >>> 6 ) ] >>> x ) & 0xFF;
+			if ( e + MIN_PREFIX[ b ] <= t ) return x + FWD_POS[ b << 3 | (int)( e - t - 1 ) ];
+			e += EXCESS[ b ];
+		}
+		for( ; x < to; ) {
+			e += bit( x++ ) ? 1 : -1;
+			if ( e == t ) return x;
+		}
+		return -1;
+	}
+
+	/** Scans backward for a given excess.
+	 *
+	 * @param from the starting position.
+	 * @param to the ending position (inclusive) of the scan; it must not be larger than <code>from</code>.
+	 * @param e the excess at <code>from</code>.
+	 * @param t the target excess, smaller than <code>e</code>.
+	 * @return the largest position in [<code>to</code>..<code>from</code>) with excess <code>t</code>, or &minus;1.
+	 */
+	private long bwdScan( final long from, final long to, long e, final long t ) {
+		long x = from;
+		for( ; ( x & 7 ) != 0 && x > to; ) {
+			e -= bit( --x ) ? 1 : -1;
+			if ( e == t ) return x;
+		}
+		for( ; x - 8 >= to; x -= 8 ) {
+			final int b = (int)( bits[ (int)( x - 8 >>> 6 ) ] >>> x - 8 ) & 0xFF;
+			final long s = e - t;
+			if ( MAX_SUFFIX[ b ] >= s ) return x - BWD_POS[ b << 3 | (int)( s - 1 ) ];
+			e -= EXCESS[ b ];
+		}
+		for( ; x > to; ) {
+			e -= bit( --x ) ? 1 : -1;
+			if ( e == t ) return x;
+		}
+		return -1;
+	}
+
+	/** Scans forward for a minimum excess.
+	 *
+	 * @param from the starting position.
+	 * @param to the ending position (inclusive) of the scan.
+	 * @param e the excess at <code>from</code>.
+	 * @param min a bound on the excess.
+	 * @return the leftmost position of minimum excess in (<code>from</code>..<code>to</code>], if the minimum is smaller than <code>min</code>; &minus;1 otherwise.
+	 */
+	private long minScan( final long from, final long to, long e, long min ) {
+		long x = from, pos = -1;
+		for( ; ( x & 7 ) != 0 && x < to; ) {
+			e += bit( x++ ) ? 1 : -1;
+			if ( e < min ) {
+				min = e;
+				pos = x;
+			}
+		}
+		for( ; x + 8 <= to; x += 8 ) {
+			final int b = (int)( bits[ (int)( x >>> 6 ) ] >>> x ) & 0xFF;
+			if ( e + MIN_PREFIX[ b ] < min ) {
+				min = e + MIN_PREFIX[ b ];
+				pos = x + MIN_POS[ b ];
+			}
+			e += EXCESS[ b ];
+		}
+		for( ; x < to; ) {
+			e += bit( x++ ) ? 1 : -1;
+			if ( e < min ) {
+				min = e;
+				pos = x;
+			}
+		}
+		return pos;
+	}
+
+	/** Returns the leftmost block after a given one whose minimum excess does not exceed a given bound.
+	 *
+	 * @param k a block.
+	 * @param t a bound.
+	 * @return the leftmost block after <code>k</code> whose minimum excess is at most <code>t</code>, or &minus;1.
+	 */
+	private int nextBlock( final int k, final long t ) {
+		int v = numLeaves + k;
+		for( ;; ) {
+			if ( v == 1 ) return -1;
+			if ( ( v & 1 ) == 0 && tree[ v + 1 ] <= t ) {
+				v++;
+				break;
+			}
+			v >>>= 1;
+		}
+		while( v < numLeaves ) {
+			v <<= 1;
+			if ( tree[ v ] > t ) v++;
+		}
+		return v - numLeaves;
+	}
+
+	/** Returns the rightmost block before a given one whose minimum excess does not exceed a given bound.
+	 *
+	 * @param k a block.
+	 * @param t a bound.
+	 * @return the rightmost block before <code>k</code> whose minimum excess is at most <code>t</code>, or &minus;1.
+	 */
+	private int prevBlock( final int k, final long t ) {
+		int v = numLeaves + k;
+		for( ;; ) {
+			if ( v == 1 ) return -1;
+			if ( ( v & 1 ) != 0 && tree[ v - 1 ] <= t ) {
+				v--;
+				break;
+			}
+			v >>>= 1;
+		}
+		while( v < numLeaves ) {
+			v = v << 1 | 1;
+			if ( tree[ v ] > t ) v--;
+		}
+		return v - numLeaves;
+	}
+
+	/** Returns the minimum excess in a range of blocks.
+	 *
+	 * @param from the first block (inclusive).
+	 * @param to the last block (inclusive).
+	 * @return the minimum excess in blocks [<code>from</code>..<code>to</code>].
+	 */
+	private int blockMin( final int from, final int to ) {
+		int min = Integer.MAX_VALUE;
+		for( int lo = from + numLeaves, hi = to + numLeaves + 1; lo < hi; lo >>>= 1, hi >>>= 1 ) {
+			if ( ( lo & 1 ) != 0 ) min = Math.min( min, tree[ lo++ ] );
+			if ( ( hi & 1 ) != 0 ) min = Math.min( min, tree[ --hi ] );
+		}
+		return min;
+	}
+
+	/** Returns the smallest position after a given one with a given excess.
+	 *
+	 * @param from a position.
+	 * @param e the excess at <code>from</code>.
+	 * @param t the target excess, smaller than <code>e</code>.
+	 * @return the smallest position larger than <code>from</code> with excess <code>t</code>, or &minus;1.
+	 */
+	private long fwdSearch( final long from, final long e, final long t ) {
+		if ( from >= length ) return -1;
+		int k = (int)( from >>> LOG2_BLOCK_SIZE );
+		final long result = fwdScan( from, Math.min( (long)( k + 1 ) << LOG2_BLOCK_SIZE, length ), e, t );
+		if ( result != -1 ) return result;
+		if ( ( k = nextBlock( k, t ) ) == -1 ) return -1;
+		final long start = (long)k << LOG2_BLOCK_SIZE;
+		return fwdScan( start, Math.min( start + BLOCK_SIZE, length ), blockExcess[ k ], t );
+	}
+
+	/** Returns the largest position before a given one with a given excess.
+	 *
+	 * @param from a position.
+	 * @param e the excess at <code>from</code>.
+	 * @param t the target excess, smaller than <code>e</code>.
+	 * @return the largest position smaller than <code>from</code> with excess <code>t</code>, or &minus;1.
+	 */
+	private long bwdSearch( final long from, final long e, final long t ) {
+		if ( from == 0 ) return -1;
+		int k = (int)( from - 1 >>> LOG2_BLOCK_SIZE );
+		final long result = bwdScan( from, (long)k << LOG2_BLOCK_SIZE, e, t );
+		if ( result != -1 ) return result;
+		// The excess at position 0 is not recorded in any block
+		if ( ( k = prevBlock( k, t ) ) == -1 ) return t == 0 ? 0 : -1;
+		final long end = (long)( k + 1 ) << LOG2_BLOCK_SIZE;
+		if ( blockExcess[ k + 1 ] == t ) return end;
+		return bwdScan( end, end - BLOCK_SIZE, blockExcess[ k + 1 ], t );
+	}
+
+	public long excess( final long pos ) {
+		final int k = (int)( pos >>> LOG2_BLOCK_SIZE );
+		final long start = (long)k << LOG2_BLOCK_SIZE;
+		long ones = 0;
+		final int lastWord = (int)( pos >>> 6 );
+		for( int w = (int)( start >>> 6 ); w < lastWord; w++ ) ones += Long.bitCount( bits[ w ] );
+		if ( ( pos & 63 ) != 0 ) ones += Long.bitCount( bits[ lastWord ] & ( 1L << pos ) - 1 );
+		return blockExcess[ k ] + 2 * ones - ( pos - start );
+	}
+
+	public long findClose( final long pos ) {
+		final int word = (int)( pos >>> 6 );
+		final int bit = (int)( pos & 63 );
+		if ( ( bits[ word ] & 1L << bit ) == 0 ) throw new IllegalArgumentException();
+		final int result = JacobsonBalancedParentheses.findNearClose( bits[ word ] >>> bit );
+		if ( result < Long.SIZE - bit ) return pos + result;
+		// The excess at the end of the word
+		final long e = excess( pos );
+		final long from = (long)( word + 1 ) << 6;
+		return fwdSearch( from, e + 2 * Long.bitCount( bits[ word ] >>> bit ) - ( Long.SIZE - bit ), e ) - 1;
+	}
+
+	public long findOpen( final long pos ) {
+		final int word = (int)( pos >>> 6 );
+		final int bit = (int)( pos & 63 );
+		if ( ( bits[ word ] & 1L << bit ) != 0 ) throw new IllegalArgumentException();
+		final int result = JacobsonBalancedParentheses.findNearOpen( bits[ word ] << Long.SIZE - 1 - bit );
+		if ( result <= bit ) return pos - result;
+		final long from = (long)word << 6;
+		final long e = excess( from );
+		return bwdSearch( from, e, e + 2 * Long.bitCount( bits[ word ] & ( 1L << bit ) - 1 ) - bit - 1 );
+	}
+
+	public long enclose( final long pos ) {
+		final int word = (int)( pos >>> 6 );
+		final int bit = (int)( pos & 63 );
+		if ( ( bits[ word ] & 1L << bit ) == 0 ) throw new IllegalArgumentException();
+		final int result = JacobsonBalancedParentheses.findNearOpen( ( bits[ word ] & ~( 1L << bit ) ) << Long.SIZE - 1 - bit );
+		if ( result <= bit ) return pos - result;
+		final long from = (long)word << 6;
+		final long e = excess( from );
+		return bwdSearch( from, e, e + 2 * Long.bitCount( bits[ word ] & ( 1L << bit ) - 1 ) - bit - 1 );
+	}
+
+	public long levelAncestor( final long pos, final long d ) {
+		if ( ! bit( pos ) ) throw new IllegalArgumentException();
+		if ( d == 0 ) return pos;
+		if ( d == 1 ) return enclose( pos );
+		final long e = excess( pos );
+		if ( d > e ) return -1;
+		return bwdSearch( pos, e, e - d );
+	}
+
+	public long rmq( final long from, final long to ) {
+		if ( from > to ) throw new IllegalArgumentException( "Start position (" + from + ") is greater than end position (" + to + ")" );
+		if ( from == to ) return from;
+		final long e = excess( from );
+		long min = e, pos = from, result;
+		final int kFrom = (int)( from >>> LOG2_BLOCK_SIZE );
+		final int kTo = (int)( to - 1 >>> LOG2_BLOCK_SIZE );
+		if ( kFrom == kTo ) return ( result = minScan( from, to, e, min ) ) == -1 ? pos : result;
+
+		if ( ( result = minScan( from, (long)( kFrom + 1 ) << LOG2_BLOCK_SIZE, e, min ) ) != -1 ) min = excess( pos = result );
+
+		if ( kTo > kFrom + 1 ) {
+			final int blockMin = blockMin( kFrom + 1, kTo - 1 );
+			if ( blockMin < min ) {
+				final int k = nextBlock( kFrom, blockMin );
+				final long start = (long)k << LOG2_BLOCK_SIZE;
+				pos = minScan( start, start + BLOCK_SIZE, blockExcess[ k ], blockMin + 1 );
+				min = blockMin;
+				if ( ASSERTS ) assert excess( pos ) == min;
+			}
+		}
+
+		final long start = (long)kTo << LOG2_BLOCK_SIZE;
+		return ( result = minScan( start, to, blockExcess[ kTo ], min ) ) == -1 ? pos : result;
+	}
+
+	public long lca( long u, long v ) {
+		if ( ! bit( u ) || ! bit( v ) ) throw new IllegalArgumentException();
+		if ( u > v ) {
+			final long t = u;
+			u = v;
+			v = t;
+		}
+		if ( u == v || findClose( u ) > v ) return u;
+		return enclose( rmq( u, v ) );
+	}
+
+	public long subtreeSize( final long pos ) {
+		return ( findClose( pos ) - pos + 1 ) / 2;
+	}
+
+	public BitVector bitVector() {
+		return bitVector;
+	}
+
+	public long numBits() {
+		return ( blockExcess.length + (long)tree.length ) * Integer.SIZE;
+	}
+
+	private void readObject( final ObjectInputStream s ) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		bits = bitVector.bits();
+	}
+}
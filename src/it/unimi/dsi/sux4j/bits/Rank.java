@@ -71,6 +71,18 @@ public interface Rank extends Serializable {
 	 */
 	public long rank( long from, long to );
 
+	/** Computes the number of ones preceding each of a given array of positions.
+	 * 
+	 * <p>The positions need not be sorted or related in any way. Implementations are expected to
+	 * overlap the memory accesses of the single queries, so this method should be preferred to
+	 * repeated calls to {@link #rank(long)} when several positions are known in advance.
+	 * 
+	 * @param pos an array of positions in the bit vector.
+	 * @param dest an array at least as long as <code>pos</code> that will be filled with the number of ones preceding each position.
+	 * @return <code>dest</code>.
+	 */
+	public long[] rank( long[] pos, long[] dest );
+
 	/** Returns the number of zeroes preceding the specified position.
 	 * 
 	 * @param pos a position in the bit vector.
@@ -90,6 +90,42 @@ public class Rank16 extends AbstractRank implements Rank {
 				superCount[ block ] + ( count[ offset ] & 0xFFFF ) + Long.bitCount( bits[ word - 1 ] ) + Long.bitCount( bits[ word ] & ( 1L << pos % 64 ) - 1 );
 	}
 
+	/** Computes ranks in two passes: the first one reads the counts, the second one the bits, so that
+	 * the cache misses of different positions can overlap.
+	 * 
+	 * @param pos an array of positions in the bit vector.
+	 * @param dest an array at least as long as <code>pos</code> that will be filled with the number of ones preceding each position.
+	 * @return <code>dest</code>.
+	 */
+	@Override
+	public long[] rank( final long[] pos, final long[] dest ) {
+		final long[] bits = this.bits;
+		final int n = pos.length;
+
+		for( int i = 0; i < n; i++ ) {
+			final long p = pos[ i ];
+			if ( ASSERTS ) assert p >= 0;
+			if ( ASSERTS ) assert p <= bitVector.length();
+			if ( p > lastOne ) dest[ i ] = numOnes;
+			else {
+				final int word = (int)( p / Long.SIZE );
+				dest[ i ] = superCount[ word / BLOCK_LENGTH ] + ( count[ word / 2 ] & 0xFFFF );
+			}
+		}
+
+		for( int i = 0; i < n; i++ ) {
+			final long p = pos[ i ];
+			if ( p <= lastOne ) {
+				final int word = (int)( p / Long.SIZE );
+				dest[ i ] += word % 2 == 0 ?
+						Long.bitCount( bits[ word ] & ( 1L << p % 64 ) - 1 ) :
+						Long.bitCount( bits[ word - 1 ] ) + Long.bitCount( bits[ word ] & ( 1L << p % 64 ) - 1 );
+			}
+		}
+
+		return dest;
+	}
+
 	public long numBits() {
 		return count.length * (long)Short.SIZE + superCount.length * (long)Long.SIZE;
 	}
@@ -92,6 +92,40 @@ public class Rank9 extends AbstractRank implements Rank {
 		return count[ block ] + ( count[ block + 1 ] >>> ( offset + ( offset >>> 32 - 4 & 0x8 ) ) * 9 & 0x1FF ) + Long.bitCount( bits[ word ] & ( ( 1L << pos % 64 ) - 1 ) );
 	}
 
+	/** Computes ranks in two passes: the first one reads the counts, the second one the bits, so that
+	 * the cache misses of different positions can overlap.
+	 * 
+	 * @param pos an array of positions in the bit vector.
+	 * @param dest an array at least as long as <code>pos</code> that will be filled with the number of ones preceding each position.
+	 * @return <code>dest</code>.
+	 */
+	@Override
+	public long[] rank( final long[] pos, final long[] dest ) {
+		final long[] count = this.count;
+		final long[] bits = this.bits;
+		final int n = pos.length;
+
+		for( int i = 0; i < n; i++ ) {
+			final long p = pos[ i ];
+			if ( ASSERTS ) assert p >= 0;
+			if ( ASSERTS ) assert p <= bitVector.length();
+			if ( p > lastOne ) dest[ i ] = numOnes;
+			else {
+				final int word = (int)( p / 64 );
+				final int block = word / 4 & ~1;
+				final int offset = word % 8 - 1;
+				dest[ i ] = count[ block ] + ( count[ block + 1 ] >>> ( offset + ( offset >>> 32 - 4 & 0x8 ) ) * 9 & 0x1FF );
+			}
+		}
+
+		for( int i = 0; i < n; i++ ) {
+			final long p = pos[ i ];
+			if ( p <= lastOne ) dest[ i ] += Long.bitCount( bits[ (int)( p / 64 ) ] & ( 1L << p % 64 ) - 1 );
+		}
+
+		return dest;
+	}
+
 	public long numBits() {
 		return count.length * (long)Long.SIZE;
 	}
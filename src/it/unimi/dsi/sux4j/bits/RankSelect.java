@@ -94,6 +94,14 @@ public class RankSelect implements Rank, Select, SelectZero, Serializable {
 		return select.select( rank );
 	}
 
+	public long[] rank( final long[] pos, final long[] dest ) {
+		return rank.rank( pos, dest );
+	}
+
+	public long[] select( final long[] rank, final long[] dest ) {
+		return select.select( rank, dest );
+	}
+
 	public long selectZero( final long rank ) {
 		return selectZero.selectZero( rank );
 	}
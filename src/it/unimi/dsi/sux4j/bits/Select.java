@@ -56,6 +56,19 @@ public interface Select extends Serializable {
 	 */
 	public long select( long rank );
 
+	/** Computes the positions of the bits of given ranks.
+	 * 
+	 * <p>The ranks need not be sorted or related in any way. Implementations are expected to
+	 * overlap the memory accesses of the single queries, so this method should be preferred to
+	 * repeated calls to {@link #select(long)} when several ranks are known in advance.
+	 * 
+	 * @param rank an array of ranks.
+	 * @param dest an array at least as long as <code>rank</code> that will be filled with the position
+	 * of the bit of each rank, or &minus;1 if no such position exists.
+	 * @return <code>dest</code>.
+	 */
+	public long[] select( long[] rank, long[] dest );
+
 	/** Returns the bit vector indexed by this structure.
 	 * 
 	 * <p>Note that you are not supposed to modify the returned vector.
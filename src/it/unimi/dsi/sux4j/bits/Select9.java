@@ -247,10 +247,12 @@ public class Select9 implements Select {
 			if ( ASSERTS ) assert rankInBlock < 512;
 		}
 		else if ( span < 256 ) {
-			return subinventoryAsShorts.getLong( subinventoryIndex * 4 + (int)( rank % ONES_PER_INVENTORY ) ) + inventoryLeft;
+			final int index = subinventoryIndex * 4 + (int)( rank % ONES_PER_INVENTORY );
+			return ( subinventory[ index >>> 2 ] >>> ( index & 3 ) * Short.SIZE & 0xFFFF ) + inventoryLeft;
 		}
 		else if ( span < 512 ) {
-			return subinventoryasInts.getLong( subinventoryIndex * 2 + (int)( rank % ONES_PER_INVENTORY ) ) + inventoryLeft;
+			final int index = subinventoryIndex * 2 + (int)( rank % ONES_PER_INVENTORY );
+			return ( subinventory[ index >>> 1 ] >>> ( index & 1 ) * Integer.SIZE & 0xFFFFFFFFL ) + inventoryLeft;
 		}
 		else {
 			return subinventory[ subinventoryIndex + (int)( rank % ONES_PER_INVENTORY ) ];
@@ -271,6 +273,21 @@ public class Select9 implements Select {
 		return word * 64L + Fast.select( bits[ word ], rankInWord );
 	}
 
+	/** Computes selections by repeated calls to {@link #select(long)}.
+	 * 
+	 * <p>Contrarily to {@link Rank9#rank(long[], long[])}, selections are not split into passes, as the
+	 * inventory search interleaves accesses to the inventory, the subinventory and the counts of the underlying {@link Rank9}.
+	 * 
+	 * @param rank an array of ranks.
+	 * @param dest an array at least as long as <code>rank</code> that will be filled with the position
+	 * of the bit of each rank, or &minus;1 if no such position exists.
+	 * @return <code>dest</code>.
+	 */
+	public long[] select( final long[] rank, final long[] dest ) {
+		for( int i = rank.length; i-- != 0; ) dest[ i ] = select( rank[ i ] );
+		return dest;
+	}
+
 	public long numBits() {
 		return rank9.numBits() + inventory.length * (long)Long.SIZE + subinventory.length * (long)Long.SIZE;
 	}
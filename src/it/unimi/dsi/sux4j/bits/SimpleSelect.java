@@ -234,7 +234,9 @@ public class SimpleSelect implements Select {
 		int residual;
 
 		if ( inventoryRank >= 0 ) {
-			start = inventoryRank + subinventory16.getLong( ( inventoryIndex << log2LongwordsPerSubinventory + 2 ) + ( subrank >>> log2OnesPerSub16 ) );
+			// We extract the 16-bit offset directly, rather than using subinventory16, to avoid the overhead of a generic list view
+			final int subinventoryIndex = ( inventoryIndex << log2LongwordsPerSubinventory + 2 ) + ( subrank >>> log2OnesPerSub16 );
+			start = inventoryRank + ( subinventory[ subinventoryIndex >>> 2 ] >>> ( subinventoryIndex & 3 ) * Short.SIZE & 0xFFFF );
 			residual = subrank & onesPerSub16Mask;
 		}
 		else {
@@ -286,6 +288,8 @@ public class SimpleSelect implements Select {
 	}
 
 	/** Performs a bulk select of consecutive ranks into a given array.
+	 * 
+	 * <p>Note that {@link #select(long[], long[])}, instead, selects arbitrary ranks.
 	 * 
 	 * @param rank the first rank to select.
 	 * @param dest the destination array; it will be filled with position of consecutive bits.
@@ -296,6 +300,68 @@ public class SimpleSelect implements Select {
 		return select( rank, dest, 0, dest.length );
 	}
 
+	/** Computes selections of arbitrary ranks in two passes: the first one reads the inventory and the subinventory, the second one
+	 * scans the bit array, so that the cache misses of different ranks can overlap.
+	 * 
+	 * <p>Note that {@link #select(long, long[])}, instead, selects consecutive ranks.
+	 * 
+	 * @param rank an array of ranks.
+	 * @param dest an array at least as long as <code>rank</code> that will be filled with the position
+	 * of the bit of each rank, or &minus;1 if no such position exists.
+	 * @return <code>dest</code>.
+	 */
+	public long[] select( final long[] rank, final long[] dest ) {
+		final long[] inventory = this.inventory;
+		final long[] subinventory = this.subinventory;
+		final int n = rank.length;
+
+		// After this pass, dest contains either the starting position of a scan or, if negative, -2 minus the result
+		for( int i = 0; i < n; i++ ) {
+			final long r = rank[ i ];
+			if ( r >= numOnes ) {
+				dest[ i ] = -1;
+				continue;
+			}
+
+			final int inventoryIndex = (int)( r >>> log2OnesPerInventory );
+			final long inventoryRank = inventory[ inventoryIndex ];
+			final int subrank = (int)( r & onesPerInventoryMask );
+
+			if ( subrank == 0 ) dest[ i ] = -2 - ( inventoryRank & ~(1L<<63) );
+			else if ( inventoryRank >= 0 ) {
+				final int subinventoryIndex = ( inventoryIndex << log2LongwordsPerSubinventory + 2 ) + ( subrank >>> log2OnesPerSub16 );
+				final long start = inventoryRank + ( subinventory[ subinventoryIndex >>> 2 ] >>> ( subinventoryIndex & 3 ) * Short.SIZE & 0xFFFF );
+				dest[ i ] = ( subrank & onesPerSub16Mask ) == 0 ? -2 - start : start;
+			}
+			else if ( onesPerSub64 == 1 ) dest[ i ] = -2 - subinventory[ ( inventoryIndex << log2LongwordsPerSubinventory ) + subrank ];
+			else dest[ i ] = -2 - exactSpill[ (int)( subinventory[ inventoryIndex << log2LongwordsPerSubinventory ] + subrank ) ];
+		}
+
+		final long[] bits = this.bits;
+		for( int i = 0; i < n; i++ ) {
+			final long start = dest[ i ];
+			if ( start < 0 ) {
+				dest[ i ] = -2 - start;
+				continue;
+			}
+			// The residual rank of a scan is the same as in select(long), as onesPerSub16 divides onesPerInventory
+			int residual = (int)( rank[ i ] & onesPerSub16Mask );
+			int wordIndex = (int)( start / 64 );
+			long word = bits[ wordIndex ] & -1L << start;
+
+			for(;;) {
+				final int bitCount = Long.bitCount( word );
+				if ( residual < bitCount ) break;
+				word = bits[ ++wordIndex ];
+				residual -= bitCount;
+			}
+
+			dest[ i ] = wordIndex * 64L + Fast.select( word, residual );
+		}
+
+		return dest;
+	}
+
 	private void readObject( final ObjectInputStream s ) throws IOException, ClassNotFoundException {
 		s.defaultReadObject();
 		subinventory16 = LongArrayBitVector.wrap( subinventory ).asLongBigList( Short.SIZE );
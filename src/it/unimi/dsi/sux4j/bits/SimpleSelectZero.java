@@ -234,7 +234,9 @@ public class SimpleSelectZero implements SelectZero {
 		int residual;
 
 		if ( inventoryRank >= 0 ) {
-			start = inventoryRank + subinventory16.getLong( ( inventoryIndex << log2LongwordsPerSubinventory + 2 ) + ( subrank >>> log2OnesPerSub16 ) );
+			// We extract the 16-bit offset directly, rather than using subinventory16, to avoid the overhead of a generic list view
+			final int subinventoryIndex = ( inventoryIndex << log2LongwordsPerSubinventory + 2 ) + ( subrank >>> log2OnesPerSub16 );
+			start = inventoryRank + ( subinventory[ subinventoryIndex >>> 2 ] >>> ( subinventoryIndex & 3 ) * Short.SIZE & 0xFFFF );
 			residual = subrank & onesPerSub16Mask;
 		}
 		else {
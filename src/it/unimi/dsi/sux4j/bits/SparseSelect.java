@@ -152,6 +152,41 @@ public class SparseSelect extends EliasFanoMonotoneLongBigList implements Select
 		return upperBits << l | ( totalOffset <= Long.SIZE ? result : result | lowerBits[ startWord + 1 ] << -startBit ) & lowerBitsMask;
 	}
 
+	/** Computes selections in two passes: the first one reads the lower bits, the second one
+	 * selects the upper bits, so that the cache misses of different ranks can overlap.
+	 * 
+	 * @param rank an array of ranks.
+	 * @param dest an array at least as long as <code>rank</code> that will be filled with the position
+	 * of the bit of each rank, or &minus;1 if no such position exists.
+	 * @return <code>dest</code>.
+	 */
+	public long[] select( final long[] rank, final long[] dest ) {
+		final int l = this.l;
+		final long[] lowerBits = this.lowerBits;
+		final int n = rank.length;
+
+		if ( l != 0 ) {
+			for( int i = 0; i < n; i++ ) {
+				if ( rank[ i ] >= length ) continue;
+				final long position = rank[ i ] * l; 
+				final int startWord = (int)( position / Long.SIZE );
+				final int startBit = (int)( position % Long.SIZE );
+				final int totalOffset = startBit + l;
+				final long result = lowerBits[ startWord ] >>> startBit;
+				dest[ i ] = ( totalOffset <= Long.SIZE ? result : result | lowerBits[ startWord + 1 ] << -startBit ) & lowerBitsMask;
+			}
+		}
+
+		for( int i = 0; i < n; i++ ) {
+			final long r = rank[ i ];
+			if ( r >= length ) dest[ i ] = -1;
+			else if ( l == 0 ) dest[ i ] = selectUpper.select( r ) - r;
+			else dest[ i ] |= selectUpper.select( r ) - r << l;
+		}
+
+		return dest;
+	}
+
 	/** Returns the bit vector indexed; since the bits are not stored in this data structure,
 	 * a copy is built on purpose and returned.
 	 * 
@@ -20,15 +20,15 @@ package it.unimi.dsi.sux4j.io;
  *
  */
 
+import it.unimi.dsi.bits.Fast;
 import it.unimi.dsi.bits.LongArrayBitVector;
 import it.unimi.dsi.bits.TransformationStrategy;
-import it.unimi.dsi.fastutil.Swapper;
-import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
 import it.unimi.dsi.fastutil.io.FastBufferedInputStream;
 import it.unimi.dsi.fastutil.io.FastBufferedOutputStream;
 import it.unimi.dsi.fastutil.longs.LongBigList;
 import it.unimi.dsi.fastutil.longs.LongIterable;
 import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongIterators;
 import it.unimi.dsi.fastutil.objects.AbstractObjectIterator;
 import it.unimi.dsi.io.SafelyCloseable;
 import it.unimi.dsi.logging.ProgressLogger;
@@ -37,20 +37,33 @@ import it.unimi.dsi.sux4j.mph.GOV3Function.Builder;
 import it.unimi.dsi.sux4j.mph.Hashes;
 import it.unimi.dsi.util.XorShift1024StarRandomGenerator;
 
+import java.io.Closeable;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.SequenceInputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.commons.collections.Predicate;
-import org.apache.commons.collections.iterators.IteratorEnumeration;
 import org.apache.commons.math3.random.RandomGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,7 +74,8 @@ import org.slf4j.LoggerFactory;
  * by turning them into bit vectors (using a provided {@link TransformationStrategy})
  * and then hashing such vectors into a triple of longs (i.e., overall we get a hash of 192 bits). 
  * Elements can be added {@linkplain #add(Object, long) one by one}
- * or {@linkplain #addAll(Iterator, LongIterator) in batches}. 
+ * or {@linkplain #addAll(Iterator, LongIterator) in batches}; batches
+ * can also be {@linkplain #addAll(List, List) added in parallel} from several iterators. 
  * Elements must be distinct, or, more precisely, they must be transformed into distinct bit vectors.
  * 
  * <p>Besides the hashes, we store some data associated with each element:
@@ -106,13 +120,19 @@ import org.slf4j.LoggerFactory;
  * Once the user chooses a chunk size, the store exhibits the data on disk by grouping disk chunks or splitting them
  * in a suitable way. This process is transparent to the user.
  * 
- * <p>An instance of this class will save triples into {@link #DISK_CHUNKS} disk chunks. Triples have to
- * be loaded into memory only chunk by chunk, so to be sorted and tested for uniqueness. As long as
- * {@link #DISK_CHUNKS} is larger than eight, the store will need less than one bit per element of main
- * memory. {@link #DISK_CHUNKS} can be increased arbitrarily at compile time, but each store
- * will open {@link #DISK_CHUNKS} files at the same time. (For the same reason, it is
+ * <p>An instance of this class will save triples into {@link #DISK_CHUNKS} disk chunks, unless a different
+ * number is specified {@linkplain #ChunkedHashStore(TransformationStrategy, File, int, int, boolean, ProgressLogger) at construction time}. Triples have to
+ * be loaded into memory only chunk by chunk, so to be {@linkplain #radixSort(long[], long[], long[], long[], int) sorted} 
+ * and tested for uniqueness. As long as
+ * the number of disk chunks is larger than eight, the store will need less than one bit per element of main
+ * memory. The number of disk chunks can be increased up to 2<sup>{@value #MAX_LOG2_DISK_CHUNKS}</sup>, but each store
+ * will open as many files at the same time. (For the same reason, it is
  * <strong>strongly</strong> suggested that you close your stores as soon as you do not need them).
  * 
+ * <p>Triples are usually written on disk as they are, using 24 bytes (32 bytes if data are stored). In the
+ * compact format, triples are buffered in memory (at most {@value #RUN_BUFFER_SIZE} at a time) and written in sorted runs, 
+ * so the first hash can be gap-encoded, skipping the bits implied by the disk chunk. 
+ * 
  * <h2>Intended usage</h2>
  * 
  * <p>Chunked hash stores should be built by classes that need to manipulate elements in chunks of approximate given 
@@ -147,18 +167,41 @@ public class ChunkedHashStore<T> implements Serializable, SafelyCloseable, Itera
 	
 	/** The size of the output buffers. */
 	public final static int OUTPUT_BUFFER_SIZE = 16 * 1024;	
-	/** The logarithm of the number of physical disk chunks. */
+	/** The maximum size in bytes of a memory-mapped segment of a disk chunk (see {@link #mapped(boolean)}). */
+	public final static long MAX_MAPPING_SIZE = 1L << 30;
+	/** The number of triples (and associated data) decoded at a time from a disk chunk. */
+	private final static int BLOCK_SIZE = 1024;
+	/** The number of triples (and associated data) buffered for each disk chunk by each thread during {@linkplain #addAll(List, List) parallel additions}
+	 * when using {@link #DISK_CHUNKS} disk chunks; the number is scaled inversely to the number of disk chunks. */
+	public final static int THREAD_BUFFER_SIZE = 256;
+	/** The overall number of triples (and associated data) buffered in memory before being written to disk as sorted runs in the compact format. */
+	public final static int RUN_BUFFER_SIZE = 1 << 18;
+	/** The minimum number of triples (and associated data) buffered for each disk chunk. */
+	private final static int MIN_BUFFER_SIZE = 16;
+	/** The maximum number of bytes used by a triple (and associated data) in the compact format, including the length of a run. */
+	private final static int MAX_COMPACT_ENTRY_BYTES = 5 + 10 + 2 * ( Long.SIZE / Byte.SIZE ) + 10;
+	/** The default logarithm of the number of physical disk chunks. */
 	public final static int LOG2_DISK_CHUNKS = 8;
-	/** The number of physical disk chunks. */
+	/** The default number of physical disk chunks. */
 	public final static int DISK_CHUNKS = 1 << LOG2_DISK_CHUNKS;
-	/** The shift for physical disk chunks. */
+	/** The default shift for physical disk chunks. */
 	public final static int DISK_CHUNKS_SHIFT = Long.SIZE - LOG2_DISK_CHUNKS;
+	/** The maximum logarithm of the number of physical disk chunks. */
+	public final static int MAX_LOG2_DISK_CHUNKS = 16;
 	/** The number of elements ever {@linkplain #add(Object) added}. */
 	protected long size;
 	/** The number of elements that pass the current filter, or -1 we it must be recomputed. */
 	protected long filteredSize;
 	/** The seed used to generate the hash triples. */
 	protected long seed;
+	/** The logarithm of the number of physical disk chunks. */
+	private final int log2DiskChunks;
+	/** The number of physical disk chunks. */
+	private final int diskChunks;
+	/** The shift for physical disk chunks. */
+	private final int diskChunksShift;
+	/** Whether disk chunks are written in the compact format. */
+	private final boolean compact;
 	/** The number of triples in each disk chunk. */
 	private int[] count;
 	/** The number of chunks. */
@@ -189,6 +232,31 @@ public class ChunkedHashStore<T> implements Serializable, SafelyCloseable, Itera
 	private boolean locked;
 	/** Whether this store has already been closed. */
 	private boolean closed;
+	/** Whether a {@linkplain #addAll(List, List) parallel addition} failed, leaving in the disk chunks triples that are not accounted for.
+	 * Any attempt to iterate over the store will cause an {@link IllegalStateException} until the store is {@linkplain #reset(long) reset}. */
+	private boolean failed;
+	/** Whether disk chunks are read using memory mapping. */
+	private boolean mapped;
+	/** The number of calls to {@link #reset(long)}, used by iterators to detect that they have been abandoned. */
+	private transient int resets;
+	/** Whether iterators prefetch disk chunks in a background thread. */
+	private boolean prefetch;
+	/** The single-thread executor loading disk chunks for prefetching iterators, or {@code null} if no prefetching has happened yet. */
+	private transient ExecutorService prefetcher;
+	/** The prefetching tasks submitted to {@link #prefetcher} that might not be completed yet. */
+	private final ArrayList<FutureTask<Void>> prefetches = new ArrayList<FutureTask<Void>>();
+	/** The number of triples in a run of the compact format. */
+	private final int runSize;
+	/** If {@link #compact}, for each disk chunk the first hash of the triples of the current run, or {@code null}. */
+	private long[][] run0;
+	/** If {@link #compact}, for each disk chunk the second hash of the triples of the current run, or {@code null}. */
+	private long[][] run1;
+	/** If {@link #compact}, for each disk chunk the third hash of the triples of the current run, or {@code null}. */
+	private long[][] run2;
+	/** If {@link #compact} and this store contains data, for each disk chunk the data of the triples of the current run, or {@code null}. */
+	private long[][] runData;
+	/** If {@link #compact}, for each disk chunk the number of triples in the current run. */
+	private int[] runFill;
 
 	/** Creates a chunked hash store with given transformation strategy.
 	 * 
@@ -238,20 +306,62 @@ public class ChunkedHashStore<T> implements Serializable, SafelyCloseable, Itera
 	 */
 
 	public ChunkedHashStore( final TransformationStrategy<? super T> transform, final File tempDir, final int hashWidth, final ProgressLogger pl ) throws IOException {
+		this( transform, tempDir, hashWidth, LOG2_DISK_CHUNKS, false, pl );
+	}
+
+	/** Creates a chunked hash store with given transformation strategy, progress logger, number of disk chunks and disk format.
+	 * 
+	 * <p>In the compact format, triples are buffered in memory for each disk chunk, and written on disk in sorted runs:
+	 * the highest bits of the first hash (which are implied by the disk chunk) are dropped, and the remaining bits
+	 * are gap-encoded using a variable-length code, as is the associated data. The remaining two hashes
+	 * are random bits, and are written as they are. 
+	 * 
+	 * @param transform a transformation strategy for the elements.
+	 * @param tempDir a temporary directory for the store files, or {@code null} for the current directory.
+	 * @param hashWidth if nonzero, no associated data is saved in the store: {@link Chunk#data(long)} will return this many lower bits
+	 * of the first of the three hashes associated with the key. 
+	 * @param log2DiskChunks the base-2 logarithm of the number of disk chunks (i.e., of files used by the store), between 1 and {@value #MAX_LOG2_DISK_CHUNKS}.
+	 * @param compact whether to use the compact disk format.
+	 * @param pl a progress logger, or {@code null}.
+	 */
+
+	public ChunkedHashStore( final TransformationStrategy<? super T> transform, final File tempDir, final int hashWidth, final int log2DiskChunks, final boolean compact, final ProgressLogger pl ) throws IOException {
+		if ( log2DiskChunks < 1 || log2DiskChunks > MAX_LOG2_DISK_CHUNKS ) throw new IllegalArgumentException( "The logarithm of the number of disk chunks (" + log2DiskChunks + ") must be between 1 and " + MAX_LOG2_DISK_CHUNKS );
 		this.transform = transform;
 		this.pl = pl;
 		this.tempDir = tempDir;
 		this.hashMask = hashWidth == 0 ? 0 : -1L >>> Long.SIZE - hashWidth;
+		this.log2DiskChunks = log2DiskChunks;
+		this.diskChunks = 1 << log2DiskChunks;
+		this.diskChunksShift = Long.SIZE - log2DiskChunks;
+		this.compact = compact;
+		this.runSize = Math.max( MIN_BUFFER_SIZE, RUN_BUFFER_SIZE >>> log2DiskChunks );
 		
-		file = new File[ DISK_CHUNKS ];
-		dos = new DataOutputStream[ DISK_CHUNKS ];
+		file = new File[ diskChunks ];
+		dos = new DataOutputStream[ diskChunks ];
 		// Create disk chunks
-		for( int i = 0; i < DISK_CHUNKS; i++ ) {
+		for( int i = 0; i < diskChunks; i++ ) {
 			dos[ i ] = new DataOutputStream( new FastBufferedOutputStream( new FileOutputStream( file[ i ] = File.createTempFile( ChunkedHashStore.class.getSimpleName(), String.valueOf( i ), tempDir ) ), OUTPUT_BUFFER_SIZE ) );
 			file[ i ].deleteOnExit();
 		}
 
-		count = new int[ DISK_CHUNKS ];
+		count = new int[ diskChunks ];
+
+		if ( compact ) {
+			run0 = new long[ diskChunks ][];
+			run1 = new long[ diskChunks ][];
+			run2 = new long[ diskChunks ][];
+			runData = new long[ diskChunks ][];
+			runFill = new int[ diskChunks ];
+		}
+	}
+
+	/** Returns the base-2 logarithm of the number of disk chunks of this store.
+	 * 
+	 * @return the base-2 logarithm of the number of disk chunks of this store.
+	 */
+	public int log2DiskChunks() {
+		return log2DiskChunks;
 	}
 
 	/** Return the current seed of this chunked hash store. After calling this method, no {@link #reset(long)} will be allowed (unless the store
@@ -304,14 +414,31 @@ public class ChunkedHashStore<T> implements Serializable, SafelyCloseable, Itera
 	 * @param value the associated value.
 	 */
 	private void add( final long[] triple, final long value ) throws IOException {
-		final int chunk = (int)( triple[ 0 ] >>> DISK_CHUNKS_SHIFT );
+		final int chunk = (int)( triple[ 0 ] >>> diskChunksShift );
 		count[ chunk ]++;
 		checkedForDuplicates = false;
 		if ( DEBUG ) System.err.println( "Adding " + Arrays.toString( triple ));
-		dos[ chunk ].writeLong( triple[ 0 ] );
-		dos[ chunk ].writeLong( triple[ 1 ] );
-		dos[ chunk ].writeLong( triple[ 2 ] );
-		if ( hashMask == 0 ) dos[ chunk ].writeLong( value );
+		if ( compact ) {
+			if ( run0[ chunk ] == null ) {
+				run0[ chunk ] = new long[ runSize ];
+				run1[ chunk ] = new long[ runSize ];
+				run2[ chunk ] = new long[ runSize ];
+				if ( hashMask == 0 ) runData[ chunk ] = new long[ runSize ];
+			}
+			final int f = runFill[ chunk ];
+			run0[ chunk ][ f ] = triple[ 0 ];
+			run1[ chunk ][ f ] = triple[ 1 ];
+			run2[ chunk ][ f ] = triple[ 2 ];
+			if ( hashMask == 0 ) runData[ chunk ][ f ] = value;
+			runFill[ chunk ] = f + 1;
+			if ( f + 1 == runSize ) flushRun( chunk );
+		}
+		else {
+			dos[ chunk ].writeLong( triple[ 0 ] );
+			dos[ chunk ].writeLong( triple[ 1 ] );
+			dos[ chunk ].writeLong( triple[ 2 ] );
+			if ( hashMask == 0 ) dos[ chunk ].writeLong( value );
+		}
 		if ( filteredSize != -1 && ( filter == null || filter.evaluate( triple ) ) ) filteredSize++;
 		size++;
 	}
@@ -344,6 +471,221 @@ public class ChunkedHashStore<T> implements Serializable, SafelyCloseable, Itera
 		addAll( elements, null );
 	}
 
+	/** Adds in parallel the elements returned by a list of iterators to this store, associating them with specified values.
+	 * 
+	 * <p>Each iterator is scanned by a single thread, so iterators need not be thread safe; at most
+	 * {@link Runtime#availableProcessors()} threads are used, and further iterators are scanned as soon as a thread is free. The triples generated by
+	 * each thread are buffered, {@link #THREAD_BUFFER_SIZE} at a time for each disk chunk, and written to the disk chunk
+	 * while holding its lock. The result is the same as that of adding sequentially the elements of each iterator, in any order:
+	 * in particular, disk chunks will contain the same triples.
+	 * 
+	 * <p>Since the ordinal position of an element is not known in advance, if this store associates data with its elements
+	 * you must provide values: to associate each element with its rank in the concatenation of the iterators, provide
+	 * suitable {@linkplain LongIterators#fromTo(long, long) intervals}. If this store has been created with a nonzero hash width,
+	 * values are consumed but ignored, as it happens with {@link #addAll(Iterator, LongIterator)}.
+	 * 
+	 * <p>If any thread fails, the triples already written by the other threads (and by the failing thread itself) remain in the
+	 * disk chunks, but they are not accounted for: the store must be {@linkplain #reset(long) reset} (or {@linkplain #clear() cleared})
+	 * before being used again, and until then any attempt to iterate over it will cause an {@link IllegalStateException}.
+	 * 
+	 * @param elements a list of iterators returning elements.
+	 * @param values a list of iterators on values, each parallel to the corresponding iterator in {@code elements}; it can be
+	 * {@code null} only if this store has been created with a nonzero hash width.
+	 */
+	public void addAll( final List<? extends Iterator<? extends T>> elements, final List<? extends LongIterator> values ) throws IOException {
+		if ( values == null && hashMask == 0 ) throw new IllegalArgumentException( "You must specify values, as this store does not use hashes as data" );
+		if ( values != null && values.size() != elements.size() ) throw new IllegalArgumentException( "The number of value iterators (" + values.size() + ") is different from the number of element iterators (" + elements.size() + ")" );
+		if ( elements.size() == 0 ) return;
+		final int numThreads = Math.min( elements.size(), Runtime.getRuntime().availableProcessors() );
+		if ( pl != null ) {
+			pl.expectedUpdates = -1;
+			pl.start( "Adding elements using " + numThreads + " threads..." );
+		}
+
+		final ExecutorService executorService = Executors.newFixedThreadPool( numThreads );
+		final List<Future<int[]>> futures = new ArrayList<Future<int[]>>();
+		for( int t = 0; t < elements.size(); t++ ) {
+			final Iterator<? extends T> iterator = elements.get( t );
+			final LongIterator valueIterator = values != null ? values.get( t ) : null;
+			futures.add( executorService.submit( new Callable<int[]>() {
+				@Override
+				public int[] call() throws IOException {
+					return addAll( iterator, valueIterator, transform.copy() );
+				}
+			}));
+		}
+
+		executorService.shutdown();
+		final int[] added = new int[ diskChunks ];
+		try {
+			for( Future<int[]> future: futures ) {
+				final int[] c = future.get();
+				for( int i = 0; i < diskChunks; i++ ) added[ i ] += c[ i ];
+			}
+		}
+		catch ( InterruptedException e ) {
+			failed = true;
+			executorService.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( e );
+		}
+		catch ( ExecutionException e ) {
+			failed = true;
+			executorService.shutdownNow();
+			final Throwable cause = e.getCause();
+			if ( cause instanceof IOException ) throw (IOException)cause;
+			if ( cause instanceof RuntimeException ) throw (RuntimeException)cause;
+			if ( cause instanceof Error ) throw (Error)cause;
+			throw new RuntimeException( cause );
+		}
+
+		long n = 0;
+		for( int i = 0; i < diskChunks; i++ ) {
+			count[ i ] += added[ i ];
+			n += added[ i ];
+		}
+		size += n;
+		checkedForDuplicates = false;
+		// Filters are not guaranteed to be thread safe, so the filtered size will be recomputed if necessary
+		if ( filteredSize != -1 ) {
+			if ( filter == null ) filteredSize += n;
+			else filteredSize = -1;
+		}
+		if ( pl != null ) {
+			pl.update( n );
+			pl.done();
+		}
+	}
+
+	/** Adds the elements returned by an iterator, buffering them for each disk chunk; this method is invoked
+	 * concurrently by {@link #addAll(List, List)}.
+	 * 
+	 * @param elements an iterator returning elements.
+	 * @param values an iterator on values parallel to {@code elements}, or {@code null}; values are ignored if this store has a nonzero hash width.
+	 * @param transform a transformation strategy that will be used by the current thread only.
+	 * @return the number of triples added to each disk chunk.
+	 */
+	private int[] addAll( final Iterator<? extends T> elements, final LongIterator values, final TransformationStrategy<? super T> transform ) throws IOException {
+		final int step = hashMask == 0 ? 4 : 3;
+		final long[][] buffer = new long[ diskChunks ][ Math.max( MIN_BUFFER_SIZE, ( THREAD_BUFFER_SIZE << LOG2_DISK_CHUNKS ) >>> log2DiskChunks ) * step ];
+		final int[] fill = new int[ diskChunks ];
+		final int[] added = new int[ diskChunks ];
+		final long[] triple = new long[ 3 ];
+
+		while( elements.hasNext() ) {
+			Hashes.spooky4( transform.toBitVector( elements.next() ), seed, triple );
+			final int chunk = (int)( triple[ 0 ] >>> diskChunksShift );
+			final long[] b = buffer[ chunk ];
+			int f = fill[ chunk ];
+			b[ f++ ] = triple[ 0 ];
+			b[ f++ ] = triple[ 1 ];
+			b[ f++ ] = triple[ 2 ];
+			if ( values != null ) {
+				final long value = values.nextLong();
+				if ( hashMask == 0 ) b[ f++ ] = value;
+			}
+			if ( f == b.length ) {
+				flush( chunk, b, f );
+				f = 0;
+			}
+			fill[ chunk ] = f;
+			added[ chunk ]++;
+		}
+		if ( values != null && values.hasNext() ) throw new IllegalStateException( "An iterator on values contains more entries than the corresponding iterator on keys" );
+
+		for( int i = 0; i < diskChunks; i++ ) if ( fill[ i ] != 0 ) flush( i, buffer[ i ], fill[ i ] );
+		return added;
+	}
+
+	/** Writes a buffer of longs to a disk chunk, holding the lock on its output stream. 
+	 * 
+	 * <p>In the compact format, the buffer is written as a sorted run.
+	 * 
+	 * @param chunk a disk chunk.
+	 * @param buffer a buffer of longs.
+	 * @param length the number of longs of {@code buffer} to be written.
+	 */
+	private void flush( final int chunk, final long[] buffer, final int length ) throws IOException {
+		final DataOutputStream dos = this.dos[ chunk ];
+		if ( compact ) {
+			final int step = hashMask == 0 ? 4 : 3;
+			final int n = length / step;
+			final long[] buffer0 = new long[ n ], buffer1 = new long[ n ], buffer2 = new long[ n ], data = hashMask == 0 ? new long[ n ] : null;
+			for( int i = 0, j = 0; i < n; i++ ) {
+				buffer0[ i ] = buffer[ j++ ];
+				buffer1[ i ] = buffer[ j++ ];
+				buffer2[ i ] = buffer[ j++ ];
+				if ( data != null ) data[ i ] = buffer[ j++ ];
+			}
+			radixSort( buffer0, buffer1, buffer2, data, n );
+			synchronized( dos ) {
+				writeRun( dos, buffer0, buffer1, buffer2, data, n );
+			}
+		}
+		else synchronized( dos ) {
+			for( int i = 0; i < length; i++ ) dos.writeLong( buffer[ i ] );
+		}
+	}
+
+	/** Sorts and writes the current run of a disk chunk (compact format only).
+	 * 
+	 * @param chunk a disk chunk.
+	 */
+	private void flushRun( final int chunk ) throws IOException {
+		final int length = runFill[ chunk ];
+		if ( length == 0 ) return;
+		radixSort( run0[ chunk ], run1[ chunk ], run2[ chunk ], runData[ chunk ], length );
+		writeRun( dos[ chunk ], run0[ chunk ], run1[ chunk ], run2[ chunk ], runData[ chunk ], length );
+		runFill[ chunk ] = 0;
+	}
+
+	/** Writes a sorted run in the compact format.
+	 * 
+	 * <p>A run is made of its length followed by its triples; for each triple, we write the
+	 * gap between the lower bits of its first hash and that of the previous triple (or zero),
+	 * the other two hashes, and the associated data, if present. Gaps, lengths and data are written in
+	 * a variable-length format using seven bits per byte.
+	 * 
+	 * @param dos the output stream of a disk chunk.
+	 * @param buffer0 the first hash of each triple, sorted.
+	 * @param buffer1 the second hash of each triple.
+	 * @param buffer2 the third hash of each triple.
+	 * @param data the data associated with each triple, or {@code null}.
+	 * @param length the number of triples to write.
+	 */
+	private void writeRun( final DataOutputStream dos, final long[] buffer0, final long[] buffer1, final long[] buffer2, final long[] data, final int length ) throws IOException {
+		final long lowMask = -1L >>> log2DiskChunks;
+		writeVarLong( dos, length );
+		long prev = 0;
+		for( int i = 0; i < length; i++ ) {
+			final long low = buffer0[ i ] & lowMask;
+			writeVarLong( dos, low - prev );
+			prev = low;
+			dos.writeLong( buffer1[ i ] );
+			dos.writeLong( buffer2[ i ] );
+			if ( data != null ) writeVarLong( dos, data[ i ] );
+		}
+	}
+
+	/** Writes a long in a variable-length format using seven bits per byte, lowest bits first.
+	 * 
+	 * @param dos a data output stream.
+	 * @param x a long, considered as an unsigned value.
+	 */
+	private static void writeVarLong( final DataOutputStream dos, long x ) throws IOException {
+		while( ( x & ~0x7FL ) != 0 ) {
+			dos.writeByte( (int)( x & 0x7F | 0x80 ) );
+			x >>>= 7;
+		}
+		dos.writeByte( (int)x );
+	}
+
+	/** Writes pending runs (in the compact format) and flushes the output streams of all disk chunks. */
+	private void flushDiskChunks() throws IOException {
+		if ( compact ) for( int i = 0; i < diskChunks; i++ ) flushRun( i );
+		for( DataOutputStream d: dos ) d.flush();
+	}
+
 	/** Returns the size of this store. Note that if you set up 
 	 * a {@linkplain #filter(Predicate) filter}, the first call to
 	 * this method will require a scan to the whole store. 
@@ -356,19 +698,26 @@ public class ChunkedHashStore<T> implements Serializable, SafelyCloseable, Itera
 		if ( filteredSize == - 1 ) {
 			long c = 0;
 			final long[] triple = new long[ 3 ];
-			for( int i = 0; i < DISK_CHUNKS; i++ ) {
+			final int step = hashMask == 0 ? 4 : 3;
+			final long[] block = new long[ BLOCK_SIZE * step ];
+			for( int i = 0; i < diskChunks; i++ ) {
 				if ( filter == null ) c += count[ i ];
 				else {
-					for( DataOutputStream d: dos ) d.flush();
-					final DataInputStream dis = new DataInputStream( new FastBufferedInputStream( new FileInputStream( file[ i ] ) ) );
-					for( int j = 0; j < count[ i ]; j++ ) {
-						triple[ 0 ] = dis.readLong();
-						triple[ 1 ] = dis.readLong();
-						triple[ 2 ] = dis.readLong();
-						if ( hashMask == 0 ) dis.readLong();
-						if ( filter.evaluate( triple ) ) c++;
+					flushDiskChunks();
+					final DiskChunkReader reader = new DiskChunkReader( i );
+					try {
+						for( int length; ( length = reader.read( block ) ) != 0; ) {
+							for( int j = 0; j < length; j += step ) {
+								triple[ 0 ] = block[ j ];
+								triple[ 1 ] = block[ j + 1 ];
+								triple[ 2 ] = block[ j + 2 ];
+								if ( filter.evaluate( triple ) ) c++;
+							}
+						}
+					}
+					finally {
+						reader.close();
 					}
-					dis.close();
 				}
 			}
 
@@ -405,6 +754,11 @@ public class ChunkedHashStore<T> implements Serializable, SafelyCloseable, Itera
 	public void close() {
 		if ( ! closed ) {
 			closed = true;
+			stopPrefetching();
+			if ( prefetcher != null ) {
+				prefetcher.shutdown();
+				prefetcher = null;
+			}
 			for( DataOutputStream d: dos )
 				try {
 					d.close();
@@ -425,13 +779,19 @@ public class ChunkedHashStore<T> implements Serializable, SafelyCloseable, Itera
 	public void reset( final long seed ) {
 		if ( locked ) throw new IllegalStateException();
 		if ( DEBUG ) System.err.println( "RESET(" + seed + ")" );
+		// A prefetching task of an abandoned iterator might be still reading a disk chunk
+		stopPrefetching();
+		resets++;
 		filteredSize = 0;
+		size = 0;
 		this.seed = seed;
 		checkedForDuplicates = false;
+		failed = false;
 		Arrays.fill( count, 0 );
+		if ( compact ) Arrays.fill( runFill, 0 );
 		try {
 			for( DataOutputStream d: dos ) d.close();
-			for( int i = 0; i < DISK_CHUNKS; i++ ) dos[ i ] = new DataOutputStream( new FastBufferedOutputStream( new FileOutputStream( file[ i ] ), OUTPUT_BUFFER_SIZE ) );
+			for( int i = 0; i < diskChunks; i++ ) dos[ i ] = new DataOutputStream( new FastBufferedOutputStream( new FileOutputStream( file[ i ] ), OUTPUT_BUFFER_SIZE ) );
 		}
 		catch ( IOException e ) {
 			throw new RuntimeException( e );
@@ -523,14 +883,14 @@ public class ChunkedHashStore<T> implements Serializable, SafelyCloseable, Itera
 	
 	public int log2Chunks( final int log2chunks ) {
 		this.chunks = 1 << log2chunks;
-		diskChunkStep = (int)Math.max( DISK_CHUNKS / chunks, 1 );
-		virtualDiskChunks = DISK_CHUNKS / diskChunkStep;
+		diskChunkStep = (int)Math.max( diskChunks / chunks, 1 );
+		virtualDiskChunks = diskChunks / diskChunkStep;
 
 		if ( DEBUG ) {
 			System.err.print( "Chunk sizes: " );
-			double avg = filteredSize / (double)DISK_CHUNKS;
+			double avg = filteredSize / (double)diskChunks;
 			double var = 0;
-			for( int i = 0; i < DISK_CHUNKS; i++ ) {
+			for( int i = 0; i < diskChunks; i++ ) {
 				System.err.print( i + ":" + count[ i ] + " " );
 				var += ( count[ i ] - avg  ) * ( count[ i ] - avg );
 			}
@@ -543,12 +903,161 @@ public class ChunkedHashStore<T> implements Serializable, SafelyCloseable, Itera
 		chunkShift = Long.SIZE - log2chunks;
 
 		LOGGER.debug( "Number of chunks: " + chunks );
-		LOGGER.debug( "Number of disk chunks: " + DISK_CHUNKS );
+		LOGGER.debug( "Number of disk chunks: " + diskChunks );
 		LOGGER.debug( "Number of virtual disk chunks: " + virtualDiskChunks );
 
 		return chunkShift;
 	}
 
+	/** The number of bits in a radix-sort digit. */
+	private static final int DIGIT_BITS = 8;
+	/** The mask for a radix-sort digit. */
+	private static final int DIGIT_MASK = ( 1 << DIGIT_BITS ) - 1;
+	/** The maximum number of pending buckets during a radix sort. */
+	private static final int STACK_SIZE = ( Long.SIZE / DIGIT_BITS ) * DIGIT_MASK + 1;
+	/** Buckets smaller than this threshold are sorted by insertion. */
+	private static final int RADIXSORT_NO_REC = 64;
+
+	/** Sorts lexicographically (using unsigned comparison) parallel arrays of triples, and possibly their associated data,
+	 * detecting duplicate triples.
+	 * 
+	 * <p>This method uses an in-place most-significant-digit radix sort on the first hash of each triple,
+	 * starting from the most significant digit that is not constant (so the implicit disk-chunk bits are skipped).
+	 * Buckets smaller than {@value #RADIXSORT_NO_REC} elements, and buckets whose elements have all the same first hash,
+	 * are sorted by insertion on the whole triple; since duplicate triples must end up in the same bucket, 
+	 * duplicates are detected during the insertion phase.
+	 * 
+	 * @param buffer0 the first hash of each triple.
+	 * @param buffer1 the second hash of each triple.
+	 * @param buffer2 the third hash of each triple.
+	 * @param data the data associated with each triple, or {@code null}.
+	 * @param length the number of triples to sort.
+	 * @return true if there are duplicate triples.
+	 */
+	public static boolean radixSort( final long[] buffer0, final long[] buffer1, final long[] buffer2, final long[] data, final int length ) {
+		if ( length < 2 ) return false;
+
+		long diff = 0;
+		final long first0 = buffer0[ 0 ];
+		for( int i = length; i-- != 1; ) diff |= buffer0[ i ] ^ first0;
+		if ( diff == 0 ) return insertionSort( buffer0, buffer1, buffer2, data, 0, length );
+
+		boolean duplicates = false;
+		final int[] offsetStack = new int[ STACK_SIZE ];
+		int offsetPos = 0;
+		final int[] lengthStack = new int[ STACK_SIZE ];
+		int lengthPos = 0;
+		final int[] shiftStack = new int[ STACK_SIZE ];
+		int shiftPos = 0;
+
+		offsetStack[ offsetPos++ ] = 0;
+		lengthStack[ lengthPos++ ] = length;
+		shiftStack[ shiftPos++ ] = Fast.mostSignificantBit( diff ) / DIGIT_BITS * DIGIT_BITS;
+
+		final int[] count = new int[ 1 << DIGIT_BITS ];
+		final int[] pos = new int[ 1 << DIGIT_BITS ];
+
+		while( offsetPos > 0 ) {
+			final int first = offsetStack[ --offsetPos ];
+			final int len = lengthStack[ --lengthPos ];
+			final int shift = shiftStack[ --shiftPos ];
+
+			for( int i = first + len; i-- != first; ) count[ (int)( buffer0[ i ] >>> shift & DIGIT_MASK ) ]++;
+
+			// Compute cumulative distribution
+			int lastUsed = -1;
+			for( int i = 0, p = first; i < 1 << DIGIT_BITS; i++ ) {
+				if ( count[ i ] != 0 ) lastUsed = i;
+				pos[ i ] = ( p += count[ i ] );
+			}
+
+			// i moves through the start of each bucket; all buckets are placed when the last one is reached
+			final int end = first + len - count[ lastUsed ];
+			for( int i = first, c = -1, d; i <= end; i += count[ c ], count[ c ] = 0 ) {
+				long t0 = buffer0[ i ], t1 = buffer1[ i ], t2 = buffer2[ i ], t3 = data != null ? data[ i ] : 0;
+				c = (int)( t0 >>> shift & DIGIT_MASK );
+
+				if ( i < end ) {
+					while( ( d = --pos[ c ] ) > i ) {
+						long z = t0;
+						t0 = buffer0[ d ];
+						buffer0[ d ] = z;
+						z = t1;
+						t1 = buffer1[ d ];
+						buffer1[ d ] = z;
+						z = t2;
+						t2 = buffer2[ d ];
+						buffer2[ d ] = z;
+						if ( data != null ) {
+							z = t3;
+							t3 = data[ d ];
+							data[ d ] = z;
+						}
+						c = (int)( t0 >>> shift & DIGIT_MASK );
+					}
+					buffer0[ i ] = t0;
+					buffer1[ i ] = t1;
+					buffer2[ i ] = t2;
+					if ( data != null ) data[ i ] = t3;
+				}
+
+				if ( count[ c ] > 1 ) {
+					if ( shift == 0 || count[ c ] < RADIXSORT_NO_REC ) duplicates |= insertionSort( buffer0, buffer1, buffer2, data, i, i + count[ c ] );
+					else {
+						offsetStack[ offsetPos++ ] = i;
+						lengthStack[ lengthPos++ ] = count[ c ];
+						shiftStack[ shiftPos++ ] = shift - DIGIT_BITS;
+					}
+				}
+			}
+		}
+
+		return duplicates;
+	}
+
+	/** Compares lexicographically two triples using unsigned comparison.
+	 * 
+	 * @return a negative integer, zero, or a positive integer as the first triple is smaller than, equal to, or greater than the second triple.
+	 */
+	private static int compare( final long x0, final long x1, final long x2, final long y0, final long y1, final long y2 ) {
+		if ( x0 != y0 ) return Long.compare( x0 + Long.MIN_VALUE, y0 + Long.MIN_VALUE );
+		if ( x1 != y1 ) return Long.compare( x1 + Long.MIN_VALUE, y1 + Long.MIN_VALUE );
+		return Long.compare( x2 + Long.MIN_VALUE, y2 + Long.MIN_VALUE );
+	}
+
+	/** Sorts by insertion a range of parallel arrays of triples, and possibly their associated data, detecting duplicate triples.
+	 * 
+	 * @param buffer0 the first hash of each triple.
+	 * @param buffer1 the second hash of each triple.
+	 * @param buffer2 the third hash of each triple.
+	 * @param data the data associated with each triple, or {@code null}.
+	 * @param from the index of the first element (inclusive) to be sorted.
+	 * @param to the index of the last element (exclusive) to be sorted.
+	 * @return true if there are duplicate triples in the range.
+	 */
+	private static boolean insertionSort( final long[] buffer0, final long[] buffer1, final long[] buffer2, final long[] data, final int from, final int to ) {
+		boolean duplicates = false;
+		for( int i = from; ++i < to; ) {
+			final long t0 = buffer0[ i ], t1 = buffer1[ i ], t2 = buffer2[ i ], t3 = data != null ? data[ i ] : 0;
+			int j = i;
+			for( int cmp; j > from && ( cmp = compare( buffer0[ j - 1 ], buffer1[ j - 1 ], buffer2[ j - 1 ], t0, t1, t2 ) ) >= 0; j-- ) {
+				if ( cmp == 0 ) {
+					duplicates = true;
+					break;
+				}
+				buffer0[ j ] = buffer0[ j - 1 ];
+				buffer1[ j ] = buffer1[ j - 1 ];
+				buffer2[ j ] = buffer2[ j - 1 ];
+				if ( data != null ) data[ j ] = data[ j - 1 ];
+			}
+			buffer0[ j ] = t0;
+			buffer1[ j ] = t1;
+			buffer2[ j ] = t2;
+			if ( data != null ) data[ j ] = t3;
+		}
+		return duplicates;
+	}
+
 	/** A chunk returned by a {@link ChunkedHashStore}. */
 	public final static class Chunk implements Iterable<long[]> {
 		/** The start position of this chunk in the parallel arrays {@link #buffer0}, {@link #buffer1}, {@link #buffer2}, and {@link #data}. */
@@ -631,6 +1140,288 @@ public class ChunkedHashStore<T> implements Serializable, SafelyCloseable, Itera
 		filteredSize = -1;
 	}
 
+	/** Sets whether disk chunks should be read using memory mapping.
+	 * 
+	 * <p>By default, disk chunks are read using buffered streams, one long at a time. If this
+	 * feature is enabled, disk chunks will be instead {@linkplain FileChannel#map(MapMode, long, long) mapped into memory}
+	 * and decoded in bulk through a {@link LongBuffer}, which is significantly faster when the store is scanned several times.
+	 * Files larger than {@value #MAX_MAPPING_SIZE} bytes are mapped in segments.
+	 * 
+	 * <p>Note that the mappings are released only when the associated buffers are garbage collected, which
+	 * on some operating systems might delay the deletion of the disk chunks after {@linkplain #close() closing} the store.
+	 * 
+	 * @param mapped whether disk chunks should be read using memory mapping.
+	 */
+	public void mapped( final boolean mapped ) {
+		this.mapped = mapped;
+	}
+
+	/** A reader decoding, a block at a time, the triples (and associated data) of a disk chunk, either
+	 * through a stream or through memory mapping, in the raw or in the compact format. */
+	private final class DiskChunkReader implements Closeable {
+		/** The number of longs per triple (and associated data). */
+		private final int step;
+		/** The highest bits of the first hash, which are implied by the disk chunk. */
+		private final long high;
+		/** The number of triples still to be read. */
+		private long remaining;
+		/** The stream reading the disk chunk, or {@code null} if the disk chunk is mapped. */
+		private final DataInputStream dis;
+		/** The channel used to map the disk chunk, or {@code null} if the disk chunk is streamed. */
+		private final FileChannel channel;
+		/** The length in bytes of the disk chunk, if it is mapped. */
+		private final long length;
+		/** The currently mapped segment of the disk chunk, or {@code null}. */
+		private ByteBuffer segment;
+		/** The starting position in the disk chunk of {@link #segment}. */
+		private long segmentStart;
+		/** The number of triples still to be read in the current run (compact format only). */
+		private int runRemaining;
+		/** The lower bits of the first hash of the last triple read in the current run (compact format only). */
+		private long prev;
+
+		private DiskChunkReader( final int diskChunk ) throws IOException {
+			step = hashMask == 0 ? 4 : 3;
+			high = (long)diskChunk << diskChunksShift;
+			remaining = count[ diskChunk ];
+			if ( mapped ) {
+				dis = null;
+				channel = new FileInputStream( file[ diskChunk ] ).getChannel();
+				length = channel.size();
+			}
+			else {
+				dis = new DataInputStream( new FastBufferedInputStream( new FileInputStream( file[ diskChunk ] ) ) );
+				channel = null;
+				length = -1;
+			}
+		}
+
+		/** Maps a new segment if the current one has less than the given number of bytes left, unless it extends to the end of the disk chunk.
+		 * 
+		 * @param bytes the number of bytes that should be available in the current segment.
+		 */
+		private void ensure( final int bytes ) throws IOException {
+			if ( segment != null && ( segment.remaining() >= bytes || segmentStart + segment.limit() == length ) ) return;
+			segmentStart += segment == null ? 0 : segment.position();
+			segment = channel.map( MapMode.READ_ONLY, segmentStart, Math.min( MAX_MAPPING_SIZE, length - segmentStart ) );
+		}
+
+		private long readLong() throws IOException {
+			return dis != null ? dis.readLong() : segment.getLong();
+		}
+
+		/** Reads a long written by {@link ChunkedHashStore#writeVarLong(DataOutputStream, long)}.
+		 * 
+		 * @return the next long in variable-length format.
+		 */
+		private long readVarLong() throws IOException {
+			long x = 0;
+			for( int shift = 0;; shift += 7 ) {
+				final byte b = dis != null ? dis.readByte() : segment.get();
+				x |= (long)( b & 0x7F ) << shift;
+				if ( b >= 0 ) return x;
+			}
+		}
+
+		/** Reads the next block of triples (and associated data).
+		 * 
+		 * @param block an array that will be filled with triples, each followed by its associated data, if present;
+		 * its length must be a multiple of the number of longs per triple.
+		 * @return the number of longs written in {@code block}; zero if all triples have been read.
+		 */
+		public int read( final long[] block ) throws IOException {
+			final int n = (int)Math.min( remaining, block.length / step );
+			if ( n == 0 ) return 0;
+			remaining -= n;
+			final int longs = n * step;
+
+			if ( compact ) {
+				for( int i = 0; i < longs; i += step ) {
+					if ( dis == null ) ensure( MAX_COMPACT_ENTRY_BYTES );
+					if ( runRemaining-- == 0 ) {
+						runRemaining = (int)readVarLong() - 1;
+						prev = 0;
+					}
+					block[ i ] = high | ( prev += readVarLong() );
+					block[ i + 1 ] = readLong();
+					block[ i + 2 ] = readLong();
+					if ( step == 4 ) block[ i + 3 ] = readVarLong();
+				}
+			}
+			else if ( dis != null ) for( int i = 0; i < longs; i++ ) block[ i ] = dis.readLong();
+			else {
+				final int bytes = longs * ( Long.SIZE / Byte.SIZE );
+				ensure( bytes );
+				segment.asLongBuffer().get( block, 0, longs );
+				segment.position( segment.position() + bytes );
+			}
+
+			return longs;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if ( dis != null ) dis.close();
+			else channel.close();
+		}
+	}
+
+	/** Loads into parallel arrays the triples (and associated data) of a virtual disk chunk that pass the filter.
+	 * 
+	 * @param virtualDiskChunk a virtual disk chunk, made of {@link #diskChunkStep} consecutive disk chunks.
+	 * @param buffer0 an array that will be filled with the first hash of each triple.
+	 * @param buffer1 an array that will be filled with the second hash of each triple.
+	 * @param buffer2 an array that will be filled with the third hash of each triple.
+	 * @param data an array that will be filled with the data associated with each triple, or {@code null} if this store does not contain data.
+	 * @return the number of triples loaded.
+	 */
+	private int load( final int virtualDiskChunk, final long[] buffer0, final long[] buffer1, final long[] buffer2, final long[] data ) throws IOException {
+		final int step = hashMask == 0 ? 4 : 3;
+		final long[] block = new long[ BLOCK_SIZE * step ];
+		final long triple[] = new long[ 3 ];
+		int count = 0;
+
+		for( int d = virtualDiskChunk * diskChunkStep; d < ( virtualDiskChunk + 1 ) * diskChunkStep; d++ ) {
+			final DiskChunkReader reader = new DiskChunkReader( d );
+			try {
+				for( int length; ( length = reader.read( block ) ) != 0; ) {
+					for( int i = 0; i < length; i += step ) {
+						if ( DEBUG ) System.err.println( "From disk: " + block[ i ] + ", " + block[ i + 1 ] + ", " + block[ i + 2 ] );
+						if ( filter != null ) {
+							triple[ 0 ] = block[ i ];
+							triple[ 1 ] = block[ i + 1 ];
+							triple[ 2 ] = block[ i + 2 ];
+							if ( ! filter.evaluate( triple ) ) continue;
+						}
+						buffer0[ count ] = block[ i ];
+						buffer1[ count ] = block[ i + 1 ];
+						buffer2[ count ] = block[ i + 2 ];
+						if ( data != null ) data[ count ] = block[ i + 3 ];
+						count++;
+					}
+				}
+			}
+			finally {
+				reader.close();
+			}
+		}
+
+		return count;
+	}
+
+	/** Sets whether {@linkplain #iterator() iterators} should prefetch disk chunks.
+	 * 
+	 * <p>If this feature is enabled, while the chunks of a virtual disk chunk are being returned
+	 * a background thread loads and sorts the next virtual disk chunk, so that I/O and sorting
+	 * overlap with the processing of the chunks. The iterator will use a second set of buffers, thus
+	 * doubling its memory footprint (which is still bounded by the size of the two largest virtual disk chunks).
+	 * 
+	 * <p>As usual, the chunks returned by the iterator are valid only until the iterator starts returning chunks from the
+	 * next virtual disk chunk. All iterators of a store share a single background thread; {@link #reset(long)} and {@link #close()}
+	 * cancel pending prefetches and wait for the completion of the running one, so iterators must not be used after
+	 * a reset: an iterator that is used after a reset will throw an {@link IllegalStateException} as soon as it needs to load a virtual disk chunk.
+	 * 
+	 * @param prefetch whether iterators should prefetch disk chunks.
+	 */
+	public void prefetch( final boolean prefetch ) {
+		this.prefetch = prefetch;
+	}
+
+	/** A set of parallel buffers containing a sorted virtual disk chunk. */
+	private static final class DiskChunkBuffers {
+		private final long[] buffer0;
+		private final long[] buffer1;
+		private final long[] buffer2;
+		private final long[] data;
+		/** The number of triples in the buffers. */
+		private int size;
+		/** Whether the triples in the buffers contain duplicates. */
+		private boolean duplicates;
+
+		private DiskChunkBuffers( final int capacity, final boolean withData ) {
+			buffer0 = new long[ capacity ];
+			buffer1 = new long[ capacity ];
+			buffer2 = new long[ capacity ];
+			data = withData ? new long[ capacity ] : null;
+		}
+	}
+
+	/** Loads and sorts a virtual disk chunk.
+	 * 
+	 * @param virtualDiskChunk a virtual disk chunk.
+	 * @param buffers the buffers that will contain the sorted virtual disk chunk.
+	 */
+	private void load( final int virtualDiskChunk, final DiskChunkBuffers buffers ) throws IOException {
+		buffers.size = load( virtualDiskChunk, buffers.buffer0, buffers.buffer1, buffers.buffer2, buffers.data );
+		buffers.duplicates = radixSort( buffers.buffer0, buffers.buffer1, buffers.buffer2, buffers.data, buffers.size );
+	}
+
+	/** Starts loading and sorting a virtual disk chunk in the background thread of {@link #prefetcher}.
+	 * 
+	 * @param virtualDiskChunk a virtual disk chunk.
+	 * @param buffers the buffers that will contain the sorted virtual disk chunk.
+	 * @return a task that will complete when the virtual disk chunk has been loaded and sorted.
+	 */
+	private FutureTask<Void> prefetch( final int virtualDiskChunk, final DiskChunkBuffers buffers ) {
+		if ( prefetcher == null ) prefetcher = Executors.newSingleThreadExecutor( new ThreadFactory() {
+			@Override
+			public Thread newThread( final Runnable r ) {
+				final Thread thread = new Thread( r, ChunkedHashStore.class.getSimpleName() + " prefetcher" );
+				thread.setDaemon( true );
+				return thread;
+			}
+		});
+
+		final FutureTask<Void> task = new FutureTask<Void>( new Callable<Void>() {
+			@Override
+			public Void call() throws IOException {
+				load( virtualDiskChunk, buffers );
+				return null;
+			}
+		});
+		for( Iterator<FutureTask<Void>> i = prefetches.iterator(); i.hasNext(); ) if ( i.next().isDone() ) i.remove();
+		prefetches.add( task );
+		prefetcher.execute( task );
+		return task;
+	}
+
+	/** Cancels the prefetching tasks that have not started yet, and waits for the completion of the running one, if any. */
+	private void stopPrefetching() {
+		if ( prefetcher == null ) return;
+		for( FutureTask<Void> task: prefetches ) task.cancel( false );
+		prefetches.clear();
+		// The executor has a single thread, so when this task completes no prefetching task is running
+		final FutureTask<Void> barrier = new FutureTask<Void>( new Runnable() {
+			@Override
+			public void run() {}
+		}, null );
+		prefetcher.execute( barrier );
+		await( barrier );
+	}
+
+	/** Waits for the completion of a prefetching task, rethrowing its exceptions.
+	 * 
+	 * @param task a task returned by {@link #prefetch(int, DiskChunkBuffers)}.
+	 */
+	private static void await( final FutureTask<Void> task ) {
+		try {
+			task.get();
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( e );
+		}
+		catch ( CancellationException e ) {
+			throw new IllegalStateException( "The store has been reset or closed while iterating" );
+		}
+		catch ( ExecutionException e ) {
+			final Throwable cause = e.getCause();
+			if ( cause instanceof RuntimeException ) throw (RuntimeException)cause;
+			if ( cause instanceof Error ) throw (Error)cause;
+			throw new RuntimeException( cause );
+		}
+	}
+
 	/** Returns an iterator over the chunks of this chunked hash store.
 	 *
 	 * @return an iterator over the chunks of this chunked hash store.
@@ -638,13 +1429,13 @@ public class ChunkedHashStore<T> implements Serializable, SafelyCloseable, Itera
 	
 	public Iterator<Chunk> iterator() {
 		if ( closed ) throw new IllegalStateException( "This " + getClass().getSimpleName() + " has been closed " );
-		for( DataOutputStream d: dos )
-			try {
-				d.flush();
-			}
-			catch ( IOException e ) {
-				throw new RuntimeException( e );
-			}
+		if ( failed ) throw new IllegalStateException( "A parallel addition to this " + getClass().getSimpleName() + " failed: the store must be reset" );
+		try {
+			flushDiskChunks();
+		}
+		catch ( IOException e ) {
+			throw new RuntimeException( e );
+		}
 
 		int m = 0;
 		for( int i = 0; i < virtualDiskChunks; i++ ) {
@@ -654,115 +1445,64 @@ public class ChunkedHashStore<T> implements Serializable, SafelyCloseable, Itera
 		}
 
 		final int maxCount = m;
-		
+		final boolean prefetch = this.prefetch && virtualDiskChunks > 1;
+		final int resets = this.resets;
+
 		return new AbstractObjectIterator<Chunk>() {
 			private int chunk;
-			private FastBufferedInputStream fbis;
 			private int last;
-			private int chunkSize;
-			private final long[] buffer0 = new long[ maxCount ];
-			private final long[] buffer1 = new long[ maxCount ];
-			private final long[] buffer2 = new long[ maxCount ];
-			private final long[] data = hashMask != 0 ? null : new long[ maxCount ];
-			
+			/** The buffers containing the current virtual disk chunk. */
+			private DiskChunkBuffers current = new DiskChunkBuffers( maxCount, hashMask == 0 );
+			/** If prefetching, the buffers into which the next virtual disk chunk is loaded. */
+			private DiskChunkBuffers next = prefetch ? new DiskChunkBuffers( maxCount, hashMask == 0 ) : null;
+			/** If prefetching, the task loading the next virtual disk chunk into {@link #next}, or {@code null}. */
+			private FutureTask<Void> pending;
+
 			public boolean hasNext() {
 				return chunk < chunks;
 			}
 			
-			@SuppressWarnings("unchecked")
 			public Chunk next() {
 				if ( ! hasNext() ) throw new NoSuchElementException();
-				final long[] buffer0 = this.buffer0;
 
 				if ( chunk % ( chunks / virtualDiskChunks ) == 0 ) {
+					// The disk chunks of a reset or closed store are no longer those we are iterating on
+					if ( resets != ChunkedHashStore.this.resets || closed ) throw new IllegalStateException( "The store has been reset or closed while iterating" );
 					final int diskChunk = (int)( chunk / ( chunks / virtualDiskChunks ) );
-					final long[] buffer1 = this.buffer1, buffer2 = this.buffer2;
-
-					chunkSize = 0;
-					try {
-						if ( diskChunkStep == 1 ) {
-							fbis = new FastBufferedInputStream( new FileInputStream( file[ diskChunk ] ) );
-							chunkSize = count[ diskChunk ];
-						}
-						else {
-							final FileInputStream[] fis = new FileInputStream[ diskChunkStep ];
-							for( int i = 0; i < fis.length; i++ ) {
-								fis[ i ] = new FileInputStream( file[ diskChunk * diskChunkStep + i ] );
-								chunkSize += count[ diskChunk * diskChunkStep + i ];
-							}
-							fbis = new FastBufferedInputStream( new SequenceInputStream( new IteratorEnumeration( Arrays.asList( fis ).iterator() ) ) );
-						}
-						final DataInputStream dis = new DataInputStream( fbis );
-
-						final long triple[] = new long[ 3 ];
-						int count = 0;
-						for( int j = 0; j < chunkSize; j++ ) {
-							triple[ 0 ] = dis.readLong();
-							triple[ 1 ] = dis.readLong();
-							triple[ 2 ] = dis.readLong();
-
-							if ( DEBUG ) System.err.println( "From disk: " + Arrays.toString( triple ) );
-							
-							if ( filter == null || filter.evaluate( triple ) ) {
-								buffer0[ count ] = triple[ 0 ]; 
-								buffer1[ count ] = triple[ 1 ]; 
-								buffer2[ count ] = triple[ 2 ]; 
-								if ( hashMask == 0 ) data[ count ] = dis.readLong();
-								count++;
-							}
-							else if ( hashMask == 0 ) dis.readLong(); // Discard data
-						}
-						
-						chunkSize = count;
-						dis.close();
+					if ( prefetch ) {
+						if ( pending == null ) pending = prefetch( diskChunk, next );
+						await( pending );
+						final DiskChunkBuffers t = current;
+						current = next;
+						next = t;
+						pending = null;
 					}
-					catch ( IOException e ) {
-						throw new RuntimeException( e );
-					}
-
-					it.unimi.dsi.fastutil.Arrays.quickSort( 0, chunkSize, new AbstractIntComparator() {
-						private static final long serialVersionUID = 0L;
-
-						public int compare( final int x, final int y ) {
-							int t = Long.signum( buffer0[ x ] - buffer0[ y ] );
-							if ( t != 0 ) return t;
-							t = Long.signum( buffer1[ x ] - buffer1[ y ] );
-							if ( t != 0 ) return t;
-							return Long.signum( buffer2[ x ] - buffer2[ y ] );
+					else {
+						try {
+							load( diskChunk, current );
 						}
-					},
-					new Swapper() {
-						public void swap( final int x, final int y ) {
-							final long e0 = buffer0[ x ], e1 = buffer1[ x ], e2 = buffer2[ x ];
-							buffer0[ x ] = buffer0[ y ];
-							buffer1[ x ] = buffer1[ y ];
-							buffer2[ x ] = buffer2[ y ];
-							buffer0[ y ] = e0;
-							buffer1[ y ] = e1;
-							buffer2[ y ] = e2;
-							if ( hashMask == 0 ) {
-								final long v = data[ x ];
-								data[ x ] = data[ y ];
-								data[ y ] = v;
-							}
+						catch ( IOException e ) {
+							throw new RuntimeException( e );
 						}
-					});
+					}
 
 					if ( DEBUG ) {
-						for( int i = 0; i < chunkSize; i++ ) System.err.println( buffer0[ i ] + ", " + buffer1[ i ] + ", " + buffer2[ i ] );
+						for( int i = 0; i < current.size; i++ ) System.err.println( current.buffer0[ i ] + ", " + current.buffer1[ i ] + ", " + current.buffer2[ i ] );
 					}
 					
-					if ( ! checkedForDuplicates && chunkSize > 1 )
-						for( int i = chunkSize - 1; i-- != 0; ) if ( buffer0[ i ] == buffer0[ i + 1 ] && buffer1[ i ] == buffer1[ i + 1 ] && buffer2[ i ] == buffer2[ i + 1 ] ) throw new ChunkedHashStore.DuplicateException();
+					if ( ! checkedForDuplicates && current.duplicates ) throw new ChunkedHashStore.DuplicateException();
 					if ( chunk == chunks - 1 ) checkedForDuplicates = true;
 					last = 0;
+					// We start prefetching only after the duplicate check, so no load is running if the store is reset
+					if ( prefetch && diskChunk + 1 < virtualDiskChunks ) pending = prefetch( diskChunk + 1, next );
 				}
 
+				final long[] buffer0 = current.buffer0;
 				final int start = last;
-				while( last < chunkSize && ( chunkShift == Long.SIZE ? 0 : buffer0[ last ] >>> chunkShift ) == chunk ) last++;
+				while( last < current.size && ( chunkShift == Long.SIZE ? 0 : buffer0[ last ] >>> chunkShift ) == chunk ) last++;
 				chunk++;
 
-				return new Chunk( buffer0, buffer1, buffer2, data, hashMask, start, last );
+				return new Chunk( buffer0, current.buffer1, current.buffer2, current.data, hashMask, start, last );
 			}
 		};
 	}
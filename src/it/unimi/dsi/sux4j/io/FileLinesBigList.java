@@ -36,9 +36,12 @@ import java.io.Closeable;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.util.EnumSet;
@@ -62,7 +65,9 @@ import java.util.RandomAccess;
  * 
  * <p><strong>Warning</strong>: this class is not synchronised. Separate iterators use separate input
  * streams, and can be accessed concurrently, but all calls to {@link #get(int)} refer to the
- * same input stream.
+ * same input stream. Alternatively, you can create a {@linkplain #FileLinesBigList(CharSequence, String, int, EnumSet, boolean) 
+ * memory-mapped} instance: in this case, {@link #get(long)} reads lines directly from the mapped file 
+ * using thread-local decoding buffers, and can be called concurrently by any number of threads.
  * 
  * <h2>Implementation details</h2>
  * 
@@ -70,11 +75,18 @@ import java.util.RandomAccess;
  * the list of pointers to the start of each line using the {@linkplain EliasFanoMonotoneLongBigList Elias&ndash;Fano representation}. 
  * The memory occupation per line is thus bounded by 2 + log &#x2113; bits, where &#x2113; is the average line length.
  * 
+ * <p>Memory-mapped instances map the file in segments of 2<sup>{@value #LOG2_SEGMENT_SIZE}</sup> bytes, so files
+ * larger than 2GiB can be mapped, too.
+ * 
  * @author Sebastiano Vigna
  * @since 2.1
  */
 public class FileLinesBigList extends AbstractObjectBigList<MutableString> implements RandomAccess, Serializable {
 	private static final long serialVersionUID = 1L;
+	/** The logarithm of the size of a mapped segment. */
+	public static final int LOG2_SEGMENT_SIZE = 30;
+	/** The mask used to compute the offset in a mapped segment. */
+	private static final long SEGMENT_MASK = ( 1L << LOG2_SEGMENT_SIZE ) - 1;
 	/** The filename upon which this file-lines collection is based. */
 	private final String filename;
 	/** The size of the list. */
@@ -83,19 +95,51 @@ public class FileLinesBigList extends AbstractObjectBigList<MutableString> imple
 	private final int bufferSize;
 	/** The terminators that must be used to separate the file lines. */
 	private final EnumSet<LineTerminator> terminators;
+	/** The encoding specified at construction time. */
+	private final String encoding;
+	/** The length of the decoding buffers (enough large to hold any line in the file). */
+	private final int maxLineLength;
+	/** Whether this list is memory-mapped. */
+	private final boolean mapped;
 	/** A byte buffer for character decoding. It is enough large to hold any line in the file. */
-	private final ByteBuffer byteBuffer;
+	private transient ByteBuffer byteBuffer;
 	/** A character buffer for character decoding. It is enough large to hold any line in the file. */
-	private final CharBuffer charBuffer;
+	private transient CharBuffer charBuffer;
 	/** A sparse selection structure keeping track of the start of each line in the file. */
 	private final EliasFanoMonotoneLongBigList borders;
-	/** The fast buffered input stream used by {@link #get(int)}. */
-	private final FastBufferedInputStream inputStream;
+	/** The fast buffered input stream used by {@link #get(int)}, or {@code null} if this list is memory-mapped. */
+	private transient FastBufferedInputStream inputStream;
+	/** The length of the file in bytes. */
+	private final long length;
+	/** The segments of the memory-mapped file, or {@code null} if this list is not memory-mapped. */
+	private transient ByteBuffer[] segments;
+	/** Thread-local decoding buffers used by {@link #get(long)} if this list is memory-mapped. */
+	private transient ThreadLocal<Decoding> decoding;
 	/** A decoder used by {@link #get(int)}. */
-	private final CharsetDecoder decoder;
+	private transient CharsetDecoder decoder;
 	/** The charset specified at construction time. */
-	private final Charset charset;
+	private transient Charset charset;
 	
+	/** The buffers used to decode a line. */
+	private static final class Decoding {
+		/** A byte buffer for character decoding. It is enough large to hold any line in the file. */
+		private final ByteBuffer byteBuffer;
+		/** A character buffer for character decoding. It is enough large to hold any line in the file. */
+		private final CharBuffer charBuffer;
+		/** A decoder. */
+		private final CharsetDecoder decoder;
+		/** Duplicates of the segments of the memory-mapped file, whose positions can be modified by bulk reads. */
+		private final ByteBuffer[] segments;
+
+		private Decoding( final int maxLineLength, final Charset charset, final ByteBuffer[] segments ) {
+			byteBuffer = ByteBuffer.wrap( new byte[ maxLineLength ] );
+			charBuffer = CharBuffer.wrap( new char[ maxLineLength ] );
+			decoder = charset.newDecoder();
+			this.segments = new ByteBuffer[ segments.length ];
+			for( int i = 0; i < segments.length; i++ ) this.segments[ i ] = segments[ i ].duplicate();
+		}
+	}
+
 	/** Creates a file-lines collection for the specified filename with the specified encoding, buffer size and terminator set.
 	 * 
 	 * @param filename a filename.
@@ -104,11 +148,26 @@ public class FileLinesBigList extends AbstractObjectBigList<MutableString> imple
 	 * @param terminators a set of line terminators.
 	 */		
 	public FileLinesBigList( final CharSequence filename, final String encoding, final int bufferSize, final EnumSet<FastBufferedInputStream.LineTerminator> terminators ) throws IOException {
+		this( filename, encoding, bufferSize, terminators, false );
+	}
+
+	/** Creates a file-lines collection for the specified filename with the specified encoding, buffer size and terminator set,
+	 * optionally memory-mapping the file.
+	 * 
+	 * @param filename a filename.
+	 * @param encoding an encoding.
+	 * @param bufferSize the buffer size for {@link FastBufferedInputStream}.
+	 * @param terminators a set of line terminators.
+	 * @param mapped if true, the file will be memory-mapped and {@link #get(long)} will be thread safe.
+	 */		
+	public FileLinesBigList( final CharSequence filename, final String encoding, final int bufferSize, final EnumSet<FastBufferedInputStream.LineTerminator> terminators, final boolean mapped ) throws IOException {
 		this.bufferSize = bufferSize;
 		this.terminators = terminators;
 		this.filename = filename.toString();
+		this.encoding = encoding;
+		this.mapped = mapped;
 		
-		inputStream = new FastBufferedInputStream( new FileInputStream( this.filename ), bufferSize );
+		final FastBufferedInputStream inputStream = new FastBufferedInputStream( new FileInputStream( this.filename ), bufferSize );
 		decoder = ( charset = Charset.forName( encoding ) ).newDecoder();
 		byte[] array = new byte[ 16 ];
 		long count = 0;
@@ -126,6 +185,7 @@ public class FileLinesBigList extends AbstractObjectBigList<MutableString> imple
 		}
 		
 		size = count;
+		length = inputStream.length();
 		byteBuffer = ByteBuffer.wrap( array );
 		charBuffer = CharBuffer.wrap( new char[ array.length ] );
 		
@@ -151,6 +211,28 @@ public class FileLinesBigList extends AbstractObjectBigList<MutableString> imple
 				}
 			}
 		});
+
+		maxLineLength = array.length;
+		if ( mapped ) {
+			inputStream.close();
+			map();
+		}
+		else this.inputStream = inputStream;
+	}
+
+	/** Maps the file in segments and sets up the thread-local decoding buffers. */
+	private void map() throws IOException {
+		final FileChannel channel = new FileInputStream( filename ).getChannel();
+		final ByteBuffer[] segments = new ByteBuffer[ (int)( ( length + SEGMENT_MASK ) >>> LOG2_SEGMENT_SIZE ) ];
+		for( int i = 0; i < segments.length; i++ ) segments[ i ] = channel.map( MapMode.READ_ONLY, (long)i << LOG2_SEGMENT_SIZE, Math.min( SEGMENT_MASK + 1, length - ( (long)i << LOG2_SEGMENT_SIZE ) ) );
+		channel.close();
+		this.segments = segments;
+		decoding = new ThreadLocal<Decoding>() {
+			@Override
+			protected Decoding initialValue() {
+				return new Decoding( maxLineLength, charset, segments );
+			}
+		};
 	}
 
 	/** Creates a file-lines collection for the specified filename with the specified encoding, buffer size and with all terminators.
@@ -181,9 +263,63 @@ public class FileLinesBigList extends AbstractObjectBigList<MutableString> imple
 		return (int)Math.min( size, Integer.MAX_VALUE );
 	}
 		
+	/** Returns whether this list is memory-mapped.
+	 * 
+	 * @return true if this list is memory-mapped (and thus {@link #get(long)} is thread safe).
+	 */
+	public boolean mapped() {
+		return mapped;
+	}
+
 	public MutableString get( final long index ) {
+		if ( mapped ) return getMapped( index );
 		return get( index, inputStream, byteBuffer, charBuffer, decoder );
 	}
+
+	/** Returns a line reading directly from the memory-mapped file.
+	 * 
+	 * @param index the index of a line.
+	 * @return the line of given index.
+	 */
+	private MutableString getMapped( final long index ) {
+		if ( index < 0 || index >= size ) throw new IndexOutOfBoundsException( Long.toString( index ) );
+		final long start = borders.getLong( index );
+		final long end = index == size - 1 ? length : borders.getLong( index + 1 );
+		int len = (int)( end - start );
+
+		// Strip the terminator, if any
+		if ( len > 0 && byteAt( end - 1 ) == '\n' ) {
+			if ( len > 1 && byteAt( end - 2 ) == '\r' && terminators.contains( LineTerminator.CR_LF ) ) len -= 2;
+			else if ( terminators.contains( LineTerminator.LF ) ) len--;
+		}
+		else if ( len > 0 && byteAt( end - 1 ) == '\r' && terminators.contains( LineTerminator.CR ) ) len--;
+
+		final Decoding decoding = this.decoding.get();
+		final ByteBuffer byteBuffer = decoding.byteBuffer;
+		final CharBuffer charBuffer = decoding.charBuffer;
+		final byte[] a = byteBuffer.array();
+		// Bulk copy, segment by segment, using the thread-local duplicates
+		for( int offset = 0, l; offset < len; offset += l ) {
+			final ByteBuffer segment = decoding.segments[ (int)( start + offset >>> LOG2_SEGMENT_SIZE ) ];
+			segment.position( (int)( start + offset & SEGMENT_MASK ) );
+			segment.get( a, offset, l = Math.min( len - offset, segment.remaining() ) );
+		}
+		byteBuffer.clear();
+		byteBuffer.limit( len );
+		charBuffer.clear();
+		decoding.decoder.reset();
+		decoding.decoder.decode( byteBuffer, charBuffer, true );
+		return new MutableString( charBuffer.array(), 0, charBuffer.position() );
+	}
+
+	/** Returns a byte of the memory-mapped file.
+	 * 
+	 * @param pos a position in the file.
+	 * @return the byte at position {@code pos}.
+	 */
+	private byte byteAt( final long pos ) {
+		return segments[ (int)( pos >>> LOG2_SEGMENT_SIZE ) ].get( (int)( pos & SEGMENT_MASK ) );
+	}
 	
 	public MutableString get( final long index, final FastBufferedInputStream fastBufferedInputStream, final ByteBuffer byteBuffer, final CharBuffer charBuffer, final CharsetDecoder decoder ) {
 		try {
@@ -199,6 +335,15 @@ public class FileLinesBigList extends AbstractObjectBigList<MutableString> imple
 		}
 	}
 
+	private void readObject( final ObjectInputStream s ) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		decoder = ( charset = Charset.forName( encoding ) ).newDecoder();
+		byteBuffer = ByteBuffer.wrap( new byte[ maxLineLength ] );
+		charBuffer = CharBuffer.wrap( new char[ maxLineLength ] );
+		if ( mapped ) map();
+		else inputStream = new FastBufferedInputStream( new FileInputStream( filename ), bufferSize );
+	}
+
 	/** An iterator over the lines of a {@link FileLinesBigList}. Instances of this
 	 * class open an {@link java.io.InputStream}, and thus should be {@linkplain Closeable#close() closed} after
 	 * usage. A &ldquo;safety-net&rdquo; finaliser tries to take care of the cases in which
@@ -30,13 +30,19 @@ import it.unimi.dsi.bits.TransformationStrategies;
 import it.unimi.dsi.bits.TransformationStrategy;
 import it.unimi.dsi.fastutil.Size64;
 import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.io.FastBufferedInputStream;
+import it.unimi.dsi.fastutil.io.FastBufferedOutputStream;
+import it.unimi.dsi.fastutil.io.FastByteArrayInputStream;
+import it.unimi.dsi.fastutil.io.FastByteArrayOutputStream;
 import it.unimi.dsi.fastutil.longs.AbstractLongBigList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.longs.LongBigList;
 import it.unimi.dsi.fastutil.longs.LongBigLists;
 import it.unimi.dsi.fastutil.longs.LongIterable;
 import it.unimi.dsi.fastutil.longs.LongIterator;
 import it.unimi.dsi.fastutil.longs.LongList;
 import it.unimi.dsi.fastutil.objects.AbstractObject2LongFunction;
+import it.unimi.dsi.fastutil.objects.AbstractObjectIterator;
 import it.unimi.dsi.io.FastBufferedReader;
 import it.unimi.dsi.io.FileLinesCollection;
 import it.unimi.dsi.io.LineIterator;
@@ -48,15 +54,29 @@ import it.unimi.dsi.sux4j.bits.Rank;
 import it.unimi.dsi.sux4j.bits.Rank16;
 import it.unimi.dsi.sux4j.io.ChunkedHashStore;
 import it.unimi.dsi.sux4j.mph.solve.Linear3SystemSolver;
+import it.unimi.dsi.util.ByteBufferLongBigList;
 import it.unimi.dsi.util.XorShift1024StarRandomGenerator;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Serializable;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.math3.random.RandomGenerator;
@@ -141,6 +161,11 @@ import com.martiansoftware.jsap.stringparsers.ForNameStringParser;
  * In this case, the function requires just (1.1 + <var>r</var>)<var>n</var> bits (plus the bits that are necessary for the
  * {@linkplain Rank ranking structure}; the current implementation uses {@link Rank16}), but has slightly slower lookups.
  *
+ * <p>Since the linear systems associated with chunks are independent, they can be
+ * {@linkplain Builder#threads(int) solved in parallel}: chunks are still read sequentially
+ * from the store, but they are handed to a pool of worker threads, and solutions are written back in chunk order.
+ * The resulting function is identical to the one built by a single thread.
+ *
  * @see GOV4Function
  * @author Sebastiano Vigna
  * @since 4.0.0
@@ -156,6 +181,10 @@ public class GOV3Function<T> extends AbstractObject2LongFunction<T> implements S
 	private static final long SEED_STEP = 1L << 56;
 	/** The lowest 56 bits of {@link #offsetAndSeed} contain the number of keys stored up to the given chunk. */
 	private static final long OFFSET_MASK = -1L >>> 8;
+	/** The magic number at the start of a function {@linkplain #dump(CharSequence) dumped in flat format}. */
+	private static final long FLAT_MAGIC = 0x474F563346554E43L;
+	/** The number of longs in the header of a function {@linkplain #dump(CharSequence) dumped in flat format}. */
+	private static final int FLAT_HEADER_LONGS = 14;
 
 	/** The ratio between variables and equations. */
 	public static double C = 1.09 + 0.01;
@@ -173,6 +202,7 @@ public class GOV3Function<T> extends AbstractObject2LongFunction<T> implements S
 		protected int outputWidth = -1;
 		protected boolean indirect;
 		protected boolean compacted;
+		protected int threads = 1;
 		/** Whether {@link #build()} has already been called. */
 		protected boolean built;
 
@@ -317,6 +347,19 @@ public class GOV3Function<T> extends AbstractObject2LongFunction<T> implements S
 			this.compacted = true;
 			return this;
 		}
+
+		/** Specifies the number of threads that will be used to solve the linear systems associated with chunks.
+		 * 
+		 * <p>The resulting function does not depend on the number of threads.
+		 * 
+		 * @param threads a positive number of threads (the default is 1).
+		 * @return this builder.
+		 */
+		public Builder<T> threads( final int threads ) {
+			if ( threads <= 0 ) throw new IllegalArgumentException( "The number of threads must be positive: " + threads );
+			this.threads = threads;
+			return this;
+		}
 		
 
 		/** Builds a new function.
@@ -331,12 +374,14 @@ public class GOV3Function<T> extends AbstractObject2LongFunction<T> implements S
 				if ( chunkedHashStore != null ) transform = chunkedHashStore.transform();
 				else throw new IllegalArgumentException( "You must specify a TransformationStrategy, either explicitly or via a given ChunkedHashStore" );
 			}
-			return new GOV3Function<T>( keys, transform, signatureWidth, values, outputWidth, indirect, compacted, tempDir, chunkedHashStore );
+			return new GOV3Function<T>( keys, transform, signatureWidth, values, outputWidth, indirect, compacted, tempDir, chunkedHashStore, threads );
 		}
 	}
 
 	/** The logarithm of the desired chunk size. */
 	public final static int LOG2_CHUNK_SIZE = 10;
+	/** The default number of keys processed at the same time by {@link #getLongs(Object[], long[])} and {@link #getLongsByTriple(long[], long[])}. */
+	public final static int BATCH_SIZE = 16;
 	/** The shift for chunks. */
 	private final int chunkShift;
 	/** The number of keys. */
@@ -363,9 +408,59 @@ public class GOV3Function<T> extends AbstractObject2LongFunction<T> implements S
 	/** The signatures. */
 	protected final LongBigList signatures;
 
+	/** Creates a new function with given content; used by {@link #load(CharSequence)}.
+	 * 
+	 * @param n the number of keys.
+	 * @param m the number of variables.
+	 * @param width the data width.
+	 * @param globalSeed the seed used to generate the initial hash triple.
+	 * @param chunkShift the shift for chunks.
+	 * @param offsetAndSeed the offsets and the local seeds of the chunks.
+	 * @param data the data.
+	 * @param transform the transformation strategy.
+	 * @param signatureMask the mask to compare signatures, or zero for no signatures.
+	 * @param signatures the signatures, or {@code null}.
+	 * @param defRetValue the default return value.
+	 */
+	private GOV3Function( final long n, final long m, final int width, final long globalSeed, final int chunkShift, final long[] offsetAndSeed, final LongBigList data, final TransformationStrategy<? super T> transform, final long signatureMask, final LongBigList signatures, final long defRetValue, final LongArrayBitVector marker ) {
+		this.n = n;
+		this.m = m;
+		this.width = width;
+		this.globalSeed = globalSeed;
+		this.chunkShift = chunkShift;
+		this.offsetAndSeed = offsetAndSeed;
+		this.data = data;
+		this.transform = transform;
+		this.signatureMask = signatureMask;
+		this.signatures = signatures;
+		this.defRetValue = defRetValue;
+		this.marker = marker;
+		rank = marker == null ? null : new Rank16( marker );
+	}
+
+
+	/** Creates a new function for the given keys and values, solving the linear systems associated with chunks using a single thread.
+	 *
+	 * @param keys the keys in the domain of the function, or {@code null}.
+	 * @param transform a transformation strategy for the keys.
+	 * @param signatureWidth a positive number for a signature width, 0 for no signature, a negative value for a self-signed function; if nonzero, {@code values} must be {@code null} and {@code width} must be -1.
+	 * @param values values to be assigned to each element, in the same order of the iterator returned by <code>keys</code>; if {@code null}, the
+	 * assigned value will the the ordinal number of each element.
+	 * @param dataWidth the bit width of the <code>values</code>, or -1 if <code>values</code> is {@code null}.
+	 * @param indirect if true, <code>chunkedHashStore</code> contains ordinal positions, and <code>values</code> is a {@link LongIterable} that
+	 * must be accessed to retrieve the actual values.
+	 * @param compacted if true, the coefficients will be compacted.
+	 * @param tempDir a temporary directory for the store files, or {@code null} for the standard temporary directory.
+	 * @param chunkedHashStore a chunked hash store containing the keys associated with their ranks (if there are no values, or {@code indirect} is true)
+	 * or values, or {@code null}; the store
+	 * can be unchecked, but in this case <code>keys</code> and <code>transform</code> must be non-{@code null}.
+	 */
+	protected GOV3Function( final Iterable<? extends T> keys , final TransformationStrategy<? super T> transform , int signatureWidth , final LongIterable values , final int dataWidth , final boolean indirect , final boolean compacted , final File tempDir , ChunkedHashStore<T> chunkedHashStore  ) throws IOException {
+		this( keys, transform, signatureWidth, values, dataWidth, indirect, compacted, tempDir, chunkedHashStore, 1 );
+	}
 
 	/** Creates a new function for the given keys and values.
-	 * 
+	 *
 	 * @param keys the keys in the domain of the function, or {@code null}.
 	 * @param transform a transformation strategy for the keys.
 	 * @param signatureWidth a positive number for a signature width, 0 for no signature, a negative value for a self-signed function; if nonzero, {@code values} must be {@code null} and {@code width} must be -1.
@@ -379,8 +474,9 @@ public class GOV3Function<T> extends AbstractObject2LongFunction<T> implements S
 	 * @param chunkedHashStore a chunked hash store containing the keys associated with their ranks (if there are no values, or {@code indirect} is true)
 	 * or values, or {@code null}; the store
 	 * can be unchecked, but in this case <code>keys</code> and <code>transform</code> must be non-{@code null}. 
+	 * @param threads the number of threads used to solve the linear systems associated with chunks.
 	 */
-	protected GOV3Function( final Iterable<? extends T> keys , final TransformationStrategy<? super T> transform , int signatureWidth , final LongIterable values , final int dataWidth , final boolean indirect , final boolean compacted , final File tempDir , ChunkedHashStore<T> chunkedHashStore  ) throws IOException {
+	protected GOV3Function( final Iterable<? extends T> keys , final TransformationStrategy<? super T> transform , int signatureWidth , final LongIterable values , final int dataWidth , final boolean indirect , final boolean compacted , final File tempDir , ChunkedHashStore<T> chunkedHashStore, final int threads ) throws IOException {
 		this.transform = transform;
 
 		if ( signatureWidth != 0 && values != null ) throw new IllegalArgumentException( "You cannot sign a function if you specify its values" );
@@ -439,11 +535,15 @@ public class GOV3Function<T> extends AbstractObject2LongFunction<T> implements S
 			pl.start( "Analysing chunks... " );
 
 			try {
+				// Data and local seeds of a failed attempt must not leak into the next one
+				Arrays.fill( offsetAndSeed, 0 );
+				offlineData.clear();
 				int q = 0;
 				final LongArrayBitVector dataBitVector = LongArrayBitVector.getInstance();
 				final LongBigList data = dataBitVector.asLongBigList( this.width );
 				long unsolvable = 0;
-				for( final ChunkedHashStore.Chunk chunk: chunkedHashStore ) {
+				if ( threads > 1 ) unsolvable = solveInParallel( chunkedHashStore, values, indirect, offlineData, threads, pl );
+				else for( final ChunkedHashStore.Chunk chunk: chunkedHashStore ) {
 
 					offsetAndSeed[ q + 1 ] = offsetAndSeed[ q ] + ( C_TIMES_256 * chunk.size() >>> 8 );
 
@@ -591,28 +691,183 @@ public class GOV3Function<T> extends AbstractObject2LongFunction<T> implements S
 		if ( ! givenChunkedHashStore ) chunkedHashStore.close();		
 	}
 
+	/** The solution of the linear system associated with a chunk, computed by a worker thread. */
+	private static final class SolvedChunk {
+		/** The local seed that made the system solvable. */
+		private final long seed;
+		/** The solution of the system. */
+		private final long[] solution;
+		/** The number of unsolvable systems generated before finding a solution. */
+		private final int unsolvable;
+
+		private SolvedChunk( final long seed, final long[] solution, final int unsolvable ) {
+			this.seed = seed;
+			this.solution = solution;
+			this.unsolvable = unsolvable;
+		}
+	}
+
+	/** Solves the linear systems associated with the chunks of a store using a pool of worker threads.
+	 * 
+	 * <p>Chunks are read (and copied, as their backing arrays are reused by the store iterator) by the
+	 * calling thread, which fills the offsets in {@link #offsetAndSeed}; at most a fixed number of chunks per thread are
+	 * pending at any time. Solutions are collected in chunk order, so the content of {@link #offsetAndSeed}
+	 * and {@code offlineData} is exactly the same as in a sequential construction.
+	 * 
+	 * @param chunkedHashStore the store containing the keys.
+	 * @param values the values, or {@code null}; they are accessed only if {@code indirect} is true.
+	 * @param indirect whether the store contains indices into {@code values}.
+	 * @param offlineData an offline iterable that will receive the solution of each chunk, in chunk order.
+	 * @param threads the number of worker threads.
+	 * @param pl a progress logger, updated at each chunk.
+	 * @return the overall number of unsolvable systems generated.
+	 */
+	private long solveInParallel( final ChunkedHashStore<T> chunkedHashStore, final LongIterable values, final boolean indirect, final OfflineIterable<BitVector, LongArrayBitVector> offlineData, final int threads, final ProgressLogger pl ) throws IOException {
+		final LongBigList valueList = indirect ? ( values instanceof LongList ? LongBigLists.asBigList( (LongList)values ) : (LongBigList)values ) : null;
+		final ExecutorService executorService = Executors.newFixedThreadPool( threads );
+		final ArrayDeque<Future<SolvedChunk>> pending = new ArrayDeque<Future<SolvedChunk>>();
+		final int maxPending = 4 * threads;
+		final LongArrayBitVector dataBitVector = LongArrayBitVector.getInstance();
+		final LongBigList data = dataBitVector.asLongBigList( this.width );
+		long unsolvable = 0;
+		int q = 0, done = 0;
+
+		try {
+			for( final ChunkedHashStore.Chunk chunk: chunkedHashStore ) {
+				offsetAndSeed[ q + 1 ] = offsetAndSeed[ q ] + ( C_TIMES_256 * chunk.size() >>> 8 );
+				final int v = (int)( offsetAndSeed[ q + 1 ] - offsetAndSeed[ q ] );
+				final int size = chunk.size();
+
+				// The chunk buffers will be reused by the store iterator, so we copy triples and values
+				final long[] triples = new long[ 3 * size ];
+				final long[] chunkValues = new long[ size ];
+				final Iterator<long[]> iterator = chunk.iterator();
+				for( int i = 0; i < size; i++ ) {
+					final long[] quadruple = iterator.next();
+					triples[ 3 * i ] = quadruple[ 0 ];
+					triples[ 3 * i + 1 ] = quadruple[ 1 ];
+					triples[ 3 * i + 2 ] = quadruple[ 2 ];
+					chunkValues[ i ] = indirect ? valueList.getLong( quadruple[ 3 ] ) : quadruple[ 3 ];
+				}
+
+				pending.add( executorService.submit( new Callable<SolvedChunk>() {
+					@Override
+					public SolvedChunk call() {
+						final Linear3SystemSolver<BitVector> solver = new Linear3SystemSolver<BitVector>( v, size );
+						final Iterable<long[]> iterable = new Iterable<long[]>() {
+							@Override
+							public Iterator<long[]> iterator() {
+								return new AbstractObjectIterator<long[]>() {
+									private final long[] triple = new long[ 3 ];
+									private int pos;
+
+									public boolean hasNext() {
+										return pos < size;
+									}
+
+									public long[] next() {
+										triple[ 0 ] = triples[ 3 * pos ];
+										triple[ 1 ] = triples[ 3 * pos + 1 ];
+										triple[ 2 ] = triples[ 3 * pos + 2 ];
+										pos++;
+										return triple;
+									}
+								};
+							}
+						};
+						final LongBigList valueList = LongBigLists.asBigList( LongArrayList.wrap( chunkValues ) );
+
+						long seed = 0;
+						int unsolvable = 0;
+						for(;;) {
+							final boolean solved = solver.generateAndSolve( iterable, seed, valueList );
+							unsolvable += solver.unsolvable;
+							if ( solved ) break;
+							seed += SEED_STEP;
+							if ( seed == 0 ) throw new AssertionError( "Exhausted local seeds" );
+						}
+						return new SolvedChunk( seed, solver.solution, unsolvable );
+					}
+				}));
+
+				q++;
+				while( pending.size() >= maxPending ) unsolvable += store( done++, get( pending.remove() ), dataBitVector, data, offlineData, pl );
+			}
+
+			while( ! pending.isEmpty() ) unsolvable += store( done++, get( pending.remove() ), dataBitVector, data, offlineData, pl );
+		}
+		finally {
+			executorService.shutdownNow();
+		}
+
+		return unsolvable;
+	}
+
+	/** Records the solution of a chunk.
+	 * 
+	 * @param chunk the index of the chunk.
+	 * @param solvedChunk the solution of the linear system associated with {@code chunk}.
+	 * @param dataBitVector a bit vector used to store temporarily the solution.
+	 * @param data {@code dataBitVector} viewed as a list of {@link #width}-bit values.
+	 * @param offlineData an offline iterable that will receive the solution.
+	 * @param pl a progress logger.
+	 * @return the number of unsolvable systems generated for the chunk.
+	 */
+	private int store( final int chunk, final SolvedChunk solvedChunk, final LongArrayBitVector dataBitVector, final LongBigList data, final OfflineIterable<BitVector, LongArrayBitVector> offlineData, final ProgressLogger pl ) throws IOException {
+		offsetAndSeed[ chunk ] |= solvedChunk.seed;
+		final long[] solution = solvedChunk.solution;
+		dataBitVector.fill( false );
+		data.size( solution.length );
+		for( int i = 0; i < solution.length; i++ ) data.set( i, solution[ i ] );
+		offlineData.add( dataBitVector );
+		pl.update();
+		return solvedChunk.unsolvable;
+	}
+
+	/** Waits for the solution of a chunk, rethrowing unchecked exceptions and errors thrown by the worker thread.
+	 * 
+	 * @param future the future representing the solution of a chunk.
+	 * @return the solution.
+	 */
+	private static SolvedChunk get( final Future<SolvedChunk> future ) {
+		try {
+			return future.get();
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( e );
+		}
+		catch ( ExecutionException e ) {
+			final Throwable cause = e.getCause();
+			if ( cause instanceof RuntimeException ) throw (RuntimeException)cause;
+			if ( cause instanceof Error ) throw (Error)cause;
+			throw new RuntimeException( cause );
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	public long getLong( final Object o ) {
 		if ( n == 0 ) return defRetValue;
-		final int[] e = new int[ 3 ];
 		final long[] h = new long[ 3 ];
 		Hashes.spooky4( transform.toBitVector( (T)o ), globalSeed, h );
-		final int chunk = chunkShift == Long.SIZE ? 0 : (int)( h[ 0 ] >>> chunkShift );
-		final long chunkOffset = offsetAndSeed[ chunk ] & OFFSET_MASK;
-		Linear3SystemSolver.tripleToEquation( h, offsetAndSeed[ chunk ] & ~OFFSET_MASK, (int)( ( offsetAndSeed[ chunk + 1 ] & OFFSET_MASK ) - chunkOffset ), e );
-		if ( e[ 0 ] == -1 ) return defRetValue;
-		final long e0 = e[ 0 ] + chunkOffset, e1 = e[ 1 ] + chunkOffset, e2 = e[ 2 ] + chunkOffset;
-		
-		final long result = rank == null ?
-				data.getLong( e0 ) ^ data.getLong( e1 ) ^ data.getLong( e2 ) :
-				( marker.getBoolean( e0 ) ? data.getLong( rank.rank( e0 ) ) : 0 ) ^
-				( marker.getBoolean( e1 ) ? data.getLong( rank.rank( e1 ) ) : 0 ) ^
-				( marker.getBoolean( e2 ) ? data.getLong( rank.rank( e2 ) ) : 0 );
-		if ( signatureMask == 0 ) return result;
-		if ( signatures != null ) return result >= n || ( ( signatures.getLong( result ) ^ h[ 0 ] ) & signatureMask ) != 0 ? defRetValue : result;
-		else return ( ( result ^ h[ 0 ] ) & signatureMask ) != 0 ? defRetValue : 1;
+		return getLongByTriple( h, new long[ 3 ], new int[ 3 ] );
 	}
-	
+
+	/** Returns the output of this function on a key, using a given lookup context for temporary storage.
+	 *
+	 * <p>This method does not allocate objects (except for those possibly allocated by the transformation strategy).
+	 *
+	 * @param o a key.
+	 * @param context a lookup context.
+	 * @return the output of the function.
+	 */
+	@SuppressWarnings("unchecked")
+	public long getLong( final Object o, final LookupContext context ) {
+		if ( n == 0 ) return defRetValue;
+		Hashes.spooky4( transform.toBitVector( (T)o ), globalSeed, context.h );
+		return getLongByTriple( context.h, context.hash, context.e );
+	}
+
 	/** Low-level access to the output of this function.
 	 *
 	 * <p>This method makes it possible to build several kind of functions on the same {@link ChunkedHashStore} and
@@ -624,22 +879,169 @@ public class GOV3Function<T> extends AbstractObject2LongFunction<T> implements S
 	 */
 	public long getLongByTriple( final long[] triple ) {
 		if ( n == 0 ) return defRetValue;
-		final int[] e = new int[ 3 ];
+		return getLongByTriple( triple, new long[ 3 ], new int[ 3 ] );
+	}
+
+	/** Low-level access to the output of this function, using a given lookup context for temporary storage.
+	 *
+	 * @param triple a triple generated as documented in {@link ChunkedHashStore}.
+	 * @param context a lookup context.
+	 * @return the output of the function.
+	 * @see #getLongByTriple(long[])
+	 */
+	public long getLongByTriple( final long[] triple, final LookupContext context ) {
+		if ( n == 0 ) return defRetValue;
+		return getLongByTriple( triple, context.hash, context.e );
+	}
+
+	private long getLongByTriple( final long[] triple, final long[] hash, final int[] e ) {
 		final int chunk = chunkShift == Long.SIZE ? 0 : (int)( triple[ 0 ] >>> chunkShift );
 		final long chunkOffset = offsetAndSeed[ chunk ] & OFFSET_MASK;
-		Linear3SystemSolver.tripleToEquation( triple, offsetAndSeed[ chunk ] & ~OFFSET_MASK, (int)( ( offsetAndSeed[ chunk + 1 ] & OFFSET_MASK ) - chunkOffset ), e );
+		Linear3SystemSolver.tripleToEquation( triple, offsetAndSeed[ chunk ] & ~OFFSET_MASK, (int)( ( offsetAndSeed[ chunk + 1 ] & OFFSET_MASK ) - chunkOffset ), hash, e );
+		if ( e[ 0 ] == -1 ) return defRetValue;
 		final long e0 = e[ 0 ] + chunkOffset, e1 = e[ 1 ] + chunkOffset, e2 = e[ 2 ] + chunkOffset;
-		if ( e0 == -1 ) return defRetValue;
+		
 		final long result = rank == null ?
 				data.getLong( e0 ) ^ data.getLong( e1 ) ^ data.getLong( e2 ) :
 				( marker.getBoolean( e0 ) ? data.getLong( rank.rank( e0 ) ) : 0 ) ^
 				( marker.getBoolean( e1 ) ? data.getLong( rank.rank( e1 ) ) : 0 ) ^
 				( marker.getBoolean( e2 ) ? data.getLong( rank.rank( e2 ) ) : 0 );
 		if ( signatureMask == 0 ) return result;
-		if ( signatures != null ) return result >= n || signatures.getLong( result ) != ( triple[ 0 ] & signatureMask ) ? defRetValue : result;
+		if ( signatures != null ) return result >= n || ( ( signatures.getLong( result ) ^ triple[ 0 ] ) & signatureMask ) != 0 ? defRetValue : result;
 		else return ( ( result ^ triple[ 0 ] ) & signatureMask ) != 0 ? defRetValue : 1;
 	}
 	
+	/** Returns the output of this function on an array of keys.
+	 *
+	 * <p>This method is equivalent to calling {@link #getLong(Object)} on each key, but it does not allocate
+	 * objects for each key (except for those possibly allocated by the transformation strategy), and
+	 * it processes keys in batches of {@value #BATCH_SIZE} (see {@link #getLongs(Object[], long[], int)}).
+	 *
+	 * @param key an array of keys.
+	 * @param result an array, at least as long as {@code key}, that will be filled with the output of this function on each key.
+	 */
+	public void getLongs( final Object[] key, final long[] result ) {
+		getLongs( key, result, BATCH_SIZE );
+	}
+
+	/** Returns the output of this function on an array of keys, processing keys in batches of given size.
+	 *
+	 * <p>This method is equivalent to calling {@link #getLong(Object)} on each key, but it does not allocate
+	 * objects for each key (except for those possibly allocated by the transformation strategy). Moreover, 
+	 * each phase of a lookup (hashing, reading the chunk description, computing the hyperedge, reading data, 
+	 * checking signatures) is carried out on all keys of a batch before moving to the next phase, so that the
+	 * independent cache misses generated by different keys overlap. Batches larger than the number of cache misses 
+	 * that the processor can handle in parallel will not increase performance.
+	 *
+	 * @param key an array of keys.
+	 * @param result an array, at least as long as {@code key}, that will be filled with the output of this function on each key.
+	 * @param batchSize the number of keys processed at the same time.
+	 */
+	@SuppressWarnings("unchecked")
+	public void getLongs( final Object[] key, final long[] result, final int batchSize ) {
+		if ( batchSize <= 0 ) throw new IllegalArgumentException( "Nonpositive batch size: " + batchSize );
+		final long[] triple = new long[ 3 * batchSize ], t = new long[ 3 ], hash = new long[ 3 ], vertex = new long[ 3 * batchSize ];
+		final int[] e = new int[ 3 ];
+		for( int from = 0; from < key.length; from += batchSize ) {
+			final int length = Math.min( batchSize, key.length - from );
+			for( int i = 0; i < length; i++ ) {
+				Hashes.spooky4( transform.toBitVector( (T)key[ from + i ] ), globalSeed, t );
+				System.arraycopy( t, 0, triple, 3 * i, 3 );
+			}
+			getLongsByTriple( triple, 0, length, result, from, vertex, t, hash, e );
+		}
+	}
+
+	/** Low-level access to the output of this function on an array of triples.
+	 *
+	 * <p>This method is equivalent to calling {@link #getLongByTriple(long[])} on each triple, but it has
+	 * the same advantages of {@link #getLongs(Object[], long[])}.
+	 *
+	 * @param triple an array containing a sequence of triples generated as documented in {@link ChunkedHashStore}; its length must be a multiple of three.
+	 * @param result an array, at least as long as the number of triples, that will be filled with the output of this function on each triple.
+	 */
+	public void getLongsByTriple( final long[] triple, final long[] result ) {
+		getLongsByTriple( triple, result, BATCH_SIZE );
+	}
+
+	/** Low-level access to the output of this function on an array of triples, processing triples in batches of given size.
+	 *
+	 * <p>This method is equivalent to calling {@link #getLongByTriple(long[])} on each triple, but it has
+	 * the same advantages of {@link #getLongs(Object[], long[], int)}.
+	 *
+	 * @param triple an array containing a sequence of triples generated as documented in {@link ChunkedHashStore}; its length must be a multiple of three.
+	 * @param result an array, at least as long as the number of triples, that will be filled with the output of this function on each triple.
+	 * @param batchSize the number of triples processed at the same time.
+	 */
+	public void getLongsByTriple( final long[] triple, final long[] result, final int batchSize ) {
+		if ( batchSize <= 0 ) throw new IllegalArgumentException( "Nonpositive batch size: " + batchSize );
+		final long[] t = new long[ 3 ], hash = new long[ 3 ], vertex = new long[ 3 * batchSize ];
+		final int[] e = new int[ 3 ];
+		final int m = triple.length / 3;
+		for( int from = 0; from < m; from += batchSize ) getLongsByTriple( triple, from, Math.min( batchSize, m - from ), result, from, vertex, t, hash, e );
+	}
+
+	/** Computes the output of this function on a batch of triples, one phase at a time.
+	 *
+	 * @param triple an array containing triples.
+	 * @param from the index of the first triple of the batch.
+	 * @param length the number of triples in the batch.
+	 * @param result an array that will be filled with the output of this function.
+	 * @param offset the position in {@code result} of the output on the first triple of the batch.
+	 * @param vertex an array of 3{@code length} longs used for temporary storage.
+	 * @param t an array of three longs used for temporary storage.
+	 * @param hash an array of three longs used for temporary storage.
+	 * @param e an array of three integers used for temporary storage.
+	 */
+	private void getLongsByTriple( final long[] triple, final int from, final int length, final long[] result, final int offset, final long[] vertex, final long[] t, final long[] hash, final int[] e ) {
+		if ( n == 0 ) {
+			Arrays.fill( result, offset, offset + length, defRetValue );
+			return;
+		}
+
+		// Phase 1: we read the offset and seed of the chunk of each triple, and the offset of the following chunk
+		for( int i = 0; i < length; i++ ) {
+			final int chunk = chunkShift == Long.SIZE ? 0 : (int)( triple[ 3 * ( from + i ) ] >>> chunkShift );
+			vertex[ 3 * i ] = offsetAndSeed[ chunk ];
+			vertex[ 3 * i + 1 ] = offsetAndSeed[ chunk + 1 ];
+		}
+
+		// Phase 2: we compute the vertices of the hyperedge associated with each triple (-1 if the chunk is empty)
+		for( int i = 0; i < length; i++ ) {
+			System.arraycopy( triple, 3 * ( from + i ), t, 0, 3 );
+			final long offsetSeed = vertex[ 3 * i ];
+			final long chunkOffset = offsetSeed & OFFSET_MASK;
+			Linear3SystemSolver.tripleToEquation( t, offsetSeed & ~OFFSET_MASK, (int)( ( vertex[ 3 * i + 1 ] & OFFSET_MASK ) - chunkOffset ), hash, e );
+			if ( e[ 0 ] == -1 ) vertex[ 3 * i ] = -1;
+			else {
+				vertex[ 3 * i ] = e[ 0 ] + chunkOffset;
+				vertex[ 3 * i + 1 ] = e[ 1 ] + chunkOffset;
+				vertex[ 3 * i + 2 ] = e[ 2 ] + chunkOffset;
+			}
+		}
+
+		// Phase 3: we read data
+		for( int i = 0; i < length; i++ ) {
+			final long e0 = vertex[ 3 * i ], e1 = vertex[ 3 * i + 1 ], e2 = vertex[ 3 * i + 2 ];
+			if ( e0 == -1 ) result[ offset + i ] = defRetValue;
+			else result[ offset + i ] = rank == null ?
+					data.getLong( e0 ) ^ data.getLong( e1 ) ^ data.getLong( e2 ) :
+					( marker.getBoolean( e0 ) ? data.getLong( rank.rank( e0 ) ) : 0 ) ^
+					( marker.getBoolean( e1 ) ? data.getLong( rank.rank( e1 ) ) : 0 ) ^
+					( marker.getBoolean( e2 ) ? data.getLong( rank.rank( e2 ) ) : 0 );
+		}
+
+		if ( signatureMask == 0 ) return;
+
+		// Phase 4: we check signatures
+		for( int i = 0; i < length; i++ ) {
+			if ( vertex[ 3 * i ] == -1 ) continue;
+			final long r = result[ offset + i ], first = triple[ 3 * ( from + i ) ];
+			if ( signatures != null ) result[ offset + i ] = r >= n || ( ( signatures.getLong( r ) ^ first ) & signatureMask ) != 0 ? defRetValue : r;
+			else result[ offset + i ] = ( ( r ^ first ) & signatureMask ) != 0 ? defRetValue : 1;
+		}
+	}
+
 	/** Returns the number of keys in the function domain.
 	 *
 	 * @return the number of the keys in the function domain.
@@ -662,6 +1064,165 @@ public class GOV3Function<T> extends AbstractObject2LongFunction<T> implements S
 		return ( marker != null ? rank.numBits() + marker.length() : 0 ) + ( data != null ? data.size64() : 0 ) * width + offsetAndSeed.length * (long)Long.SIZE;
 	}
 	
+	/** Dumps this function in a flat format that can be {@linkplain #load(CharSequence) memory-mapped}.
+	 * 
+	 * <p>The file contains a header, the serialised transformation strategy, {@link #offsetAndSeed}, the bits of {@link #data} and
+	 * of {@link #signatures} packed into longs and, if this function is {@linkplain Builder#compacted() compacted}, the bits of {@link #marker}.
+	 * All longs are stored in big-endian order.
+	 * 
+	 * @param filename the name of the file that will contain the function.
+	 */
+	public void dump( final CharSequence filename ) throws IOException {
+		final FastByteArrayOutputStream transformBytes = new FastByteArrayOutputStream();
+		BinIO.storeObject( transform, transformBytes );
+		final long dataLength = data == null ? 0 : data.size64();
+		final long signaturesLength = signatures == null ? 0 : signatures.size64();
+		final int signatureWidth = signatures == null ? 0 : Long.bitCount( signatureMask );
+
+		final DataOutputStream dos = new DataOutputStream( new FastBufferedOutputStream( new FileOutputStream( filename.toString() ) ) );
+		dos.writeLong( FLAT_MAGIC );
+		dos.writeLong( n );
+		dos.writeLong( m );
+		dos.writeLong( width );
+		dos.writeLong( globalSeed );
+		dos.writeLong( chunkShift );
+		dos.writeLong( signatureMask );
+		dos.writeLong( defRetValue );
+		dos.writeLong( offsetAndSeed == null ? 0 : offsetAndSeed.length );
+		dos.writeLong( dataLength );
+		dos.writeLong( signatureWidth );
+		dos.writeLong( signaturesLength );
+		dos.writeLong( marker == null ? 0 : marker.length() );
+		dos.writeLong( transformBytes.length );
+		dos.write( transformBytes.array, 0, transformBytes.length );
+		// Pad so that the following longs are aligned
+		for( int i = -transformBytes.length & 7; i-- != 0; ) dos.write( 0 );
+		if ( offsetAndSeed != null ) for( long x: offsetAndSeed ) dos.writeLong( x );
+		writeBits( dos, data, dataLength, width );
+		writeBits( dos, signatures, signaturesLength, signatureWidth );
+		if ( marker != null ) {
+			final long[] bits = marker.bits();
+			for( int i = 0; i < ( marker.length() + Long.SIZE - 1 ) / Long.SIZE; i++ ) dos.writeLong( bits[ i ] );
+		}
+		dos.close();
+	}
+
+	/** Writes the elements of a list packed in longs, least significant bits first.
+	 * 
+	 * @param dos the output stream.
+	 * @param list the list.
+	 * @param length the number of elements of {@code list} to write.
+	 * @param width the bit width of the elements of {@code list}.
+	 */
+	private static void writeBits( final DataOutputStream dos, final LongBigList list, final long length, final int width ) throws IOException {
+		long buffer = 0;
+		int filled = 0;
+		for( long i = 0; i < length; i++ ) {
+			final long value = list.getLong( i );
+			buffer |= value << filled;
+			if ( filled + width >= Long.SIZE ) {
+				dos.writeLong( buffer );
+				buffer = filled == 0 ? 0 : value >>> Long.SIZE - filled;
+				filled += width - Long.SIZE;
+			}
+			else filled += width;
+		}
+		if ( filled != 0 ) dos.writeLong( buffer );
+	}
+
+	/** Loads a function {@linkplain #dump(CharSequence) dumped in flat format}, memory-mapping its data and signatures.
+	 * 
+	 * <p>Only the header, the transformation strategy and {@link #offsetAndSeed} (a long every 1024 keys) are read into 
+	 * memory: all other accesses go directly to the mapped file, so loading is immediate, and several processes
+	 * mapping the same file share the same pages. The returned function cannot be serialised&mdash;just 
+	 * {@linkplain #dump(CharSequence) dump} it again.
+	 * 
+	 * @param filename the name of a file created by {@link #dump(CharSequence)}.
+	 * @return a function backed by the memory-mapped content of {@code filename}.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> GOV3Function<T> load( final CharSequence filename ) throws IOException, ClassNotFoundException {
+		final DataInputStream dis = new DataInputStream( new FastBufferedInputStream( new FileInputStream( filename.toString() ) ) );
+		if ( dis.readLong() != FLAT_MAGIC ) {
+			dis.close();
+			throw new IOException( "File " + filename + " does not contain a GOV3Function in flat format" );
+		}
+		final long n = dis.readLong();
+		final long m = dis.readLong();
+		final int width = (int)dis.readLong();
+		final long globalSeed = dis.readLong();
+		final int chunkShift = (int)dis.readLong();
+		final long signatureMask = dis.readLong();
+		final long defRetValue = dis.readLong();
+		final int offsetAndSeedLength = (int)dis.readLong();
+		final long dataLength = dis.readLong();
+		final int signatureWidth = (int)dis.readLong();
+		final long signaturesLength = dis.readLong();
+		final long markerLength = dis.readLong();
+		final byte[] transformBytes = new byte[ (int)dis.readLong() ];
+		dis.readFully( transformBytes );
+		dis.skipBytes( -transformBytes.length & 7 );
+		final long[] offsetAndSeed = n == 0 ? null : new long[ offsetAndSeedLength ];
+		for( int i = 0; i < offsetAndSeedLength; i++ ) offsetAndSeed[ i ] = dis.readLong();
+		dis.close();
+
+		final TransformationStrategy<? super T> transform = (TransformationStrategy<? super T>)BinIO.loadObject( new FastByteArrayInputStream( transformBytes ) );
+
+		final FileInputStream fis = new FileInputStream( filename.toString() );
+		final LongBigList words = ByteBufferLongBigList.map( fis.getChannel(), ByteOrder.BIG_ENDIAN, MapMode.READ_ONLY );
+		fis.close();
+
+		final long dataStart = FLAT_HEADER_LONGS + ( transformBytes.length + 7 >>> 3 ) + offsetAndSeedLength;
+		final long signaturesStart = dataStart + ( dataLength * width + Long.SIZE - 1 >>> 6 );
+		LongArrayBitVector marker = null;
+		if ( markerLength != 0 ) {
+			// The ranking structure needs the marker in memory
+			final long markerStart = signaturesStart + ( signaturesLength * signatureWidth + Long.SIZE - 1 >>> 6 );
+			final long[] bits = new long[ (int)( ( markerLength + Long.SIZE - 1 ) / Long.SIZE ) ];
+			for( int i = 0; i < bits.length; i++ ) bits[ i ] = words.getLong( markerStart + i );
+			marker = LongArrayBitVector.wrap( bits, markerLength );
+		}
+		return new GOV3Function<T>( n, m, width, globalSeed, chunkShift, offsetAndSeed,
+				n == 0 ? null : new PackedLongBigList( words, dataStart, width, dataLength ),
+				transform, signatureMask,
+				signatureWidth == 0 ? null : new PackedLongBigList( words, signaturesStart, signatureWidth, signaturesLength ), defRetValue, marker );
+	}
+
+	/** A read-only list of fixed-width values packed (least significant bits first) in a list of longs, starting at a given index. */
+	private static final class PackedLongBigList extends AbstractLongBigList {
+		/** The underlying list of longs. */
+		private final LongBigList words;
+		/** The index of the first long of {@link #words} containing elements of this list. */
+		private final long start;
+		/** The bit width of the elements. */
+		private final int width;
+		/** The mask for the lower {@link #width} bits. */
+		private final long mask;
+		/** The number of elements. */
+		private final long length;
+
+		private PackedLongBigList( final LongBigList words, final long start, final int width, final long length ) {
+			this.words = words;
+			this.start = start;
+			this.width = width;
+			this.mask = width == 0 ? 0 : -1L >>> Long.SIZE - width;
+			this.length = length;
+		}
+
+		public long getLong( final long index ) {
+			if ( width == 0 ) return 0;
+			final long position = index * width;
+			final long word = start + ( position >>> 6 );
+			final int bit = (int)( position & 63 );
+			if ( bit + width <= Long.SIZE ) return words.getLong( word ) >>> bit & mask;
+			return ( words.getLong( word ) >>> bit | words.getLong( word + 1 ) << -bit ) & mask;
+		}
+
+		public long size64() {
+			return length;
+		}
+	}
+
 	public boolean containsKey( final Object o ) {
 		return true;
 	}
@@ -677,6 +1238,7 @@ public class GOV3Function<T> extends AbstractObject2LongFunction<T> implements S
 			new Switch( "byteArray", 'b', "byte-array", "Create a function on byte arrays (no character encoding)." ),
 			new FlaggedOption( "signatureWidth", JSAP.INTEGER_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, 's', "signature-width", "If specified, the signature width in bits; if negative, the generated function will be a dictionary." ),
 			new Switch( "compacted", 'c', "compacted", "Whether the resulting function should be compacted." ),
+			new FlaggedOption( "threads", JSAP.INTEGER_PARSER, "1", JSAP.NOT_REQUIRED, 't', "threads", "The number of threads used to solve the linear systems associated with chunks." ),
 			new Switch( "zipped", 'z', "zipped", "The string list is compressed in gzip format." ),
 			new FlaggedOption( "values", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, 'v', "values", "A binary file in DataInput format containing a long for each string (otherwise, the values will be the ordinal positions of the strings)." ),
 			new UnflaggedOption( "function", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The filename for the serialised GOV function." ),
@@ -696,12 +1258,13 @@ public class GOV3Function<T> extends AbstractObject2LongFunction<T> implements S
 		final boolean iso = jsapResult.getBoolean( "iso" );
 		final boolean utf32 = jsapResult.getBoolean( "utf32" );
 		final int signatureWidth = jsapResult.getInt( "signatureWidth", 0 ); 
+		final int threads = jsapResult.getInt( "threads" );
 
 		if ( byteArray ) {
 			if ( "-".equals( stringFile ) ) throw new IllegalArgumentException( "Cannot read from standard input when building byte-array functions" );
 			if ( iso || utf32 || jsapResult.userSpecified( "encoding" ) ) throw new IllegalArgumentException( "Encoding options are not available when building byte-array functions" );
 			final Collection<byte[]> collection= new FileLinesByteArrayCollection( stringFile, zipped );
-			BinIO.storeObject( new GOV3Function<byte[]>( collection, TransformationStrategies.rawByteArray(), signatureWidth, null, -1, false, compacted, tempDir, null ), functionName );		
+			BinIO.storeObject( new GOV3Function<byte[]>( collection, TransformationStrategies.rawByteArray(), signatureWidth, null, -1, false, compacted, tempDir, null, threads ), functionName );		
 		}
 		else {
 			final Collection<MutableString> collection;
@@ -725,10 +1288,10 @@ public class GOV3Function<T> extends AbstractObject2LongFunction<T> implements S
 								int dataWidth = 0;
 								for( LongIterator i = BinIO.asLongIterator( values ); i.hasNext(); ) dataWidth = Math.max( dataWidth, Fast.length( i.nextLong() ) );
 
-								BinIO.storeObject( new GOV3Function<CharSequence>( collection, transformationStrategy, signatureWidth, BinIO.asLongIterable( values ), dataWidth, false, compacted, tempDir, null ), functionName );
+								BinIO.storeObject( new GOV3Function<CharSequence>( collection, transformationStrategy, signatureWidth, BinIO.asLongIterable( values ), dataWidth, false, compacted, tempDir, null, threads ), functionName );
 							}
 
-							else BinIO.storeObject( new GOV3Function<CharSequence>( collection, transformationStrategy, signatureWidth, null, -1, false, compacted, tempDir, null ), functionName );
+							else BinIO.storeObject( new GOV3Function<CharSequence>( collection, transformationStrategy, signatureWidth, null, -1, false, compacted, tempDir, null, threads ), functionName );
 		}
 		LOGGER.info( "Completed." );
 	}
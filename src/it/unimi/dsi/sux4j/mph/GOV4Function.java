@@ -318,6 +318,8 @@ public class GOV4Function<T> extends AbstractObject2LongFunction<T> implements S
 
 	/** The logarithm of the desired chunk size. */
 	public final static int LOG2_CHUNK_SIZE = 10;
+	/** The number of keys processed at the same time by {@link #getLongs(Object[], long[])} and {@link #getLongsByTriple(long[], long[])}. */
+	public final static int BATCH_SIZE = 16;
 	/** The shift for chunks. */
 	private final int chunkShift;
 	/** The number of keys. */
@@ -548,6 +550,108 @@ public class GOV4Function<T> extends AbstractObject2LongFunction<T> implements S
 		else return ( ( result ^ triple[ 0 ] ) & signatureMask ) != 0 ? defRetValue : 1;
 	}
 
+	/** Returns the output of this function on an array of keys.
+	 *
+	 * <p>This method is equivalent to calling {@link #getLong(Object)} on each key, but it does not allocate
+	 * objects for each key (except for those possibly allocated by the transformation strategy). Moreover, keys are processed
+	 * in batches of {@value #BATCH_SIZE}: first all keys in a batch are hashed and turned into equations,
+	 * and then all the corresponding data are accessed, so that the cache misses of different keys overlap.
+	 *
+	 * @param key an array of keys.
+	 * @param result an array, at least as long as {@code key}, that will be filled with the output of this function on each key.
+	 */
+	@SuppressWarnings("unchecked")
+	public void getLongs( final Object[] key, final long[] result ) {
+		final long[] triple = new long[ 3 ], hash = new long[ 4 ], first = new long[ BATCH_SIZE ], vertex = new long[ 4 * BATCH_SIZE ];
+		final int[] e = new int[ 4 ];
+		for( int from = 0; from < key.length; from += BATCH_SIZE ) {
+			final int length = Math.min( BATCH_SIZE, key.length - from );
+			for( int i = 0; i < length; i++ ) {
+				Hashes.spooky4( transform.toBitVector( (T)key[ from + i ] ), globalSeed, triple );
+				first[ i ] = triple[ 0 ];
+				vertices( triple, hash, e, vertex, i );
+			}
+			outputs( length, first, vertex, result, from );
+		}
+	}
+
+	/** Low-level access to the output of this function on an array of triples.
+	 *
+	 * <p>This method is equivalent to calling {@link #getLongByTriple(long[])} on each triple, but it has
+	 * the same advantages of {@link #getLongs(Object[], long[])}.
+	 *
+	 * @param triple an array containing a sequence of triples generated as documented in {@link ChunkedHashStore}; its length must be a multiple of three.
+	 * @param result an array, at least as long as the number of triples, that will be filled with the output of this function on each triple.
+	 */
+	public void getLongsByTriple( final long[] triple, final long[] result ) {
+		final long[] t = new long[ 3 ], hash = new long[ 4 ], first = new long[ BATCH_SIZE ], vertex = new long[ 4 * BATCH_SIZE ];
+		final int[] e = new int[ 4 ];
+		final int m = triple.length / 3;
+		for( int from = 0; from < m; from += BATCH_SIZE ) {
+			final int length = Math.min( BATCH_SIZE, m - from );
+			for( int i = 0; i < length; i++ ) {
+				System.arraycopy( triple, 3 * ( from + i ), t, 0, 3 );
+				first[ i ] = t[ 0 ];
+				vertices( t, hash, e, vertex, i );
+			}
+			outputs( length, first, vertex, result, from );
+		}
+	}
+
+	/** Computes the vertices of the hyperedge associated with a triple.
+	 *
+	 * @param triple a triple.
+	 * @param hash an array of four longs used for temporary storage.
+	 * @param e an array of four integers used for temporary storage.
+	 * @param vertex an array that will contain, starting at position 4{@code i}, the vertices associated with {@code triple}, or
+	 * just -1 if there are no such vertices.
+	 * @param i the index of {@code triple} in the current batch.
+	 */
+	private void vertices( final long[] triple, final long[] hash, final int[] e, final long[] vertex, final int i ) {
+		if ( n == 0 ) {
+			vertex[ 4 * i ] = -1;
+			return;
+		}
+		final int chunk = chunkShift == Long.SIZE ? 0 : (int)( triple[ 0 ] >>> chunkShift );
+		final long chunkOffset = offsetAndSeed[ chunk ] & OFFSET_MASK;
+		Linear4SystemSolver.tripleToEquation( triple, offsetAndSeed[ chunk ] & ~OFFSET_MASK, (int)( ( offsetAndSeed[ chunk + 1 ] & OFFSET_MASK ) - chunkOffset ), hash, e );
+		if ( e[ 0 ] == -1 ) vertex[ 4 * i ] = -1;
+		else {
+			vertex[ 4 * i ] = e[ 0 ] + chunkOffset;
+			vertex[ 4 * i + 1 ] = e[ 1 ] + chunkOffset;
+			vertex[ 4 * i + 2 ] = e[ 2 ] + chunkOffset;
+			vertex[ 4 * i + 3 ] = e[ 3 ] + chunkOffset;
+		}
+	}
+
+	/** Computes the output of this function on a batch of triples whose vertices have been computed by {@link #vertices(long[], long[], int[], long[], int)}.
+	 *
+	 * @param length the number of triples in the batch.
+	 * @param first the first hash of each triple in the batch.
+	 * @param vertex the vertices associated with the triples in the batch.
+	 * @param result an array that will be filled with the output of this function.
+	 * @param offset the position in {@code result} of the output on the first triple of the batch.
+	 */
+	private void outputs( final int length, final long[] first, final long[] vertex, final long[] result, final int offset ) {
+		// First we access all data, so that cache misses can overlap
+		for( int i = 0; i < length; i++ ) {
+			if ( vertex[ 4 * i ] == -1 ) continue;
+			result[ offset + i ] = data.getLong( vertex[ 4 * i ] ) ^ data.getLong( vertex[ 4 * i + 1 ] ) ^ data.getLong( vertex[ 4 * i + 2 ] ) ^ data.getLong( vertex[ 4 * i + 3 ] );
+		}
+
+		// Then we check signatures
+		for( int i = 0; i < length; i++ ) {
+			if ( vertex[ 4 * i ] == -1 ) {
+				result[ offset + i ] = defRetValue;
+				continue;
+			}
+			if ( signatureMask == 0 ) continue;
+			final long r = result[ offset + i ];
+			if ( signatures != null ) result[ offset + i ] = r >= n || ( ( signatures.getLong( r ) ^ first[ i ] ) & signatureMask ) != 0 ? defRetValue : r;
+			else result[ offset + i ] = ( ( r ^ first[ i ] ) & signatureMask ) != 0 ? defRetValue : 1;
+		}
+	}
+
 	/** Returns the number of keys in the function domain.
 	 *
 	 * @return the number of the keys in the function domain.
@@ -46,6 +46,7 @@ import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.zip.GZIPInputStream;
@@ -251,6 +252,8 @@ public class GOVMinimalPerfectHashFunction<T> extends AbstractHashFunction<T> im
 	
 	/** The logarithm of the desired chunk size. */
 	public final static int LOG2_CHUNK_SIZE = 10;
+	/** The default number of keys processed at the same time by {@link #getLongs(Object[], long[])} and {@link #getLongsByTriple(long[], long[])}. */
+	public final static int BATCH_SIZE = 16;
 
 	/** The number of keys. */
 	protected final long n;
@@ -461,17 +464,167 @@ public class GOVMinimalPerfectHashFunction<T> extends AbstractHashFunction<T> im
 	 */
 	public long getLongByTriple( final long[] triple ) {
 		if ( n == 0 ) return defRetValue;
-		final int[] e = new int[ 3 ];
+		return getLongByTriple( triple, new long[ 3 ], new int[ 3 ] );
+	}
+
+	/** Low-level access to the output of this minimal perfect hash function, using a given lookup context for temporary storage.
+	 *
+	 * @param triple a triple generated as documented in {@link ChunkedHashStore}.
+	 * @param context a lookup context.
+	 * @return the output of the function.
+	 * @see #getLongByTriple(long[])
+	 */
+	public long getLongByTriple( final long[] triple, final LookupContext context ) {
+		if ( n == 0 ) return defRetValue;
+		return getLongByTriple( triple, context.hash, context.e );
+	}
+
+	private long getLongByTriple( final long[] triple, final long[] hash, final int[] e ) {
 		final int chunk = chunkShift == Long.SIZE ? 0 : (int)( triple[ 0 ] >>> chunkShift );
 		final long edgeOffsetSeed = edgeOffsetAndSeed[ chunk ];
 		final long chunkOffset = vertexOffset( edgeOffsetSeed );
-		Linear3SystemSolver.tripleToEquation( triple, edgeOffsetSeed & ~OFFSET_MASK, (int)( vertexOffset( edgeOffsetAndSeed[ chunk + 1 ] ) - chunkOffset ), e );
+		Linear3SystemSolver.tripleToEquation( triple, edgeOffsetSeed & ~OFFSET_MASK, (int)( vertexOffset( edgeOffsetAndSeed[ chunk + 1 ] ) - chunkOffset ), hash, e );
 		if ( e[ 0 ] == -1 ) return defRetValue;
 		final long result = ( edgeOffsetSeed & OFFSET_MASK ) + countNonzeroPairs( chunkOffset, chunkOffset + e[ (int)( values.getLong( e[ 0 ] + chunkOffset ) + values.getLong( e[ 1 ] + chunkOffset ) + values.getLong( e[ 2 ] + chunkOffset ) ) % 3 ], array );
 		if ( signatureMask != 0 ) return result >= n || signatures.getLong( result ) != ( triple[ 0 ] & signatureMask ) ? defRetValue : result;
 		return result < n ? result : defRetValue;
 	}
 
+	/** Returns the output of this minimal perfect hash function on an array of keys.
+	 *
+	 * <p>This method is equivalent to calling {@link #getLong(Object)} on each key, but it does not allocate
+	 * objects for each key (except for those possibly allocated by the transformation strategy), and
+	 * it processes keys in batches of {@value #BATCH_SIZE} (see {@link #getLongs(Object[], long[], int)}).
+	 *
+	 * @param key an array of keys.
+	 * @param result an array, at least as long as {@code key}, that will be filled with the output of this minimal perfect hash function on each key.
+	 */
+	public void getLongs( final Object[] key, final long[] result ) {
+		getLongs( key, result, BATCH_SIZE );
+	}
+
+	/** Returns the output of this minimal perfect hash function on an array of keys, processing keys in batches of given size.
+	 *
+	 * <p>This method is equivalent to calling {@link #getLong(Object)} on each key, but it does not allocate
+	 * objects for each key (except for those possibly allocated by the transformation strategy). Moreover, 
+	 * each phase of a lookup (hashing, reading the chunk description, computing the hyperedge, reading values, 
+	 * checking signatures) is carried out on all keys of a batch before moving to the next phase, so that the
+	 * independent cache misses generated by different keys overlap. Batches larger than the number of cache misses 
+	 * that the processor can handle in parallel will not increase performance.
+	 *
+	 * @param key an array of keys.
+	 * @param result an array, at least as long as {@code key}, that will be filled with the output of this minimal perfect hash function on each key.
+	 * @param batchSize the number of keys processed at the same time.
+	 */
+	@SuppressWarnings("unchecked")
+	public void getLongs( final Object[] key, final long[] result, final int batchSize ) {
+		if ( batchSize <= 0 ) throw new IllegalArgumentException( "Nonpositive batch size: " + batchSize );
+		final long[] triple = new long[ 3 * batchSize ], t = new long[ 3 ], hash = new long[ 3 ], vertex = new long[ 5 * batchSize ];
+		final int[] e = new int[ 3 ];
+		for( int from = 0; from < key.length; from += batchSize ) {
+			final int length = Math.min( batchSize, key.length - from );
+			for( int i = 0; i < length; i++ ) {
+				Hashes.spooky4( transform.toBitVector( (T)key[ from + i ] ), globalSeed, t );
+				System.arraycopy( t, 0, triple, 3 * i, 3 );
+			}
+			getLongsByTriple( triple, 0, length, result, from, vertex, t, hash, e );
+		}
+	}
+
+	/** Low-level access to the output of this minimal perfect hash function on an array of triples.
+	 *
+	 * <p>This method is equivalent to calling {@link #getLongByTriple(long[])} on each triple, but it has
+	 * the same advantages of {@link #getLongs(Object[], long[])}.
+	 *
+	 * @param triple an array containing a sequence of triples generated as documented in {@link ChunkedHashStore}; its length must be a multiple of three.
+	 * @param result an array, at least as long as the number of triples, that will be filled with the output of this minimal perfect hash function on each triple.
+	 */
+	public void getLongsByTriple( final long[] triple, final long[] result ) {
+		getLongsByTriple( triple, result, BATCH_SIZE );
+	}
+
+	/** Low-level access to the output of this minimal perfect hash function on an array of triples, processing triples in batches of given size.
+	 *
+	 * <p>This method is equivalent to calling {@link #getLongByTriple(long[])} on each triple, but it has
+	 * the same advantages of {@link #getLongs(Object[], long[], int)}.
+	 *
+	 * @param triple an array containing a sequence of triples generated as documented in {@link ChunkedHashStore}; its length must be a multiple of three.
+	 * @param result an array, at least as long as the number of triples, that will be filled with the output of this minimal perfect hash function on each triple.
+	 * @param batchSize the number of triples processed at the same time.
+	 */
+	public void getLongsByTriple( final long[] triple, final long[] result, final int batchSize ) {
+		if ( batchSize <= 0 ) throw new IllegalArgumentException( "Nonpositive batch size: " + batchSize );
+		final long[] t = new long[ 3 ], hash = new long[ 3 ], vertex = new long[ 5 * batchSize ];
+		final int[] e = new int[ 3 ];
+		final int m = triple.length / 3;
+		for( int from = 0; from < m; from += batchSize ) getLongsByTriple( triple, from, Math.min( batchSize, m - from ), result, from, vertex, t, hash, e );
+	}
+
+	/** Computes the output of this minimal perfect hash function on a batch of triples, one phase at a time.
+	 *
+	 * @param triple an array containing triples.
+	 * @param from the index of the first triple of the batch.
+	 * @param length the number of triples in the batch.
+	 * @param result an array that will be filled with the output of this minimal perfect hash function.
+	 * @param offset the position in {@code result} of the output on the first triple of the batch.
+	 * @param vertex an array of 5{@code length} longs used for temporary storage.
+	 * @param t an array of three longs used for temporary storage.
+	 * @param hash an array of three longs used for temporary storage.
+	 * @param e an array of three integers used for temporary storage.
+	 */
+	private void getLongsByTriple( final long[] triple, final int from, final int length, final long[] result, final int offset, final long[] vertex, final long[] t, final long[] hash, final int[] e ) {
+		if ( n == 0 ) {
+			Arrays.fill( result, offset, offset + length, defRetValue );
+			return;
+		}
+
+		// Phase 1: we read the edge offset and seed of the chunk of each triple, and the edge offset of the following chunk
+		for( int i = 0; i < length; i++ ) {
+			final int chunk = chunkShift == Long.SIZE ? 0 : (int)( triple[ 3 * ( from + i ) ] >>> chunkShift );
+			vertex[ 5 * i ] = edgeOffsetAndSeed[ chunk ];
+			vertex[ 5 * i + 1 ] = edgeOffsetAndSeed[ chunk + 1 ];
+		}
+
+		// Phase 2: we compute the vertices of the hyperedge associated with each triple (-1 if the chunk is empty), followed by the vertex and edge offset of the chunk
+		for( int i = 0; i < length; i++ ) {
+			System.arraycopy( triple, 3 * ( from + i ), t, 0, 3 );
+			final int k = 5 * i;
+			final long edgeOffsetSeed = vertex[ k ];
+			final long chunkOffset = vertexOffset( edgeOffsetSeed );
+			Linear3SystemSolver.tripleToEquation( t, edgeOffsetSeed & ~OFFSET_MASK, (int)( vertexOffset( vertex[ k + 1 ] ) - chunkOffset ), hash, e );
+			if ( e[ 0 ] == -1 ) vertex[ k ] = -1;
+			else {
+				vertex[ k ] = e[ 0 ] + chunkOffset;
+				vertex[ k + 1 ] = e[ 1 ] + chunkOffset;
+				vertex[ k + 2 ] = e[ 2 ] + chunkOffset;
+				vertex[ k + 3 ] = chunkOffset;
+				vertex[ k + 4 ] = edgeOffsetSeed & OFFSET_MASK;
+			}
+		}
+
+		// Phase 3: we read values, and store the hinge of each hyperedge
+		for( int i = 0; i < length; i++ ) {
+			final int k = 5 * i;
+			if ( vertex[ k ] == -1 ) continue;
+			vertex[ k ] = vertex[ k + (int)( ( values.getLong( vertex[ k ] ) + values.getLong( vertex[ k + 1 ] ) + values.getLong( vertex[ k + 2 ] ) ) % 3 ) ];
+		}
+
+		// Phase 4: we rank the hinges
+		for( int i = 0; i < length; i++ ) {
+			final int k = 5 * i;
+			if ( vertex[ k ] == -1 ) result[ offset + i ] = defRetValue;
+			else result[ offset + i ] = vertex[ k + 4 ] + countNonzeroPairs( vertex[ k + 3 ], vertex[ k ], array );
+		}
+
+		// Phase 5: we check signatures
+		for( int i = 0; i < length; i++ ) {
+			if ( vertex[ 5 * i ] == -1 ) continue;
+			final long r = result[ offset + i ];
+			if ( signatureMask != 0 ) result[ offset + i ] = r >= n || ( ( signatures.getLong( r ) ^ triple[ 3 * ( from + i ) ] ) & signatureMask ) != 0 ? defRetValue : r;
+			else if ( r >= n ) result[ offset + i ] = defRetValue;
+		}
+	}
+
 	/** A dirty function replicating the behaviour of {@link #getLongByTriple(long[])} but skipping the
 	 * signature test. Used in the constructor. <strong>Must</strong> be kept in sync with {@link #getLongByTriple(long[])}. */ 
 	private long getLongByTripleNoCheck( final long[] triple, final int[] e ) {
@@ -1589,9 +1589,25 @@ public class Hashes {
 	 * @see #spooky4(BitVector, long)
 	 */
 	public static long[] preprocessSpooky4( final BitVector bv, final long seed ) {
+		return preprocessSpooky4( bv, seed, null );
+	}
+
+	/** Preprocesses a bit vector so that SpookyHash 4-word-state can be computed in constant time on all prefixes,
+	 * possibly reusing a given array.
+	 *
+	 * @param bv a bit vector.
+	 * @param seed a seed for the hash.
+	 * @param reuse an array that will be used to store the state, if it is large enough, or {@code null}.
+	 * @return an array containing the four internal words of state
+	 * during the hash computation (<code>reuse</code>, if it was large enough), or <code>reuse</code>
+	 * if <code>bv</code> is too short to need a state.
+	 * @see #preprocessSpooky4(BitVector, long)
+	 */
+	public static long[] preprocessSpooky4( final BitVector bv, final long seed, final long[] reuse ) {
 		final long length = bv.length();
-		if ( length < Long.SIZE * 2 ) return null;
-		final long[] state = new long[ 4 * (int)( length + Long.SIZE * 2 ) / ( 4 * Long.SIZE ) ];
+		if ( length < Long.SIZE * 2 ) return reuse;
+		final int stateLength = 4 * (int)( length + Long.SIZE * 2 ) / ( 4 * Long.SIZE );
+		final long[] state = reuse != null && reuse.length >= stateLength ? reuse : new long[ stateLength ];
 
 		long h0, h1, h2, h3;
 		h0 = seed;
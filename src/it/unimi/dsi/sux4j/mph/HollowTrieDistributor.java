@@ -37,6 +37,8 @@ import it.unimi.dsi.io.InputBitStream;
 import it.unimi.dsi.io.OutputBitStream;
 import it.unimi.dsi.logging.ProgressLogger;
 import it.unimi.dsi.sux4j.bits.BalancedParentheses;
+import it.unimi.dsi.sux4j.bits.JacobsonBalancedParentheses;
+import it.unimi.dsi.sux4j.bits.RangeMinMaxTreeBalancedParentheses;
 import it.unimi.dsi.sux4j.util.EliasFanoLongBigList;
 
 import java.io.File;
@@ -115,6 +117,20 @@ public class HollowTrieDistributor<T> extends AbstractObject2LongFunction<T> imp
 	 * @param tempDir the directory where temporary files will be created, or <code>for the default directory</code>.
 	 */
 	public HollowTrieDistributor( final Iterable<? extends T> elements, final int log2BucketSize, final TransformationStrategy<? super T> transformationStrategy, final File tempDir ) throws IOException {
+		this( elements, log2BucketSize, transformationStrategy, tempDir, false );
+	}
+
+	/** Creates a hollow trie distributor using a given balanced parentheses implementation.
+	 * 
+	 * @param elements the elements among which the trie must be able to rank.
+	 * @param log2BucketSize the logarithm of the size of a bucket.
+	 * @param transformationStrategy a transformation strategy that must turn the elements in <code>elements</code> into a list of
+	 * distinct, lexicographically increasing (in iteration order) bit vectors.
+	 * @param tempDir the directory where temporary files will be created, or <code>for the default directory</code>.
+	 * @param rangeMinMaxTree if true, the trie will be navigated using a {@link RangeMinMaxTreeBalancedParentheses} instead of
+	 * a {@link JacobsonBalancedParentheses}.
+	 */
+	public HollowTrieDistributor( final Iterable<? extends T> elements, final int log2BucketSize, final TransformationStrategy<? super T> transformationStrategy, final File tempDir, final boolean rangeMinMaxTree ) throws IOException {
 		this.transformationStrategy = transformationStrategy;
 		final int bucketSize = 1 << log2BucketSize;
 
@@ -153,7 +169,7 @@ public class HollowTrieDistributor<T> extends AbstractObject2LongFunction<T> imp
 				toAdvance = true;
 				return curr;
 			}
-		}, transformationStrategy );
+		}, transformationStrategy, rangeMinMaxTree );
 
 		size = count[ 0 ];
 
@@ -462,12 +478,24 @@ public class HollowTrieDistributor<T> extends AbstractObject2LongFunction<T> imp
 	}
 
 
-	@SuppressWarnings("unchecked")
 	public long getLong( final Object o ) {
+		return getLong( o, LookupContext.current() );
+	}
+
+	/** Returns the output of this distributor on a key, using a given lookup context for temporary storage.
+	 *
+	 * <p>This method does not allocate objects (except for those possibly allocated by the transformation strategy):
+	 * the keys of the auxiliary functions are built in a bit vector of the context.
+	 *
+	 * @param o a key.
+	 * @param context a lookup context.
+	 * @return the output of the distributor.
+	 */
+	@SuppressWarnings("unchecked")
+	public long getLong( final Object o, final LookupContext context ) {
 		if ( size == 0 ) return 0;
 		final BitVector bitVector = transformationStrategy.toBitVector( (T)o ).fast();
-		LongArrayBitVector key = LongArrayBitVector.getInstance();
-		BitVector fragment = null;
+		final LongArrayBitVector key = context.bitVector;
 		long p = 1, length = bitVector.length(), index = 0, r = 0;
 		int s = 0, skip = 0, behaviour;
 		long lastLeftTurn = 0;
@@ -488,10 +516,11 @@ public class HollowTrieDistributor<T> extends AbstractObject2LongFunction<T> imp
 					usedPath + "> " + ( isInternal ? "" : "(skip: " + skip + ")" ) );
 			}
 
-			if ( isInternal && falseFollowsDetector.getLong( key.length( 0 ).append( p - 1, Long.SIZE ).append( fragment = bitVector.subVector( s, Math.min( length, s + skip ) ) ) ) == 0 ) behaviour = FOLLOW;
-			else behaviour = (int)externalBehaviour.getLong( key.length( 0 ).append( p - 1, Long.SIZE ).append( isInternal ? fragment : bitVector.subVector( s, length ) ) );
+			if ( isInternal && falseFollowsDetector.getLong( LookupContext.append( key.length( 0 ).append( p - 1, Long.SIZE ), bitVector, s, Math.min( length, s + skip ) ), context ) == 0 ) behaviour = FOLLOW;
+			else behaviour = (int)externalBehaviour.getLong( LookupContext.append( key.length( 0 ).append( p - 1, Long.SIZE ), bitVector, s, isInternal ? Math.min( length, s + skip ) : length ), context );
 
 			if ( ASSERTS ) {
+				final BitVector fragment = bitVector.subVector( s, Math.min( length, s + skip ) );
 				assert ! isInternal || falseFollows.getLong( key.length( 0 ).append( p - 1, Long.SIZE ).append( fragment ) ) != -1;
 				if ( behaviour != FOLLOW ) {
 					assert ! isInternal || falseFollows.getLong( key.length( 0 ).append( p - 1, Long.SIZE ).append( fragment ) ) == 1;				
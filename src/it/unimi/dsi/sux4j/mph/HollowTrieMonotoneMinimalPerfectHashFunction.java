@@ -40,7 +40,9 @@ import it.unimi.dsi.io.FileLinesCollection;
 import it.unimi.dsi.io.LineIterator;
 import it.unimi.dsi.lang.MutableString;
 import it.unimi.dsi.logging.ProgressLogger;
+import it.unimi.dsi.sux4j.bits.BalancedParentheses;
 import it.unimi.dsi.sux4j.bits.JacobsonBalancedParentheses;
+import it.unimi.dsi.sux4j.bits.RangeMinMaxTreeBalancedParentheses;
 import it.unimi.dsi.sux4j.util.EliasFanoLongBigList;
 
 import java.io.IOException;
@@ -80,7 +82,7 @@ public class HollowTrieMonotoneMinimalPerfectHashFunction<T> extends AbstractHas
 	/** The bit vector containing Jacobson's representation of the trie. */
 	protected final LongArrayBitVector trie;
 	/** A balanced parentheses structure over {@link #trie}. */
-	protected JacobsonBalancedParentheses balParen;
+	protected BalancedParentheses balParen;
 	/** The transformation strategy. */
 	private final TransformationStrategy<? super T> transform;
 	/** The number of elements in this hollow trie. */
@@ -137,6 +139,19 @@ public class HollowTrieMonotoneMinimalPerfectHashFunction<T> extends AbstractHas
 	}
 
 	public HollowTrieMonotoneMinimalPerfectHashFunction( final Iterator<? extends T> iterator, final TransformationStrategy<? super T> transform ) {
+		this( iterator, transform, false );
+	}
+
+	/** Creates a new hollow-trie-based monotone minimal perfect hash function using the given
+	 * elements, transformation strategy and balanced parentheses implementation.
+	 * 
+	 * @param iterator an iterator returning the elements among which the trie must be built.
+	 * @param transform a transformation strategy that must turn the elements in <code>elements</code> into a list of
+	 * distinct, lexicographically increasing (in iteration order) bit vectors.
+	 * @param rangeMinMaxTree if true, the trie will be navigated using a {@link RangeMinMaxTreeBalancedParentheses} instead of
+	 * a {@link JacobsonBalancedParentheses} (faster, but larger).
+	 */
+	public HollowTrieMonotoneMinimalPerfectHashFunction( final Iterator<? extends T> iterator, final TransformationStrategy<? super T> transform, final boolean rangeMinMaxTree ) {
 
 		this.transform = transform;
 		defRetValue = -1; // For the very few cases in which we can decide
@@ -290,7 +305,7 @@ public class HollowTrieMonotoneMinimalPerfectHashFunction<T> extends AbstractHas
 		LOGGER.debug( "Generating succinct representations..." );
 
 		trie = bitVector;
-		balParen = new JacobsonBalancedParentheses( bitVector, false, true, false );
+		balParen = rangeMinMaxTree ? new RangeMinMaxTreeBalancedParentheses( bitVector ) : new JacobsonBalancedParentheses( bitVector, false, true, false );
 
 		final Node finalRoot = root;
 
@@ -371,6 +386,7 @@ public class HollowTrieMonotoneMinimalPerfectHashFunction<T> extends AbstractHas
 						new Switch( "iso", 'i', "iso", "Use ISO-8859-1 coding internally (i.e., just use the lower eight bits of each character)." ),
 						new Switch( "utf32", JSAP.NO_SHORTFLAG, "utf-32", "Use UTF-32 internally (handles surrogate pairs)." ),
 						new Switch( "zipped", 'z', "zipped", "The string list is compressed in gzip format." ),
+						new Switch( "rangeMinMaxTree", 'r', "range-min-max-tree", "Use a range min-max tree to navigate the trie (faster, but larger)." ),
 						new UnflaggedOption( "trie", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The filename for the serialised hollow trie." ),
 						new UnflaggedOption( "stringFile", JSAP.STRING_PARSER, "-", JSAP.NOT_REQUIRED, JSAP.NOT_GREEDY,
 								"The name of a file containing a newline-separated list of strings, or - for standard input; in the first case, strings will not be loaded into core memory." ),
@@ -386,6 +402,7 @@ public class HollowTrieMonotoneMinimalPerfectHashFunction<T> extends AbstractHas
 		final boolean iso = jsapResult.getBoolean( "iso" );
 		final boolean huTucker = jsapResult.getBoolean( "huTucker" );
 		final boolean utf32 = jsapResult.getBoolean( "utf32" );
+		final boolean rangeMinMaxTree = jsapResult.getBoolean( "rangeMinMaxTree" );
 
 		final Collection<MutableString> collection;
 		if ( "-".equals( stringFile ) ) {
@@ -405,7 +422,7 @@ public class HollowTrieMonotoneMinimalPerfectHashFunction<T> extends AbstractHas
 						? TransformationStrategies.prefixFreeUtf32()
 						: TransformationStrategies.prefixFreeUtf16();
 
-		BinIO.storeObject( new HollowTrieMonotoneMinimalPerfectHashFunction<CharSequence>( collection, transformationStrategy ), trieName );
+		BinIO.storeObject( new HollowTrieMonotoneMinimalPerfectHashFunction<CharSequence>( collection.iterator(), transformationStrategy, rangeMinMaxTree ), trieName );
 		LOGGER.info( "Completed." );
 	}
 }
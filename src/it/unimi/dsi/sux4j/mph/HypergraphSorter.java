@@ -230,11 +230,26 @@ public class HypergraphSorter<T> {
 	 * @see #bitVectorToEdge(BitVector, long, int, int, int[])
 	 */
 	public static void tripleToEdge( final long[] triple, final long seed, final int numVertices, final int partSize, final int e[] ) {
+		tripleToEdge( triple, seed, numVertices, partSize, new long[ 3 ], e );
+	}
+
+	/** Turns a triple of longs into a 3-hyperedge, using a given array for temporary storage.
+	 * 
+	 * <p>This method does not allocate objects, and it is thus suitable for batch evaluation. 
+	 * 
+	 * @param triple a triple of intermediate hashes.
+	 * @param seed the seed for the hash function.
+	 * @param numVertices the number of vertices in the underlying hypergraph.
+	 * @param partSize <code>numVertices</code>/3 (to avoid a division).
+	 * @param hash an array of three longs that will be used for temporary storage.
+	 * @param e an array to store the resulting edge.
+	 * @see #tripleToEdge(long[], long, int, int, int[])
+	 */
+	public static void tripleToEdge( final long[] triple, final long seed, final int numVertices, final int partSize, final long[] hash, final int e[] ) {
 		if ( numVertices == 0 ) {
 			e[ 0 ] = e[ 1 ] = e[ 2 ] = -1;
 			return;
 		}
-		final long[] hash = new long[ 3 ];
 		Hashes.spooky4( triple, seed, hash );
 		e[ 0 ] = (int)( ( hash[ 0 ] & 0x7FFFFFFFFFFFFFFFL ) % partSize );
 		e[ 1 ] = (int)( partSize + ( hash[ 1 ] & 0x7FFFFFFFFFFFFFFFL ) % partSize );
@@ -341,16 +341,28 @@ public class LcpMonotoneMinimalPerfectHashFunction<T> extends AbstractHashFuncti
 		chunkedHashStore.close();
 	}
 
-	@SuppressWarnings("unchecked")
 	public long getLong( final Object o ) {
+		return getLong( o, LookupContext.current() );
+	}
+
+	/** Returns the output of this function on a key, using a given lookup context for temporary storage.
+	 *
+	 * <p>This method does not allocate objects (except for those possibly allocated by the transformation strategy).
+	 *
+	 * @param o a key.
+	 * @param context a lookup context.
+	 * @return the output of the function.
+	 */
+	@SuppressWarnings("unchecked")
+	public long getLong( final Object o, final LookupContext context ) {
 		if ( n == 0 ) return defRetValue;
 		final BitVector bitVector = transform.toBitVector( (T)o );
-		final long[] triple = new long[ 3 ];
+		final long[] triple = context.triple;
 		Hashes.spooky4( bitVector, seed, triple );
-		final long value = offsetLcpLength.getLongByTriple( triple );
+		final long value = offsetLcpLength.getLongByTriple( triple, context );
 		final long prefix = value >>> log2BucketSize; 
 		if ( prefix > bitVector.length() ) return defRetValue;
-		final long result = ( lcp2Bucket.getLong( bitVector.subVector( 0, prefix ) ) << log2BucketSize ) + ( value & bucketSizeMask );
+		final long result = ( lcp2Bucket.getLong( context.prefix( bitVector, prefix ), context ) << log2BucketSize ) + ( value & bucketSizeMask );
 		if ( signatureMask != 0 ) return result < 0 || result >= n || signatures.getLong( result ) != ( triple[ 0 ] & signatureMask ) ? defRetValue : result;
 		// Out-of-set strings can generate bizarre 3-hyperedges.
 		return result < 0 || result >= n ? defRetValue : result;
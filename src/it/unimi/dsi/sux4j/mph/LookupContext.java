@@ -0,0 +1,142 @@
+package it.unimi.dsi.sux4j.mph;
+
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2016 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+import it.unimi.dsi.bits.BitVector;
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.io.InputBitStream;
+import it.unimi.dsi.sux4j.mph.solve.Linear3SystemSolver;
+
+import java.io.IOException;
+
+/** Reusable scratch space for lookups in monotone minimal perfect hash functions and in the functions they are built upon.
+ *
+ * <p>A lookup in a monotone minimal perfect hash function hashes the key, looks up several auxiliary functions
+ * on the key or on prefixes of the key and, in the case of distributors, navigates a trie. Each
+ * of these steps used to allocate a few arrays or views; all such temporary objects are now stored in
+ * an instance of this class, which can be passed explicitly to the lookup methods accepting it, or
+ * is otherwise retrieved from a per-thread {@linkplain #current() default instance}. Thus, once the scratch
+ * space has grown to the size needed by the longest key, lookups on bit vectors using the identity
+ * transformation strategy do not allocate objects (string transformation strategies, however, create
+ * a bit-vector view of each key).
+ *
+ * <p>An instance of this class must not be used by several threads at the same time, but the same instance can
+ * be used for lookups on any number of functions.
+ */
+
+public final class LookupContext {
+	/** The default per-thread instances. */
+	private static final ThreadLocal<LookupContext> CURRENT = new ThreadLocal<LookupContext>() {
+		@Override
+		protected LookupContext initialValue() {
+			return new LookupContext();
+		}
+	};
+
+	/** The hash triple of the key being looked up; it belongs to the outermost caller. */
+	final long[] triple = new long[ 3 ];
+	/** The hash triple of auxiliary bit vectors (prefixes of the key, trie nodes, etc.). */
+	final long[] h = new long[ 3 ];
+	/** Temporary storage for {@link Linear3SystemSolver#tripleToEquation(long[], long, int, long[], int[])}. */
+	final long[] hash = new long[ 3 ];
+	/** The equation computed by {@link Linear3SystemSolver#tripleToEquation(long[], long, int, long[], int[])}. */
+	final int[] e = new int[ 3 ];
+	/** The hash state of the key being looked up, as filled by {@link Hashes#preprocessSpooky4(BitVector, long, long[])}. */
+	long[] state;
+	/** A bit vector for keys derived from the key being looked up. */
+	final LongArrayBitVector bitVector = LongArrayBitVector.getInstance();
+	/** A bit vector for prefixes of the key being looked up. */
+	final LongArrayBitVector prefix = LongArrayBitVector.getInstance();
+	/** The array read by {@link #trieStream}, or {@code null}. */
+	private byte[] trie;
+	/** A bit stream reading {@link #trie}. */
+	private InputBitStream trieStream;
+	/** A context for lookups on keys derived from the key being looked up, or {@code null}. */
+	private LookupContext nested;
+
+	/** Returns the default instance for the current thread.
+	 *
+	 * @return the default instance for the current thread.
+	 */
+	public static LookupContext current() {
+		return CURRENT.get();
+	}
+
+	/** Returns a context for lookups whose key is stored in this context (e.g., in {@link #bitVector}).
+	 *
+	 * @return a context, different from this one, that will be reused at each call.
+	 */
+	LookupContext nested() {
+		if ( nested == null ) nested = new LookupContext();
+		return nested;
+	}
+
+	/** Appends to a bit vector a range of bits of another bit vector, without creating a view.
+	 *
+	 * @param dest the bit vector to which bits will be appended.
+	 * @param bv a bit vector.
+	 * @param from the first bit of <code>bv</code> to append (inclusive).
+	 * @param to the last bit of <code>bv</code> to append (exclusive).
+	 * @return <code>dest</code>.
+	 */
+	static LongArrayBitVector append( final LongArrayBitVector dest, final BitVector bv, final long from, final long to ) {
+		for( long pos = from; pos < to; pos += Long.SIZE ) {
+			final long end = Math.min( to, pos + Long.SIZE );
+			dest.append( bv.getLong( pos, end ), (int)( end - pos ) );
+		}
+		return dest;
+	}
+
+	/** Stores in {@link #prefix} a prefix of a bit vector.
+	 *
+	 * @param bv a bit vector.
+	 * @param length the length of the prefix.
+	 * @return {@link #prefix}, containing the first <code>length</code> bits of <code>bv</code>.
+	 */
+	LongArrayBitVector prefix( final BitVector bv, final long length ) {
+		return append( prefix.length( 0 ), bv, 0, length );
+	}
+
+	/** Returns a bit stream positioned at the start of the given array.
+	 *
+	 * <p>The bit stream is reused as long as the array does not change.
+	 *
+	 * @param trie an array.
+	 * @return a bit stream reading <code>trie</code>, positioned at its start.
+	 */
+	InputBitStream trieStream( final byte[] trie ) {
+		if ( this.trie != trie ) {
+			this.trie = trie;
+			trieStream = new InputBitStream( trie );
+		}
+		else {
+			trieStream.flush();
+			trieStream.readBits( 0 );
+			try {
+				trieStream.position( 0 );
+			}
+			catch( IOException cantHappen ) {
+				throw new RuntimeException( cantHappen );
+			}
+		}
+		return trieStream;
+	}
+}
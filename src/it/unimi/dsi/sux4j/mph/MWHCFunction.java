@@ -294,6 +294,8 @@ public class MWHCFunction<T> extends AbstractObject2LongFunction<T> implements S
 
 	/** The logarithm of the desired chunk size. */
 	public final static int LOG2_CHUNK_SIZE = 10;
+	/** The default number of keys processed at the same time by {@link #getLongs(Object[], long[])} and {@link #getLongsByTriple(long[], long[])}. */
+	public final static int BATCH_SIZE = 16;
 	/** The shift for chunks. */
 	private final int chunkShift;
 	/** The number of keys. */
@@ -597,6 +599,137 @@ public class MWHCFunction<T> extends AbstractObject2LongFunction<T> implements S
 		else return ( ( result ^ triple[ 0 ] ) & signatureMask ) != 0 ? defRetValue : 1;
 	}
 	
+	/** Returns the output of this function on an array of keys.
+	 *
+	 * <p>This method is equivalent to calling {@link #getLong(Object)} on each key, but it does not allocate
+	 * objects for each key (except for those possibly allocated by the transformation strategy), and
+	 * it processes keys in batches of {@value #BATCH_SIZE} (see {@link #getLongs(Object[], long[], int)}).
+	 *
+	 * @param key an array of keys.
+	 * @param result an array, at least as long as {@code key}, that will be filled with the output of this function on each key.
+	 */
+	public void getLongs( final Object[] key, final long[] result ) {
+		getLongs( key, result, BATCH_SIZE );
+	}
+
+	/** Returns the output of this function on an array of keys, processing keys in batches of given size.
+	 *
+	 * <p>This method is equivalent to calling {@link #getLong(Object)} on each key, but it does not allocate
+	 * objects for each key (except for those possibly allocated by the transformation strategy). Moreover, 
+	 * each phase of a lookup (hashing, reading the chunk description, computing the hyperedge, reading data, 
+	 * checking signatures) is carried out on all keys of a batch before moving to the next phase, so that the
+	 * independent cache misses generated by different keys overlap. Batches larger than the number of cache misses 
+	 * that the processor can handle in parallel will not increase performance.
+	 *
+	 * @param key an array of keys.
+	 * @param result an array, at least as long as {@code key}, that will be filled with the output of this function on each key.
+	 * @param batchSize the number of keys processed at the same time.
+	 */
+	@SuppressWarnings("unchecked")
+	public void getLongs( final Object[] key, final long[] result, final int batchSize ) {
+		if ( batchSize <= 0 ) throw new IllegalArgumentException( "Nonpositive batch size: " + batchSize );
+		final long[] triple = new long[ 3 * batchSize ], t = new long[ 3 ], hash = new long[ 3 ], vertex = new long[ 3 * batchSize ];
+		final int[] e = new int[ 3 ];
+		for( int from = 0; from < key.length; from += batchSize ) {
+			final int length = Math.min( batchSize, key.length - from );
+			for( int i = 0; i < length; i++ ) {
+				Hashes.spooky4( transform.toBitVector( (T)key[ from + i ] ), globalSeed, t );
+				System.arraycopy( t, 0, triple, 3 * i, 3 );
+			}
+			getLongsByTriple( triple, 0, length, result, from, vertex, t, hash, e );
+		}
+	}
+
+	/** Low-level access to the output of this function on an array of triples.
+	 *
+	 * <p>This method is equivalent to calling {@link #getLongByTriple(long[])} on each triple, but it has
+	 * the same advantages of {@link #getLongs(Object[], long[])}.
+	 *
+	 * @param triple an array containing a sequence of triples generated as documented in {@link ChunkedHashStore}; its length must be a multiple of three.
+	 * @param result an array, at least as long as the number of triples, that will be filled with the output of this function on each triple.
+	 */
+	public void getLongsByTriple( final long[] triple, final long[] result ) {
+		getLongsByTriple( triple, result, BATCH_SIZE );
+	}
+
+	/** Low-level access to the output of this function on an array of triples, processing triples in batches of given size.
+	 *
+	 * <p>This method is equivalent to calling {@link #getLongByTriple(long[])} on each triple, but it has
+	 * the same advantages of {@link #getLongs(Object[], long[], int)}.
+	 *
+	 * @param triple an array containing a sequence of triples generated as documented in {@link ChunkedHashStore}; its length must be a multiple of three.
+	 * @param result an array, at least as long as the number of triples, that will be filled with the output of this function on each triple.
+	 * @param batchSize the number of triples processed at the same time.
+	 */
+	public void getLongsByTriple( final long[] triple, final long[] result, final int batchSize ) {
+		if ( batchSize <= 0 ) throw new IllegalArgumentException( "Nonpositive batch size: " + batchSize );
+		final long[] t = new long[ 3 ], hash = new long[ 3 ], vertex = new long[ 3 * batchSize ];
+		final int[] e = new int[ 3 ];
+		final int m = triple.length / 3;
+		for( int from = 0; from < m; from += batchSize ) getLongsByTriple( triple, from, Math.min( batchSize, m - from ), result, from, vertex, t, hash, e );
+	}
+
+	/** Computes the output of this function on a batch of triples, one phase at a time.
+	 *
+	 * @param triple an array containing triples.
+	 * @param from the index of the first triple of the batch.
+	 * @param length the number of triples in the batch.
+	 * @param result an array that will be filled with the output of this function.
+	 * @param offset the position in {@code result} of the output on the first triple of the batch.
+	 * @param vertex an array of 3{@code length} longs used for temporary storage.
+	 * @param t an array of three longs used for temporary storage.
+	 * @param hash an array of three longs used for temporary storage.
+	 * @param e an array of three integers used for temporary storage.
+	 */
+	private void getLongsByTriple( final long[] triple, final int from, final int length, final long[] result, final int offset, final long[] vertex, final long[] t, final long[] hash, final int[] e ) {
+		if ( n == 0 ) {
+			Arrays.fill( result, offset, offset + length, defRetValue );
+			return;
+		}
+
+		// Phase 1: we read the seed and the offset of the chunk of each triple, and the offset of the following chunk
+		for( int i = 0; i < length; i++ ) {
+			final int chunk = chunkShift == Long.SIZE ? 0 : (int)( triple[ 3 * ( from + i ) ] >>> chunkShift );
+			vertex[ 3 * i ] = seed[ chunk ];
+			vertex[ 3 * i + 1 ] = this.offset[ chunk ];
+			vertex[ 3 * i + 2 ] = this.offset[ chunk + 1 ];
+		}
+
+		// Phase 2: we compute the vertices of the hyperedge associated with each triple (-1 if the chunk is empty)
+		for( int i = 0; i < length; i++ ) {
+			System.arraycopy( triple, 3 * ( from + i ), t, 0, 3 );
+			final long chunkOffset = vertex[ 3 * i + 1 ];
+			final int numVertices = (int)( vertex[ 3 * i + 2 ] - chunkOffset );
+			HypergraphSorter.tripleToEdge( t, vertex[ 3 * i ], numVertices, (int)( numVertices * 0xAAAAAAABL >>> 33 ), hash, e ); // Fast division by 3
+			if ( e[ 0 ] == -1 ) vertex[ 3 * i ] = -1;
+			else {
+				vertex[ 3 * i ] = e[ 0 ] + chunkOffset;
+				vertex[ 3 * i + 1 ] = e[ 1 ] + chunkOffset;
+				vertex[ 3 * i + 2 ] = e[ 2 ] + chunkOffset;
+			}
+		}
+		// Phase 3: we read data
+		for( int i = 0; i < length; i++ ) {
+			final long e0 = vertex[ 3 * i ], e1 = vertex[ 3 * i + 1 ], e2 = vertex[ 3 * i + 2 ];
+			if ( e0 == -1 ) result[ offset + i ] = defRetValue;
+			else result[ offset + i ] = rank == null ?
+					data.getLong( e0 ) ^ data.getLong( e1 ) ^ data.getLong( e2 ) :
+					( marker.getBoolean( e0 ) ? data.getLong( rank.rank( e0 ) ) : 0 ) ^
+					( marker.getBoolean( e1 ) ? data.getLong( rank.rank( e1 ) ) : 0 ) ^
+					( marker.getBoolean( e2 ) ? data.getLong( rank.rank( e2 ) ) : 0 );
+		}
+
+		if ( signatureMask == 0 ) return;
+
+		// Phase 4: we check signatures
+		for( int i = 0; i < length; i++ ) {
+			if ( vertex[ 3 * i ] == -1 ) continue;
+			final long r = result[ offset + i ], first = triple[ 3 * ( from + i ) ];
+			if ( signatures != null ) result[ offset + i ] = r >= n || ( ( signatures.getLong( r ) ^ first ) & signatureMask ) != 0 ? defRetValue : r;
+			else result[ offset + i ] = ( ( r ^ first ) & signatureMask ) != 0 ? defRetValue : 1;
+		}
+	}
+
 	/** Returns the number of keys in the function domain.
 	 *
 	 * @return the number of the keys in the function domain.
@@ -78,12 +78,24 @@ public class PaCoTrieDistributorMonotoneMinimalPerfectHashFunction<T> extends Ab
 	/** The offset of each element into his bucket. */
 	private final GOV3Function<BitVector> offset;
 	
-	@SuppressWarnings("unchecked")
 	public long getLong( final Object o ) {
+		return getLong( o, LookupContext.current() );
+	}
+
+	/** Returns the output of this function on a key, using a given lookup context for temporary storage.
+	 *
+	 * <p>This method does not allocate objects (except for those possibly allocated by the transformation strategy).
+	 *
+	 * @param o a key.
+	 * @param context a lookup context.
+	 * @return the output of the function.
+	 */
+	@SuppressWarnings("unchecked")
+	public long getLong( final Object o, final LookupContext context ) {
 		if ( size == 0 ) return defRetValue;
 		final BitVector bv = transform.toBitVector( (T)o ).fast();
-		final long bucket = distributor.getLong( bv );
-		return ( bucket << log2BucketSize ) + offset.getLong( bv );
+		final long bucket = distributor.getLong( bv, context );
+		return ( bucket << log2BucketSize ) + offset.getLong( bv, context );
 	}
 
 	/** Creates a new PaCo-trie-based monotone minimal perfect hash function using the given
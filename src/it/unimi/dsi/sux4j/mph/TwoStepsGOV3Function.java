@@ -354,6 +354,22 @@ public class TwoStepsGOV3Function<T> extends AbstractHashFunction<T> implements
 		}
 		return secondFunction.getLongByTriple( triple );
 	}
+
+	/** Low-level access to the output of this function, using a given lookup context for temporary storage.
+	 *
+	 * @param triple a triple generated as documented in {@link ChunkedHashStore}.
+	 * @param context a lookup context.
+	 * @return the output of the function.
+	 * @see #getLongByTriple(long[])
+	 */
+	public long getLongByTriple( final long[] triple, final LookupContext context ) {
+		if ( firstFunction != null ) {
+			final int firstValue = (int)firstFunction.getLongByTriple( triple, context );
+			if ( firstValue == -1 ) return defRetValue;
+			if ( firstValue != escape ) return remap[ firstValue ];
+		}
+		return secondFunction.getLongByTriple( triple, context );
+	}
 	
 	public long size64() {
 		return n;
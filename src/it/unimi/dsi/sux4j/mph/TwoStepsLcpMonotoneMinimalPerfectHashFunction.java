@@ -387,25 +387,43 @@ public class TwoStepsLcpMonotoneMinimalPerfectHashFunction<T> extends AbstractHa
 		return offsets.numBits() + lcpLengths.numBits() + lcp2Bucket.numBits() + transform.numBits();
 	}
 
-	@SuppressWarnings("unchecked")
 	public long getLong( final Object o ) {
+		return getLong( o, LookupContext.current() );
+	}
+
+	/** Returns the output of this function on a key, using a given lookup context for temporary storage.
+	 *
+	 * <p>This method does not allocate objects (except for those possibly allocated by the transformation strategy).
+	 *
+	 * @param o a key.
+	 * @param context a lookup context.
+	 * @return the output of the function.
+	 */
+	@SuppressWarnings("unchecked")
+	public long getLong( final Object o, final LookupContext context ) {
 		if ( n == 0 ) return defRetValue;
 		final BitVector bitVector = transform.toBitVector( (T)o ).fast();
-		final long[] triple = new long[ 3 ];
-		Hashes.spooky4( bitVector, seed, triple );
-		final long prefix = lcpLengths.getLongByTriple( triple ); 
-		if ( prefix == -1 || prefix > bitVector.length() ) return defRetValue;
-		final long result = ( lcp2Bucket.getLong( bitVector.subVector( 0, prefix ) ) << log2BucketSize ) + offsets.getLongByTriple( triple );
-		if ( signatureMask != 0 ) return result < 0 || result >= n || signatures.getLong( result ) != ( triple[ 0 ] & signatureMask ) ? defRetValue : result;
-		// Out-of-set strings can generate bizarre 3-hyperedges.
-		return result < 0 || result >= n ? defRetValue : result;
+		Hashes.spooky4( bitVector, seed, context.triple );
+		return getLongByBitVectorAndTriple( bitVector, context.triple, context );
 	}
 
 	public long getLongByBitVectorAndTriple( final BitVector bitVector, final long[] triple ) {
+		return getLongByBitVectorAndTriple( bitVector, triple, LookupContext.current() );
+	}
+
+	/** Returns the output of this function on a transformed key whose hash triple has been already computed,
+	 * using a given lookup context for temporary storage.
+	 *
+	 * @param bitVector a key, already transformed by the transformation strategy of this function.
+	 * @param triple the hash triple of <code>bitVector</code>.
+	 * @param context a lookup context.
+	 * @return the output of the function.
+	 */
+	public long getLongByBitVectorAndTriple( final BitVector bitVector, final long[] triple, final LookupContext context ) {
 		if ( n == 0 ) return defRetValue;
-		final long prefix = lcpLengths.getLongByTriple( triple ); 
+		final long prefix = lcpLengths.getLongByTriple( triple, context ); 
 		if ( prefix == -1 || prefix > bitVector.length() ) return defRetValue;
-		final long result = ( lcp2Bucket.getLong( bitVector.subVector( 0, prefix ) ) << log2BucketSize ) + offsets.getLongByTriple( triple );
+		final long result = ( lcp2Bucket.getLong( context.prefix( bitVector, prefix ), context ) << log2BucketSize ) + offsets.getLongByTriple( triple, context );
 		if ( signatureMask != 0 ) return result < 0 || result >= n || signatures.getLong( result ) != ( triple[ 0 ] & signatureMask ) ? defRetValue : result;
 		// Out-of-set strings can generate bizarre 3-hyperedges.
 		return result < 0 || result >= n ? defRetValue : result;
@@ -96,17 +96,28 @@ public class VLLcpMonotoneMinimalPerfectHashFunction<T> extends AbstractHashFunc
 	/** The seed to be used when converting keys to triples. */
 	private long seed;
 	
-	@SuppressWarnings("unchecked")
 	public long getLong( final Object o ) {
+		return getLong( o, LookupContext.current() );
+	}
+
+	/** Returns the output of this function on a key, using a given lookup context for temporary storage.
+	 *
+	 * <p>This method does not allocate objects (except for those possibly allocated by the transformation strategy).
+	 *
+	 * @param o a key.
+	 * @param context a lookup context.
+	 * @return the output of the function.
+	 */
+	@SuppressWarnings("unchecked")
+	public long getLong( final Object o, final LookupContext context ) {
 		if ( n == 0 ) return defRetValue;
 		final BitVector bitVector = transform.toBitVector( (T)o ).fast();
-		final long[] triple = new long[ 3 ];
-		Hashes.spooky4( transform.toBitVector( (T)o ), seed, triple );
-		final long index = mph.getLongByTriple( triple );
+		Hashes.spooky4( bitVector, seed, context.triple );
+		final long index = mph.getLongByTriple( context.triple, context );
 		if ( index == -1 ) return defRetValue;
 		final long prefix = lcpLengths.getLong( index ); 
 		if ( prefix == -1 || prefix > bitVector.length() ) return defRetValue;
-		return ( lcp2Bucket.getLong( bitVector.subVector( 0, prefix ) ) << log2BucketSize ) + offsets.getLong( index );
+		return ( lcp2Bucket.getLong( context.prefix( bitVector, prefix ), context ) << log2BucketSize ) + offsets.getLong( index );
 	}
 
 	public VLLcpMonotoneMinimalPerfectHashFunction( final Iterable<? extends T> iterable, final TransformationStrategy<? super T> transform ) throws IOException {
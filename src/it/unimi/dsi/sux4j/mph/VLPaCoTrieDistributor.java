@@ -409,15 +409,27 @@ public class VLPaCoTrieDistributor<T> extends AbstractObject2LongFunction<T> imp
 	}
 	
 	
+	public long getLong( final Object o ) {
+		return getLong( o, LookupContext.current() );
+	}
+
+	/** Returns the output of this distributor on a key, using a given lookup context for temporary storage.
+	 *
+	 * <p>This method does not allocate objects (except for those possibly allocated by the transformation strategy),
+	 * as the bit stream reading the trie is stored in the context.
+	 *
+	 * @param o a key.
+	 * @param context a lookup context.
+	 * @return the output of the distributor.
+	 */
 	@SuppressWarnings("unchecked")
-	public long getLong( Object o ) {
+	public long getLong( final Object o, final LookupContext context ) {
 		if ( numberOfLeaves == 0 ) return 0;
 		try {
 			if ( DEBUG ) System.err.println( "Getting " + o + "...");
 			final BitVector v = transformationStrategy.toBitVector( (T)o ).fast();
 			final long length = v.length();
-			@SuppressWarnings("resource")
-			final InputBitStream trie = new InputBitStream( this.trie );
+			final InputBitStream trie = context.trieStream( this.trie );
 
 			long pos = 0, readBits, skip, xor, t;
 			long leavesOnTheLeft = 0, leftSubtrieLeaves;
@@ -618,23 +618,23 @@ public class ZFastTrieDistributor<T> extends AbstractObject2LongFunction<T> impl
 	}
 
 	private long getNodeStringLength( BitVector v ) {
-		return getNodeStringLength( v, Hashes.preprocessSpooky4( v, seed ) );
+		return getNodeStringLength( v, Hashes.preprocessSpooky4( v, seed ), LookupContext.current() );
 	}
 	
-	private long getNodeStringLength( BitVector v, final long[] state ) {
+	private long getNodeStringLength( BitVector v, final long[] state, final LookupContext context ) {
 		if ( DEBUG ) System.err.println( "getNodeStringLength(" + v + ")..." );
 		
 		final long corr = Hashes.spooky4( v, v.length(), seed, state );
 		if ( mistakeSignatures.contains( (int)corr ) ) {
 			if ( DEBUG ) System.err.println( "Correcting..." );
-			return corrections.getLong( v );
+			return corrections.getLong( v, context );
 		}
 		
 		long r = v.length();
 		long l = 0;
 		int i = Fast.mostSignificantBit( r );
 		long mask = 1L << i;
-		final long triple[] = new long[ 3 ];
+		final long triple[] = context.h;
 		while( r - l > 1 ) {
 			assert i > -1;
 			if ( DDDEBUG ) System.err.println( "[" + l + ".." + r + "]; i = " + i );
@@ -642,7 +642,7 @@ public class ZFastTrieDistributor<T> extends AbstractObject2LongFunction<T> impl
 			if ( ( l & mask ) != ( r - 1 & mask ) ) {
 				final long f = ( r - 1 ) & ( -1L << i );
 				Hashes.spooky4( v, f, seed, state, triple );
-				final long data = signatures.getLongByTriple( triple );
+				final long data = signatures.getLongByTriple( triple, context );
 				assert signatures.getLong( v.subVector( 0, f ) ) == data : signatures.getLong( v.subVector( 0, f ) ) + " != " + data + " (prefix: " + f + ")"; 
 				
 				if ( data == -1 ) {
@@ -678,28 +678,54 @@ public class ZFastTrieDistributor<T> extends AbstractObject2LongFunction<T> impl
 	}
 
 	public long getLong( final Object o ) {
+		return getLong( o, LookupContext.current() );
+	}
+
+	/** Returns the output of this distributor on a key, using a given lookup context for temporary storage.
+	 *
+	 * <p>This method does not allocate objects.
+	 *
+	 * @param o a key (a bit vector).
+	 * @param context a lookup context.
+	 * @return the output of the distributor.
+	 */
+	public long getLong( final Object o, final LookupContext context ) {
 		final BitVector bv = (BitVector)o;
-		final long state[] = Hashes.preprocessSpooky4( bv, seed );
-		final long[] triple = new long[ 3 ];
-		Hashes.spooky4( bv, bv.length(), seed, state, triple );
-		return getLongByBitVectorTripleAndState( bv, triple, state );
+		final long state[] = context.state = Hashes.preprocessSpooky4( bv, seed, context.state );
+		Hashes.spooky4( bv, bv.length(), seed, state, context.triple );
+		return getLongByBitVectorTripleAndState( bv, context.triple, state, context );
 	}
 
 	public long getLongByBitVectorTripleAndState( final BitVector v, final long[] triple, final long[] state ) {
+		return getLongByBitVectorTripleAndState( v, triple, state, LookupContext.current() );
+	}
+
+	/** Returns the output of this distributor on a key whose hash triple and hash state have been already computed,
+	 * using a given lookup context for temporary storage.
+	 *
+	 * <p>The arrays <code>triple</code> and <code>state</code> are not modified, and they can be those of <code>context</code>.
+	 *
+	 * @param v a key.
+	 * @param triple the hash triple of <code>v</code>.
+	 * @param state the hash state of <code>v</code> computed by {@link Hashes#preprocessSpooky4(BitVector, long)}.
+	 * @param context a lookup context.
+	 * @return the output of the distributor.
+	 */
+	public long getLongByBitVectorTripleAndState( final BitVector v, final long[] triple, final long[] state, final LookupContext context ) {
 		if ( noDelimiters ) return 0;
-		final int b = (int)behaviour.getLongByTriple( triple );
+		final int b = (int)behaviour.getLongByTriple( triple, context );
 		if ( emptyTrie ) return b;
-		final long length = getNodeStringLength( v, state );
+		final long length = getNodeStringLength( v, state, context );
 		if ( DDDEBUG ) System.err.println( "getNodeStringLength( v )=" + length );
 		if ( length >= v.length() ) return -1;
-		final BitVector key = v.subVector( 0, length ).copy();
+		final LongArrayBitVector key = LookupContext.append( context.bitVector.length( 0 ), v, 0, length );
 		final boolean bit = v.getBoolean( length );
 		
 		if ( b == LEFT ) {
 			if ( DDDEBUG ) System.err.println( "LEFT: " + bit );
 			if ( bit ) key.add( true );
 			else key.length( key.lastOne() + 1 );
-			long pos = ranker.getLong( key );
+			long pos = rank( key, context );
 			if ( DDDEBUG ) System.err.println( key.length() + " " + pos + " " + leaves.bitVector() );
 			return leaves.rank( pos ); 
 		}
@@ -710,18 +736,41 @@ public class ZFastTrieDistributor<T> extends AbstractObject2LongFunction<T> impl
 				//System.err.println( lastZero );
 				if ( lastZero == -1 ) return numDelimiters;	// We are exiting at the right of 1^k (k>=0).
 				key.length( lastZero + 1 ).set( lastZero );
-				long pos = ranker.getLong( key );
+				long pos = rank( key, context );
 				//System.err.println( "pos: " + pos + " rank: " + leaves.rank( pos ) );
 				return leaves.rank( pos ); 
 			}
 			else {
 				key.add( true );
-				long pos = ranker.getLong( key );
+				long pos = rank( key, context );
 				return leaves.rank( pos ); 
 			}
 		}
 	}
 
+	/** Returns the output of {@link #ranker} on a bit vector.
+	 *
+	 * <p>The bit vector is transformed by hand into the bit vector that the transformation
+	 * strategy of the ranker, {@link TransformationStrategies#prefixFree()}, would return: each bit <var>b</var>
+	 * becomes 1<var>b</var>, and a zero is appended. The lookup then happens on a nested lookup context.
+	 *
+	 * @param key a bit vector.
+	 * @param context a lookup context.
+	 * @return the output of {@link #ranker} on <code>key</code>.
+	 */
+	private long rank( final BitVector key, final LookupContext context ) {
+		final LookupContext nested = context.nested();
+		final LongArrayBitVector prefixFree = nested.bitVector.length( 0 );
+		for( long i = 0; i < key.length(); i++ ) {
+			prefixFree.add( true );
+			prefixFree.add( key.getBoolean( i ) );
+		}
+		prefixFree.add( false );
+		if ( ASSERTS ) assert prefixFree.equals( TransformationStrategies.prefixFree().toBitVector( key ) );
+		Hashes.spooky4( prefixFree, ranker.seed, nested.triple );
+		return ranker.getLongByBitVectorAndTriple( prefixFree, nested.triple, nested );
+	}
+
 	private long numBitsForMistakes() {
 		if ( emptyTrie ) return 0;
 		return corrections.numBits() + mistakeSignatures.size() * (long)Integer.SIZE;
@@ -246,16 +246,28 @@ public class ZFastTrieDistributorMonotoneMinimalPerfectHashFunction<T> extends A
 		
 	}
 	
-	@SuppressWarnings("unchecked")
 	public long getLong( final Object o ) {
+		return getLong( o, LookupContext.current() );
+	}
+
+	/** Returns the output of this function on a key, using a given lookup context for temporary storage.
+	 *
+	 * <p>This method does not allocate objects (except for those possibly allocated by the transformation strategy).
+	 *
+	 * @param o a key.
+	 * @param context a lookup context.
+	 * @return the output of the function.
+	 */
+	@SuppressWarnings("unchecked")
+	public long getLong( final Object o, final LookupContext context ) {
 		if ( size == 0 ) return defRetValue;
 		final BitVector bv = transform.toBitVector( (T)o ).fast();
-		final long state[] = Hashes.preprocessSpooky4( bv, seed );
-		final long[] triple = new long[ 3 ];
+		final long state[] = context.state = Hashes.preprocessSpooky4( bv, seed, context.state );
+		final long[] triple = context.triple;
 		Hashes.spooky4( bv, bv.length(), seed, state, triple );
 
-		final long bucket = distributor.getLongByBitVectorTripleAndState( bv, triple, state );
-		final long result = ( bucket << log2BucketSize ) + offset.getLongByTriple( triple );
+		final long bucket = distributor.getLongByBitVectorTripleAndState( bv, triple, state, context );
+		final long result = ( bucket << log2BucketSize ) + offset.getLongByTriple( triple, context );
 		if ( signatureMask != 0 ) return result < 0 || result >= size || signatures.getLong( result ) != ( triple[ 0 ] & signatureMask ) ? defRetValue : result;
 		// Out-of-set strings can generate bizarre 3-hyperedges.
 		return result < 0 || result >= size ? defRetValue : result;
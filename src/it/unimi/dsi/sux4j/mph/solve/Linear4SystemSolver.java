@@ -200,11 +200,26 @@ public class Linear4SystemSolver<T> {
 	 * @see #bitVectorToEquation(BitVector, long, int, int[])
 	 */
 	public static void tripleToEquation( final long[] triple, final long seed, final int numVariables, final int e[] ) {
+		tripleToEquation( triple, seed, numVariables, new long[ 4 ], e );
+	}
+
+	/** Turns a triple of longs into an equation, using a given array for temporary storage.
+	 * 
+	 * <p>This method does not allocate objects, and it is thus suitable for batch evaluation. 
+	 * If there are no variables the vector <code>e</code> will be filled with -1.
+	 * 
+	 * @param triple a triple of intermediate hashes.
+	 * @param seed the seed for the hash function.
+	 * @param numVariables the number of variables in the system.
+	 * @param hash an array of 4 longs that will be used for temporary storage.
+	 * @param e an array to store the resulting equation.
+	 * @see #tripleToEquation(long[], long, int, int[])
+	 */
+	public static void tripleToEquation( final long[] triple, final long seed, final int numVariables, final long[] hash, final int e[] ) {
 		if ( numVariables == 0 ) {
-			e[ 0 ] = e[ 1 ] = e[ 2 ] = e[ 3 ]  = -1;
+			e[ 0 ] = e[ 1 ] = e[ 2 ] = e[ 3 ] = -1;
 			return;
 		}
-		final long[] hash = new long[ 4 ];
 		Hashes.spooky4( triple, seed, hash );
 		e[ 0 ] = (int)( ( hash[ 0 ] & 0x7FFFFFFFFFFFFFFFL ) % numVariables );
 		e[ 1 ] = (int)( ( hash[ 1 ] & 0x7FFFFFFFFFFFFFFFL ) % numVariables );
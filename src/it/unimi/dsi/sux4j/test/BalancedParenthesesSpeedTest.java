@@ -0,0 +1,88 @@
+package it.unimi.dsi.sux4j.test;
+
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.sux4j.bits.JacobsonBalancedParentheses;
+import it.unimi.dsi.util.XorShift1024StarRandomGenerator;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Parameter;
+import com.martiansoftware.jsap.SimpleJSAP;
+import com.martiansoftware.jsap.UnflaggedOption;
+
+public class BalancedParenthesesSpeedTest {
+
+	public static void main( final String[] arg ) throws JSAPException {
+
+		final SimpleJSAP jsap = new SimpleJSAP( BalancedParenthesesSpeedTest.class.getName(), "Tests the speed of findClose(), findOpen() and enclose() on a random balanced sequence of parentheses.",
+				new Parameter[] {
+					new UnflaggedOption( "numPairs", JSAP.LONGSIZE_PARSER, "1Mi", JSAP.NOT_REQUIRED, JSAP.NOT_GREEDY, "The number of pairs of parentheses." ),
+					new FlaggedOption( "maxDepth", JSAP.INTSIZE_PARSER, "1Ki", JSAP.NOT_REQUIRED, 'd', "max-depth", "The maximum nesting depth." ),
+					new FlaggedOption( "numPos", JSAP.INTSIZE_PARSER, "1Mi", JSAP.NOT_REQUIRED, 'p', "positions", "The number of positions to test" ),
+		});
+
+		JSAPResult jsapResult = jsap.parse( arg );
+		if ( jsap.messagePrinted() ) return;
+
+		final long numPairs = jsapResult.getLong( "numPairs" );
+		final int maxDepth = jsapResult.getInt( "maxDepth" );
+		final int numPos = jsapResult.getInt( "numPos" );
+
+		final RandomGenerator random = new XorShift1024StarRandomGenerator( 42 );
+		final LongArrayBitVector bitVector = LongArrayBitVector.getInstance();
+		final LongArrayList open = new LongArrayList(), closed = new LongArrayList();
+		long toOpen = numPairs;
+		int depth = 0;
+		while( toOpen > 0 || depth > 0 ) {
+			if ( toOpen > 0 && ( depth == 0 || depth < maxDepth && random.nextBoolean() ) ) {
+				open.add( bitVector.length() );
+				bitVector.add( 1 );
+				toOpen--;
+				depth++;
+			}
+			else {
+				closed.add( bitVector.length() );
+				bitVector.add( 0 );
+				depth--;
+			}
+		}
+
+		final long[] openPosition = new long[ numPos ];
+		final long[] closedPosition = new long[ numPos ];
+		for( int i = numPos; i-- != 0; ) {
+			openPosition[ i ] = open.getLong( random.nextInt( open.size() ) );
+			closedPosition[ i ] = closed.getLong( random.nextInt( closed.size() ) );
+		}
+
+		final JacobsonBalancedParentheses balancedParentheses = new JacobsonBalancedParentheses( bitVector );
+		System.err.println( "Bits per parenthesis: " + (double)balancedParentheses.numBits() / bitVector.length() );
+
+		long time, u = 0;
+		for( int k = 10; k-- != 0; ) {
+			System.out.println( "=== findClose() ===");
+			time = - System.nanoTime();
+			for( int i = 0; i < numPos; i++ ) u += balancedParentheses.findClose( openPosition[ i ] );
+			time += System.nanoTime();
+			System.err.println( time / 1E9 + "s, " + time / (double)numPos + " ns/findClose()" );
+
+			System.out.println( "=== findOpen() ===");
+			time = - System.nanoTime();
+			for( int i = 0; i < numPos; i++ ) u += balancedParentheses.findOpen( closedPosition[ i ] );
+			time += System.nanoTime();
+			System.err.println( time / 1E9 + "s, " + time / (double)numPos + " ns/findOpen()" );
+
+			System.out.println( "=== enclose() ===");
+			time = - System.nanoTime();
+			for( int i = 0; i < numPos; i++ ) u += balancedParentheses.enclose( openPosition[ i ] );
+			time += System.nanoTime();
+			System.err.println( time / 1E9 + "s, " + time / (double)numPos + " ns/enclose()" );
+		}
+
+		if ( u == 0 ) System.out.println();
+	}
+}
@@ -0,0 +1,110 @@
+package it.unimi.dsi.sux4j.test;
+
+import it.unimi.dsi.Util;
+import it.unimi.dsi.bits.TransformationStrategies;
+import it.unimi.dsi.bits.TransformationStrategy;
+import it.unimi.dsi.fastutil.longs.LongIterators;
+import it.unimi.dsi.logging.ProgressLogger;
+import it.unimi.dsi.sux4j.io.ChunkedHashStore;
+import it.unimi.dsi.sux4j.mph.GOV3Function;
+import it.unimi.dsi.sux4j.mph.GOVMinimalPerfectHashFunction;
+import it.unimi.dsi.sux4j.mph.Hashes;
+import it.unimi.dsi.util.XorShift1024StarRandomGenerator;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Parameter;
+import com.martiansoftware.jsap.SimpleJSAP;
+import com.martiansoftware.jsap.UnflaggedOption;
+
+/** Compares the speed of batch and single-key lookups (by triple) for {@link GOV3Function}, {@link it.unimi.dsi.sux4j.mph.MWHCFunction} and
+ * {@link GOVMinimalPerfectHashFunction} on a key set made of consecutive longs, varying the batch size. */
+
+public class BatchFunctionSpeedTest {
+
+	@SuppressWarnings("deprecation")
+	public static void main( final String[] arg ) throws JSAPException, IOException {
+
+		final SimpleJSAP jsap = new SimpleJSAP( BatchFunctionSpeedTest.class.getName(), "Tests the speed of batch lookups. Performs four repetitions: the first one is warmup, and the average of the remaining ones is printed on standard output.",
+				new Parameter[] {
+					new FlaggedOption( "queries", JSAP.INTSIZE_PARSER, "1Mi", JSAP.NOT_REQUIRED, 'q', "queries", "The number of random queries." ),
+					new FlaggedOption( "batchSizes", JSAP.INTEGER_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, 'b', "batch-size", "A batch size (may be specified several times; by default, all sizes from 1 to 64)." ).setAllowMultipleDeclarations( true ),
+					new UnflaggedOption( "type", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The type of function (gov3, mwhc or gov)." ),
+					new UnflaggedOption( "n", JSAP.LONGSIZE_PARSER, "10Mi", JSAP.NOT_REQUIRED, JSAP.NOT_GREEDY, "The number of keys." ),
+		});
+
+		JSAPResult jsapResult = jsap.parse( arg );
+		if ( jsap.messagePrinted() ) return;
+
+		final String type = jsapResult.getString( "type" );
+		final long n = jsapResult.getLong( "n" );
+		final int queries = jsapResult.getInt( "queries" );
+		int[] batchSizes = jsapResult.getIntArray( "batchSizes" );
+		if ( batchSizes.length == 0 ) {
+			batchSizes = new int[ 64 ];
+			for( int i = 0; i < 64; i++ ) batchSizes[ i ] = i + 1;
+		}
+
+		final TransformationStrategy<Long> transform = TransformationStrategies.fixedLong();
+		final ProgressLogger pl = new ProgressLogger();
+		final ChunkedHashStore<Long> chunkedHashStore = new ChunkedHashStore<Long>( transform, pl );
+		final Iterable<Long> keys = new Iterable<Long>() {
+			@Override
+			public Iterator<Long> iterator() {
+				return LongIterators.fromTo( 0, n );
+			}
+		};
+		chunkedHashStore.addAll( keys.iterator() );
+		chunkedHashStore.checkAndRetry( keys );
+
+		final GOV3Function<Long> gov3 = type.equals( "gov3" ) ? new GOV3Function.Builder<Long>().store( chunkedHashStore ).build() : null;
+		final it.unimi.dsi.sux4j.mph.MWHCFunction<Long> mwhc = type.equals( "mwhc" ) ? new it.unimi.dsi.sux4j.mph.MWHCFunction.Builder<Long>().store( chunkedHashStore ).build() : null;
+		final GOVMinimalPerfectHashFunction<Long> gov = type.equals( "gov" ) ? new GOVMinimalPerfectHashFunction.Builder<Long>().store( chunkedHashStore ).build() : null;
+		if ( gov3 == null && mwhc == null && gov == null ) throw new IllegalArgumentException( "Unknown function type: " + type );
+		final long seed = chunkedHashStore.seed();
+		chunkedHashStore.close();
+
+		final RandomGenerator random = new XorShift1024StarRandomGenerator( 0 );
+		final long[] triple = new long[ 3 * queries ], t = new long[ 3 ], result = new long[ queries ];
+		for( int i = 0; i < queries; i++ ) {
+			Hashes.spooky4( transform.toBitVector( Long.valueOf( ( random.nextLong() & Long.MAX_VALUE ) % n ) ), seed, t );
+			System.arraycopy( t, 0, triple, 3 * i, 3 );
+		}
+
+		long total = 0, u = 0;
+		for( int k = 4; k-- != 0; ) {
+			long time = -System.nanoTime();
+			for( int i = 0; i < queries; i++ ) {
+				System.arraycopy( triple, 3 * i, t, 0, 3 );
+				u ^= gov3 != null ? gov3.getLongByTriple( t ) : mwhc != null ? mwhc.getLongByTriple( t ) : gov.getLongByTriple( t );
+			}
+			time += System.nanoTime();
+			if ( k < 3 ) total += time;
+			System.err.println( "Single: " + Util.format( (double)time / queries ) + " ns/item" );
+		}
+		System.out.println( "Single: " + Util.format( total / ( 3. * queries ) ) + " ns/item" );
+
+		for( int batchSize: batchSizes ) {
+			total = 0;
+			for( int k = 4; k-- != 0; ) {
+				long time = -System.nanoTime();
+				if ( gov3 != null ) gov3.getLongsByTriple( triple, result, batchSize );
+				else if ( mwhc != null ) mwhc.getLongsByTriple( triple, result, batchSize );
+				else gov.getLongsByTriple( triple, result, batchSize );
+				time += System.nanoTime();
+				u ^= result[ k ];
+				if ( k < 3 ) total += time;
+				System.err.println( "Batch size " + batchSize + ": " + Util.format( (double)time / queries ) + " ns/item" );
+			}
+			System.out.println( "Batch size " + batchSize + ": " + Util.format( total / ( 3. * queries ) ) + " ns/item" );
+		}
+		if ( u == 0 ) System.err.println( u );
+	}
+}
@@ -0,0 +1,102 @@
+package it.unimi.dsi.sux4j.test;
+
+import it.unimi.dsi.fastutil.Swapper;
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.sux4j.io.ChunkedHashStore;
+import it.unimi.dsi.util.XorShift1024StarRandomGenerator;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Parameter;
+import com.martiansoftware.jsap.SimpleJSAP;
+import com.martiansoftware.jsap.UnflaggedOption;
+
+/** Compares the speed of {@link ChunkedHashStore#radixSort(long[], long[], long[], long[], int)} with that of the
+ * comparator-based quicksort formerly used to sort disk chunks. */
+
+public class ChunkedHashStoreSortSpeedTest {
+
+	private static void quickSort( final long[] buffer0, final long[] buffer1, final long[] buffer2, final long[] data, final int length ) {
+		it.unimi.dsi.fastutil.Arrays.quickSort( 0, length, new AbstractIntComparator() {
+			private static final long serialVersionUID = 0L;
+
+			public int compare( final int x, final int y ) {
+				int t = Long.signum( buffer0[ x ] - buffer0[ y ] );
+				if ( t != 0 ) return t;
+				t = Long.signum( buffer1[ x ] - buffer1[ y ] );
+				if ( t != 0 ) return t;
+				return Long.signum( buffer2[ x ] - buffer2[ y ] );
+			}
+		},
+		new Swapper() {
+			public void swap( final int x, final int y ) {
+				final long e0 = buffer0[ x ], e1 = buffer1[ x ], e2 = buffer2[ x ];
+				buffer0[ x ] = buffer0[ y ];
+				buffer1[ x ] = buffer1[ y ];
+				buffer2[ x ] = buffer2[ y ];
+				buffer0[ y ] = e0;
+				buffer1[ y ] = e1;
+				buffer2[ y ] = e2;
+				if ( data != null ) {
+					final long v = data[ x ];
+					data[ x ] = data[ y ];
+					data[ y ] = v;
+				}
+			}
+		});
+
+		for( int i = length - 1; i-- != 0; ) if ( buffer0[ i ] == buffer0[ i + 1 ] && buffer1[ i ] == buffer1[ i + 1 ] && buffer2[ i ] == buffer2[ i + 1 ] ) throw new ChunkedHashStore.DuplicateException();
+	}
+
+	public static void main( final String[] arg ) throws JSAPException {
+
+		final SimpleJSAP jsap = new SimpleJSAP( ChunkedHashStoreSortSpeedTest.class.getName(), "Tests the speed of the sorting algorithms for disk chunks of a chunked hash store.",
+				new Parameter[] {
+					new FlaggedOption( "repeats", JSAP.INTEGER_PARSER, "10", JSAP.NOT_REQUIRED, 'r', "repeats", "The number of repetitions." ),
+					new UnflaggedOption( "n", JSAP.INTSIZE_PARSER, "4Mi", JSAP.NOT_REQUIRED, JSAP.NOT_GREEDY, "The number of triples in a disk chunk." ),
+		});
+
+		JSAPResult jsapResult = jsap.parse( arg );
+		if ( jsap.messagePrinted() ) return;
+
+		final int n = jsapResult.getInt( "n" );
+		final int repeats = jsapResult.getInt( "repeats" );
+
+		final RandomGenerator random = new XorShift1024StarRandomGenerator( 42 );
+		final long[] original0 = new long[ n ], original1 = new long[ n ], original2 = new long[ n ];
+		final long[] buffer0 = new long[ n ], buffer1 = new long[ n ], buffer2 = new long[ n ], data = new long[ n ];
+		// Triples in a disk chunk share the highest bits of the first hash
+		for( int i = 0; i < n; i++ ) {
+			original0[ i ] = random.nextLong() >>> ChunkedHashStore.LOG2_DISK_CHUNKS | 42L << ChunkedHashStore.DISK_CHUNKS_SHIFT;
+			original1[ i ] = random.nextLong();
+			original2[ i ] = random.nextLong();
+		}
+
+		long time;
+		for( int k = repeats; k-- != 0; ) {
+			System.arraycopy( original0, 0, buffer0, 0, n );
+			System.arraycopy( original1, 0, buffer1, 0, n );
+			System.arraycopy( original2, 0, buffer2, 0, n );
+			for( int i = n; i-- != 0; ) data[ i ] = i;
+			System.out.println( "=== Quicksort ===");
+			time = - System.nanoTime();
+			quickSort( buffer0, buffer1, buffer2, data, n );
+			time += System.nanoTime();
+			System.out.println( time / 1E9 + "s, " + (double)time / n + " ns/triple" );
+
+			System.arraycopy( original0, 0, buffer0, 0, n );
+			System.arraycopy( original1, 0, buffer1, 0, n );
+			System.arraycopy( original2, 0, buffer2, 0, n );
+			for( int i = n; i-- != 0; ) data[ i ] = i;
+			System.out.println( "=== Radix sort ===");
+			time = - System.nanoTime();
+			if ( ChunkedHashStore.radixSort( buffer0, buffer1, buffer2, data, n ) ) throw new ChunkedHashStore.DuplicateException();
+			time += System.nanoTime();
+			System.out.println( time / 1E9 + "s, " + (double)time / n + " ns/triple" );
+		}
+	}
+}
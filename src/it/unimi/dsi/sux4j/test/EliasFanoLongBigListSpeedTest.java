@@ -2,6 +2,7 @@ package it.unimi.dsi.sux4j.test;
 
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
 import it.unimi.dsi.sux4j.util.EliasFanoLongBigList;
 import it.unimi.dsi.util.XorShift1024StarRandomGenerator;
 
@@ -63,5 +64,23 @@ public class EliasFanoLongBigListSpeedTest {
 			time += System.nanoTime();
 			System.err.println( time / 1E9 + "s, " + time / (double)( numPos * bulk ) + " ns/element" );
 		}
+
+		long u = 0;
+		System.err.println( "Sequential getLong():" );
+		for( int k = 10; k-- != 0; ) {
+			time = - System.nanoTime();
+			for( int i = 0; i < numElements; i++ ) u ^= eliasFanoLongBigList.getLong( i );
+			time += System.nanoTime();
+			System.err.println( time / 1E9 + "s, " + time / (double)numElements + " ns/element" );
+		}
+
+		System.err.println( "Iterator:" );
+		for( int k = 10; k-- != 0; ) {
+			time = - System.nanoTime();
+			for( final LongIterator iterator = eliasFanoLongBigList.iterator(); iterator.hasNext(); ) u ^= iterator.nextLong();
+			time += System.nanoTime();
+			System.err.println( time / 1E9 + "s, " + time / (double)numElements + " ns/element" );
+		}
+		if ( u == 0 ) System.err.println();
 	}
 }
@@ -0,0 +1,81 @@
+package it.unimi.dsi.sux4j.test;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongBigList;
+import it.unimi.dsi.sux4j.util.EliasFanoIndexedMonotoneLongBigList;
+import it.unimi.dsi.sux4j.util.PartitionedEliasFanoMonotoneLongBigList;
+import it.unimi.dsi.util.XorShift1024StarRandomGenerator;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Parameter;
+import com.martiansoftware.jsap.SimpleJSAP;
+import com.martiansoftware.jsap.UnflaggedOption;
+
+public class PartitionedEliasFanoMonotoneLongBigListSpeedTest {
+
+	public static void main( final String[] arg ) throws JSAPException {
+
+		final SimpleJSAP jsap = new SimpleJSAP( PartitionedEliasFanoMonotoneLongBigListSpeedTest.class.getName(), "Compares the speed of partitioned and indexed Elias-Fano monotone lists on a clustered sequence.",
+				new Parameter[] {
+					new UnflaggedOption( "numElements", JSAP.INTSIZE_PARSER, "16Mi", JSAP.NOT_REQUIRED, JSAP.NOT_GREEDY, "The number of elements." ),
+					new FlaggedOption( "jump", JSAP.DOUBLE_PARSER, ".001", JSAP.NOT_REQUIRED, 'j', "jump", "The probability of a large gap between consecutive elements." ),
+					new FlaggedOption( "numPos", JSAP.INTSIZE_PARSER, "1Mi", JSAP.NOT_REQUIRED, 'p', "positions", "The number of positions to test" ),
+					new FlaggedOption( "bulk", JSAP.INTSIZE_PARSER, "10", JSAP.NOT_REQUIRED, 'b', "bulk", "The number of positions to read with the bulk method" ),
+		});
+
+		JSAPResult jsapResult = jsap.parse( arg );
+		if ( jsap.messagePrinted() ) return;
+
+		final int numElements = jsapResult.getInt( "numElements" );
+		final double jump = jsapResult.getDouble( "jump" );
+		final int numPos = jsapResult.getInt( "numPos" );
+		final int bulk = jsapResult.getInt( "bulk" );
+
+		final RandomGenerator random = new XorShift1024StarRandomGenerator( 42 );
+		final long[] elements = new long[ numElements ];
+		for( int i = 1; i < numElements; i++ ) elements[ i ] = elements[ i - 1 ] + ( random.nextDouble() < jump ? random.nextInt( 1000000 ) : 1 + random.nextInt( 3 ) );
+
+		final int[] position = new int[ numPos ];
+		for( int i = numPos; i-- != 0; ) position[ i ] = ( random.nextInt() & 0x7FFFFFFF ) % ( numElements - bulk );
+		final long[] bound = new long[ numPos ];
+		for( int i = numPos; i-- != 0; ) bound[ i ] = ( random.nextLong() & Long.MAX_VALUE ) % ( elements[ numElements - 1 ] + 1 );
+
+		final EliasFanoIndexedMonotoneLongBigList indexed = new EliasFanoIndexedMonotoneLongBigList( LongArrayList.wrap( elements ) );
+		final PartitionedEliasFanoMonotoneLongBigList partitioned = new PartitionedEliasFanoMonotoneLongBigList( LongArrayList.wrap( elements ) );
+		System.err.println( "Indexed: " + indexed.numBits() / (double)numElements + " bits/element" );
+		System.err.println( "Partitioned: " + partitioned.numBits() / (double)numElements + " bits/element" );
+
+		final long[] dest = new long[ bulk ];
+		long time, u = 0;
+		for( int k = 10; k-- != 0; ) {
+			for( LongBigList list: new LongBigList[] { indexed, partitioned } ) {
+				final boolean isIndexed = list == indexed;
+				System.err.println( "=== " + ( isIndexed ? "Indexed" : "Partitioned" ) + " ===" );
+
+				time = - System.nanoTime();
+				for( int i = 0; i < numPos; i++ ) u += list.getLong( position[ i ] );
+				time += System.nanoTime();
+				System.err.println( "getLong(): " + time / 1E9 + "s, " + time / (double)numPos + " ns/element" );
+
+				time = - System.nanoTime();
+				if ( isIndexed ) for( int i = 0; i < numPos; i++ ) u += indexed.get( position[ i ], dest )[ bulk - 1 ];
+				else for( int i = 0; i < numPos; i++ ) u += partitioned.get( position[ i ], dest )[ bulk - 1 ];
+				time += System.nanoTime();
+				System.err.println( "get(): " + time / 1E9 + "s, " + time / (double)( numPos * (long)bulk ) + " ns/element" );
+
+				time = - System.nanoTime();
+				if ( isIndexed ) for( int i = 0; i < numPos; i++ ) u += indexed.successor( bound[ i ] );
+				else for( int i = 0; i < numPos; i++ ) u += partitioned.successor( bound[ i ] );
+				time += System.nanoTime();
+				System.err.println( "successor(): " + time / 1E9 + "s, " + time / (double)numPos + " ns/successor" );
+			}
+		}
+
+		if ( u == 0 ) System.err.println();
+	}
+}
@@ -1,7 +1,10 @@
 package it.unimi.dsi.sux4j.test;
 
 import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.sux4j.bits.DArraySelect;
 import it.unimi.dsi.sux4j.bits.HintedBsearchSelect;
+import it.unimi.dsi.sux4j.bits.InterleavedRankSelect;
+import it.unimi.dsi.sux4j.bits.RRRRankSelect;
 import it.unimi.dsi.sux4j.bits.Rank16;
 import it.unimi.dsi.sux4j.bits.Rank9;
 import it.unimi.dsi.sux4j.bits.Select9;
@@ -58,49 +61,99 @@ public class RankSelectSpeedTest {
 			selectPosition[ i ] = ( random.nextLong() & 0x7FFFFFFFFFFFFFFFL ) % c;
 		}
 
-		long time;
+		long time, u = 0;
 		for( int k = 10; k-- != 0; ) {
 			System.out.println( "=== Rank 9 ===");
 			Rank9 rank9 = new Rank9( bitVector );
 			time = - System.currentTimeMillis();
-			for( int i = 0; i < numPos; i++ ) rank9.rank( rankPosition[ i ] );
+			for( int i = 0; i < numPos; i++ ) u += rank9.rank( rankPosition[ i ] );
+			time += System.currentTimeMillis();
+			System.err.println( time / 1000.0 + "s, " + ( time * 1E6 ) / numPos + " ns/rank" );
+
+			System.out.println( "=== Rank 9 (batch) ===");
+			final long[] dest = new long[ numPos ];
+			time = - System.currentTimeMillis();
+			rank9.rank( rankPosition, dest );
+			for( int i = 0; i < numPos; i++ ) u += dest[ i ];
 			time += System.currentTimeMillis();
 			System.err.println( time / 1000.0 + "s, " + ( time * 1E6 ) / numPos + " ns/rank" );
 
 			System.out.println( "=== Rank 16 ===");
 			Rank16 rank16 = new Rank16( bitVector );
 			time = - System.currentTimeMillis();
-			for( int i = 0; i < numPos; i++ ) rank16.rank( rankPosition[ i ] );
+			for( int i = 0; i < numPos; i++ ) u += rank16.rank( rankPosition[ i ] );
+			time += System.currentTimeMillis();
+			System.err.println( time / 1000.0 + "s, " + ( time * 1E6 ) / numPos + " ns/rank" );
+
+			System.out.println( "=== Interleaved rank ===");
+			InterleavedRankSelect interleaved = new InterleavedRankSelect( bitVector );
+			time = - System.currentTimeMillis();
+			for( int i = 0; i < numPos; i++ ) u += interleaved.rank( rankPosition[ i ] );
 			time += System.currentTimeMillis();
 			System.err.println( time / 1000.0 + "s, " + ( time * 1E6 ) / numPos + " ns/rank" );
 
+			System.out.println( "=== Interleaved select ===");
+			time = - System.currentTimeMillis();
+			for( int i = 0; i < numPos; i++ ) u += interleaved.select( selectPosition[ i ] );
+			time += System.currentTimeMillis();
+			System.err.println( time / 1000.0 + "s, " + ( time * 1E6 ) / numPos + " ns/select" );
+
 			System.out.println( "=== Hinted bsearch ===");
 			HintedBsearchSelect hintedBsearchSelect = new HintedBsearchSelect( rank9 );
 			time = - System.currentTimeMillis();
-			for( int i = 0; i < numPos; i++ ) hintedBsearchSelect.select( selectPosition[ i ] );
+			for( int i = 0; i < numPos; i++ ) u += hintedBsearchSelect.select( selectPosition[ i ] );
 			time += System.currentTimeMillis();
 			System.err.println( time / 1000.0 + "s, " + ( time * 1E6 ) / numPos + " ns/select" );
 
 			System.out.println( "=== Select9 ===");
 			Select9 select9 = new Select9( rank9 );
 			time = - System.currentTimeMillis();
-			for( int i = 0; i < numPos; i++ ) select9.select( selectPosition[ i ] );
+			for( int i = 0; i < numPos; i++ ) u += select9.select( selectPosition[ i ] );
 			time += System.currentTimeMillis();
 			System.err.println( time / 1000.0 + "s, " + ( time * 1E6 ) / numPos + " ns/select" );
 
 			System.out.println( "=== Simple ===");
 			SimpleSelect simpleSelect = new SimpleSelect( bitVector );
 			time = - System.currentTimeMillis();
-			for( int i = 0; i < numPos; i++ ) simpleSelect.select( selectPosition[ i ] );
+			for( int i = 0; i < numPos; i++ ) u += simpleSelect.select( selectPosition[ i ] );
+			time += System.currentTimeMillis();
+			System.err.println( time / 1000.0 + "s, " + ( time * 1E6 ) / numPos + " ns/select" );
+
+			System.out.println( "=== Simple (batch) ===");
+			time = - System.currentTimeMillis();
+			simpleSelect.select( selectPosition, dest );
+			for( int i = 0; i < numPos; i++ ) u += dest[ i ];
+			time += System.currentTimeMillis();
+			System.err.println( time / 1000.0 + "s, " + ( time * 1E6 ) / numPos + " ns/select" );
+
+			System.out.println( "=== DArray ===");
+			DArraySelect dArraySelect = new DArraySelect( bitVector );
+			time = - System.currentTimeMillis();
+			for( int i = 0; i < numPos; i++ ) u += dArraySelect.select( selectPosition[ i ] );
+			time += System.currentTimeMillis();
+			System.err.println( time / 1000.0 + "s, " + ( time * 1E6 ) / numPos + " ns/select" );
+
+			System.out.println( "=== RRR rank ===");
+			RRRRankSelect rrr = new RRRRankSelect( bitVector );
+			time = - System.currentTimeMillis();
+			for( int i = 0; i < numPos; i++ ) u += rrr.rank( rankPosition[ i ] );
+			time += System.currentTimeMillis();
+			System.err.println( time / 1000.0 + "s, " + ( time * 1E6 ) / numPos + " ns/rank" );
+
+			System.out.println( "=== RRR select ===");
+			time = - System.currentTimeMillis();
+			for( int i = 0; i < numPos; i++ ) u += rrr.select( selectPosition[ i ] );
 			time += System.currentTimeMillis();
 			System.err.println( time / 1000.0 + "s, " + ( time * 1E6 ) / numPos + " ns/select" );
 
 			System.out.println( "=== Sparse ===");
 			SparseSelect sparseSelect = new SparseSelect( bitVector );
 			time = - System.currentTimeMillis();
-			for( int i = 0; i < numPos; i++ ) sparseSelect.select( selectPosition[ i ] );
+			for( int i = 0; i < numPos; i++ ) u += sparseSelect.select( selectPosition[ i ] );
 			time += System.currentTimeMillis();
 			System.err.println( time / 1000.0 + "s, " + ( time * 1E6 ) / numPos + " ns/select" );
 		}
+
+		if ( u == 0 ) System.out.println();
 	}
 }
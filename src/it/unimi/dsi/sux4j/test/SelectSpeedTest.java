@@ -2,6 +2,7 @@ package it.unimi.dsi.sux4j.test;
 
 import it.unimi.dsi.bits.LongArrayBitVector;
 import it.unimi.dsi.sux4j.bits.SimpleSelect;
+import it.unimi.dsi.sux4j.bits.SimpleSelectZero;
 import it.unimi.dsi.util.XorShift1024StarRandomGenerator;
 
 import org.apache.commons.math3.random.RandomGenerator;
@@ -18,7 +19,7 @@ public class SelectSpeedTest {
 
 	public static void main( final String[] arg ) throws JSAPException {
 
-		final SimpleJSAP jsap = new SimpleJSAP( SelectSpeedTest.class.getName(), "Tests the speed of rank/select implementations.",
+		final SimpleJSAP jsap = new SimpleJSAP( SelectSpeedTest.class.getName(), "Tests the speed of simple select implementations.",
 				new Parameter[] {
 					new UnflaggedOption( "numBits", JSAP.LONGSIZE_PARSER, "1Mi", JSAP.NOT_REQUIRED, JSAP.NOT_GREEDY, "The number of bits." ),
 					new UnflaggedOption( "density", JSAP.DOUBLE_PARSER, ".5", JSAP.NOT_REQUIRED, JSAP.NOT_GREEDY, "The density." ),
@@ -47,19 +48,28 @@ public class SelectSpeedTest {
 		
 		final long[] rankPosition = new long[ numPos ];
 		final long[] selectPosition = new long[ numPos ];
+		final long[] selectZeroPosition = new long[ numPos ];
 		
 		for( int i = numPos; i-- != 0; ) {
 			rankPosition[ i ] = ( random.nextLong() & 0x7FFFFFFFFFFFFFFFL ) % numBits;
 			selectPosition[ i ] = ( random.nextLong() & 0x7FFFFFFFFFFFFFFFL ) % c;
+			selectZeroPosition[ i ] = ( random.nextLong() & 0x7FFFFFFFFFFFFFFFL ) % ( numBits - c );
 		}
 
-		long time;
+		long time, u = 0;
 		SimpleSelect simpleSelect = new SimpleSelect( bitVector );
+		SimpleSelectZero simpleSelectZero = new SimpleSelectZero( bitVector );
 		for( int k = 1000; k-- != 0; ) {
 
 			System.out.println( "=== Simple ===");
 			time = - System.currentTimeMillis();
-			for( int i = 0; i < numPos; i++ ) simpleSelect.select( selectPosition[ i ] );
+			for( int i = 0; i < numPos; i++ ) u += simpleSelect.select( selectPosition[ i ] );
+			time += System.currentTimeMillis();
+			System.err.println( time / 1000.0 + "s, " + ( time * 1E6 ) / numPos + " ns/select" );
+
+			System.out.println( "=== Simple zero ===");
+			time = - System.currentTimeMillis();
+			for( int i = 0; i < numPos; i++ ) u += simpleSelectZero.selectZero( selectZeroPosition[ i ] );
 			time += System.currentTimeMillis();
 			System.err.println( time / 1000.0 + "s, " + ( time * 1E6 ) / numPos + " ns/select" );
 
@@ -70,5 +80,7 @@ public class SelectSpeedTest {
 			time += System.currentTimeMillis();
 	 		System.err.println( time / 1000.0 + "s, " + ( time * 1E6 ) / numPos + " ns/select" );*/
 		}
+
+		if ( u == 0 ) System.out.println();
 	}
 }
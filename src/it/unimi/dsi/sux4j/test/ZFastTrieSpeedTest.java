@@ -6,6 +6,7 @@ import it.unimi.dsi.bits.TransformationStrategy;
 import it.unimi.dsi.fastutil.io.BinIO;
 import it.unimi.dsi.io.FastBufferedReader;
 import it.unimi.dsi.io.LineIterator;
+import it.unimi.dsi.sux4j.util.ConcurrentZFastTrie;
 import it.unimi.dsi.sux4j.util.ZFastTrie;
 
 import java.io.FileInputStream;
@@ -15,6 +16,7 @@ import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.GZIPInputStream;
 
 import com.martiansoftware.jsap.FlaggedOption;
@@ -29,7 +31,68 @@ import com.martiansoftware.jsap.stringparsers.ForNameStringParser;
 
 public class ZFastTrieSpeedTest {
 
-	public static void main( final String[] arg ) throws NoSuchMethodException, IOException, JSAPException, ClassNotFoundException {
+	/** Looks up repeatedly the given elements using the given number of threads, possibly with a concurrent writer.
+	 *
+	 * @param zFastTrie a z-fast trie.
+	 * @param test the elements to look up.
+	 * @param times the number of repetitions.
+	 * @param threads the number of threads performing lookups.
+	 * @param writer whether to run a writer removing and adding back the elements of <code>test</code>.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static void test( final ZFastTrie zFastTrie, final Object[] test, final int times, final int threads, final boolean writer ) throws InterruptedException {
+		final int n = test.length;
+		final AtomicLong writes = new AtomicLong();
+		final Thread writerThread = writer ? new Thread() {
+			@Override
+			public void run() {
+				for( int j = 0; ! isInterrupted(); j = ( j + 1 ) % n ) {
+					zFastTrie.remove( test[ j ] );
+					zFastTrie.add( test[ j ] );
+					writes.addAndGet( 2 );
+				}
+			}
+		} : null;
+
+		System.out.println( "Testing..." );
+		if ( writer ) writerThread.start();
+
+		long u = 0;
+		for( int k = times; k-- != 0; ) {
+			final long[] found = new long[ threads ];
+			final Thread[] reader = new Thread[ threads ];
+			for( int t = threads; t-- != 0; ) {
+				final int offset = (int)( (long)t * n / threads );
+				final int index = t;
+				reader[ t ] = new Thread() {
+					@Override
+					public void run() {
+						long c = 0;
+						for( int j = n; j-- != 0; ) if ( zFastTrie.contains( test[ ( j + offset ) % n ] ) ) c++;
+						found[ index ] = c;
+					}
+				};
+			}
+
+			final long startWrites = writes.get();
+			long time = -System.nanoTime();
+			for( Thread t : reader ) t.start();
+			for( Thread t : reader ) t.join();
+			time += System.nanoTime();
+			for( long c : found ) u += c;
+
+			System.err.println( time / 1E9 + "s, " + (double)time / n + " ns/vector per thread, " + (double)time / ( (long)n * threads ) + " ns/vector overall" + ( writer ? ", " + (double)time / ( writes.get() - startWrites ) + " ns/write" : "" ) );
+		}
+
+		if ( writer ) {
+			writerThread.interrupt();
+			writerThread.join();
+		}
+
+		if ( u == 0 ) System.out.println();
+	}
+
+	public static void main( final String[] arg ) throws NoSuchMethodException, IOException, JSAPException, ClassNotFoundException, InterruptedException {
 
 		final SimpleJSAP jsap = new SimpleJSAP( ZFastTrieSpeedTest.class.getName(), "Tests the speed of a z-fast trie.",
 				new Parameter[] {
@@ -39,6 +102,8 @@ public class ZFastTrieSpeedTest {
 					new Switch( "zipped", 'z', "zipped", "The term list is compressed in gzip format." ),
 					new FlaggedOption( "n", JSAP.INTSIZE_PARSER, "100000", JSAP.NOT_REQUIRED, 'n', "n", "The number of elements to test." ),
 					new FlaggedOption( "times", JSAP.INTSIZE_PARSER, "10", JSAP.NOT_REQUIRED, 't', "times", "The number of times the set must be repeated." ),
+					new FlaggedOption( "threads", JSAP.INTSIZE_PARSER, "1", JSAP.NOT_REQUIRED, 'T', "threads", "The number of threads performing lookups (each thread looks up all elements)." ),
+					new Switch( "writer", 'w', "writer", "Run a concurrent writer that keeps removing and adding back the test elements (requires a concurrent z-fast trie)." ),
 					new UnflaggedOption( "trie", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The filename for the serialised z-fast trie." ),
 					new UnflaggedOption( "stringFile", JSAP.STRING_PARSER, "-", JSAP.NOT_REQUIRED, JSAP.NOT_GREEDY, "The name of a file containing a newline-separated list of strings, or - for standard input." ),
 		});
@@ -54,10 +119,13 @@ public class ZFastTrieSpeedTest {
 		final boolean bitVector = jsapResult.getBoolean( "bitVector" );
 		final int n = jsapResult.getInt( "n" );
 		final int times = jsapResult.getInt( "times" );
+		final int threads = jsapResult.getInt( "threads" );
+		final boolean writer = jsapResult.getBoolean( "writer" );
 		
 		System.out.println( "Loading trie..." );
 		@SuppressWarnings("rawtypes")
 		final ZFastTrie zFastTrie = (ZFastTrie)BinIO.loadObject( trieName );
+		if ( writer && ! ( zFastTrie instanceof ConcurrentZFastTrie ) ) throw new IllegalArgumentException( "A concurrent writer requires a concurrent z-fast trie" );
 		
 		final InputStream inputStream = "-".equals( stringFile ) ? System.in : new FileInputStream( stringFile );
 
@@ -78,18 +146,7 @@ public class ZFastTrieSpeedTest {
 			}
 			
 			Collections.shuffle( Arrays.asList( test ) );
-			System.out.println( "Testing..." );
-			for( int k = times; k-- != 0; ) {
-				long time = -System.currentTimeMillis();
-				for( int j = n; j-- != 0; ) {
-					zFastTrie.contains( test[ j ] );
-					if ( j % 10000 == 0 ) System.err.print('.');
-				}
-				System.err.println();
-				time += System.currentTimeMillis();
-				System.err.println( time / 1E3 + "s, " + ( time * 1E6 ) / n + " ns/vector" );
-				//System.err.println( "Probes: " + zFastTrie.map.probes + " Scans: " + zFastTrie.map.scans + " Average: " + (double)(zFastTrie.map.scans) / zFastTrie.map.probes );
-			}
+			test( zFastTrie, test, times, threads, writer );
 		}
 		else {
 			final String[] test = new String[ n ];
@@ -100,17 +157,7 @@ public class ZFastTrieSpeedTest {
 			}
 
 			Collections.shuffle( Arrays.asList( test ) );
-			System.out.println( "Testing..." );
-			for( int k = times; k-- != 0; ) {
-				long time = -System.currentTimeMillis();
-				for( int j = n; j-- != 0; ) {
-					zFastTrie.contains( test[ j ] );
-					if ( j % 10000 == 0 ) System.err.print('.');
-				}
-				System.err.println();
-				time += System.currentTimeMillis();
-				System.err.println( time / 1E3 + "s, " + ( time * 1E6 ) / n + " ns/vector" );
-			}
+			test( zFastTrie, test, times, threads, writer );
 		}
 	}
 }
@@ -0,0 +1,569 @@
+package it.unimi.dsi.sux4j.util;
+
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2016 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+import it.unimi.dsi.bits.BitVector;
+import it.unimi.dsi.bits.TransformationStrategy;
+import it.unimi.dsi.fastutil.objects.AbstractObjectBidirectionalIterator;
+import it.unimi.dsi.fastutil.objects.AbstractObjectSortedSet;
+import it.unimi.dsi.fastutil.objects.ObjectBidirectionalIterator;
+import it.unimi.dsi.fastutil.objects.ObjectSortedSet;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/** A {@linkplain ZFastTrie z-fast trie} supporting concurrent lookups and a single writer at a time.
+ *
+ * <p>Modifications ({@link #add(Object)} and {@link #remove(Object)}) are serialised on the monitor of the trie
+ * and are bracketed by two increments of a volatile version counter, which is thus odd exactly while a modification is in progress
+ * (this is the scheme known as <em>seqlock</em>).
+ * Lookups ({@link #contains(Object)}, {@link #pred(Object)}, {@link #succ(Object)}, {@link #first()}, {@link #last()}
+ * and iteration) do not lock: they read the version, perform the lookup on the shared structure and validate the result by checking that the version
+ * has not changed in the meanwhile. If it has, or if the lookup fails with an exception or an error because it met a half-built node or a hash table that was being
+ * resized, the lookup is retried (an exception or error is rethrown only if validation succeeds). After {@value #MAX_OPTIMISTIC_ATTEMPTS} failed attempts a lookup
+ * falls back to locking, so that readers cannot starve under a continuous stream of modifications.
+ *
+ * <p>An optimistic lookup terminates even on an inconsistent state, which is essential, as validation happens only at the end:
+ * <ul>
+ * <li>the fat binary search halves its check mask at each step until the mask selects all bits, after which each probe either
+ * shortens the search interval or ends the search, so the number of probes is bounded by the length of the key plus 64;
+ * <li>probing the handle table uses a mask computed from the length of the array being probed, which is never more than two-thirds full
+ * (if a rehash is in progress, the signature and node arrays might belong to different generations, which causes at most an exception);
+ * <li>{@linkplain ZFastTrie.Node#leftLeaf() leftmost} and {@linkplain ZFastTrie.Node#rightLeaf() rightmost} leaves are found following
+ * jump pointers, whose targets have strictly longer extents in a consistent trie: this condition is checked at each jump, and
+ * an {@link IllegalStateException} is thrown if it fails, so a cycle of jump pointers cannot be followed forever;
+ * <li>the remaining steps (successor and predecessor computations, iterator steps) follow a constant number of pointers, and no step is recursive.
+ * </ul>
+ *
+ * <p>Iterators are <em>weakly consistent</em>: they never throw {@link java.util.ConcurrentModificationException}, they return
+ * elements in increasing (or decreasing) order, and they reflect the state of the trie at some point after the previous
+ * step of the iteration. Iterating on a trie that is not being modified costs just as much as in a {@link ZFastTrie}; otherwise,
+ * each step after a modification requires a new successor search.
+ *
+ * <p>Range views ({@link #headSet(Object)}, {@link #subSet(Object, Object)}, {@link #tailSet(Object)} and {@link #prefixRange(BitVector)})
+ * cache their interval of leaves and their size, so they are not read optimistically: all their methods, and each step of their
+ * (weakly consistent) iterators, run while holding the monitor of the trie.
+ *
+ * <p>The increment opening a modification is an atomic read-modify-write, which acts as a full fence: a volatile write would
+ * only prevent the preceding accesses from being reordered after it, so the writes of the modification might become
+ * visible before the version is odd. The increment closing a modification is a volatile write, which is a release store
+ * and thus makes all writes of the modification visible before the version becomes even.
+ * Java 7 provides no explicit load fence, so validation uses a volatile write to a per-thread field to
+ * prevent the reads of the lookup from being reordered after the second read of the version.
+ *
+ * <p>Serialisation must not happen concurrently with modifications.
+ */
+
+public class ConcurrentZFastTrie<T> extends ZFastTrie<T> {
+	private static final long serialVersionUID = 1L;
+	/** The number of optimistic attempts after which a lookup will lock the trie. */
+	private static final int MAX_OPTIMISTIC_ATTEMPTS = 8;
+
+	/** A per-thread object whose volatile field is written to order reads before validation. */
+	private static final class Fence {
+		private volatile long value;
+	}
+
+	private static final ThreadLocal<Fence> FENCE = new ThreadLocal<Fence>() {
+		@Override
+		protected Fence initialValue() {
+			return new Fence();
+		}
+	};
+
+	/** The version of this trie: it is odd exactly when a modification is in progress. */
+	private transient volatile long version;
+	/** An updater for {@link #version}, used to open a modification with a full fence. */
+	@SuppressWarnings("rawtypes")
+	private static final AtomicLongFieldUpdater<ConcurrentZFastTrie> VERSION = AtomicLongFieldUpdater.newUpdater( ConcurrentZFastTrie.class, "version" );
+
+	/** Creates a new concurrent z-fast trie using the given transformation strategy.
+	 *
+	 * @param transform a transformation strategy that must turn distinct elements into distinct, prefix-free bit vectors.
+	 */
+	public ConcurrentZFastTrie( final TransformationStrategy<? super T> transform ) {
+		super( transform );
+	}
+
+	/** Creates a new concurrent z-fast trie using the given elements and transformation strategy.
+	 *
+	 * @param elements an iterator returning the elements to be inserted in the trie.
+	 * @param transform a transformation strategy that must turn distinct elements into distinct, prefix-free bit vectors.
+	 */
+	public ConcurrentZFastTrie( final Iterator<? extends T> elements, final TransformationStrategy<? super T> transform ) {
+		super( elements, transform );
+	}
+
+	/** Creates a new concurrent z-fast trie using the given elements and transformation strategy.
+	 *
+	 * @param elements an iterator returning the elements to be inserted in the trie.
+	 * @param transform a transformation strategy that must turn distinct elements into distinct, prefix-free bit vectors.
+	 */
+	public ConcurrentZFastTrie( final Iterable<? extends T> elements, final TransformationStrategy<? super T> transform ) {
+		this( elements.iterator(), transform );
+	}
+
+	/** Creates a new concurrent z-fast trie using the given elements and transformation strategy, possibly
+	 * using a bulk-loading algorithm.
+	 *
+	 * @param elements an iterator returning the elements to be inserted in the trie.
+	 * @param transform a transformation strategy that must turn distinct elements into distinct, prefix-free bit vectors.
+	 * @param sorted whether <code>elements</code> returns elements in increasing order.
+	 * @see ZFastTrie#ZFastTrie(Iterator, TransformationStrategy, boolean)
+	 */
+	public ConcurrentZFastTrie( final Iterator<? extends T> elements, final TransformationStrategy<? super T> transform, final boolean sorted ) {
+		super( elements, transform, sorted );
+	}
+
+	/** Returns true if no modification happened since the given version was read.
+	 *
+	 * @param stamp a version read before an optimistic lookup.
+	 * @return true if the lookup saw a consistent state.
+	 */
+	private boolean validate( final long stamp ) {
+		// Reads cannot be moved after a volatile write, which cannot be moved after a volatile read
+		FENCE.get().value = stamp;
+		return version == stamp;
+	}
+
+	@Override
+	public synchronized boolean add( final T k ) {
+		// Writes of the modification cannot be moved before an atomic increment
+		VERSION.incrementAndGet( this );
+		try {
+			return super.add( k );
+		}
+		finally {
+			version++;
+		}
+	}
+
+	@Override
+	public synchronized boolean remove( final Object k ) {
+		// Writes of the modification cannot be moved before an atomic increment
+		VERSION.incrementAndGet( this );
+		try {
+			return super.remove( k );
+		}
+		finally {
+			version++;
+		}
+	}
+
+	@Override
+	public boolean contains( final Object o ) {
+		for( int attempt = 0; attempt < MAX_OPTIMISTIC_ATTEMPTS; attempt++ ) {
+			final long stamp = version;
+			if ( ( stamp & 1 ) != 0 ) {
+				Thread.yield();
+				continue;
+			}
+			try {
+				final boolean result = super.contains( o );
+				if ( validate( stamp ) ) return result;
+			}
+			catch( RuntimeException | Error e ) {
+				// The exception (or error, e.g., a stack overflow) is genuine only if no modification happened
+				if ( validate( stamp ) ) throw e;
+			}
+		}
+
+		synchronized( this ) {
+			return super.contains( o );
+		}
+	}
+
+	@Override
+	public T pred( final Object o ) {
+		for( int attempt = 0; attempt < MAX_OPTIMISTIC_ATTEMPTS; attempt++ ) {
+			final long stamp = version;
+			if ( ( stamp & 1 ) != 0 ) {
+				Thread.yield();
+				continue;
+			}
+			try {
+				final T result = super.pred( o );
+				if ( validate( stamp ) ) return result;
+			}
+			catch( RuntimeException | Error e ) {
+				if ( validate( stamp ) ) throw e;
+			}
+		}
+
+		synchronized( this ) {
+			return super.pred( o );
+		}
+	}
+
+	@Override
+	public T succ( final Object o ) {
+		for( int attempt = 0; attempt < MAX_OPTIMISTIC_ATTEMPTS; attempt++ ) {
+			final long stamp = version;
+			if ( ( stamp & 1 ) != 0 ) {
+				Thread.yield();
+				continue;
+			}
+			try {
+				final T result = super.succ( o );
+				if ( validate( stamp ) ) return result;
+			}
+			catch( RuntimeException | Error e ) {
+				if ( validate( stamp ) ) throw e;
+			}
+		}
+
+		synchronized( this ) {
+			return super.succ( o );
+		}
+	}
+
+	@Override
+	public T first() {
+		for( int attempt = 0; attempt < MAX_OPTIMISTIC_ATTEMPTS; attempt++ ) {
+			final long stamp = version;
+			if ( ( stamp & 1 ) != 0 ) {
+				Thread.yield();
+				continue;
+			}
+			try {
+				final T result = super.first();
+				if ( validate( stamp ) ) return result;
+			}
+			catch( RuntimeException | Error e ) {
+				if ( validate( stamp ) ) throw e;
+			}
+		}
+
+		synchronized( this ) {
+			return super.first();
+		}
+	}
+
+	@Override
+	public T last() {
+		for( int attempt = 0; attempt < MAX_OPTIMISTIC_ATTEMPTS; attempt++ ) {
+			final long stamp = version;
+			if ( ( stamp & 1 ) != 0 ) {
+				Thread.yield();
+				continue;
+			}
+			try {
+				final T result = super.last();
+				if ( validate( stamp ) ) return result;
+			}
+			catch( RuntimeException | Error e ) {
+				if ( validate( stamp ) ) throw e;
+			}
+		}
+
+		synchronized( this ) {
+			return super.last();
+		}
+	}
+
+	@Override
+	public ObjectBidirectionalIterator<T> iterator() {
+		return new ConcurrentIterator( null, null );
+	}
+
+	@Override
+	public ObjectBidirectionalIterator<T> iterator( final T from ) {
+		return new ConcurrentIterator( from, null );
+	}
+
+	/** Returns a view of the elements of this trie smaller than a given element.
+	 *
+	 * <p>The view is {@linkplain ConcurrentRange synchronised} on this trie, and its iterators are weakly consistent.
+	 *
+	 * @param to the upper bound (exclusive) of the view.
+	 * @return a view of the elements of this trie smaller than <code>to</code>.
+	 */
+	@Override
+	public ObjectSortedSet<T> headSet( final T to ) {
+		synchronized( this ) {
+			return new ConcurrentRange( super.headSet( to ) );
+		}
+	}
+
+	/** Returns a view of the elements of this trie greater than or equal to a given element and smaller than another one.
+	 *
+	 * <p>The view is {@linkplain ConcurrentRange synchronised} on this trie, and its iterators are weakly consistent.
+	 *
+	 * @param from the lower bound (inclusive) of the view.
+	 * @param to the upper bound (exclusive) of the view.
+	 * @return a view of the elements of this trie greater than or equal to <code>from</code> and smaller than <code>to</code>.
+	 */
+	@Override
+	public ObjectSortedSet<T> subSet( final T from, final T to ) {
+		synchronized( this ) {
+			return new ConcurrentRange( super.subSet( from, to ) );
+		}
+	}
+
+	/** Returns a view of the elements of this trie greater than or equal to a given element.
+	 *
+	 * <p>The view is {@linkplain ConcurrentRange synchronised} on this trie, and its iterators are weakly consistent.
+	 *
+	 * @param from the lower bound (inclusive) of the view.
+	 * @return a view of the elements of this trie greater than or equal to <code>from</code>.
+	 */
+	@Override
+	public ObjectSortedSet<T> tailSet( final T from ) {
+		synchronized( this ) {
+			return new ConcurrentRange( super.tailSet( from ) );
+		}
+	}
+
+	/** Returns a view of the elements of this trie whose transformed representation has a given prefix.
+	 *
+	 * <p>The view is {@linkplain ConcurrentRange synchronised} on this trie, and its iterators are weakly consistent.
+	 *
+	 * @param prefix a bit vector.
+	 * @return a view of the elements of this trie whose transformed representation has <code>prefix</code> as a prefix.
+	 */
+	@Override
+	public ObjectSortedSet<T> prefixRange( final BitVector prefix ) {
+		synchronized( this ) {
+			return new ConcurrentRange( super.prefixRange( prefix ) );
+		}
+	}
+
+	/** A range view synchronised on the trie.
+	 *
+	 * <p>The views of a {@link ZFastTrie} cache their interval of leaves and their size, so they cannot be read optimistically:
+	 * all methods of this class delegate to a view of the underlying trie while holding the monitor of the trie.
+	 * Iterators are {@linkplain ConcurrentIterator weakly consistent}, but each step locks the trie, and a step following
+	 * a modification repositions the iterator by a successor search within the view.
+	 */
+	private final class ConcurrentRange extends AbstractObjectSortedSet<T> {
+		/** The view of the underlying trie. */
+		private final ObjectSortedSet<T> range;
+
+		private ConcurrentRange( final ObjectSortedSet<T> range ) {
+			this.range = range;
+		}
+
+		@Override
+		public ObjectBidirectionalIterator<T> iterator() {
+			return new ConcurrentIterator( null, range );
+		}
+
+		@Override
+		public ObjectBidirectionalIterator<T> iterator( final T from ) {
+			return new ConcurrentIterator( from, range );
+		}
+
+		@Override
+		public int size() {
+			synchronized( ConcurrentZFastTrie.this ) {
+				return range.size();
+			}
+		}
+
+		@Override
+		public boolean isEmpty() {
+			synchronized( ConcurrentZFastTrie.this ) {
+				return range.isEmpty();
+			}
+		}
+
+		@Override
+		public boolean contains( final Object o ) {
+			synchronized( ConcurrentZFastTrie.this ) {
+				return range.contains( o );
+			}
+		}
+
+		@Override
+		public boolean add( final T k ) {
+			synchronized( ConcurrentZFastTrie.this ) {
+				return range.add( k );
+			}
+		}
+
+		@Override
+		public boolean remove( final Object o ) {
+			synchronized( ConcurrentZFastTrie.this ) {
+				return range.remove( o );
+			}
+		}
+
+		@Override
+		public Comparator<? super T> comparator() {
+			return null;
+		}
+
+		@Override
+		public T first() {
+			synchronized( ConcurrentZFastTrie.this ) {
+				return range.first();
+			}
+		}
+
+		@Override
+		public T last() {
+			synchronized( ConcurrentZFastTrie.this ) {
+				return range.last();
+			}
+		}
+
+		@Override
+		public ObjectSortedSet<T> headSet( final T to ) {
+			synchronized( ConcurrentZFastTrie.this ) {
+				return new ConcurrentRange( range.headSet( to ) );
+			}
+		}
+
+		@Override
+		public ObjectSortedSet<T> subSet( final T from, final T to ) {
+			synchronized( ConcurrentZFastTrie.this ) {
+				return new ConcurrentRange( range.subSet( from, to ) );
+			}
+		}
+
+		@Override
+		public ObjectSortedSet<T> tailSet( final T from ) {
+			synchronized( ConcurrentZFastTrie.this ) {
+				return new ConcurrentRange( range.tailSet( from ) );
+			}
+		}
+	}
+
+	/** A weakly consistent iterator.
+	 *
+	 * <p>The logical position of the iterator is given by a {@linkplain #bound bound} and
+	 * by {@link #afterBound}, which says whether the iterator is just before or just after the bound (if the bound
+	 * is {@code null}, the iterator is before all elements). An iterator of the underlying trie is
+	 * kept at the logical position as long as its {@linkplain #stamp version} is current: in that case,
+	 * a step of iteration just moves it; otherwise, it is repositioned by a successor search starting from the bound.
+	 *
+	 * <p>If the iterator belongs to a {@linkplain ConcurrentRange range view}, the underlying iterator is an iterator of the view,
+	 * and steps are always performed while holding the monitor of the trie.
+	 */
+	private final class ConcurrentIterator extends AbstractObjectBidirectionalIterator<T> {
+		/** The bound defining the logical position of this iterator, or {@code null} for the start of the trie. */
+		private T bound;
+		/** Whether the logical position is just after {@link #bound} (as opposed to just before it). */
+		private boolean afterBound;
+		/** An iterator of the underlying trie, valid only if {@link #stamp} is the current version. */
+		private ObjectBidirectionalIterator<T> i;
+		/** The version at which {@link #i} was last known to be consistent; an odd value means that {@link #i} is invalid. */
+		private long stamp = 1;
+		/** The next element, if it has already been computed by {@link #hasNext()}, or {@code null}. */
+		private T next;
+		/** The previous element, if it has already been computed by {@link #hasPrevious()}, or {@code null}. */
+		private T prev;
+		/** The view of the underlying trie this iterator belongs to, or {@code null} if it iterates on the whole trie. */
+		private final ObjectSortedSet<T> range;
+
+		private ConcurrentIterator( final T from, final ObjectSortedSet<T> range ) {
+			bound = from;
+			this.range = range;
+		}
+
+		/** Positions {@link #i} at the logical position of this iterator. */
+		private void reposition() {
+			if ( bound == null ) i = range == null ? ConcurrentZFastTrie.super.iterator() : range.iterator();
+			else {
+				i = range == null ? ConcurrentZFastTrie.super.iterator( bound ) : range.iterator( bound );
+				// The underlying iterator is now just before the smallest element greater than or equal to the bound
+				if ( afterBound && i.hasNext() && ! i.next().equals( bound ) ) i.previous();
+			}
+		}
+
+		/** Moves {@link #i} by one step, repositioning it if necessary.
+		 *
+		 * @param forward the direction of the step.
+		 * @return the element that has been traversed, or {@code null} if there is no element in the given direction.
+		 */
+		private T step( final boolean forward ) {
+			if ( range == null ) for( int attempt = 0; attempt < MAX_OPTIMISTIC_ATTEMPTS; attempt++ ) {
+				final long stamp = version;
+				if ( ( stamp & 1 ) != 0 ) {
+					Thread.yield();
+					continue;
+				}
+				try {
+					if ( stamp != this.stamp ) reposition();
+					final T result = forward ? ( i.hasNext() ? i.next() : null ) : ( i.hasPrevious() ? i.previous() : null );
+					if ( validate( stamp ) ) {
+						this.stamp = stamp;
+						return result;
+					}
+				}
+				catch( RuntimeException | Error e ) {
+					if ( validate( stamp ) ) throw e;
+				}
+				this.stamp = 1;
+			}
+
+			synchronized( ConcurrentZFastTrie.this ) {
+				if ( version != this.stamp ) reposition();
+				this.stamp = version;
+				return forward ? ( i.hasNext() ? i.next() : null ) : ( i.hasPrevious() ? i.previous() : null );
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if ( next != null ) return true;
+			if ( prev != null ) {
+				// The underlying iterator is before the logical position
+				prev = null;
+				stamp = 1;
+			}
+			next = step( true );
+			return next != null;
+		}
+
+		@Override
+		public T next() {
+			if ( ! hasNext() ) throw new NoSuchElementException();
+			bound = next;
+			afterBound = true;
+			next = null;
+			return bound;
+		}
+
+		@Override
+		public boolean hasPrevious() {
+			if ( prev != null ) return true;
+			if ( next != null ) {
+				// The underlying iterator is after the logical position
+				next = null;
+				stamp = 1;
+			}
+			prev = step( false );
+			return prev != null;
+		}
+
+		@Override
+		public T previous() {
+			if ( ! hasPrevious() ) throw new NoSuchElementException();
+			bound = prev;
+			afterBound = false;
+			prev = null;
+			return bound;
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package it.unimi.dsi.sux4j.util;
+
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2016 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+import it.unimi.dsi.fastutil.ints.IntIterable;
+import it.unimi.dsi.fastutil.longs.LongIterable;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.sux4j.bits.SimpleSelectZero;
+
+/** An extension of {@link EliasFanoMonotoneLongBigList} providing fast successor queries and skipping iterators.
+ *
+ * <p>Besides the structures of an {@link EliasFanoMonotoneLongBigList}, instances of this class
+ * index the <em>zeroes</em> of the upper-bits array using a {@link SimpleSelectZero}: since the number of
+ * zeroes preceding the bit associated with an element is exactly its upper bits, the first element
+ * greater than or equal to a given bound can be found with a single zero selection, followed by a short scan. This makes it possible to
+ * implement {@link #successor(long)} and {@link #successorIndex(long)}, and to provide
+ * {@linkplain SkippingIterator iterators} that {@linkplain SkippingIterator#skipTo(long) skip} to a given bound, as it is
+ * necessary, for instance, when intersecting posting lists.
+ *
+ * <p>{@linkplain SkippingIterator Skipping iterators} return elements by scanning the upper-bits array a word at a time, 
+ * as {@linkplain EliasFanoMonotoneLongBigList.EliasFanoMonotoneLongBigListIterator standard iterators} do, and thus they do not perform any selection
+ * unless they are skipping.
+ *
+ * <p>The additional space is that of a {@link SimpleSelectZero} structure on the upper-bits array.
+ */
+
+public class EliasFanoIndexedMonotoneLongBigList extends EliasFanoMonotoneLongBigList {
+	private static final long serialVersionUID = 0L;
+
+	/** The select-zero structure on the upper-bits array. */
+	protected final SimpleSelectZero selectUpperZero;
+	/** The number of zeroes in the upper-bits array. */
+	protected final long numZeroes;
+
+	/** Creates an indexed Elias&ndash;Fano representation of the values returned by the given {@linkplain Iterable iterable object}.
+	 *
+	 * @param list an iterable object.
+	 */
+	public EliasFanoIndexedMonotoneLongBigList( final IntIterable list ) {
+		super( list );
+		selectUpperZero = new SimpleSelectZero( selectUpper.bitVector() );
+		numZeroes = selectUpper.bitVector().length() - length;
+	}
+
+	/** Creates an indexed Elias&ndash;Fano representation of the values returned by the given {@linkplain Iterable iterable object}.
+	 *
+	 * @param list an iterable object.
+	 */
+	public EliasFanoIndexedMonotoneLongBigList( final LongIterable list ) {
+		super( list );
+		selectUpperZero = new SimpleSelectZero( selectUpper.bitVector() );
+		numZeroes = selectUpper.bitVector().length() - length;
+	}
+
+	/** Creates an indexed Elias&ndash;Fano representation of the values returned by an iterator, given that
+	 * the overall number of elements and an upper bound are provided, too.
+	 *
+	 * @param n the number of elements returned by <code>iterator</code>.
+	 * @param upperBound an upper bound to the values returned by <code>iterator</code>.
+	 * @param iterator an iterator returning nondecreasing elements.
+	 */
+	public EliasFanoIndexedMonotoneLongBigList( final long n, final long upperBound, final LongIterator iterator ) {
+		super( n, upperBound, iterator );
+		selectUpperZero = new SimpleSelectZero( selectUpper.bitVector() );
+		numZeroes = selectUpper.bitVector().length() - length;
+	}
+
+	/** Returns the lower bits of the element of given index.
+	 *
+	 * @param index an index.
+	 * @return the lower bits of the element of index {@code index}.
+	 */
+	private long lowerBits( final long index ) {
+		final int l = this.l;
+		if ( l == 0 ) return 0;
+		final long position = index * l;
+		final int startWord = (int)( position / Long.SIZE );
+		final int startBit = (int)( position % Long.SIZE );
+		final long result = lowerBits[ startWord ] >>> startBit;
+		return ( startBit + l <= Long.SIZE ? result : result | lowerBits[ startWord + 1 ] << -startBit ) & lowerBitsMask;
+	}
+
+	/** Returns the index of the first element greater than or equal to a given bound.
+	 *
+	 * @param lowerBound a lower bound.
+	 * @return the index of the first element greater than or equal to {@code lowerBound}, or the {@linkplain #size64() length}
+	 * of this list if all elements are smaller than {@code lowerBound}.
+	 */
+	public long successorIndex( final long lowerBound ) {
+		if ( lowerBound <= 0 ) return 0;
+		final long zeroes = lowerBound >>> l;
+		if ( zeroes >= numZeroes ) return length;
+		final long[] upperBits = upperBitsArray;
+		// The position after the zero preceding all elements whose upper bits are equal to those of the bound
+		long position = zeroes == 0 ? 0 : selectUpperZero.selectZero( zeroes - 1 ) + 1;
+		long index = position - zeroes;
+		final long lowerBitsLowerBound = lowerBound & lowerBitsMask;
+		while( ( upperBits[ (int)( position >>> 6 ) ] & 1L << position ) != 0 && lowerBits( index ) < lowerBitsLowerBound ) {
+			position++;
+			index++;
+		}
+		return index;
+	}
+
+	/** Returns the first element greater than or equal to a given bound.
+	 *
+	 * @param lowerBound a lower bound.
+	 * @return the first element greater than or equal to {@code lowerBound}, or {@link Long#MAX_VALUE} if all
+	 * elements are smaller than {@code lowerBound}.
+	 */
+	public long successor( final long lowerBound ) {
+		final long index = successorIndex( lowerBound );
+		return index == length ? Long.MAX_VALUE : getLong( index );
+	}
+
+	/** Returns a skipping iterator over this list.
+	 *
+	 * @return a skipping iterator over this list.
+	 */
+	public SkippingIterator skippingIterator() {
+		return new SkippingIterator( 0 );
+	}
+
+	/** Returns a skipping iterator over this list starting from a given index.
+	 *
+	 * @param from the index of the first element that will be returned.
+	 * @return a skipping iterator over this list starting from {@code from}.
+	 */
+	public SkippingIterator skippingIterator( final long from ) {
+		return new SkippingIterator( from );
+	}
+
+	/** A list iterator over an {@link EliasFanoIndexedMonotoneLongBigList} that can {@linkplain #skipTo(long) skip} to
+	 * the first element greater than or equal to a given bound.
+	 *
+	 * <p>Sequential steps scan the upper-bits array a word at a time, whereas skips use {@link EliasFanoIndexedMonotoneLongBigList#selectUpperZero}
+	 * to jump directly to the first element with the right upper bits.
+	 */
+	public final class SkippingIterator extends EliasFanoMonotoneLongBigListIterator {
+		private SkippingIterator( final long from ) {
+			super( from );
+		}
+
+		/** Returns the first element greater than or equal to a given bound among those not yet returned, and moves this iterator past it.
+		 *
+		 * <p>After this call, the index of the returned element is {@link #nextIndex()} &minus; 1.
+		 *
+		 * @param lowerBound a lower bound.
+		 * @return the first element greater than or equal to {@code lowerBound} among those not yet returned, or {@link Long#MAX_VALUE} if there is
+		 * no such element (in which case this iterator will be exhausted).
+		 */
+		public long skipTo( final long lowerBound ) {
+			if ( index >= length ) return Long.MAX_VALUE;
+			if ( lowerBound > 0 ) {
+				final long zeroes = lowerBound >>> l;
+				if ( zeroes >= numZeroes ) {
+					index = length;
+					return Long.MAX_VALUE;
+				}
+				while( window == 0 ) window = upperBitsArray[ ++word ];
+				// If the upper bits of the next element are smaller than those of the bound, we jump.
+				if ( ( (long)word << 6 | Long.numberOfTrailingZeros( window ) ) - index < zeroes ) {
+					final long position = selectUpperZero.selectZero( zeroes - 1 ) + 1;
+					moveTo( position - zeroes, position );
+				}
+			}
+
+			while( index < length ) {
+				final long result = nextLong();
+				if ( result >= lowerBound ) return result;
+			}
+			return Long.MAX_VALUE;
+		}
+	}
+
+	public long numBits() {
+		return super.numBits() + selectUpperZero.numBits();
+	}
+}
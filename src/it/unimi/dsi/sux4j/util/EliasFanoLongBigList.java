@@ -29,7 +29,9 @@ import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.io.BinIO;
 import it.unimi.dsi.fastutil.io.FastBufferedOutputStream;
 import it.unimi.dsi.fastutil.longs.AbstractLongBigList;
+import it.unimi.dsi.fastutil.longs.AbstractLongBigListIterator;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongBigListIterator;
 import it.unimi.dsi.fastutil.longs.LongIterable;
 import it.unimi.dsi.fastutil.longs.LongIterator;
 import it.unimi.dsi.fastutil.longs.LongIterators;
@@ -42,6 +44,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /** A compressed big list of longs; each element occupies a number of bits bounded by one plus its bit length plus the logarithm of the average bit length of an element.
  * 
@@ -290,6 +293,78 @@ public class EliasFanoLongBigList extends AbstractLongBigList implements Seriali
 	public long size64() {
 		return length;
 	}
+
+	/** A list iterator over an {@link EliasFanoLongBigList}.
+	 * 
+	 * <p>Instances of this class scan the borders using an {@linkplain EliasFanoMonotoneLongBigList.EliasFanoMonotoneLongBigListIterator iterator},
+	 * and extract the bits of each element directly from the underlying array, so no selection is performed
+	 * except at creation time and by {@link #previousLong()}.
+	 */
+	private final class EliasFanoLongBigListIterator extends AbstractLongBigListIterator {
+		/** The array of longs underlying {@link EliasFanoLongBigList#bits}. */
+		private final long[] bits = EliasFanoLongBigList.this.bits.bits();
+		/** An iterator on the borders returning the end of the next element. */
+		private LongBigListIterator bordersIterator;
+		/** The index of the next element to be returned. */
+		private long index;
+		/** The start of the next element in {@link #bits}. */
+		private long from;
+
+		private EliasFanoLongBigListIterator( final long index ) {
+			moveTo( index );
+		}
+
+		private void moveTo( final long index ) {
+			this.index = index;
+			bordersIterator = borders.listIterator( index );
+			from = bordersIterator.nextLong();
+		}
+
+		public boolean hasNext() {
+			return index < length;
+		}
+
+		public boolean hasPrevious() {
+			return index > 0;
+		}
+
+		public long nextIndex() {
+			return index;
+		}
+
+		public long previousIndex() {
+			return index - 1;
+		}
+
+		public long nextLong() {
+			if ( ! hasNext() ) throw new NoSuchElementException();
+			final long to = bordersIterator.nextLong();
+			final int width = (int)( to - from );
+			long result = 0;
+			if ( width != 0 ) {
+				final int startWord = (int)( from >>> LongArrayBitVector.LOG2_BITS_PER_WORD );
+				final int startBit = (int)( from & LongArrayBitVector.WORD_MASK );
+				result = bits[ startWord ] >>> startBit;
+				if ( startBit + width > Long.SIZE ) result |= bits[ startWord + 1 ] << -startBit;
+				result &= ( 1L << width ) - 1;
+			}
+			from = to;
+			index++;
+			return ( 1L << width | result ) - offset;
+		}
+
+		public long previousLong() {
+			if ( ! hasPrevious() ) throw new NoSuchElementException();
+			moveTo( index - 1 );
+			return getLong( index );
+		}
+	}
+
+	@Override
+	public LongBigListIterator listIterator( final long index ) {
+		if ( index < 0 || index > length ) throw new IndexOutOfBoundsException( "Index: " + index + ", length: " + length );
+		return new EliasFanoLongBigListIterator( index );
+	}
 	
 	public long numBits() {
 		return borders.numBits() + bits.length();
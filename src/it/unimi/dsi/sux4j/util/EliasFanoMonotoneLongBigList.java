@@ -28,6 +28,7 @@ import it.unimi.dsi.fastutil.bytes.ByteIterator;
 import it.unimi.dsi.fastutil.ints.IntIterable;
 import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.longs.AbstractLongBigList;
+import it.unimi.dsi.fastutil.longs.AbstractLongBigListIterator;
 import it.unimi.dsi.fastutil.longs.LongBigList;
 import it.unimi.dsi.fastutil.longs.LongIterable;
 import it.unimi.dsi.fastutil.longs.LongIterator;
@@ -36,7 +37,10 @@ import it.unimi.dsi.fastutil.shorts.ShortIterable;
 import it.unimi.dsi.fastutil.shorts.ShortIterator;
 import it.unimi.dsi.sux4j.bits.SimpleSelect;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.NoSuchElementException;
 
 /** An implementation of Elias&ndash;Fano's representation of monotone sequences; an element occupies a number of bits bounded by two plus the logarithm of the average gap.
  * 
@@ -46,7 +50,8 @@ import java.io.Serializable;
  * values (see below), and at the end of the construction the iterator will be exhausted. 
  *  
  * <p>An additional {@linkplain #get(long, long[], int, int) bulk method} makes it possible
- * to extract several consecutive entries at high speed.
+ * to extract several consecutive entries at high speed, and {@linkplain #listIterator(long) iterators}
+ * decode elements sequentially without performing any selection.
  *
  * <h2>Implementation details</h2>
  * 
@@ -74,7 +79,8 @@ import java.io.Serializable;
  * 
  * <p>This implementation uses {@link SimpleSelect} to support selection inside the upper-bits array, and
  * exploits {@link SimpleSelect#select(long, long[], int, int)} to implement
- * {@link #get(long, long[], int, int)}.
+ * {@link #get(long, long[], int, int)}. {@linkplain EliasFanoMonotoneLongBigListIterator Iterators}, instead, scan the upper-bits
+ * array a word at a time, and keep track of the current position in the lower-bits array.
  */
 
 public class EliasFanoMonotoneLongBigList extends AbstractLongBigList implements Serializable {
@@ -90,6 +96,8 @@ public class EliasFanoMonotoneLongBigList extends AbstractLongBigList implements
 	protected final SimpleSelect selectUpper;
 	/** The mask for the lower bits. */
 	protected final long lowerBitsMask;
+	/** The cached result of {@link BitVector#bits() selectUpper.bitVector().bits()}. */
+	protected transient long[] upperBitsArray;
 	
 	protected EliasFanoMonotoneLongBigList( final long length, final int l, final long[] lowerBits, final SimpleSelect selectUpper ) {
 		this.length = length;
@@ -97,6 +105,7 @@ public class EliasFanoMonotoneLongBigList extends AbstractLongBigList implements
 		this.lowerBits = lowerBits;
 		this.selectUpper = selectUpper;
 		this.lowerBitsMask = ( 1L << l ) - 1;
+		this.upperBitsArray = selectUpper.bitVector().bits();
 	}
 
 	/** Creates an Elias&ndash;Fano representation of the values returned by the given {@linkplain Iterable iterable object}.
@@ -258,6 +267,12 @@ public class EliasFanoMonotoneLongBigList extends AbstractLongBigList implements
 		if ( iterator.hasNext() ) throw new IllegalArgumentException( "There are more than " + length + " values in the provided iterator" );
 		this.lowerBits = lowerBitsVector.bits();
 		selectUpper = new SimpleSelect( upperBits );
+		upperBitsArray = upperBits.bits();
+	}
+
+	private void readObject( final ObjectInputStream s ) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		upperBitsArray = selectUpper.bitVector().bits();
 	}
 	
 	
@@ -320,4 +335,104 @@ public class EliasFanoMonotoneLongBigList extends AbstractLongBigList implements
 	public long size64() {
 		return length;
 	}
+
+	/** A list iterator over an {@link EliasFanoMonotoneLongBigList}.
+	 * 
+	 * <p>Instances of this class perform a selection only at creation time: then, they
+	 * decode the upper bits by scanning the upper-bits array a word at a time, and keep track of the position
+	 * of the lower bits of the next element. {@link #previousLong()} is not optimised, and requires two selections.
+	 */
+	public class EliasFanoMonotoneLongBigListIterator extends AbstractLongBigListIterator {
+		/** The index of the next element to be returned. */
+		protected long index;
+		/** The index of the word of {@link EliasFanoMonotoneLongBigList#upperBitsArray} containing the upper bits of the next element. */
+		protected int word;
+		/** The content of the word of index {@link #word}, with the bits preceding the upper bits of the next element cleared. */
+		protected long window;
+		/** The bit position in {@link EliasFanoMonotoneLongBigList#lowerBits} of the lower bits of the next element. */
+		protected long lowerBitsPosition;
+
+		protected EliasFanoMonotoneLongBigListIterator( final long from ) {
+			if ( from < 0 || from > length ) throw new IndexOutOfBoundsException( "Index: " + from + ", length: " + length );
+			moveTo( from );
+		}
+
+		/** Moves this iterator so that the next element returned will be that of given index.
+		 * 
+		 * @param index the index of the next element.
+		 */
+		protected void moveTo( final long index ) {
+			if ( index < length ) moveTo( index, selectUpper.select( index ) );
+			else this.index = index;
+		}
+
+		/** Moves this iterator so that the next element returned will be that of given index, given a hint about
+		 * the position of its upper bits.
+		 * 
+		 * @param index the index of the next element.
+		 * @param position a position in the upper-bits array not after that of the upper bits of the element of index {@code index},
+		 * and after that of all preceding elements.
+		 */
+		protected void moveTo( final long index, final long position ) {
+			this.index = index;
+			word = (int)( position >>> 6 );
+			window = upperBitsArray[ word ] & -1L << position;
+			lowerBitsPosition = index * l;
+		}
+
+		public boolean hasNext() {
+			return index < length;
+		}
+
+		public boolean hasPrevious() {
+			return index > 0;
+		}
+
+		public long nextIndex() {
+			return index;
+		}
+
+		public long previousIndex() {
+			return index - 1;
+		}
+
+		public long nextLong() {
+			if ( ! hasNext() ) throw new NoSuchElementException();
+			final long[] upperBitsArray = EliasFanoMonotoneLongBigList.this.upperBitsArray;
+			while( window == 0 ) window = upperBitsArray[ ++word ];
+			final long upperBits = ( (long)word << 6 | Long.numberOfTrailingZeros( window ) ) - index++;
+			window &= window - 1;
+			final int l = EliasFanoMonotoneLongBigList.this.l;
+			if ( l == 0 ) return upperBits;
+
+			final int startWord = (int)( lowerBitsPosition / Long.SIZE );
+			final int startBit = (int)( lowerBitsPosition % Long.SIZE );
+			final long result = lowerBits[ startWord ] >>> startBit;
+			lowerBitsPosition += l;
+			return upperBits << l | ( startBit + l <= Long.SIZE ? result : result | lowerBits[ startWord + 1 ] << -startBit ) & lowerBitsMask;
+		}
+
+		public long previousLong() {
+			if ( ! hasPrevious() ) throw new NoSuchElementException();
+			moveTo( index - 1 );
+			final long result = nextLong();
+			moveTo( index - 1 );
+			return result;
+		}
+	}
+
+	@Override
+	public EliasFanoMonotoneLongBigListIterator listIterator( final long from ) {
+		return new EliasFanoMonotoneLongBigListIterator( from );
+	}
+
+	@Override
+	public EliasFanoMonotoneLongBigListIterator listIterator() {
+		return listIterator( 0L );
+	}
+
+	@Override
+	public EliasFanoMonotoneLongBigListIterator iterator() {
+		return listIterator( 0L );
+	}
 }
@@ -160,4 +160,56 @@ public class EliasFanoPrefixSumLongBigList extends EliasFanoMonotoneLongBigList
 	public long size64() {
 		return length - 1;
 	}
+
+	/** A list iterator over an {@link EliasFanoPrefixSumLongBigList}, computing values as differences of consecutive prefix sums
+	 * returned by the underlying {@link EliasFanoMonotoneLongBigList.EliasFanoMonotoneLongBigListIterator}. */
+	private final class EliasFanoPrefixSumLongBigListIterator extends EliasFanoMonotoneLongBigListIterator {
+		/** The last prefix sum returned by the underlying iterator. */
+		private long prefixSum;
+
+		private EliasFanoPrefixSumLongBigListIterator( final long from ) {
+			super( from );
+			prefixSum = super.nextLong();
+		}
+
+		public boolean hasNext() {
+			return index < length;
+		}
+
+		public boolean hasPrevious() {
+			return index > 1;
+		}
+
+		public long nextIndex() {
+			return index - 1;
+		}
+
+		public long previousIndex() {
+			return index - 2;
+		}
+
+		public long nextLong() {
+			if ( ! hasNext() ) throw new NoSuchElementException();
+			final long next = super.nextLong();
+			final long result = next - prefixSum;
+			prefixSum = next;
+			return result;
+		}
+
+		public long previousLong() {
+			if ( ! hasPrevious() ) throw new NoSuchElementException();
+			final long index = this.index;
+			moveTo( index - 2 );
+			prefixSum = super.nextLong();
+			final long result = super.nextLong() - prefixSum;
+			moveTo( index - 1 );
+			return result;
+		}
+	}
+
+	@Override
+	public EliasFanoMonotoneLongBigListIterator listIterator( final long from ) {
+		if ( from < 0 || from > size64() ) throw new IndexOutOfBoundsException( "Index: " + from + ", length: " + size64() );
+		return new EliasFanoPrefixSumLongBigListIterator( from );
+	}
 }
@@ -0,0 +1,539 @@
+package it.unimi.dsi.sux4j.util;
+
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2016 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+import it.unimi.dsi.bits.BitVector;
+import it.unimi.dsi.bits.Fast;
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.bits.TransformationStrategy;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.AbstractObjectBidirectionalIterator;
+import it.unimi.dsi.fastutil.objects.AbstractObjectSortedSet;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectBidirectionalIterator;
+import it.unimi.dsi.fastutil.objects.ObjectSortedSet;
+import it.unimi.dsi.sux4j.mph.Hashes;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/** A read-only {@linkplain ZFastTrie z-fast trie} stored in parallel arrays of primitive types.
+ *
+ * <p>Instances of this class are usually obtained by {@linkplain ZFastTrie#freeze() freezing} a z-fast trie, but they
+ * can also be built directly from a sorted sequence of elements. Queries ({@link #contains(Object)}, {@link #pred(Object)}
+ * and {@link #succ(Object)}) have the same complexity as in a {@link ZFastTrie}, but no node is an object.
+ *
+ * <p>Leaves are numbered by the rank of their element, and internal nodes are numbered
+ * in-order: the internal node of index <var>i</var> is the lowest common ancestor of leaves <var>i</var> and <var>i</var> + 1,
+ * and its extent is the longest common prefix of the corresponding (transformed) elements. Thus, leaf <var>i</var> can be used as a reference for
+ * the extent of internal node <var>i</var>, and the name length of a node can be computed from the extent lengths of the internal nodes
+ * immediately before and after the range of leaves it spans. For each internal node we store just the extent length, the two children
+ * and the range of leaves of its subtree (which replaces jump pointers when looking for the leftmost and rightmost leaf). The handle-to-node
+ * map is an open-addressing table made of an array of signatures and an array of node indices.
+ *
+ * <p>Overall, an internal node uses 24 bytes, and the handle-to-node map uses between 18 and 36 bytes per internal node,
+ * plus a reference to each element.
+ */
+
+public class FrozenZFastTrie<T> extends AbstractObjectSortedSet<T> implements Serializable {
+	private static final long serialVersionUID = 1L;
+	/** The mask used to extract the actual signature (the high bit marks duplicates). */
+	private static final long SIGNATURE_MASK = 0x7FFFFFFFFFFFFFFFL;
+	/** The mask for the high bit (which marks duplicates). */
+	private static final long DUPLICATE_MASK = 0x8000000000000000L;
+
+	/** The transformation strategy. */
+	private final TransformationStrategy<? super T> transform;
+	/** The elements, in increasing order. */
+	private final Object[] key;
+	/** The extent length of each internal node. */
+	private final long[] extentLength;
+	/** The left child of each internal node: nonnegative values are internal nodes, negative values <var>x</var> represent the leaf of index &minus;<var>x</var> &minus; 1. */
+	private final int[] left;
+	/** The right child of each internal node, represented as in {@link #left}. */
+	private final int[] right;
+	/** The index of the leftmost leaf of the subtree of each internal node. */
+	private final int[] leftLeaf;
+	/** The index of the rightmost leaf of the subtree of each internal node. */
+	private final int[] rightLeaf;
+	/** The root, represented as in {@link #left}. */
+	private final int root;
+	/** The signature of each entry of the handle-to-node map (the high bit marks duplicates). */
+	private final long[] signature;
+	/** The internal node of each entry of the handle-to-node map, or &minus;1 for empty entries. */
+	private final int[] node;
+	/** The length of {@link #signature} minus one. */
+	private final int mask;
+
+	/** Creates a new frozen z-fast trie using the given elements and transformation strategy.
+	 *
+	 * @param elements an iterator returning elements in increasing order of their transformed bit vectors (lexicographically).
+	 * @param transform a transformation strategy that must turn distinct elements into distinct, prefix-free bit vectors.
+	 * @throws IllegalArgumentException if the elements are not in strictly increasing order, or their transformed bit vectors are not prefix-free.
+	 */
+	public FrozenZFastTrie( final Iterator<? extends T> elements, final TransformationStrategy<? super T> transform ) {
+		this.transform = transform;
+
+		final ObjectArrayList<T> keys = new ObjectArrayList<T>();
+		final LongArrayList lcps = new LongArrayList();
+		LongArrayBitVector prev = LongArrayBitVector.getInstance(), curr = LongArrayBitVector.getInstance(), t;
+		while( elements.hasNext() ) {
+			final T k = elements.next();
+			curr.replace( transform.toBitVector( k ) );
+			if ( ! keys.isEmpty() ) {
+				final long lcp = prev.longestCommonPrefixLength( curr );
+				if ( lcp == prev.length() || lcp == curr.length() ) throw new IllegalArgumentException( "The transformed elements are not distinct or not prefix-free: " + k );
+				if ( ! curr.getBoolean( lcp ) ) throw new IllegalArgumentException( "The elements are not sorted: " + k );
+				lcps.add( lcp );
+			}
+			keys.add( k );
+			t = prev;
+			prev = curr;
+			curr = t;
+		}
+
+		key = keys.toArray();
+		extentLength = lcps.toLongArray();
+		final int n = key.length;
+		final int numInternal = Math.max( 0, n - 1 );
+		left = new int[ numInternal ];
+		right = new int[ numInternal ];
+		leftLeaf = new int[ numInternal ];
+		rightLeaf = new int[ numInternal ];
+
+		/* We build the Cartesian tree of the longest common prefixes: the stack contains the internal
+		 * nodes on the rightmost path of the trie built so far. */
+		final IntArrayList stack = new IntArrayList();
+		for( int i = 0; i < numInternal; i++ ) {
+			int child = -i - 1;
+			while( ! stack.isEmpty() && extentLength[ stack.topInt() ] > extentLength[ i ] ) {
+				final int top = stack.popInt();
+				right[ top ] = child;
+				rightLeaf[ top ] = child < 0 ? -child - 1 : rightLeaf[ child ];
+				child = top;
+			}
+			left[ i ] = child;
+			leftLeaf[ i ] = child < 0 ? -child - 1 : leftLeaf[ child ];
+			stack.push( i );
+		}
+
+		int child = -n;
+		while( ! stack.isEmpty() ) {
+			final int top = stack.popInt();
+			right[ top ] = child;
+			rightLeaf[ top ] = child < 0 ? -child - 1 : rightLeaf[ child ];
+			child = top;
+		}
+		root = child;
+
+		// The handle-to-node map, with the same load factor as in ZFastTrie.Handle2NodeMap
+		final int length = Math.max( 64, 1 << Fast.ceilLog2( 1 + ( 3L * numInternal / 2 ) ) );
+		mask = length - 1;
+		signature = new long[ length ];
+		node = new int[ length ];
+		Arrays.fill( node, -1 );
+
+		for( int i = 0; i < numInternal; i++ ) {
+			// Leaf i belongs to the subtree of internal node i
+			final LongArrayBitVector v = LongArrayBitVector.copy( transform.toBitVector( key( i ) ) );
+			final long s = Hashes.murmur( v, handleLength( i ), Hashes.preprocessMurmur( v, 42 ) ) & SIGNATURE_MASK;
+			int pos = hash( s );
+			// Marks the only non-duplicate entry (if any) with the same signature as a duplicate
+			while( node[ pos ] != -1 ) {
+				if ( signature[ pos ] == s ) signature[ pos ] |= DUPLICATE_MASK;
+				pos = ( pos + 1 ) & mask;
+			}
+			signature[ pos ] = s;
+			node[ pos ] = i;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private T key( final int leaf ) {
+		return (T)key[ leaf ];
+	}
+
+	/** Returns the extent length of an internal node, or &minus;1 if the index is out of range. */
+	private long lcp( final int internal ) {
+		return internal < 0 || internal >= extentLength.length ? -1 : extentLength[ internal ];
+	}
+
+	/** Returns the name length of a node.
+	 *
+	 * <p>The parent of a node spanning leaves [<var>a</var>..<var>b</var>] is either internal node <var>a</var> &minus; 1
+	 * or internal node <var>b</var>, whichever has the longer extent.
+	 *
+	 * @param n a node.
+	 * @return the name length of <code>n</code>.
+	 */
+	private long nameLength( final int n ) {
+		final int a = n < 0 ? -n - 1 : leftLeaf[ n ];
+		final int b = n < 0 ? -n - 1 : rightLeaf[ n ];
+		return 1 + Math.max( lcp( a - 1 ), lcp( b ) );
+	}
+
+	private long handleLength( final int internal ) {
+		return ZFastTrie.twoFattest( nameLength( internal ) - 1, extentLength[ internal ] );
+	}
+
+	/** Returns the (transformed) key of a leaf of the subtree of a node, which has the extent of the node as a prefix. */
+	private BitVector reference( final int n ) {
+		return transform.toBitVector( key( n < 0 ? -n - 1 : n ) );
+	}
+
+	private long extentLength( final int n ) {
+		return n < 0 ? transform.length( key( -n - 1 ) ) : extentLength[ n ];
+	}
+
+	private BitVector extent( final int n ) {
+		return n < 0 ? reference( n ) : reference( n ).subVector( 0, extentLength[ n ] );
+	}
+
+	private boolean isExitNodeOf( final int n, final long length, final long lcpLength ) {
+		return nameLength( n ) <= lcpLength && ( lcpLength < extentLength( n ) || lcpLength == length );
+	}
+
+	private int hash( final long s ) {
+		return (int)( s ^ s >>> 32 ) & mask;
+	}
+
+	/** Finds the position in the handle-to-node map of a given handle, possibly returning a false positive.
+	 *
+	 * @see ZFastTrie.Handle2NodeMap#findPos(BitVector, long, long)
+	 */
+	private int findPos( final BitVector v, final long handleLength, final long s ) {
+		int pos = hash( s );
+		while( signature[ pos ] != 0 ) {
+			if ( ( signature[ pos ] & SIGNATURE_MASK ) == s
+					&& ( ( signature[ pos ] & DUPLICATE_MASK ) == 0
+							|| ( handleLength == handleLength( node[ pos ] ) && v.equals( reference( node[ pos ] ), 0, handleLength ) ) ) )
+				return pos;
+			pos = ( pos + 1 ) & mask;
+		}
+		return -1;
+	}
+
+	/** Finds the position in the handle-to-node map of a given handle, comparing handles.
+	 *
+	 * @see ZFastTrie.Handle2NodeMap#findExactPos(BitVector, long, long)
+	 */
+	private int findExactPos( final BitVector v, final long handleLength, final long s ) {
+		int pos = hash( s );
+		while( node[ pos ] != -1 ) {
+			if ( ( signature[ pos ] & SIGNATURE_MASK ) == s
+					&& handleLength == handleLength( node[ pos ] )
+					&& v.equals( reference( node[ pos ] ), 0, handleLength ) )
+				return pos;
+			pos = ( pos + 1 ) & mask;
+		}
+		return -1;
+	}
+
+	private int fatBinarySearch( final LongArrayBitVector v, final long[] state, final boolean exact ) {
+		long b = v.length() - 1;
+		int top = root;
+		long a = extentLength[ root ];
+		long checkMask = -1L << Fast.ceilLog2( b - a );
+
+		while( b - a > 0 ) {
+			final long f = b & checkMask;
+			if ( ( a & checkMask ) != f ) {
+				final long s = Hashes.murmur( v, f, state ) & SIGNATURE_MASK;
+				final int pos = exact ? findExactPos( v, f, s ) : findPos( v, f, s );
+				final long g;
+				// The second test is just to catch false positives.
+				if ( pos == -1 || ( g = extentLength[ node[ pos ] ] ) < f ) b = f - 1;
+				else {
+					top = node[ pos ];
+					a = g;
+				}
+			}
+			checkMask >>= 1;
+		}
+
+		return top;
+	}
+
+	/** Returns the exit node of a given bit vector.
+	 *
+	 * @param v a bit vector.
+	 * @param state the hash state of <code>v</code> precomputed by {@link Hashes#preprocessMurmur(BitVector, long)}.
+	 * @return the exit node of <code>v</code>.
+	 */
+	private int getExitNode( final LongArrayBitVector v, final long[] state ) {
+		if ( key.length == 1 ) return root;
+		final long length = v.length();
+
+		// This can be the exit node of v, the parex node of v, or something completely wrong.
+		int parexOrExitNode = fatBinarySearch( v, state, false );
+		// This will contain the exit node if parexOrExitNode contains the correct parex node.
+		int candidateExitNode = extentLength[ parexOrExitNode ] < length && v.getBoolean( extentLength[ parexOrExitNode ] ) ? right[ parexOrExitNode ] : left[ parexOrExitNode ];
+		long lcpLength = v.longestCommonPrefixLength( extent( candidateExitNode ) );
+
+		// In this case the fat binary search gave us the correct parex node.
+		if ( isExitNodeOf( candidateExitNode, length, lcpLength ) ) return candidateExitNode;
+
+		// In this case the fat binary search gave us the correct exit node.
+		lcpLength = Math.min( extentLength[ parexOrExitNode ], lcpLength );
+		if ( isExitNodeOf( parexOrExitNode, length, lcpLength ) ) return parexOrExitNode;
+
+		// Otherwise, something went horribly wrong. We restart in exact mode.
+		parexOrExitNode = fatBinarySearch( v, state, true );
+		if ( extent( parexOrExitNode ).isProperPrefix( v ) ) return extentLength[ parexOrExitNode ] < length && v.getBoolean( extentLength[ parexOrExitNode ] ) ? right[ parexOrExitNode ] : left[ parexOrExitNode ];
+		return parexOrExitNode;
+	}
+
+	@SuppressWarnings("unchecked")
+	public boolean contains( final Object o ) {
+		if ( key.length == 0 ) return false;
+		final LongArrayBitVector v = LongArrayBitVector.copy( transform.toBitVector( (T)o ) );
+		final int exitNode = getExitNode( v, Hashes.preprocessMurmur( v, 42 ) );
+		return exitNode < 0 && v.equals( reference( exitNode ) );
+	}
+
+	/** Returns the index of the first element greater than or equal to a given bit vector. */
+	private int succIndex( final LongArrayBitVector v ) {
+		final int exitNode = getExitNode( v, Hashes.preprocessMurmur( v, 42 ) );
+		if ( v.compareTo( extent( exitNode ) ) <= 0 ) return exitNode < 0 ? -exitNode - 1 : leftLeaf[ exitNode ];
+		return ( exitNode < 0 ? -exitNode - 1 : rightLeaf[ exitNode ] ) + 1;
+	}
+
+	/** Returns the greatest element of this trie smaller than the given element.
+	 *
+	 * @param o an element.
+	 * @return the greatest element of this trie smaller than <code>o</code>, or {@code null} if no such element exists.
+	 */
+	@SuppressWarnings("unchecked")
+	public T pred( final Object o ) {
+		if ( key.length == 0 ) return null;
+		final int index = succIndex( LongArrayBitVector.copy( transform.toBitVector( (T)o ) ) ) - 1;
+		return index < 0 ? null : key( index );
+	}
+
+	/** Returns the smallest element of this trie greater than or equal to the given element.
+	 *
+	 * @param o an element.
+	 * @return the smallest element of this trie greater than or equal to <code>o</code>, or {@code null} if no such element exists.
+	 */
+	@SuppressWarnings("unchecked")
+	public T succ( final Object o ) {
+		if ( key.length == 0 ) return null;
+		final int index = succIndex( LongArrayBitVector.copy( transform.toBitVector( (T)o ) ) );
+		return index == key.length ? null : key( index );
+	}
+
+	public int size() {
+		return key.length;
+	}
+
+	@Override
+	public ObjectBidirectionalIterator<T> iterator() {
+		return iteratorFromIndex( 0 );
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public ObjectBidirectionalIterator<T> iterator( final T from ) {
+		return iteratorFromIndex( key.length == 0 ? 0 : succIndex( LongArrayBitVector.copy( transform.toBitVector( from ) ) ) );
+	}
+
+	private ObjectBidirectionalIterator<T> iteratorFromIndex( final int from ) {
+		return iteratorFromIndex( 0, key.length, from );
+	}
+
+	/** Returns an iterator on the elements of given ranks.
+	 *
+	 * @param first the rank of the first element.
+	 * @param end the rank of the element following the last element.
+	 * @param from the rank of the element returned by the first call to {@link Iterator#next()}.
+	 * @return an iterator on the elements of rank from <code>first</code> (inclusive) to <code>end</code> (exclusive) positioned on <code>from</code>.
+	 */
+	private ObjectBidirectionalIterator<T> iteratorFromIndex( final int first, final int end, final int from ) {
+		return new AbstractObjectBidirectionalIterator<T>() {
+			private int curr = from;
+
+			@Override
+			public boolean hasNext() {
+				return curr < end;
+			}
+
+			@Override
+			public T next() {
+				if ( ! hasNext() ) throw new NoSuchElementException();
+				return key( curr++ );
+			}
+
+			@Override
+			public boolean hasPrevious() {
+				return curr > first;
+			}
+
+			@Override
+			public T previous() {
+				if ( ! hasPrevious() ) throw new NoSuchElementException();
+				return key( --curr );
+			}
+		};
+	}
+
+	@Override
+	public Comparator<? super T> comparator() {
+		return null;
+	}
+
+	@Override
+	public T first() {
+		if ( key.length == 0 ) throw new NoSuchElementException();
+		return key( 0 );
+	}
+
+	@Override
+	public T last() {
+		if ( key.length == 0 ) throw new NoSuchElementException();
+		return key( key.length - 1 );
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public ObjectSortedSet<T> headSet( final T to ) {
+		return new Interval( 0, key.length == 0 ? 0 : succIndex( LongArrayBitVector.copy( transform.toBitVector( to ) ) ) );
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public ObjectSortedSet<T> subSet( final T from, final T to ) {
+		if ( key.length == 0 ) return new Interval( 0, 0 );
+		final LongArrayBitVector v = LongArrayBitVector.copy( transform.toBitVector( from ) ), w = LongArrayBitVector.copy( transform.toBitVector( to ) );
+		if ( v.compareTo( w ) > 0 ) throw new IllegalArgumentException( "The lower bound is greater than the upper bound" );
+		return new Interval( succIndex( v ), succIndex( w ) );
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public ObjectSortedSet<T> tailSet( final T from ) {
+		return new Interval( key.length == 0 ? 0 : succIndex( LongArrayBitVector.copy( transform.toBitVector( from ) ) ), key.length );
+	}
+
+	/** Returns a view of the elements of this trie whose transformed representation has a given prefix.
+	 *
+	 * <p>The elements of the view are the leaves of the exit node of the prefix, if the prefix is a prefix
+	 * of its extent, and no element otherwise: thus, building the view requires a single fat binary search, and its
+	 * size is known in constant time.
+	 *
+	 * @param prefix a bit vector.
+	 * @return a view of the elements of this trie whose transformed representation has <code>prefix</code> as a prefix.
+	 * @see ZFastTrie#prefixRange(BitVector)
+	 */
+	public ObjectSortedSet<T> prefixRange( final BitVector prefix ) {
+		if ( key.length == 0 ) return new Interval( 0, 0 );
+		final LongArrayBitVector v = LongArrayBitVector.copy( prefix );
+		final int exitNode = getExitNode( v, Hashes.preprocessMurmur( v, 42 ) );
+		if ( v.longestCommonPrefixLength( extent( exitNode ) ) < v.length() ) return new Interval( 0, 0 );
+		return exitNode < 0 ? new Interval( -exitNode - 1, -exitNode ) : new Interval( leftLeaf[ exitNode ], rightLeaf[ exitNode ] + 1 );
+	}
+
+	/** A view of the elements of this trie of given ranks. */
+	private final class Interval extends AbstractObjectSortedSet<T> {
+		/** The rank of the first element of the view. */
+		private final int from;
+		/** The rank of the element following the last element of the view. */
+		private final int to;
+
+		private Interval( final int from, final int to ) {
+			this.from = from;
+			this.to = Math.max( from, to );
+		}
+
+		/** Returns the rank of the first element greater than or equal to the given one, clamped to the ranks of this view. */
+		private int clamp( final T k ) {
+			return Math.min( to, Math.max( from, succIndex( LongArrayBitVector.copy( transform.toBitVector( k ) ) ) ) );
+		}
+
+		@Override
+		public ObjectBidirectionalIterator<T> iterator() {
+			return iteratorFromIndex( from, to, from );
+		}
+
+		@Override
+		public ObjectBidirectionalIterator<T> iterator( final T start ) {
+			return iteratorFromIndex( from, to, from == to ? from : clamp( start ) );
+		}
+
+		@Override
+		public int size() {
+			return to - from;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public boolean contains( final Object o ) {
+			if ( from == to ) return false;
+			final LongArrayBitVector v = LongArrayBitVector.copy( transform.toBitVector( (T)o ) );
+			final int index = succIndex( v );
+			return index >= from && index < to && v.equals( transform.toBitVector( key( index ) ) );
+		}
+
+		@Override
+		public Comparator<? super T> comparator() {
+			return null;
+		}
+
+		@Override
+		public T first() {
+			if ( from == to ) throw new NoSuchElementException();
+			return key( from );
+		}
+
+		@Override
+		public T last() {
+			if ( from == to ) throw new NoSuchElementException();
+			return key( to - 1 );
+		}
+
+		@Override
+		public ObjectSortedSet<T> headSet( final T to ) {
+			return new Interval( from, this.from == this.to ? from : clamp( to ) );
+		}
+
+		@Override
+		public ObjectSortedSet<T> subSet( final T from, final T to ) {
+			if ( this.from == this.to ) return this;
+			return new Interval( clamp( from ), clamp( to ) );
+		}
+
+		@Override
+		public ObjectSortedSet<T> tailSet( final T from ) {
+			return new Interval( this.from == this.to ? to : clamp( from ), to );
+		}
+	}
+
+	/** Returns the number of bits used by this structure, excluding the elements.
+	 *
+	 * @return the number of bits used by this structure, excluding the elements (but including the array of references to the elements).
+	 */
+	public long numBits() {
+		return ( extentLength.length + signature.length ) * (long)Long.SIZE + ( left.length + right.length + leftLeaf.length + rightLeaf.length + node.length + key.length ) * (long)Integer.SIZE;
+	}
+}
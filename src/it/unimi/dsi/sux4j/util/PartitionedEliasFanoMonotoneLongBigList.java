@@ -0,0 +1,436 @@
+package it.unimi.dsi.sux4j.util;
+
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2016 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+import it.unimi.dsi.bits.Fast;
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.fastutil.ints.IntIterable;
+import it.unimi.dsi.fastutil.longs.AbstractLongBigList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongBigList;
+import it.unimi.dsi.fastutil.longs.LongIterable;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongIterators;
+
+import java.io.Serializable;
+
+/** A partitioned implementation of Elias&ndash;Fano's representation of monotone sequences.
+ *
+ * <p>Instances of this class represent a nondecreasing sequence of natural numbers, exactly like an {@link EliasFanoMonotoneLongBigList},
+ * but the sequence is divided into partitions of 2<sup><var>k</var></sup> consecutive elements (by default, 2<sup>{@value #DEFAULT_LOG2_PARTITION_SIZE}</sup>),
+ * and each partition is represented relatively to its first element, using the cheapest of the following encodings:
+ * <ul>
+ * <li>if the partition is a run of consecutive integers, nothing is stored;
+ * <li>if the partition is strictly increasing and dense, it is stored as a bitmap;
+ * <li>otherwise, the partition is stored using the Elias&ndash;Fano representation, with a number of lower bits depending just
+ * on the partition.
+ * </ul>
+ *
+ * <p>On clustered sequences (e.g., document pointers in posting lists) the number of lower bits can thus adapt to the local density, and
+ * the space occupancy can be significantly smaller than that of an {@link EliasFanoMonotoneLongBigList}; moreover, accesses to
+ * a partition touch a small, contiguous area of memory.
+ *
+ * <p>Besides {@linkplain #getLong(long) random access} and a {@linkplain #get(long, long[], int, int) bulk method},
+ * this class provides {@linkplain #successor(long) successor queries}, as {@link EliasFanoIndexedMonotoneLongBigList}.
+ *
+ * <h2>Implementation details</h2>
+ *
+ * <p>Partitions are stored one after the other in a single bit array. Elias&ndash;Fano partitions store first the lower bits, and then
+ * the upper bits; selection in the upper bits (or in a bitmap) is performed by scanning the partition a word at a time, which is fast
+ * as partitions are small. For each partition we store, using a fixed number of bits, its first element and a pointer containing its
+ * starting position in the bit array, its encoding and its number of lower bits.
+ *
+ * <p>Successor queries locate the partition containing the answer using an {@link EliasFanoIndexedMonotoneLongBigList} on the first
+ * elements of the partitions, so they require constant time, rather than a binary search on the partitions. The index
+ * requires about 2 + log(<var>u</var> / <var>p</var>) bits per partition, where <var>u</var> is the last element and <var>p</var> the number of partitions.
+ * {@linkplain #get(long, long[], int, int) Bulk extraction} performs a single selection per partition,
+ * and then decodes consecutive elements by scanning the partition.
+ */
+
+public class PartitionedEliasFanoMonotoneLongBigList extends AbstractLongBigList implements Serializable {
+	private static final long serialVersionUID = 0L;
+
+	/** The default logarithm of the number of elements in a partition. */
+	public static final int DEFAULT_LOG2_PARTITION_SIZE = 7;
+	/** The encoding of a partition made of consecutive integers. */
+	private static final int RUN = 0;
+	/** The encoding of a partition stored as a bitmap. */
+	private static final int BITMAP = 1;
+	/** The encoding of a partition stored using the Elias&ndash;Fano representation. */
+	private static final int ELIAS_FANO = 2;
+	/** The number of bits of a pointer used to store the encoding and the number of lower bits. */
+	private static final int POINTER_SHIFT = 8;
+
+	/** The length of the sequence. */
+	protected final long length;
+	/** The logarithm of the number of elements in a partition. */
+	protected final int log2PartitionSize;
+	/** The number of partitions. */
+	protected final long numPartitions;
+	/** The bit array containing the partitions. */
+	protected final long[] bits;
+	/** The first element of each partition, packed in {@link #baseWidth} bits. */
+	protected final long[] bases;
+	/** The number of bits used to store each element of {@link #bases}. */
+	protected final int baseWidth;
+	/** The pointers of each partition, packed in {@link #pointerWidth} bits: the start of the partition in {@link #bits},
+	 * shifted by {@link #POINTER_SHIFT}, the encoding shifted by six, and the number of lower bits. */
+	protected final long[] pointers;
+	/** The number of bits used to store each element of {@link #pointers}. */
+	protected final int pointerWidth;
+	/** The first element of each partition, indexed for successor queries. */
+	protected final EliasFanoIndexedMonotoneLongBigList baseIndex;
+
+	/** Creates a partitioned Elias&ndash;Fano representation of the values returned by the given {@linkplain Iterable iterable object}.
+	 *
+	 * @param list an iterable object.
+	 */
+	public PartitionedEliasFanoMonotoneLongBigList( final IntIterable list ) {
+		this( LongIterators.wrap( list.iterator() ), DEFAULT_LOG2_PARTITION_SIZE );
+	}
+
+	/** Creates a partitioned Elias&ndash;Fano representation of the values returned by the given {@linkplain Iterable iterable object}.
+	 *
+	 * @param list an iterable object.
+	 */
+	public PartitionedEliasFanoMonotoneLongBigList( final LongIterable list ) {
+		this( list.iterator(), DEFAULT_LOG2_PARTITION_SIZE );
+	}
+
+	/** Creates a partitioned Elias&ndash;Fano representation of the values returned by the given {@linkplain Iterable iterable object}
+	 * using a given partition size.
+	 *
+	 * @param list an iterable object.
+	 * @param log2PartitionSize the logarithm of the number of elements in a partition.
+	 */
+	public PartitionedEliasFanoMonotoneLongBigList( final LongIterable list, final int log2PartitionSize ) {
+		this( list.iterator(), log2PartitionSize );
+	}
+
+	/** Creates a partitioned Elias&ndash;Fano representation of the values returned by an iterator using a given partition size.
+	 *
+	 * <p>This constructor is particularly useful if the elements of the iterator are provided by
+	 * some sequential source.
+	 *
+	 * @param iterator an iterator returning nondecreasing natural numbers.
+	 * @param log2PartitionSize the logarithm of the number of elements in a partition.
+	 */
+	public PartitionedEliasFanoMonotoneLongBigList( final LongIterator iterator, final int log2PartitionSize ) {
+		if ( log2PartitionSize < 0 || log2PartitionSize > 16 ) throw new IllegalArgumentException( "Illegal logarithm of the partition size: " + log2PartitionSize );
+		this.log2PartitionSize = log2PartitionSize;
+		final int partitionSize = 1 << log2PartitionSize;
+		final long[] partition = new long[ partitionSize ];
+		final LongArrayBitVector bits = LongArrayBitVector.getInstance();
+		final LongArrayList bases = new LongArrayList(), pointers = new LongArrayList();
+		long length = 0, last = 0;
+
+		for(;;) {
+			int k = 0;
+			while( k < partitionSize && iterator.hasNext() ) {
+				final long v = iterator.nextLong();
+				if ( v < 0 ) throw new IllegalArgumentException( "Negative value: " + v );
+				if ( v < last ) throw new IllegalArgumentException( "Values are not nondecreasing: " + v + " < " + last );
+				partition[ k++ ] = last = v;
+			}
+			if ( k == 0 ) break;
+			length += k;
+			bases.add( partition[ 0 ] );
+			pointers.add( bits.length() << POINTER_SHIFT | encode( partition, k, bits ) );
+		}
+
+		this.length = length;
+		numPartitions = bases.size();
+		baseWidth = Fast.length( last );
+		pointerWidth = Fast.length( bits.length() ) + POINTER_SHIFT;
+		this.bases = pack( bases, baseWidth );
+		this.pointers = pack( pointers, pointerWidth );
+		baseIndex = new EliasFanoIndexedMonotoneLongBigList( bases );
+		bits.trim();
+		this.bits = bits.bits();
+	}
+
+	/** Packs a list of longs in a given number of bits.
+	 *
+	 * @param list a list of longs.
+	 * @param width the width of each element of {@code list}.
+	 * @return an array of longs containing the elements of {@code list}, each stored in {@code width} bits.
+	 */
+	private static long[] pack( final LongArrayList list, final int width ) {
+		final LongArrayBitVector bitVector = LongArrayBitVector.getInstance();
+		final LongBigList packed = bitVector.asLongBigList( width );
+		for( int i = 0; i < list.size(); i++ ) packed.add( list.getLong( i ) );
+		bitVector.trim();
+		return bitVector.bits();
+	}
+
+	/** Encodes a partition using the cheapest encoding and appends it to a bit vector.
+	 *
+	 * @param partition the elements of the partition.
+	 * @param k the number of elements in the partition.
+	 * @param bits the bit vector to which the partition will be appended.
+	 * @return the encoding, shifted by six, and the number of lower bits.
+	 */
+	private static int encode( final long[] partition, final int k, final LongArrayBitVector bits ) {
+		final long base = partition[ 0 ];
+		final long u = partition[ k - 1 ] - base;
+		boolean strict = true;
+		for( int i = 1; i < k; i++ ) if ( partition[ i ] == partition[ i - 1 ] ) strict = false;
+
+		if ( strict && u == k - 1 ) return RUN << 6;
+
+		final int l = u / k == 0 ? 0 : Fast.mostSignificantBit( u / k );
+		final long upperBitsLength = k + ( u >>> l ) + 1;
+		final long start = bits.length();
+
+		if ( strict && u + 1 <= upperBitsLength + (long)k * l ) {
+			bits.length( start + u + 1 );
+			for( int i = 0; i < k; i++ ) bits.set( start + partition[ i ] - base );
+			return BITMAP << 6;
+		}
+
+		final long lowerBitsMask = ( 1L << l ) - 1;
+		if ( l != 0 ) for( int i = 0; i < k; i++ ) bits.append( partition[ i ] - base & lowerBitsMask, l );
+		final long upperStart = bits.length();
+		bits.length( upperStart + upperBitsLength );
+		for( int i = 0; i < k; i++ ) bits.set( upperStart + ( partition[ i ] - base >>> l ) + i );
+		return ELIAS_FANO << 6 | l;
+	}
+
+	/** Extracts a given number of bits from an array of longs.
+	 *
+	 * @param a an array of longs.
+	 * @param position the position of the first bit.
+	 * @param width the number of bits to extract (at most 63).
+	 * @return the bits in the given interval.
+	 */
+	private static long extract( final long[] a, final long position, final int width ) {
+		if ( width == 0 ) return 0;
+		final int startWord = (int)( position >>> 6 );
+		final int startBit = (int)( position & 63 );
+		final long result = a[ startWord ] >>> startBit;
+		return ( startBit + width <= Long.SIZE ? result : result | a[ startWord + 1 ] << -startBit ) & -1L >>> Long.SIZE - width;
+	}
+
+	/** Returns the position of the bit of given rank starting from a given position.
+	 *
+	 * @param from the starting position.
+	 * @param rank the rank of the bit to be selected.
+	 * @return the position of the one of rank {@code rank} among those at or after {@code from}.
+	 */
+	private long select( final long from, int rank ) {
+		final long[] bits = this.bits;
+		int word = (int)( from >>> 6 );
+		long window = bits[ word ] & -1L << from;
+		for(;;) {
+			final int bitCount = Long.bitCount( window );
+			if ( rank < bitCount ) return (long)word << 6 | Fast.select( window, rank );
+			rank -= bitCount;
+			window = bits[ ++word ];
+		}
+	}
+
+	/** Returns the number of elements in a partition.
+	 *
+	 * @param partition a partition.
+	 * @return the number of elements in {@code partition}.
+	 */
+	private int partitionSize( final long partition ) {
+		return (int)Math.min( 1L << log2PartitionSize, length - ( partition << log2PartitionSize ) );
+	}
+
+	public long getLong( final long index ) {
+		if ( index < 0 || index >= length ) throw new IndexOutOfBoundsException( "Index: " + index + ", length: " + length );
+		final long partition = index >>> log2PartitionSize;
+		final int i = (int)( index & ( 1 << log2PartitionSize ) - 1 );
+		final long base = extract( bases, partition * baseWidth, baseWidth );
+		final long pointer = extract( pointers, partition * pointerWidth, pointerWidth );
+		final long start = pointer >>> POINTER_SHIFT;
+
+		switch( (int)( pointer >>> 6 & 3 ) ) {
+		case RUN: return base + i;
+		case BITMAP: return base + select( start, i ) - start;
+		default:
+			final int l = (int)( pointer & 63 );
+			final long upperStart = start + (long)partitionSize( partition ) * l;
+			final long upperBits = select( upperStart, i ) - upperStart - i;
+			return base + ( upperBits << l | extract( bits, start + (long)i * l, l ) );
+		}
+	}
+
+	/** Extracts a number of consecutive entries into a given array fragment.
+	 *
+	 * @param index the index of the first entry returned.
+	 * @param dest the destination array; it will be filled with {@code length} consecutive entries starting at position {@code offset}.
+	 * @param offset the first position written in {@code dest}.
+	 * @param length the number of elements written in {@code dest} starting at {@code offset}.
+	 * @return {@code dest}
+	 * @see #get(long, long[])
+	 */
+	public long[] get( long index, final long dest[], final int offset, final int length ) {
+		if ( index < 0 || index + length > this.length ) throw new IndexOutOfBoundsException( "Indices: [" + index + ".." + ( index + length ) + "), length: " + this.length );
+		final long[] bits = this.bits;
+		for( int done = 0; done < length; ) {
+			final long partition = index >>> log2PartitionSize;
+			final int i = (int)( index & ( 1 << log2PartitionSize ) - 1 );
+			final int k = partitionSize( partition );
+			final int n = Math.min( k - i, length - done );
+			final int o = offset + done;
+			final long base = extract( bases, partition * baseWidth, baseWidth );
+			final long pointer = extract( pointers, partition * pointerWidth, pointerWidth );
+			final long start = pointer >>> POINTER_SHIFT;
+
+			switch( (int)( pointer >>> 6 & 3 ) ) {
+			case RUN:
+				for( int j = 0; j < n; j++ ) dest[ o + j ] = base + i + j;
+				break;
+			case BITMAP: {
+				final long position = select( start, i );
+				int word = (int)( position >>> 6 );
+				long window = bits[ word ] & -1L << position;
+				for( int j = 0; j < n; j++ ) {
+					while( window == 0 ) window = bits[ ++word ];
+					dest[ o + j ] = base + ( (long)word << 6 | Long.numberOfTrailingZeros( window ) ) - start;
+					window &= window - 1;
+				}
+				break;
+			}
+			default: {
+				final int l = (int)( pointer & 63 );
+				final long upperStart = start + (long)k * l;
+				final long position = select( upperStart, i );
+				int word = (int)( position >>> 6 );
+				long window = bits[ word ] & -1L << position;
+				long lowerBitsPosition = start + (long)i * l;
+				for( int j = 0; j < n; j++ ) {
+					while( window == 0 ) window = bits[ ++word ];
+					final long upperBits = ( (long)word << 6 | Long.numberOfTrailingZeros( window ) ) - upperStart - i - j;
+					dest[ o + j ] = base + ( upperBits << l | extract( bits, lowerBitsPosition, l ) );
+					window &= window - 1;
+					lowerBitsPosition += l;
+				}
+			}
+			}
+
+			done += n;
+			index += n;
+		}
+		return dest;
+	}
+
+	/** Extracts a number of consecutive entries into a given array.
+	 *
+	 * @param index the index of the first entry returned.
+	 * @param dest the destination array; it will be filled with consecutive entries.
+	 * @return {@code dest}
+	 * @see #get(long, long[], int, int)
+	 */
+	public long[] get( final long index, final long dest[] ) {
+		return get( index, dest, 0, dest.length );
+	}
+
+	/** Returns the index of the first element greater than or equal to a given bound.
+	 *
+	 * @param lowerBound a lower bound.
+	 * @return the index of the first element greater than or equal to {@code lowerBound}, or the {@linkplain #size64() length}
+	 * of this list if all elements are smaller than {@code lowerBound}.
+	 */
+	public long successorIndex( final long lowerBound ) {
+		// The last partition whose first element is smaller than the bound
+		final long partition = baseIndex.successorIndex( lowerBound ) - 1;
+		if ( partition < 0 ) return 0;
+		final long r = lowerBound - extract( bases, partition * baseWidth, baseWidth );
+		final long pointer = extract( pointers, partition * pointerWidth, pointerWidth );
+		final long start = pointer >>> POINTER_SHIFT;
+		final int k = partitionSize( partition );
+		final long[] bits = this.bits;
+		long i;
+
+		switch( (int)( pointer >>> 6 & 3 ) ) {
+		case RUN:
+			i = Math.min( r, k );
+			break;
+		case BITMAP:
+			// We count the ones before position r, stopping at k
+			i = 0;
+			final long end = start + r;
+			for( long pos = start; pos < end && i < k; ) {
+				final int word = (int)( pos >>> 6 );
+				long window = bits[ word ] & -1L << pos;
+				final long nextWordStart = (long)( word + 1 ) << 6;
+				if ( end < nextWordStart ) window &= ( 1L << end ) - 1;
+				i += Long.bitCount( window );
+				pos = nextWordStart;
+			}
+			i = Math.min( i, k );
+			break;
+		default:
+			final int l = (int)( pointer & 63 );
+			final long upperStart = start + (long)k * l;
+			final long zeroes = r >>> l;
+			long position = upperStart;
+			// We look for the zero of rank zeroes - 1, a word at a time; elements after it have upper bits at least zeroes
+			if ( zeroes != 0 ) {
+				int word = (int)( upperStart >>> 6 );
+				long window = ~bits[ word ] & -1L << upperStart;
+				long z = zeroes - 1;
+				for(;;) {
+					final int bitCount = Long.bitCount( window );
+					if ( z < bitCount ) {
+						position = (long)word << 6 | Fast.select( window, (int)z );
+						break;
+					}
+					z -= bitCount;
+					// If we went past all ones, all elements are smaller than the bound (this also avoids reading past the partition)
+					if ( ( (long)word + 1 << 6 ) - upperStart - ( zeroes - 1 - z ) >= k ) return ( partition << log2PartitionSize ) + k;
+					window = ~bits[ ++word ];
+				}
+				if ( position - upperStart - ( zeroes - 1 ) >= k ) return ( partition << log2PartitionSize ) + k;
+				position++;
+			}
+			i = position - upperStart - zeroes;
+			final long lowerBitsBound = r & ( 1L << l ) - 1;
+			while( i < k && ( bits[ (int)( position >>> 6 ) ] & 1L << position ) != 0 && extract( bits, start + i * l, l ) < lowerBitsBound ) {
+				position++;
+				i++;
+			}
+		}
+		return ( partition << log2PartitionSize ) + i;
+	}
+
+	/** Returns the first element greater than or equal to a given bound.
+	 *
+	 * @param lowerBound a lower bound.
+	 * @return the first element greater than or equal to {@code lowerBound}, or {@link Long#MAX_VALUE} if all
+	 * elements are smaller than {@code lowerBound}.
+	 */
+	public long successor( final long lowerBound ) {
+		final long index = successorIndex( lowerBound );
+		return index == length ? Long.MAX_VALUE : getLong( index );
+	}
+
+	public long size64() {
+		return length;
+	}
+
+	public long numBits() {
+		return ( bits.length + bases.length + pointers.length ) * (long)Long.SIZE + baseIndex.numBits();
+	}
+}
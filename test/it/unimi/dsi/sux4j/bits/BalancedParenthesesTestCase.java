@@ -61,10 +61,15 @@ public abstract class BalancedParenthesesTestCase {
 		
 		IntArrayList stack = new IntArrayList();
 		IntArrayList matches  = new IntArrayList();
+		IntArrayList enclosing  = new IntArrayList();
 		matches.size( (int)length );
+		enclosing.size( (int)length );
 		
 		for( int i = 0; i < length; i++ ) {
-			if ( bits.getBoolean( i ) ) stack.push( i );
+			if ( bits.getBoolean( i ) ) {
+				enclosing.set( i, stack.isEmpty() ? -1 : stack.topInt() );
+				stack.push( i );
+			}
 			else {
 				if ( stack.isEmpty() ) throw new AssertionError( "The bit vector does not represent a correctly parenthesised string");
 				final int pos = stack.popInt(); 
@@ -77,8 +82,11 @@ public abstract class BalancedParenthesesTestCase {
 		
 		for( int i = 0; i < length; i++ ) {
 			//System.err.println( i);
-			if ( bits.getBoolean( i ) ) assertEquals( "Finding closing for position " + i, matches.getInt( i ), balancedParentheses.findClose( i ) );
-			//else assertEquals( "Finding opening for position " + i, matches.getInt( i ), balancedParentheses.findOpen( i ) );
+			if ( bits.getBoolean( i ) ) {
+				assertEquals( "Finding closing for position " + i, matches.getInt( i ), balancedParentheses.findClose( i ) );
+				assertEquals( "Finding enclosing for position " + i, enclosing.getInt( i ), balancedParentheses.enclose( i ) );
+			}
+			else assertEquals( "Finding opening for position " + i, matches.getInt( i ), balancedParentheses.findOpen( i ) );
 		}
 	}
 
@@ -0,0 +1,99 @@
+package it.unimi.dsi.sux4j.bits;
+
+import static org.junit.Assert.assertEquals;
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.util.XorShift1024StarRandom;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class InterleavedRankSelectTest extends RankSelectTestCase {
+
+	@Test
+	public void testEmpty() {
+		InterleavedRankSelect rankSelect;
+		for( int length: new int[] { 0, 1, 63, 64, 65, 447, 448, 449, 1000 } ) {
+			rankSelect = new InterleavedRankSelect( LongArrayBitVector.getInstance().length( length ) );
+			for( int i = length + 1; i-- != 0; ) assertEquals( 0, rankSelect.rank( i ) );
+			assertEquals( 0, rankSelect.count() );
+			assertEquals( -1, rankSelect.select( 0 ) );
+			assertEquals( -1, rankSelect.select( 1 ) );
+		}
+	}
+
+	@Test
+	public void testSingleton() {
+		for( int length: new int[] { 1, 64, 128, 448, 449, 896, 1000 } ) {
+			for( int pos: new int[] { 0, 63, 64, 127, 447, 448, 895, 999 } ) {
+				if ( pos >= length ) continue;
+				final LongArrayBitVector bitVector = LongArrayBitVector.getInstance().length( length );
+				bitVector.set( pos );
+				final InterleavedRankSelect rankSelect = new InterleavedRankSelect( bitVector );
+				assertRankAndSelect( rankSelect, rankSelect );
+				assertEquals( 1, rankSelect.rank( length ) );
+				assertEquals( pos, rankSelect.select( 0 ) );
+				assertEquals( -1, rankSelect.select( 1 ) );
+			}
+		}
+	}
+
+	@Test
+	public void testAllOnes() {
+		for( int length: new int[] { 1, 64, 448, 449, 10000 } ) {
+			final LongArrayBitVector bitVector = LongArrayBitVector.getInstance().length( length );
+			bitVector.fill( true );
+			final InterleavedRankSelect rankSelect = new InterleavedRankSelect( bitVector );
+			assertRankAndSelect( rankSelect, rankSelect );
+			assertEquals( length, rankSelect.rank( length ) );
+			assertEquals( length, rankSelect.count() );
+		}
+	}
+
+	@Test
+	public void testRandom() {
+		final Random r = new XorShift1024StarRandom( 1 );
+		for( double density: new double[] { 0.001, 0.01, 0.1, 0.5, 0.9, 0.999 } ) {
+			for( int length: new int[] { 1000, 10000, 100000 } ) {
+				final LongArrayBitVector bitVector = LongArrayBitVector.getInstance().length( length );
+				for( int i = length; i-- != 0; ) if ( r.nextDouble() < density ) bitVector.set( i );
+				final InterleavedRankSelect rankSelect = new InterleavedRankSelect( bitVector );
+				assertEquals( bitVector, rankSelect.bitVector() );
+				assertRankAndSelect( rankSelect, rankSelect );
+				assertEquals( bitVector.count(), rankSelect.rank( length ) );
+				assertEquals( bitVector.count(), rankSelect.count() );
+				assertEquals( -1, rankSelect.select( rankSelect.count() ) );
+			}
+		}
+	}
+
+	@Test
+	public void testSparseClusters() {
+		// Long runs of zeroes between dense clusters stress the binary search in select()
+		final Random r = new XorShift1024StarRandom( 2 );
+		final LongArrayBitVector bitVector = LongArrayBitVector.getInstance().length( 1000000 );
+		for( int c = 0; c < 20; c++ ) {
+			final int start = r.nextInt( 1000000 - 2000 );
+			for( int i = 0; i < 2000; i++ ) if ( r.nextBoolean() ) bitVector.set( start + i );
+		}
+		final InterleavedRankSelect rankSelect = new InterleavedRankSelect( bitVector );
+		assertRankAndSelect( rankSelect, rankSelect );
+	}
+
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException {
+		final Random r = new XorShift1024StarRandom( 3 );
+		final LongArrayBitVector bitVector = LongArrayBitVector.getInstance().length( 10000 );
+		for( int i = 10000; i-- != 0; ) if ( r.nextBoolean() ) bitVector.set( i );
+		final File temp = File.createTempFile( getClass().getSimpleName(), "test" );
+		temp.deleteOnExit();
+		BinIO.storeObject( new InterleavedRankSelect( bitVector ), temp );
+		final InterleavedRankSelect rankSelect = (InterleavedRankSelect)BinIO.loadObject( temp );
+		assertEquals( bitVector, rankSelect.bitVector() );
+		assertRankAndSelect( rankSelect, rankSelect );
+		temp.delete();
+	}
+}
@@ -3,6 +3,7 @@ package it.unimi.dsi.sux4j.bits;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.util.XorShift1024StarRandomGenerator;
 
 import org.junit.Test;
 
@@ -189,7 +190,101 @@ public class JacobsonBalancedParenthesesTest extends BalancedParenthesesTestCase
 		assertBalancedParentheses( bp );
 	}
 
-	public void notestSimple() {
+	@Test
+	public void testFindNearOpen() {
+		final XorShift1024StarRandomGenerator r = new XorShift1024StarRandomGenerator( 0 );
+		for( int i = 0; i < 100000; i++ ) {
+			final long word = r.nextLong() & -1L >>> 1;
+			int c = 1, expected = 64;
+			for( int b = 62; b >= 0; b-- ) {
+				if ( ( word & 1L << b ) != 0 ) c--;
+				else c++;
+				if ( c == 0 ) {
+					expected = 63 - b;
+					break;
+				}
+			}
+			final int result = JacobsonBalancedParentheses.findNearOpen( word );
+			if ( expected < 64 ) assertEquals( binary( word, false ), expected, result );
+			else assertTrue( result >= 64 );
+		}
+	}
+
+	@Test
+	public void testFindFarOpen() {
+		final XorShift1024StarRandomGenerator r = new XorShift1024StarRandomGenerator( 0 );
+		for( int i = 0; i < 10000; i++ ) {
+			final long word = r.nextInt( 4 ) == 0 ? r.nextLong() | r.nextLong() : r.nextLong();
+			for( int k = 0;; k++ ) {
+				final int result = JacobsonBalancedParentheses.findFarOpen( word, Long.SIZE, k );
+				if ( result == -1 ) {
+					assertTrue( JacobsonBalancedParentheses.findFarOpen( word, k ) < 0 );
+					break;
+				}
+				assertEquals( result, JacobsonBalancedParentheses.findFarOpen( word, k ) );
+			}
+		}
+	}
+
+	private static LongArrayBitVector randomBalanced( final int numPairs, final int maxDepth, final XorShift1024StarRandomGenerator r ) {
+		final LongArrayBitVector bv = LongArrayBitVector.getInstance();
+		int open = numPairs, depth = 0;
+		while( open > 0 || depth > 0 ) {
+			if ( open > 0 && ( depth == 0 || depth < maxDepth && r.nextBoolean() ) ) {
+				bv.add( 1 );
+				open--;
+				depth++;
+			}
+			else {
+				bv.add( 0 );
+				depth--;
+			}
+		}
+		return bv;
+	}
+
+	@Test
+	public void testRandom() {
+		final XorShift1024StarRandomGenerator r = new XorShift1024StarRandomGenerator( 0 );
+		for( int numPairs: new int[] { 1, 10, 31, 32, 33, 100, 1000, 10000 } ) {
+			for( int maxDepth: new int[] { 1, 2, 8, 32, 100, 1000, Integer.MAX_VALUE } ) {
+				for( int k = 0; k < 4; k++ ) {
+					final JacobsonBalancedParentheses bp = new JacobsonBalancedParentheses( randomBalanced( numPairs, maxDepth, r ) );
+					assertBalancedParentheses( bp );
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testNested() {
+		final XorShift1024StarRandomGenerator r = new XorShift1024StarRandomGenerator( 0 );
+		for( int k = 0; k < 100; k++ ) {
+			// Long chains of siblings inside deeply nested pairs
+			final LongArrayBitVector bv = LongArrayBitVector.getInstance();
+			final int depth = r.nextInt( 200 );
+			for( int i = depth; i-- != 0; ) bv.add( 1 );
+			for( int i = r.nextInt( 100 ); i-- != 0; ) {
+				final LongArrayBitVector child = randomBalanced( 1 + r.nextInt( 100 ), 1 + r.nextInt( 100 ), r );
+				for( long j = 0; j < child.length(); j++ ) bv.add( child.getBoolean( j ) );
+			}
+			for( int i = depth; i-- != 0; ) bv.add( 0 );
+			assertBalancedParentheses( new JacobsonBalancedParentheses( bv ) );
+		}
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void testNoFindOpen() {
+		new JacobsonBalancedParentheses( LongArrayBitVector.of( 1, 0 ), false, true, false ).findOpen( 1 );
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void testNoEnclose() {
+		new JacobsonBalancedParentheses( LongArrayBitVector.of( 1, 0 ), true, true, false ).enclose( 0 );
+	}
+
+	@Test
+	public void testSimple() {
 		LongArrayBitVector bv = LongArrayBitVector.of( 1, 0 );
 		JacobsonBalancedParentheses bp = new JacobsonBalancedParentheses( bv );
 		assertEquals( 1, bp.findClose( 0 ) );
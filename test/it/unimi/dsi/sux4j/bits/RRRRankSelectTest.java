@@ -0,0 +1,99 @@
+package it.unimi.dsi.sux4j.bits;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.util.XorShift1024StarRandom;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RRRRankSelectTest extends RankSelectTestCase {
+
+	private void assertAll( final LongArrayBitVector bitVector ) {
+		final RRRRankSelect rrr = new RRRRankSelect( bitVector );
+		assertEquals( bitVector, rrr.bitVector() );
+		for( long i = 0; i < bitVector.length(); i++ ) assertEquals( bitVector.getBoolean( i ), rrr.getBoolean( i ) );
+		assertRankAndSelect( rrr, rrr );
+		assertSelectZero( rrr );
+		assertEquals( bitVector.count(), rrr.count() );
+		assertEquals( bitVector.count(), rrr.rank( bitVector.length() ) );
+		assertEquals( -1, rrr.select( rrr.count() ) );
+		assertEquals( -1, rrr.selectZero( bitVector.length() - rrr.count() ) );
+	}
+
+	@Test
+	public void testEmpty() {
+		for( int length: new int[] { 0, 1, 62, 63, 64, 126, 127, 2016, 2017, 5000 } ) assertAll( LongArrayBitVector.getInstance().length( length ) );
+	}
+
+	@Test
+	public void testFull() {
+		for( int length: new int[] { 1, 62, 63, 64, 126, 127, 2016, 2017, 5000 } ) {
+			final LongArrayBitVector bitVector = LongArrayBitVector.getInstance().length( length );
+			bitVector.fill( true );
+			assertAll( bitVector );
+		}
+	}
+
+	@Test
+	public void testAlternating() {
+		final LongArrayBitVector bitVector = LongArrayBitVector.getInstance().length( 10000 );
+		for( int i = 0; i < 10000; i += 2 ) bitVector.set( i );
+		assertAll( bitVector );
+	}
+
+	@Test
+	public void testRandom() {
+		final Random r = new XorShift1024StarRandom( 0 );
+		for( double density: new double[] { 0.001, 0.05, 0.2, 0.4, 0.5, 0.9, 0.999 } ) {
+			for( int length: new int[] { 100, 1000, 20000 } ) {
+				final LongArrayBitVector bitVector = LongArrayBitVector.getInstance().length( length );
+				for( int i = length; i-- != 0; ) if ( r.nextDouble() < density ) bitVector.set( i );
+				assertAll( bitVector );
+			}
+		}
+	}
+
+	@Test
+	public void testCompression() {
+		final Random r = new XorShift1024StarRandom( 0 );
+		for( double density: new double[] { 0.05, 0.1, 0.2, 0.8, 0.95 } ) {
+			final LongArrayBitVector bitVector = LongArrayBitVector.getInstance().length( 1000000 );
+			for( int i = 1000000; i-- != 0; ) if ( r.nextDouble() < density ) bitVector.set( i );
+			final RRRRankSelect rrr = new RRRRankSelect( bitVector );
+			assertTrue( rrr.numBits() + " >= " + bitVector.length(), rrr.numBits() < bitVector.length() );
+		}
+
+		// Clustered ones
+		final LongArrayBitVector bitVector = LongArrayBitVector.getInstance().length( 1000000 );
+		for( int i = 0; i < 1000000; ) {
+			final int run = r.nextInt( 2000 );
+			if ( r.nextInt( 4 ) == 0 ) for( int j = i; j < Math.min( i + run, 1000000 ); j++ ) bitVector.set( j );
+			i += run;
+		}
+		final RRRRankSelect rrr = new RRRRankSelect( bitVector );
+		assertTrue( rrr.numBits() + " >= " + bitVector.length() / 4, rrr.numBits() < bitVector.length() / 4 );
+		final SparseSelect sparseSelect = new SparseSelect( bitVector );
+		assertTrue( rrr.numBits() + " >= " + sparseSelect.numBits(), rrr.numBits() < sparseSelect.numBits() );
+		assertRankAndSelect( rrr, rrr );
+	}
+
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException {
+		final Random r = new XorShift1024StarRandom( 0 );
+		final LongArrayBitVector bitVector = LongArrayBitVector.getInstance().length( 10000 );
+		for( int i = 10000; i-- != 0; ) if ( r.nextInt( 4 ) == 0 ) bitVector.set( i );
+		final File temp = File.createTempFile( getClass().getSimpleName(), "test" );
+		temp.deleteOnExit();
+		BinIO.storeObject( new RRRRankSelect( bitVector ), temp );
+		final RRRRankSelect rrr = (RRRRankSelect)BinIO.loadObject( temp );
+		assertEquals( bitVector, rrr.bitVector() );
+		assertRankAndSelect( rrr, rrr );
+		temp.delete();
+	}
+}
@@ -0,0 +1,143 @@
+package it.unimi.dsi.sux4j.bits;
+
+import static org.junit.Assert.assertEquals;
+import it.unimi.dsi.bits.BitVector;
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.util.XorShift1024StarRandomGenerator;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class RangeMinMaxTreeBalancedParenthesesTest extends BalancedParenthesesTestCase {
+
+	private static LongArrayBitVector randomBalanced( final int numPairs, final int maxDepth, final XorShift1024StarRandomGenerator r ) {
+		final LongArrayBitVector bv = LongArrayBitVector.getInstance();
+		int open = numPairs, depth = 0;
+		while( open > 0 || depth > 0 ) {
+			if ( open > 0 && ( depth == 0 || depth < maxDepth && r.nextBoolean() ) ) {
+				bv.add( 1 );
+				open--;
+				depth++;
+			}
+			else {
+				bv.add( 0 );
+				depth--;
+			}
+		}
+		return bv;
+	}
+
+	private static void assertExtendedBalancedParentheses( final ExtendedBalancedParentheses balancedParentheses, final XorShift1024StarRandomGenerator r ) {
+		final BitVector bits = balancedParentheses.bitVector();
+		final int length = (int)bits.length();
+		final long[] excess = new long[ length + 1 ];
+		for( int i = 0; i < length; i++ ) excess[ i + 1 ] = excess[ i ] + ( bits.getBoolean( i ) ? 1 : -1 );
+		for( int i = 0; i <= length; i++ ) assertEquals( "Excess at " + i, excess[ i ], balancedParentheses.excess( i ) );
+
+		final LongArrayList open = new LongArrayList();
+		for( int i = 0; i < length; i++ ) if ( bits.getBoolean( i ) ) open.add( i );
+
+		for( int k = 0; k < 2000 && length > 0; k++ ) {
+			int from = r.nextInt( length + 1 ), to = r.nextInt( length + 1 );
+			if ( from > to ) {
+				final int t = from;
+				from = to;
+				to = t;
+			}
+			if ( r.nextInt( 4 ) == 0 ) to = Math.min( length, from + r.nextInt( 100 ) );
+			int min = from;
+			for( int i = from; i <= to; i++ ) if ( excess[ i ] < excess[ min ] ) min = i;
+			assertEquals( "rmq(" + from + ", " + to + ")", min, balancedParentheses.rmq( from, to ) );
+
+			final long u = open.getLong( r.nextInt( open.size() ) ), v = open.getLong( r.nextInt( open.size() ) );
+			final int d = r.nextInt( (int)excess[ (int)u ] + 2 );
+			long ancestor = u;
+			for( int i = 0; i < d && ancestor != -1; i++ ) ancestor = balancedParentheses.enclose( ancestor );
+			assertEquals( "levelAncestor(" + u + ", " + d + ")", ancestor, balancedParentheses.levelAncestor( u, d ) );
+
+			long lca = -1;
+			for( long x = u; x != -1 && lca == -1; x = balancedParentheses.enclose( x ) ) {
+				for( long y = v; y != -1; y = balancedParentheses.enclose( y ) ) if ( x == y ) {
+					lca = x;
+					break;
+				}
+			}
+			assertEquals( "lca(" + u + ", " + v + ")", lca, balancedParentheses.lca( u, v ) );
+			assertEquals( ( balancedParentheses.findClose( u ) - u + 1 ) / 2, balancedParentheses.subtreeSize( u ) );
+		}
+	}
+
+	@Test
+	public void testSimple() {
+		final RangeMinMaxTreeBalancedParentheses bp = new RangeMinMaxTreeBalancedParentheses( parse( "(()(()))", true ) );
+		assertBalancedParentheses( bp );
+		assertEquals( 7, bp.findClose( 0 ) );
+		assertEquals( 3, bp.findOpen( 6 ) );
+		assertEquals( 3, bp.enclose( 4 ) );
+		assertEquals( -1, bp.enclose( 0 ) );
+		assertEquals( 0, bp.levelAncestor( 4, 2 ) );
+		assertEquals( -1, bp.levelAncestor( 4, 3 ) );
+		assertEquals( 0, bp.lca( 1, 4 ) );
+		assertEquals( 3, bp.lca( 4, 3 ) );
+		assertEquals( 4, bp.subtreeSize( 0 ) );
+		assertEquals( 2, bp.excess( 4 ) );
+		assertEquals( 1, bp.rmq( 1, 5 ) );
+		assertEquals( 3, bp.rmq( 2, 5 ) );
+	}
+
+	@Test
+	public void testEmpty() {
+		final RangeMinMaxTreeBalancedParentheses bp = new RangeMinMaxTreeBalancedParentheses( LongArrayBitVector.getInstance() );
+		assertEquals( 0, bp.excess( 0 ) );
+		assertEquals( 0, bp.rmq( 0, 0 ) );
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testUnbalanced() {
+		new RangeMinMaxTreeBalancedParentheses( parse( "())(", false ) );
+	}
+
+	@Test
+	public void testLong() {
+		assertBalancedParentheses( new RangeMinMaxTreeBalancedParentheses( new long[] { -1, -1, 0, 0 }, Long.SIZE * 4 ) );
+		assertBalancedParentheses( new RangeMinMaxTreeBalancedParentheses( new long[] { -1, 0xFFFFFFFFL, 0xFFFFFFFFL, 0 }, Long.SIZE * 4 ) );
+		assertBalancedParentheses( new RangeMinMaxTreeBalancedParentheses( new long[] { 0xFFFFFFFFFFFFFFL, 0xFFFFFFL, 0xFFFFFFFFFFL, 0xFF00L }, Long.SIZE * 4 ) );
+	}
+
+	@Test
+	public void testRandom() {
+		final XorShift1024StarRandomGenerator r = new XorShift1024StarRandomGenerator( 0 );
+		for( int numPairs: new int[] { 1, 10, 31, 32, 33, 100, 1000, 10000, 100000 } ) {
+			for( int maxDepth: new int[] { 1, 2, 8, 32, 100, 1000, Integer.MAX_VALUE } ) {
+				final RangeMinMaxTreeBalancedParentheses bp = new RangeMinMaxTreeBalancedParentheses( randomBalanced( numPairs, maxDepth, r ) );
+				assertBalancedParentheses( bp );
+				assertExtendedBalancedParentheses( bp, r );
+			}
+		}
+	}
+
+	@Test
+	public void testForest() {
+		final XorShift1024StarRandomGenerator r = new XorShift1024StarRandomGenerator( 0 );
+		final LongArrayBitVector bv = LongArrayBitVector.getInstance();
+		for( int i = 0; i < 100; i++ ) bv.append( randomBalanced( 1 + r.nextInt( 1000 ), 1 + r.nextInt( 1000 ), r ) );
+		final RangeMinMaxTreeBalancedParentheses bp = new RangeMinMaxTreeBalancedParentheses( bv );
+		assertBalancedParentheses( bp );
+		assertExtendedBalancedParentheses( bp, r );
+	}
+
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException {
+		final XorShift1024StarRandomGenerator r = new XorShift1024StarRandomGenerator( 0 );
+		final File temp = File.createTempFile( getClass().getSimpleName(), "test" );
+		temp.deleteOnExit();
+		BinIO.storeObject( new RangeMinMaxTreeBalancedParentheses( randomBalanced( 10000, 1000, r ) ), temp );
+		final RangeMinMaxTreeBalancedParentheses bp = (RangeMinMaxTreeBalancedParentheses)BinIO.loadObject( temp );
+		assertBalancedParentheses( bp );
+		temp.delete();
+	}
+}
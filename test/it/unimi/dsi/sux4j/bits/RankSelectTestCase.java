@@ -4,6 +4,40 @@ import static org.junit.Assert.assertEquals;
 import it.unimi.dsi.bits.BitVector;
 
 public abstract class RankSelectTestCase {
+
+	/** The maximum number of positions or ranks checked by {@link #assertBatchRank(Rank)} and {@link #assertBatchSelect(Select, long)}. */
+	private static final int BATCH_SAMPLES = 1 << 20;
+	/** The number of positions or ranks passed to each batched call. */
+	private static final int BATCH_SIZE = 1024;
+
+	/** Returns the <var>k</var>-th of <var>n</var> scrambled values in [0..<var>max</var>]; the last one is always <var>max</var>. */
+	private static long scrambled( final long k, final long n, final long max ) {
+		return k == n - 1 ? max : k * 1103515245 % ( max + 1 );
+	}
+
+	/** Checks that batched ranks agree with single ranks on all positions (at most {@link #BATCH_SAMPLES} of them), in a scrambled order. */
+	public static void assertBatchRank( Rank rank ) {
+		final long length = rank.bitVector().length();
+		final long n = Math.min( length + 1, BATCH_SAMPLES );
+		for( long k = 0; k < n; k += BATCH_SIZE ) {
+			final long[] pos = new long[ (int)Math.min( BATCH_SIZE, n - k ) ];
+			for( int i = 0; i < pos.length; i++ ) pos[ i ] = scrambled( k + i, n, length );
+			final long[] dest = rank.rank( pos, new long[ pos.length ] );
+			for( int i = 0; i < pos.length; i++ ) assertEquals( "Ranking " + pos[ i ], rank.rank( pos[ i ] ), dest[ i ] );
+		}
+	}
+
+	/** Checks that batched selects agree with single selects on all ranks and one more (at most {@link #BATCH_SAMPLES} of them), in a scrambled order. */
+	public static void assertBatchSelect( Select select, long count ) {
+		final long n = Math.min( count + 1, BATCH_SAMPLES );
+		for( long k = 0; k < n; k += BATCH_SIZE ) {
+			final long[] rank = new long[ (int)Math.min( BATCH_SIZE, n - k ) ];
+			for( int i = 0; i < rank.length; i++ ) rank[ i ] = scrambled( k + i, n, count );
+			final long[] dest = select.select( rank, new long[ rank.length ] );
+			for( int i = 0; i < rank.length; i++ ) assertEquals( "Selecting " + rank[ i ], select.select( rank[ i ] ), dest[ i ] );
+		}
+	}
+
 	public void assertRankAndSelect( Rank rank, Select select ) {
 		final long length = rank.bitVector().length();
 		final BitVector bits = rank.bitVector();
@@ -16,19 +50,25 @@ public abstract class RankSelectTestCase {
 			}
 			
 		}
+
+		assertBatchRank( rank );
+		assertBatchSelect( select, rank.rank( length ) );
 	}
 
 	public void assertSelect( Select s ) {
 		final BitVector bits = s.bitVector();
 		final long length = bits.length();
 		
-		for( int j = 0, i = 0; i < length; i++ ) {
+		long j = 0;
+		for( int i = 0; i < length; i++ ) {
 			if ( bits.getBoolean( i ) ) {
 				assertEquals( "Selecting " + j, i, s.select( j ) );
 				j++;
 			}
 			
 		}
+
+		assertBatchSelect( s, j );
 	}
 
 	public void assertSelectZero( SelectZero s ) {
@@ -52,6 +92,8 @@ public abstract class RankSelectTestCase {
 			assertEquals( "Ranking " + i, j, rank.rank( i ) );
 			if ( bits.getBoolean( i ) ) j++;
 		}
+
+		assertBatchRank( rank );
 	}
 
 }
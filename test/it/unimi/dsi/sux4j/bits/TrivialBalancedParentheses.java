@@ -36,7 +36,16 @@ public class TrivialBalancedParentheses implements BalancedParentheses {
 	}
 
 	public long enclose( long pos ) {
-		throw new UnsupportedOperationException();
+		if ( ! v.getBoolean( pos ) ) throw new IllegalArgumentException();
+
+		int c = 1;
+		while( --pos >= 0 ) {
+			if ( ! v.getBoolean( pos ) ) c++;
+			else c--;
+			if ( c == 0 ) return pos;
+		}
+		
+		return -1;
 	}
 
 	public long findClose( long pos ) {
@@ -0,0 +1,342 @@
+package it.unimi.dsi.sux4j.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import it.unimi.dsi.bits.TransformationStrategies;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongIterators;
+import it.unimi.dsi.util.XorShift1024StarRandomGenerator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.collections.Predicate;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.junit.Test;
+
+public class ChunkedHashStoreTest {
+
+	private static String[] strings( final int size ) {
+		final String[] s = new String[ size ];
+		for ( int i = s.length; i-- != 0; ) s[ i ] = Integer.toString( i );
+		return s;
+	}
+
+	private static void assertSameChunks( final ChunkedHashStore<CharSequence> expected, final ChunkedHashStore<CharSequence> actual, final int log2Chunks ) throws IOException {
+		assertEquals( expected.size(), actual.size() );
+		expected.log2Chunks( log2Chunks );
+		actual.log2Chunks( log2Chunks );
+		final Iterator<ChunkedHashStore.Chunk> i = expected.iterator(), j = actual.iterator();
+		while( i.hasNext() ) {
+			assertTrue( j.hasNext() );
+			final ChunkedHashStore.Chunk c = i.next(), d = j.next();
+			assertEquals( c.size(), d.size() );
+			final Iterator<long[]> k = c.iterator(), l = d.iterator();
+			while( k.hasNext() ) assertArrayEquals( k.next(), l.next() );
+			assertFalse( l.hasNext() );
+		}
+		assertFalse( j.hasNext() );
+	}
+
+	@Test
+	public void testParallelAddAll() throws IOException {
+		for ( int size : new int[] { 0, 1, 10, 1000, 100000 } ) {
+			final String[] s = strings( size );
+			for ( int threads : new int[] { 1, 2, 3, 8, 100 } ) {
+				final ChunkedHashStore<CharSequence> sequential = new ChunkedHashStore<CharSequence>( TransformationStrategies.utf16() );
+				sequential.reset( 0 );
+				sequential.addAll( Arrays.asList( s ).iterator() );
+
+				final ChunkedHashStore<CharSequence> parallel = new ChunkedHashStore<CharSequence>( TransformationStrategies.utf16() );
+				parallel.reset( 0 );
+				final List<Iterator<String>> elements = new ArrayList<Iterator<String>>();
+				final List<LongIterator> values = new ArrayList<LongIterator>();
+				for ( int t = 0; t < threads; t++ ) {
+					final int from = (int)( (long)size * t / threads ), to = (int)( (long)size * ( t + 1 ) / threads );
+					elements.add( Arrays.asList( s ).subList( from, to ).iterator() );
+					values.add( LongIterators.fromTo( from, to ) );
+				}
+				parallel.addAll( elements, values );
+
+				for ( int log2Chunks : new int[] { 0, 4, 10 } ) assertSameChunks( sequential, parallel, log2Chunks );
+				sequential.close();
+				parallel.close();
+			}
+		}
+	}
+
+	@Test
+	public void testParallelAddAllHashWidth() throws IOException {
+		final String[] s = strings( 10000 );
+		final ChunkedHashStore<CharSequence> sequential = new ChunkedHashStore<CharSequence>( TransformationStrategies.utf16(), null, 10, null );
+		sequential.reset( 0 );
+		sequential.addAll( Arrays.asList( s ).iterator() );
+
+		final ChunkedHashStore<CharSequence> parallel = new ChunkedHashStore<CharSequence>( TransformationStrategies.utf16(), null, 10, null );
+		parallel.reset( 0 );
+		final List<Iterator<String>> elements = new ArrayList<Iterator<String>>();
+		elements.add( Arrays.asList( s ).subList( 0, 5000 ).iterator() );
+		elements.add( Arrays.asList( s ).subList( 5000, 10000 ).iterator() );
+		parallel.addAll( elements, null );
+
+		assertSameChunks( sequential, parallel, 3 );
+		sequential.close();
+		parallel.close();
+	}
+
+	@Test
+	public void testParallelAddAllFailure() throws IOException {
+		final String[] s = strings( 10000 );
+		final ChunkedHashStore<CharSequence> store = new ChunkedHashStore<CharSequence>( TransformationStrategies.utf16() );
+		store.reset( 0 );
+		final List<Iterator<String>> elements = new ArrayList<Iterator<String>>();
+		final List<LongIterator> values = new ArrayList<LongIterator>();
+		elements.add( Arrays.asList( s ).subList( 0, 5000 ).iterator() );
+		values.add( LongIterators.fromTo( 0, 5000 ) );
+		elements.add( Arrays.asList( s ).subList( 5000, 10000 ).iterator() );
+		// Too few values
+		values.add( LongIterators.fromTo( 5000, 9000 ) );
+		try {
+			store.addAll( elements, values );
+			fail();
+		}
+		catch( NoSuchElementException e ) {}
+		try {
+			store.iterator();
+			fail();
+		}
+		catch( IllegalStateException e ) {}
+
+		store.reset( 0 );
+		store.addAll( Arrays.asList( s ).iterator() );
+		final ChunkedHashStore<CharSequence> sequential = new ChunkedHashStore<CharSequence>( TransformationStrategies.utf16() );
+		sequential.reset( 0 );
+		sequential.addAll( Arrays.asList( s ).iterator() );
+		assertSameChunks( sequential, store, 4 );
+		sequential.close();
+		store.close();
+	}
+
+	@Test
+	public void testMapped() throws IOException {
+		for ( int hashWidth : new int[] { 0, 10 } ) {
+			final String[] s = strings( 100000 );
+			final ChunkedHashStore<CharSequence> streamed = new ChunkedHashStore<CharSequence>( TransformationStrategies.utf16(), null, hashWidth, null );
+			streamed.reset( 0 );
+			streamed.addAll( Arrays.asList( s ).iterator() );
+
+			final ChunkedHashStore<CharSequence> mapped = new ChunkedHashStore<CharSequence>( TransformationStrategies.utf16(), null, hashWidth, null );
+			mapped.reset( 0 );
+			mapped.addAll( Arrays.asList( s ).iterator() );
+			mapped.mapped( true );
+
+			for ( int log2Chunks : new int[] { 0, 4, 10 } ) assertSameChunks( streamed, mapped, log2Chunks );
+
+			final Predicate filter = new Predicate() {
+				@Override
+				public boolean evaluate( final Object triple ) {
+					return ( ( (long[])triple )[ 1 ] & 1 ) == 0;
+				}
+			};
+			streamed.filter( filter );
+			mapped.filter( filter );
+			for ( int log2Chunks : new int[] { 0, 4, 10 } ) assertSameChunks( streamed, mapped, log2Chunks );
+
+			streamed.close();
+			mapped.close();
+		}
+	}
+
+	@Test
+	public void testPrefetch() throws IOException {
+		for ( boolean mapped : new boolean[] { false, true } ) {
+			final String[] s = strings( 100000 );
+			final ChunkedHashStore<CharSequence> plain = new ChunkedHashStore<CharSequence>( TransformationStrategies.utf16() );
+			plain.reset( 0 );
+			plain.addAll( Arrays.asList( s ).iterator() );
+
+			final ChunkedHashStore<CharSequence> prefetching = new ChunkedHashStore<CharSequence>( TransformationStrategies.utf16() );
+			prefetching.reset( 0 );
+			prefetching.addAll( Arrays.asList( s ).iterator() );
+			prefetching.mapped( mapped );
+			prefetching.prefetch( true );
+
+			for ( int log2Chunks : new int[] { 0, 4, 8, 10 } ) assertSameChunks( plain, prefetching, log2Chunks );
+
+			plain.close();
+			prefetching.close();
+		}
+	}
+
+	@Test
+	public void testDiskChunks() throws IOException {
+		final String[] s = strings( 100000 );
+		final Predicate filter = new Predicate() {
+			@Override
+			public boolean evaluate( final Object triple ) {
+				return ( ( (long[])triple )[ 2 ] & 1 ) == 0;
+			}
+		};
+		for ( int hashWidth : new int[] { 0, 10 } ) {
+			final ChunkedHashStore<CharSequence> standard = new ChunkedHashStore<CharSequence>( TransformationStrategies.utf16(), null, hashWidth, null );
+			standard.reset( 0 );
+			standard.addAll( Arrays.asList( s ).iterator() );
+
+			for ( int log2DiskChunks : new int[] { 1, 4, 8, 12 } ) {
+				for ( boolean compact : new boolean[] { false, true } ) {
+					final ChunkedHashStore<CharSequence> store = new ChunkedHashStore<CharSequence>( TransformationStrategies.utf16(), null, hashWidth, log2DiskChunks, compact, null );
+					assertEquals( log2DiskChunks, store.log2DiskChunks() );
+					store.reset( 0 );
+					// Mix sequential and parallel additions
+					store.addAll( Arrays.asList( s ).subList( 0, 50000 ).iterator() );
+					final List<Iterator<String>> elements = new ArrayList<Iterator<String>>();
+					final List<LongIterator> values = new ArrayList<LongIterator>();
+					elements.add( Arrays.asList( s ).subList( 50000, 75000 ).iterator() );
+					values.add( LongIterators.fromTo( 50000, 75000 ) );
+					elements.add( Arrays.asList( s ).subList( 75000, 100000 ).iterator() );
+					values.add( LongIterators.fromTo( 75000, 100000 ) );
+					store.addAll( elements, values );
+
+					for ( boolean mapped : new boolean[] { false, true } ) {
+						store.mapped( mapped );
+						for ( int log2Chunks : new int[] { 0, 4, 10 } ) assertSameChunks( standard, store, log2Chunks );
+						standard.filter( filter );
+						store.filter( filter );
+						for ( int log2Chunks : new int[] { 0, 4, 10 } ) assertSameChunks( standard, store, log2Chunks );
+						standard.filter( null );
+						store.filter( null );
+					}
+					store.close();
+				}
+			}
+			standard.close();
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNoDiskChunks() throws IOException {
+		new ChunkedHashStore<CharSequence>( TransformationStrategies.utf16(), null, 0, 0, false, null );
+	}
+
+	@Test
+	public void testPrefetchAbandoned() throws IOException {
+		final String[] s = strings( 100000 );
+		final ChunkedHashStore<CharSequence> plain = new ChunkedHashStore<CharSequence>( TransformationStrategies.utf16() );
+		plain.reset( 1 );
+		plain.addAll( Arrays.asList( s ).iterator() );
+
+		final ChunkedHashStore<CharSequence> prefetching = new ChunkedHashStore<CharSequence>( TransformationStrategies.utf16() );
+		prefetching.prefetch( true );
+		prefetching.log2Chunks( 4 );
+		for( int k = 0; k < 10; k++ ) {
+			prefetching.reset( 0 );
+			prefetching.addAll( Arrays.asList( s ).iterator() );
+			// Abandon the iterator while the next virtual disk chunk is being loaded
+			final Iterator<ChunkedHashStore.Chunk> iterator = prefetching.iterator();
+			iterator.next();
+			prefetching.reset( 1 );
+			prefetching.addAll( Arrays.asList( s ).iterator() );
+			try {
+				while( iterator.hasNext() ) iterator.next();
+			}
+			catch( IllegalStateException e ) {}
+			assertSameChunks( plain, prefetching, 4 );
+		}
+		plain.close();
+		prefetching.close();
+	}
+
+	@Test(expected=ChunkedHashStore.DuplicateException.class)
+	public void testPrefetchDuplicates() throws IOException {
+		final ChunkedHashStore<CharSequence> store = new ChunkedHashStore<CharSequence>( TransformationStrategies.utf16() );
+		try {
+			store.addAll( Arrays.asList( strings( 10000 ) ).iterator() );
+			store.add( "0" );
+			store.prefetch( true );
+			store.log2Chunks( 4 );
+			store.check();
+		}
+		finally {
+			store.close();
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testParallelAddAllNoValues() throws IOException {
+		final ChunkedHashStore<CharSequence> store = new ChunkedHashStore<CharSequence>( TransformationStrategies.utf16() );
+		try {
+			final List<Iterator<String>> elements = new ArrayList<Iterator<String>>();
+			elements.add( Arrays.asList( strings( 10 ) ).iterator() );
+			store.addAll( elements, null );
+		}
+		finally {
+			store.close();
+		}
+	}
+
+	private static void checkRadixSort( final long[][] quadruple, final boolean withData ) {
+		final int n = quadruple.length;
+		final long[] buffer0 = new long[ n ], buffer1 = new long[ n ], buffer2 = new long[ n ], data = withData ? new long[ n ] : null;
+		for( int i = 0; i < n; i++ ) {
+			buffer0[ i ] = quadruple[ i ][ 0 ];
+			buffer1[ i ] = quadruple[ i ][ 1 ];
+			buffer2[ i ] = quadruple[ i ][ 2 ];
+			if ( withData ) data[ i ] = quadruple[ i ][ 3 ];
+		}
+
+		final long[][] sorted = quadruple.clone();
+		Arrays.sort( sorted, new Comparator<long[]>() {
+			@Override
+			public int compare( final long[] x, final long[] y ) {
+				for( int i = 0; i < 3; i++ ) if ( x[ i ] != y[ i ] ) return Long.compare( x[ i ] + Long.MIN_VALUE, y[ i ] + Long.MIN_VALUE );
+				return 0;
+			}
+		});
+		boolean duplicates = false;
+		for( int i = 1; i < n; i++ ) if ( sorted[ i - 1 ][ 0 ] == sorted[ i ][ 0 ] && sorted[ i - 1 ][ 1 ] == sorted[ i ][ 1 ] && sorted[ i - 1 ][ 2 ] == sorted[ i ][ 2 ] ) duplicates = true;
+
+		assertEquals( Boolean.valueOf( duplicates ), Boolean.valueOf( ChunkedHashStore.radixSort( buffer0, buffer1, buffer2, data, n ) ) );
+		for( int i = 0; i < n; i++ ) {
+			assertEquals( sorted[ i ][ 0 ], buffer0[ i ] );
+			assertEquals( sorted[ i ][ 1 ], buffer1[ i ] );
+			assertEquals( sorted[ i ][ 2 ], buffer2[ i ] );
+			// Data of duplicate triples can be permuted
+			if ( withData && ! duplicates ) assertEquals( sorted[ i ][ 3 ], data[ i ] );
+		}
+	}
+
+	@Test
+	public void testRadixSort() {
+		final RandomGenerator r = new XorShift1024StarRandomGenerator( 0 );
+		for( int n : new int[] { 0, 1, 2, 10, 63, 64, 65, 1000, 100000 } ) {
+			for( long mask : new long[] { -1L, -1L >>> 8, 0xFFFF, 0xFFFF0000L, 0, 1 } ) {
+				// Almost constant first hashes lead to quadratic insertion sorts
+				if ( n > 1000 && ( mask == 0 || mask == 1 ) ) continue;
+				final long[][] quadruple = new long[ n ][ 4 ];
+				for( int i = 0; i < n; i++ ) {
+					quadruple[ i ][ 0 ] = r.nextLong() & mask | 0xA5L << 56;
+					quadruple[ i ][ 1 ] = mask == 0 ? r.nextInt( 4 ) : r.nextLong();
+					quadruple[ i ][ 2 ] = r.nextLong();
+					quadruple[ i ][ 3 ] = i;
+				}
+				checkRadixSort( quadruple, true );
+				checkRadixSort( quadruple, false );
+
+				if ( n > 1 ) {
+					// Add a duplicate
+					quadruple[ r.nextInt( n ) ] = quadruple[ r.nextInt( n ) ].clone();
+					quadruple[ 0 ] = quadruple[ n - 1 ].clone();
+					checkRadixSort( quadruple, true );
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package it.unimi.dsi.sux4j.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.io.FastBufferedInputStream;
+import it.unimi.dsi.fastutil.io.FastBufferedInputStream.LineTerminator;
+import it.unimi.dsi.util.XorShift1024StarRandomGenerator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class FileLinesBigListTest {
+
+	private static File write( final String content, final String encoding ) throws IOException {
+		final File t = File.createTempFile( FileLinesBigListTest.class.getName(), "tmp" );
+		t.deleteOnExit();
+		final FileOutputStream fos = new FileOutputStream( t );
+		fos.write( content.getBytes( encoding ) );
+		fos.close();
+		return t;
+	}
+
+	private static void assertSameLines( final String content, final String encoding, final EnumSet<LineTerminator> terminators ) throws IOException, ClassNotFoundException {
+		final File t = write( content, encoding );
+		final FileLinesBigList list = new FileLinesBigList( t.toString(), encoding, FastBufferedInputStream.DEFAULT_BUFFER_SIZE, terminators );
+		final FileLinesBigList mapped = new FileLinesBigList( t.toString(), encoding, FastBufferedInputStream.DEFAULT_BUFFER_SIZE, terminators, true );
+		assertFalse( list.mapped() );
+		assertTrue( mapped.mapped() );
+		assertEquals( list.size64(), mapped.size64() );
+		for( long i = 0; i < list.size64(); i++ ) assertEquals( list.get( i ), mapped.get( i ) );
+		assertEquals( list, mapped );
+
+		final File temp = File.createTempFile( FileLinesBigListTest.class.getName(), "ser" );
+		temp.deleteOnExit();
+		for( FileLinesBigList l: new FileLinesBigList[] { list, mapped } ) {
+			BinIO.storeObject( l, temp );
+			final FileLinesBigList loaded = (FileLinesBigList)BinIO.loadObject( temp );
+			assertEquals( l.mapped(), loaded.mapped() );
+			assertEquals( list, loaded );
+		}
+		temp.delete();
+		t.delete();
+	}
+
+	@Test
+	public void testMapped() throws IOException, ClassNotFoundException {
+		final List<EnumSet<LineTerminator>> terminatorSets = Arrays.asList( FastBufferedInputStream.ALL_TERMINATORS, EnumSet.of( LineTerminator.LF ), EnumSet.of( LineTerminator.CR ), EnumSet.of( LineTerminator.CR_LF ), EnumSet.of( LineTerminator.LF, LineTerminator.CR ) );
+		for( EnumSet<LineTerminator> terminators: terminatorSets ) {
+			assertSameLines( "\naa\naaaa\n\naa\n", "ASCII", terminators );
+			assertSameLines( "\n\n\n", "ASCII", terminators );
+			assertSameLines( "\n\na", "ASCII", terminators );
+			assertSameLines( "a\r\nb\rc\n\r\n\r\rd\r", "ASCII", terminators );
+			assertSameLines( "èé\n€\r\nx", "UTF-8", terminators );
+			assertSameLines( "", "ASCII", terminators );
+		}
+	}
+
+	@Test
+	public void testConcurrent() throws IOException, InterruptedException {
+		final XorShift1024StarRandomGenerator r = new XorShift1024StarRandomGenerator( 0 );
+		final StringBuilder s = new StringBuilder();
+		for( int i = 0; i < 10000; i++ ) {
+			for( int j = r.nextInt( 100 ); j-- != 0; ) s.append( (char)( 'a' + r.nextInt( 26 ) ) );
+			s.append( '\n' );
+		}
+		final File t = write( s.toString(), "ASCII" );
+		final FileLinesBigList list = new FileLinesBigList( t.toString(), "ASCII" );
+		final FileLinesBigList mapped = new FileLinesBigList( t.toString(), "ASCII", FastBufferedInputStream.DEFAULT_BUFFER_SIZE, FastBufferedInputStream.ALL_TERMINATORS, true );
+
+		final AtomicInteger errors = new AtomicInteger();
+		final Thread[] thread = new Thread[ 4 ];
+		for( int i = thread.length; i-- != 0; ) {
+			final int seed = i;
+			thread[ i ] = new Thread() {
+				@Override
+				public void run() {
+					final XorShift1024StarRandomGenerator r = new XorShift1024StarRandomGenerator( seed );
+					for( int k = 0; k < 100000; k++ ) {
+						final long index = r.nextInt( (int)mapped.size64() );
+						final String expected;
+						synchronized( list ) {
+							expected = list.get( index ).toString();
+						}
+						if ( ! expected.equals( mapped.get( index ).toString() ) ) errors.incrementAndGet();
+					}
+				}
+			};
+			thread[ i ].start();
+		}
+		for( Thread x: thread ) x.join();
+		assertEquals( 0, errors.get() );
+		t.delete();
+	}
+}
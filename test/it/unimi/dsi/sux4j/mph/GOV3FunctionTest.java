@@ -1,11 +1,13 @@
 package it.unimi.dsi.sux4j.mph;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import it.unimi.dsi.bits.TransformationStrategies;
 import it.unimi.dsi.fastutil.io.BinIO;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.longs.LongLists;
 import it.unimi.dsi.sux4j.io.ChunkedHashStore;
+import it.unimi.dsi.util.XorShift1024StarRandomGenerator;
 
 import java.io.File;
 import java.io.IOException;
@@ -29,6 +31,100 @@ public class GOV3FunctionTest {
 		else for ( int i = size; i-- != 0; ) assertEquals( -1, mph.getLong( Integer.toString( i + size ) ) );
 	}
 
+	@Test
+	public void testBatch() throws IOException {
+		for ( int size : new int[] { 0, 1, 10, 1000, 100000 } ) {
+			final String[] s = new String[ size ];
+			for ( int i = s.length; i-- != 0; ) s[ i ] = Integer.toString( i );
+			// Keys followed by non-keys
+			final String[] t = new String[ 2 * size ];
+			for ( int i = t.length; i-- != 0; ) t[ i ] = Integer.toString( i );
+
+			for ( int signatureWidth : new int[] { -32, 0, 32 } ) {
+				checkBatch( new GOV3Function.Builder<CharSequence>().keys( Arrays.asList( s ) ).transform( TransformationStrategies.utf16() ).signed( signatureWidth ).build(), s, t );
+				checkBatch( new GOV3Function.Builder<CharSequence>().keys( Arrays.asList( s ) ).transform( TransformationStrategies.utf16() ).signed( signatureWidth ).compacted().build(), s, t );
+			}
+		}
+	}
+
+	private static void checkBatch( final GOV3Function<CharSequence> f, final String[] s, final String[] t ) {
+		final long[] result = new long[ t.length ];
+		f.getLongs( t, result );
+		for ( int i = t.length; i-- != 0; ) assertEquals( f.getLong( t[ i ] ), result[ i ] );
+		for ( int batchSize : new int[] { 1, 3, 64 } ) {
+			f.getLongs( t, result, batchSize );
+			for ( int i = t.length; i-- != 0; ) assertEquals( f.getLong( t[ i ] ), result[ i ] );
+		}
+
+		final long[] triple = new long[ 3 * s.length ], h = new long[ 3 ];
+		for ( int i = s.length; i-- != 0; ) {
+			Hashes.spooky4( TransformationStrategies.utf16().toBitVector( s[ i ] ), f.globalSeed, h );
+			System.arraycopy( h, 0, triple, 3 * i, 3 );
+		}
+		for ( int batchSize : new int[] { 1, 3, 16, 64 } ) {
+			f.getLongsByTriple( triple, result, batchSize );
+			for ( int i = s.length; i-- != 0; ) {
+				System.arraycopy( triple, 3 * i, h, 0, 3 );
+				assertEquals( f.getLongByTriple( h ), result[ i ] );
+			}
+		}
+	}
+
+	@Test
+	public void testDump() throws IOException, ClassNotFoundException {
+		for ( int size : new int[] { 0, 1, 10, 1000, 100000 } ) {
+			final String[] s = new String[ size ];
+			for ( int i = s.length; i-- != 0; ) s[ i ] = Integer.toString( i );
+			// Keys followed by non-keys
+			final String[] t = new String[ 2 * size ];
+			for ( int i = t.length; i-- != 0; ) t[ i ] = Integer.toString( i );
+
+			for ( int signatureWidth : new int[] { -32, 0, 32, 64 } ) 
+				checkDump( new GOV3Function.Builder<CharSequence>().keys( Arrays.asList( s ) ).transform( TransformationStrategies.utf16() ).signed( signatureWidth ).build(), t );
+
+			for ( int outputWidth : new int[] { 1, 20, 63, 64 } ) {
+				final long[] v = new long[ size ];
+				final XorShift1024StarRandomGenerator r = new XorShift1024StarRandomGenerator( 0 );
+				for ( int i = v.length; i-- != 0; ) v[ i ] = r.nextLong() >>> Long.SIZE - outputWidth;
+				checkDump( new GOV3Function.Builder<CharSequence>().keys( Arrays.asList( s ) ).transform( TransformationStrategies.utf16() ).values( LongArrayList.wrap( v ), outputWidth ).build(), t );
+			}
+		}
+	}
+
+	private void checkDump( final GOV3Function<CharSequence> f, final String[] t ) throws IOException, ClassNotFoundException {
+		final File temp = File.createTempFile( getClass().getSimpleName(), "test" );
+		temp.deleteOnExit();
+		f.dump( temp.toString() );
+		final GOV3Function<CharSequence> g = GOV3Function.load( temp.toString() );
+		assertEquals( f.size64(), g.size64() );
+		assertEquals( f.numBits(), g.numBits() );
+		if ( f.data != null ) assertEquals( f.data, g.data );
+		if ( f.signatures != null ) assertEquals( f.signatures, g.signatures );
+		for ( int i = t.length; i-- != 0; ) assertEquals( f.getLong( t[ i ] ), g.getLong( t[ i ] ) );
+		final long[] result = new long[ t.length ];
+		g.getLongs( t, result );
+		for ( int i = t.length; i-- != 0; ) assertEquals( f.getLong( t[ i ] ), result[ i ] );
+		temp.delete();
+	}
+
+	@Test
+	public void testDumpCompacted() throws IOException, ClassNotFoundException {
+		for ( int size : new int[] { 0, 1, 10, 1000, 100000 } ) {
+			final String[] s = new String[ size ];
+			for ( int i = s.length; i-- != 0; ) s[ i ] = Integer.toString( i );
+			final String[] t = new String[ 2 * size ];
+			for ( int i = t.length; i-- != 0; ) t[ i ] = Integer.toString( i );
+
+			for ( int signatureWidth : new int[] { 0, 32 } ) 
+				checkDump( new GOV3Function.Builder<CharSequence>().keys( Arrays.asList( s ) ).transform( TransformationStrategies.utf16() ).signed( signatureWidth ).compacted().build(), t );
+
+			final long[] v = new long[ size ];
+			final XorShift1024StarRandomGenerator r = new XorShift1024StarRandomGenerator( 0 );
+			for ( int i = v.length; i-- != 0; ) v[ i ] = r.nextLong() >>> Long.SIZE - 20;
+			checkDump( new GOV3Function.Builder<CharSequence>().keys( Arrays.asList( s ) ).transform( TransformationStrategies.utf16() ).values( LongArrayList.wrap( v ), 20 ).compacted().build(), t );
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	@Test
 	public void testNumbers() throws IOException, ClassNotFoundException {
@@ -63,6 +159,27 @@ public class GOV3FunctionTest {
 		}
 	}
 
+	@Test
+	public void testThreads() throws IOException {
+		for ( int size : new int[] { 0, 1, 10, 1000, 100000 } ) {
+			String[] s = new String[ size ];
+			for ( int i = s.length; i-- != 0; ) s[ i ] = Integer.toString( i );
+
+			final GOV3Function<CharSequence> sequential = new GOV3Function.Builder<CharSequence>().keys( Arrays.asList( s ) ).transform( TransformationStrategies.utf16() ).build();
+			for ( int threads : new int[] { 2, 4 } ) {
+				final ChunkedHashStore<CharSequence> chunkedHashStore = new ChunkedHashStore<CharSequence>( TransformationStrategies.utf16() );
+				chunkedHashStore.reset( sequential.globalSeed );
+				chunkedHashStore.addAll( Arrays.asList( s ).iterator() );
+				final GOV3Function<CharSequence> parallel = new GOV3Function.Builder<CharSequence>().store( chunkedHashStore ).threads( threads ).build();
+				chunkedHashStore.close();
+
+				check( size, s, parallel, 0 );
+				assertArrayEquals( sequential.offsetAndSeed, parallel.offsetAndSeed );
+				assertEquals( sequential.data, parallel.data );
+			}
+		}
+	}
+
 	@Test
 	public void testLongNumbers() throws IOException {
 		LongArrayList l = new LongArrayList( new long[] { 0x234904309830498L, 0xae049345e9eeeeeL, 0x23445234959234L, 0x239234eaeaeaeL } );
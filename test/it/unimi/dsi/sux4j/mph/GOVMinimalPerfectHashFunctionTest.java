@@ -29,6 +29,44 @@ public class GOVMinimalPerfectHashFunctionTest {
 			else mph.getLong( Integer.toString( i + size ) );
 	}
 
+	@Test
+	public void testBatch() throws IOException {
+		for ( int size : new int[] { 0, 1, 10, 1000, 100000 } ) {
+			final String[] s = new String[ size ];
+			for ( int i = s.length; i-- != 0; ) s[ i ] = Integer.toString( i );
+			// Keys followed by non-keys
+			final String[] t = new String[ 2 * size ];
+			for ( int i = t.length; i-- != 0; ) t[ i ] = Integer.toString( i );
+
+			for ( int signatureWidth : new int[] { 0, 32 } ) {
+				checkBatch( new GOVMinimalPerfectHashFunction.Builder<CharSequence>().keys( Arrays.asList( s ) ).transform( TransformationStrategies.utf16() ).signed( signatureWidth ).build(), s, t );
+			}
+		}
+	}
+
+	private static void checkBatch( final GOVMinimalPerfectHashFunction<CharSequence> f, final String[] s, final String[] t ) {
+		final long[] result = new long[ t.length ];
+		f.getLongs( t, result );
+		for ( int i = t.length; i-- != 0; ) assertEquals( f.getLong( t[ i ] ), result[ i ] );
+		for ( int batchSize : new int[] { 1, 3, 64 } ) {
+			f.getLongs( t, result, batchSize );
+			for ( int i = t.length; i-- != 0; ) assertEquals( f.getLong( t[ i ] ), result[ i ] );
+		}
+
+		final long[] triple = new long[ 3 * s.length ], h = new long[ 3 ];
+		for ( int i = s.length; i-- != 0; ) {
+			Hashes.spooky4( TransformationStrategies.utf16().toBitVector( s[ i ] ), f.globalSeed, h );
+			System.arraycopy( h, 0, triple, 3 * i, 3 );
+		}
+		for ( int batchSize : new int[] { 1, 3, 16, 64 } ) {
+			f.getLongsByTriple( triple, result, batchSize );
+			for ( int i = s.length; i-- != 0; ) {
+				System.arraycopy( triple, 3 * i, h, 0, 3 );
+				assertEquals( f.getLongByTriple( h ), result[ i ] );
+			}
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	@Test
 	public void testNumbers() throws IOException, ClassNotFoundException {
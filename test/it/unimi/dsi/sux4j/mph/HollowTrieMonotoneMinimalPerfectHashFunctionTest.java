@@ -115,4 +115,26 @@ public class HollowTrieMonotoneMinimalPerfectHashFunctionTest {
 		assertEquals( n, hollowTrie.size64() );
 
 	}
+
+	@Test
+	public void testRangeMinMaxTree() {
+		Random r = new XorShift1024StarRandom( 0 );
+		final int n = 10000;
+		final LongArrayBitVector[] bitVector = new LongArrayBitVector[ n ];
+		for ( int i = 0; i < n; i++ ) {
+			bitVector[ i ] = LongArrayBitVector.getInstance();
+			int l = 40;
+			while ( l-- != 0 )
+				bitVector[ i ].add( r.nextBoolean() );
+		}
+
+		Arrays.sort( bitVector );
+
+		final HollowTrieMonotoneMinimalPerfectHashFunction<LongArrayBitVector> hollowTrie = new HollowTrieMonotoneMinimalPerfectHashFunction<LongArrayBitVector>( Arrays.asList( bitVector ).iterator(),
+				TransformationStrategies.identity(), true );
+
+		for ( int i = 0; i < n; i++ )
+			assertEquals( i, hollowTrie.getLong( bitVector[ i ] ) );
+		assertEquals( n, hollowTrie.size64() );
+	}
 }
@@ -0,0 +1,57 @@
+package it.unimi.dsi.sux4j.mph;
+
+import static org.junit.Assert.assertEquals;
+import it.unimi.dsi.bits.TransformationStrategies;
+import it.unimi.dsi.bits.TransformationStrategy;
+import it.unimi.dsi.util.XorShift1024StarRandom;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class LookupContextTest {
+
+	@Test
+	public void testSharedContext() throws IOException {
+		final XorShift1024StarRandom r = new XorShift1024StarRandom( 0 );
+		final TreeSet<String> set = new TreeSet<String>();
+		// Keys of very different lengths, so that scratch space must grow and be reused on shorter keys
+		while( set.size() < 2000 ) {
+			final char[] c = new char[ 1 + r.nextInt( r.nextBoolean() ? 8 : 100 ) ];
+			for( int i = c.length; i-- != 0; ) c[ i ] = (char)( 'a' + r.nextInt( 4 ) );
+			set.add( new String( c ) );
+		}
+		final List<String> s = new ArrayList<String>( set );
+		final TransformationStrategy<CharSequence> transform = TransformationStrategies.prefixFreeIso();
+
+		final LcpMonotoneMinimalPerfectHashFunction<String> lcp = new LcpMonotoneMinimalPerfectHashFunction.Builder<String>().keys( s ).transform( transform ).build();
+		final TwoStepsLcpMonotoneMinimalPerfectHashFunction<String> twoStepsLcp = new TwoStepsLcpMonotoneMinimalPerfectHashFunction.Builder<String>().keys( s ).transform( transform ).build();
+		final VLLcpMonotoneMinimalPerfectHashFunction<String> vlLcp = new VLLcpMonotoneMinimalPerfectHashFunction<String>( s, transform );
+		final ZFastTrieDistributorMonotoneMinimalPerfectHashFunction<String> zFast = new ZFastTrieDistributorMonotoneMinimalPerfectHashFunction.Builder<String>().keys( s ).transform( transform ).build();
+		final HollowTrieDistributorMonotoneMinimalPerfectHashFunction<String> hollow = new HollowTrieDistributorMonotoneMinimalPerfectHashFunction<String>( s, transform );
+		final PaCoTrieDistributorMonotoneMinimalPerfectHashFunction<String> paCo = new PaCoTrieDistributorMonotoneMinimalPerfectHashFunction<String>( s, transform );
+		final VLPaCoTrieDistributorMonotoneMinimalPerfectHashFunction<String> vlPaCo = new VLPaCoTrieDistributorMonotoneMinimalPerfectHashFunction<String>( s, transform );
+
+		final LookupContext context = new LookupContext();
+		for( int k = 0; k < 2; k++ ) {
+			for( int i = 0; i < s.size(); i++ ) {
+				// Random order, so that consecutive lookups have keys of different lengths
+				final int j = r.nextInt( s.size() );
+				final String t = s.get( j );
+				assertEquals( t, j, lcp.getLong( t, context ) );
+				assertEquals( t, j, zFast.getLong( t, context ) );
+				assertEquals( t, j, twoStepsLcp.getLong( t, context ) );
+				assertEquals( t, j, paCo.getLong( t, context ) );
+				assertEquals( t, j, vlLcp.getLong( t, context ) );
+				assertEquals( t, j, vlPaCo.getLong( t, context ) );
+				assertEquals( t, j, hollow.getLong( t, context ) );
+				// The per-thread default context
+				assertEquals( t, j, zFast.getLong( t ) );
+				assertEquals( t, j, paCo.getLong( t ) );
+			}
+		}
+	}
+}
@@ -0,0 +1,264 @@
+package it.unimi.dsi.sux4j.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import it.unimi.dsi.bits.TransformationStrategies;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.objects.ObjectBidirectionalIterator;
+import it.unimi.dsi.fastutil.objects.ObjectSortedSet;
+import it.unimi.dsi.util.XorShift1024StarRandom;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class ConcurrentZFastTrieTest {
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSequential() throws IOException, ClassNotFoundException {
+		final XorShift1024StarRandom r = new XorShift1024StarRandom( 0 );
+		for( int d = 10; d < 10000; d *= 10 ) {
+			final String[] s = new String[ d ];
+			for( int i = s.length; i-- != 0; ) s[ i ] = ZFastTrieTest.binary( 2 * i );
+			Collections.shuffle( Arrays.asList( s ), r );
+
+			ConcurrentZFastTrie<String> czft = new ConcurrentZFastTrie<String>( Arrays.asList( s ), TransformationStrategies.prefixFreeIso() );
+			final ZFastTrie<String> zft = new ZFastTrie<String>( Arrays.asList( s ), TransformationStrategies.prefixFreeIso() );
+
+			for( int i = s.length; i-- != 0; ) assertTrue( s[ i ], czft.contains( s[ i ] ) );
+			for( int i = 2 * s.length; i-- != 0; ) {
+				final String t = ZFastTrieTest.binary( i );
+				assertEquals( t, zft.contains( t ), czft.contains( t ) );
+				assertEquals( t, zft.pred( t ), czft.pred( t ) );
+				assertEquals( t, zft.succ( t ), czft.succ( t ) );
+			}
+
+			final File temp = File.createTempFile( getClass().getSimpleName(), "test" );
+			temp.deleteOnExit();
+			BinIO.storeObject( czft, temp );
+			czft = (ConcurrentZFastTrie<String>)BinIO.loadObject( temp );
+			for( int i = s.length; i-- != 0; ) assertTrue( s[ i ], czft.contains( s[ i ] ) );
+
+			Collections.sort( Arrays.asList( s ) );
+			assertEquals( s[ 0 ], czft.first() );
+			assertEquals( s[ s.length - 1 ], czft.last() );
+
+			int p = 0;
+			ObjectBidirectionalIterator<String> iterator;
+			for( iterator = czft.iterator(); iterator.hasNext(); ) assertEquals( s[ p++ ], iterator.next() );
+			assertEquals( s.length, p );
+			while( iterator.hasPrevious() ) assertEquals( s[ --p ], iterator.previous() );
+			assertEquals( 0, p );
+
+			for( int i = 0; i < s.length; i += 7 ) {
+				p = i;
+				iterator = czft.iterator( s[ i ] );
+				// Alternate directions
+				assertEquals( s[ p ], iterator.next() );
+				if ( p > 0 ) {
+					assertEquals( s[ p ], iterator.previous() );
+					assertEquals( s[ p - 1 ], iterator.previous() );
+					assertEquals( s[ p - 1 ], iterator.next() );
+					assertEquals( s[ p ], iterator.next() );
+				}
+				p++;
+				while( iterator.hasNext() ) assertEquals( s[ p++ ], iterator.next() );
+			}
+
+			// Modifications between iteration steps
+			iterator = czft.iterator();
+			assertEquals( s[ 0 ], iterator.next() );
+			if ( s.length > 2 ) {
+				assertTrue( iterator.hasNext() );
+				czft.remove( s[ 1 ] );
+				czft.remove( s[ 0 ] );
+				// The next element has been already computed
+				assertEquals( s[ 1 ], iterator.next() );
+				assertEquals( s[ 2 ], iterator.next() );
+				czft.add( s[ 1 ] );
+				assertEquals( s[ 2 ], iterator.previous() );
+				assertEquals( s[ 1 ], iterator.previous() );
+				assertFalse( iterator.hasPrevious() );
+			}
+
+			for( int i = s.length; i-- != 0; ) {
+				czft.remove( s[ i ] );
+				assertFalse( czft.contains( s[ i ] ) );
+			}
+			assertFalse( czft.iterator().hasNext() );
+			assertNull( czft.succ( s[ 0 ] ) );
+		}
+	}
+
+	@Test
+	public void testReadersAndWriter() throws InterruptedException {
+		final int n = 2000;
+		// Even keys are never removed, odd keys are continuously added and removed
+		final String[] stable = new String[ n ];
+		for( int i = n; i-- != 0; ) stable[ i ] = ZFastTrieTest.binary( 2 * i );
+		final ConcurrentZFastTrie<String> czft = new ConcurrentZFastTrie<String>( Arrays.asList( stable ), TransformationStrategies.prefixFreeIso() );
+
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final Thread[] reader = new Thread[ 3 ];
+		for( int t = reader.length; t-- != 0; ) {
+			final int seed = t;
+			reader[ t ] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						final XorShift1024StarRandom r = new XorShift1024StarRandom( seed );
+						for( int k = 0; k < 20; k++ ) {
+							for( int j = 0; j < 5000; j++ ) {
+								final int i = r.nextInt( n );
+								assertTrue( stable[ i ], czft.contains( stable[ i ] ) );
+								assertEquals( stable[ i ], czft.succ( stable[ i ] ) );
+								final String pred = czft.pred( stable[ i ] );
+								assertTrue( pred, ZFastTrieTest.binary( 2 * i - 1 ).equals( pred ) || ( i > 0 ? stable[ i - 1 ].equals( pred ) : pred == null ) );
+								final String succ = czft.succ( ZFastTrieTest.binary( 2 * i + 1 ) );
+								assertTrue( succ, ZFastTrieTest.binary( 2 * i + 1 ).equals( succ ) || ( i < n - 1 ? stable[ i + 1 ].equals( succ ) : succ == null ) );
+							}
+
+							// Every stable key must be returned, in order
+							int p = 0;
+							String last = null;
+							for( ObjectBidirectionalIterator<String> iterator = czft.iterator(); iterator.hasNext(); ) {
+								final String s = iterator.next();
+								assertTrue( last + " >= " + s, last == null || last.compareTo( s ) < 0 );
+								if ( p < n && s.equals( stable[ p ] ) ) p++;
+								last = s;
+							}
+							assertEquals( n, p );
+
+							// The same holds for range views, whose size is bounded by the number of stable and unstable keys
+							final int lo = r.nextInt( n ), hi = lo + r.nextInt( n - lo + 1 );
+							final ObjectSortedSet<String> subSet = czft.subSet( stable[ lo ], hi < n ? stable[ hi ] : ZFastTrieTest.binary( 2 * n ) );
+							final int size = subSet.size();
+							assertTrue( Integer.toString( size ), size >= hi - lo && size <= 2 * ( hi - lo ) );
+							p = lo;
+							last = null;
+							for( ObjectBidirectionalIterator<String> iterator = subSet.iterator(); iterator.hasNext(); ) {
+								final String s = iterator.next();
+								assertTrue( last + " >= " + s, last == null || last.compareTo( s ) < 0 );
+								assertTrue( s, s.compareTo( stable[ lo ] ) >= 0 && ( hi == n || s.compareTo( stable[ hi ] ) < 0 ) );
+								if ( p < hi && s.equals( stable[ p ] ) ) p++;
+								last = s;
+							}
+							assertEquals( hi, p );
+						}
+					}
+					catch( Throwable e ) {
+						failure.compareAndSet( null, e );
+					}
+				}
+			};
+		}
+
+		final Thread writer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					final XorShift1024StarRandom r = new XorShift1024StarRandom( 42 );
+					while( ! isInterrupted() ) {
+						final String s = ZFastTrieTest.binary( 2 * r.nextInt( n ) + 1 );
+						if ( r.nextBoolean() ) czft.add( s );
+						else czft.remove( s );
+					}
+				}
+				catch( Throwable e ) {
+					failure.compareAndSet( null, e );
+				}
+			}
+		};
+
+		writer.start();
+		for( Thread t : reader ) t.start();
+		for( Thread t : reader ) t.join();
+		writer.interrupt();
+		writer.join();
+
+		if ( failure.get() != null ) throw new AssertionError( failure.get() );
+		for( int i = n; i-- != 0; ) assertTrue( czft.contains( stable[ i ] ) );
+	}
+
+	@Test
+	public void testRanges() {
+		final XorShift1024StarRandom r = new XorShift1024StarRandom( 0 );
+		for( int d = 1; d < 10000; d *= 10 ) {
+			final TreeSet<String> t = new TreeSet<String>();
+			while( t.size() < d ) t.add( Integer.toString( r.nextInt( 10 * d ) ) );
+			final ConcurrentZFastTrie<String> czft = new ConcurrentZFastTrie<String>( t, TransformationStrategies.prefixFreeIso() );
+
+			for( int i = 0; i < 100; i++ ) {
+				String a = Integer.toString( r.nextInt( 10 * d ) ), b = Integer.toString( r.nextInt( 10 * d ) );
+				if ( a.compareTo( b ) > 0 ) {
+					final String x = a;
+					a = b;
+					b = x;
+				}
+				ZFastTrieTest.assertSameElements( t.subSet( a, b ), czft.subSet( a, b ) );
+				ZFastTrieTest.assertSameElements( t.headSet( b ), czft.headSet( b ) );
+				ZFastTrieTest.assertSameElements( t.tailSet( a ), czft.tailSet( a ) );
+				ZFastTrieTest.assertSameElements( t.subSet( a, b ), czft.tailSet( a ).headSet( b ) );
+				assertEquals( a, t.contains( a ), czft.tailSet( a ).contains( a ) );
+				assertFalse( b, czft.headSet( b ).contains( b ) );
+
+				final ObjectBidirectionalIterator<String> iterator = czft.subSet( a, b ).iterator( a );
+				for( String s : t.subSet( a, b ) ) assertEquals( s, iterator.next() );
+				assertFalse( iterator.hasNext() );
+
+				final String p = a.substring( 0, r.nextInt( Math.min( 3, a.length() ) + 1 ) );
+				final SortedSet<String> expected = t.subSet( p, p + ':' );
+				ZFastTrieTest.assertSameElements( expected, czft.prefixRange( TransformationStrategies.iso().toBitVector( p ) ) );
+				ZFastTrieTest.assertSameElements( new TreeSet<String>( expected ).tailSet( b ), czft.prefixRange( TransformationStrategies.iso().toBitVector( p ) ).tailSet( b ) );
+			}
+
+			// Views are backed by the trie, and their iterators survive modifications
+			final String m = t.first();
+			final ObjectSortedSet<String> tailSet = czft.tailSet( m );
+			final ObjectBidirectionalIterator<String> iterator = tailSet.iterator();
+			assertEquals( m, iterator.next() );
+			assertTrue( tailSet.remove( m ) );
+			t.remove( m );
+			assertFalse( czft.contains( m ) );
+			ZFastTrieTest.assertSameElements( t.tailSet( m ), tailSet );
+			final String f = t.isEmpty() ? null : t.first();
+			if ( f != null ) assertEquals( f, iterator.next() );
+			assertTrue( tailSet.add( m ) );
+			t.add( m );
+			if ( f != null ) assertEquals( f, iterator.previous() );
+			assertEquals( m, iterator.previous() );
+			assertFalse( iterator.hasPrevious() );
+			ZFastTrieTest.assertSameElements( t, czft.tailSet( "" ) );
+		}
+	}
+
+	@Test
+	public void testJumpCycle() {
+		// Jump pointers forming a cycle, as an optimistic reader might see them, must not be followed forever
+		final ZFastTrie.InternalNode<String> a = new ZFastTrie.InternalNode<String>(), b = new ZFastTrie.InternalNode<String>();
+		a.extentLength = 1;
+		b.extentLength = 2;
+		a.jumpLeft = a.jumpRight = b;
+		b.jumpLeft = b.jumpRight = a;
+		try {
+			a.leftLeaf();
+			fail();
+		}
+		catch( IllegalStateException e ) {}
+		try {
+			a.rightLeaf();
+			fail();
+		}
+		catch( IllegalStateException e ) {}
+	}
+}
@@ -0,0 +1,119 @@
+package it.unimi.dsi.sux4j.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.util.XorShift1024StarRandomGenerator;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class EliasFanoIndexedMonotoneLongBigListTest {
+
+	private static long successorIndex( final long[] s, final long lowerBound ) {
+		int i = 0;
+		while( i < s.length && s[ i ] < lowerBound ) i++;
+		return i;
+	}
+
+	private static void check( final long[] s, final XorShift1024StarRandomGenerator r ) {
+		final EliasFanoIndexedMonotoneLongBigList l = new EliasFanoIndexedMonotoneLongBigList( LongArrayList.wrap( s ) );
+		assertEquals( s.length, l.size64() );
+		for( int i = 0; i < s.length; i++ ) assertEquals( s[ i ], l.getLong( i ) );
+		final long max = s.length == 0 ? 10 : s[ s.length - 1 ] + 10;
+
+		for( long x = -2; x <= Math.min( max, 1000 ); x++ ) {
+			final long index = successorIndex( s, x );
+			assertEquals( "Bound " + x, index, l.successorIndex( x ) );
+			assertEquals( "Bound " + x, index == s.length ? Long.MAX_VALUE : s[ (int)index ], l.successor( x ) );
+		}
+		for( int i = 0; i < 1000; i++ ) {
+			final long x = ( r.nextLong() & Long.MAX_VALUE ) % max;
+			final long index = LongArrays.binarySearch( s, x );
+			assertEquals( "Bound " + x, index >= 0 ? successorIndex( s, x ) : -index - 1, l.successorIndex( x ) );
+		}
+		assertEquals( s.length, l.successorIndex( Long.MAX_VALUE ) );
+
+		// Sequential iteration
+		EliasFanoIndexedMonotoneLongBigList.SkippingIterator iterator = l.skippingIterator();
+		for( int i = 0; i < s.length; i++ ) {
+			assertEquals( i, iterator.nextIndex() );
+			assertEquals( s[ i ], iterator.nextLong() );
+		}
+		assertFalse( iterator.hasNext() );
+
+		for( int from = 0; from <= s.length; from += 1 + s.length / 10 ) {
+			iterator = l.skippingIterator( from );
+			for( int i = from; i < s.length; i++ ) assertEquals( s[ i ], iterator.nextLong() );
+			assertFalse( iterator.hasNext() );
+		}
+
+		// Random skips mixed with sequential steps
+		for( int k = 0; k < 10; k++ ) {
+			iterator = l.skippingIterator();
+			int next = 0;
+			long bound = 0;
+			while( next < s.length ) {
+				if ( r.nextBoolean() ) {
+					assertEquals( s[ next++ ], iterator.nextLong() );
+					continue;
+				}
+				bound += r.nextInt( (int)Math.min( Integer.MAX_VALUE, 1 + 2 * max / ( s.length + 1 ) * ( 1 + r.nextInt( 100 ) ) ) );
+				while( next < s.length && s[ next ] < bound ) next++;
+				if ( next == s.length ) assertEquals( Long.MAX_VALUE, iterator.skipTo( bound ) );
+				else assertEquals( s[ next++ ], iterator.skipTo( bound ) );
+				assertEquals( next, iterator.nextIndex() );
+			}
+			assertFalse( iterator.hasNext() );
+			assertEquals( Long.MAX_VALUE, iterator.skipTo( 0 ) );
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		check( new long[ 0 ], new XorShift1024StarRandomGenerator( 0 ) );
+	}
+
+	@Test
+	public void testSmall() {
+		final XorShift1024StarRandomGenerator r = new XorShift1024StarRandomGenerator( 0 );
+		check( new long[] { 0 }, r );
+		check( new long[] { 5 }, r );
+		check( new long[] { 0, 1, 2 }, r );
+		check( new long[] { 0, 10, 20 }, r );
+		check( new long[] { 3, 3, 3, 7, 7, 100 }, r );
+	}
+
+	@Test
+	public void testRandom() {
+		final XorShift1024StarRandomGenerator r = new XorShift1024StarRandomGenerator( 0 );
+		for( int size: new int[] { 10, 1000, 100000 } ) {
+			for( int gap: new int[] { 1, 2, 10, 1000, 1000000 } ) {
+				final long[] s = new long[ size ];
+				for( int i = 1; i < size; i++ ) s[ i ] = s[ i - 1 ] + r.nextInt( gap );
+				check( s, r );
+				// Clustered
+				for( int i = 1; i < size; i++ ) s[ i ] = s[ i - 1 ] + ( r.nextInt( 100 ) == 0 ? r.nextInt( (int)Math.min( gap * 1000L, Integer.MAX_VALUE ) ) : r.nextInt( 2 ) );
+				check( s, r );
+			}
+		}
+	}
+
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException {
+		final long[] s = new long[ 1000 ];
+		for( int i = 1; i < s.length; i++ ) s[ i ] = s[ i - 1 ] + i % 17;
+		final File temp = File.createTempFile( getClass().getSimpleName(), "test" );
+		temp.deleteOnExit();
+		BinIO.storeObject( new EliasFanoIndexedMonotoneLongBigList( LongArrayList.wrap( s ) ), temp );
+		final EliasFanoIndexedMonotoneLongBigList l = (EliasFanoIndexedMonotoneLongBigList)BinIO.loadObject( temp );
+		for( int i = 0; i < s.length; i++ ) assertEquals( successorIndex( s, s[ i ] ), l.successorIndex( s[ i ] ) );
+		final EliasFanoIndexedMonotoneLongBigList.SkippingIterator iterator = l.skippingIterator();
+		for( int i = 0; i < s.length; i += 7 ) assertEquals( s[ i ], iterator.skipTo( s[ i ] ) );
+		temp.delete();
+	}
+}
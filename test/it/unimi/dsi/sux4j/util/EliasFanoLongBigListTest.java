@@ -1,9 +1,13 @@
 package it.unimi.dsi.sux4j.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.longs.LongBigArrayBigList;
+import it.unimi.dsi.fastutil.longs.LongBigListIterator;
 import it.unimi.dsi.fastutil.longs.LongIterators;
 import it.unimi.dsi.util.XorShift1024StarRandom;
+import it.unimi.dsi.util.XorShift1024StarRandomGenerator;
 
 import org.junit.Test;
 
@@ -53,4 +57,39 @@ public class EliasFanoLongBigListTest {
 			}
 		}
 	}
+
+	@Test
+	public void testIterator() {
+		final XorShift1024StarRandomGenerator random = new XorShift1024StarRandomGenerator( 0 );
+		for( int size: new int[] { 0, 1, 10, 1000, 100000 } ) {
+			for( int jump : new int[] { 1, 10, 1000 } ) {
+				final long[] s = new long[ size ];
+				for( int i = 0; i < size; i++ ) s[ i ] = Long.numberOfTrailingZeros( random.nextLong() ) * random.nextInt( jump );
+				final EliasFanoLongBigList ef = new EliasFanoLongBigList( LongArrayList.wrap( s ) );
+				LongBigListIterator iterator = ef.iterator();
+				for( int i = 0; i < size; i++ ) {
+					assertEquals( i, iterator.nextIndex() );
+					assertEquals( s[ i ], iterator.nextLong() );
+				}
+				assertFalse( iterator.hasNext() );
+
+				for( int i = 0; i < 100 && size > 0; i++ ) {
+					final int from = random.nextInt( size + 1 );
+					iterator = ef.listIterator( from );
+					int pos = from;
+					for( int k = 0; k < 100; k++ ) {
+						if ( random.nextBoolean() ) {
+							if ( pos == size ) assertFalse( iterator.hasNext() );
+							else assertEquals( s[ pos++ ], iterator.nextLong() );
+						}
+						else {
+							if ( pos == 0 ) assertFalse( iterator.hasPrevious() );
+							else assertEquals( s[ --pos ], iterator.previousLong() );
+						}
+						assertEquals( pos, iterator.nextIndex() );
+					}
+				}
+			}
+		}
+	}
 }
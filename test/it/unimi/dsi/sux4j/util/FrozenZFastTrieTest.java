@@ -0,0 +1,158 @@
+package it.unimi.dsi.sux4j.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.bits.TransformationStrategies;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.objects.ObjectBidirectionalIterator;
+import it.unimi.dsi.util.XorShift1024StarRandom;
+import it.unimi.dsi.util.XorShift1024StarRandomGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.junit.Test;
+
+public class FrozenZFastTrieTest {
+
+	private static void assertSameQueries( final ZFastTrie<String> zft, final FrozenZFastTrie<String> frozen, final String[] query ) {
+		assertEquals( zft.size(), frozen.size() );
+		for( String s : query ) {
+			assertEquals( s, zft.contains( s ), frozen.contains( s ) );
+			assertEquals( s, zft.pred( s ), frozen.pred( s ) );
+			assertEquals( s, zft.succ( s ), frozen.succ( s ) );
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testEmptyAndSingleton() throws IOException, ClassNotFoundException {
+		ZFastTrie<String> zft = new ZFastTrie<String>( TransformationStrategies.prefixFreeIso() );
+		FrozenZFastTrie<String> frozen = zft.freeze();
+		assertFalse( frozen.contains( "" ) );
+		assertEquals( null, frozen.succ( "a" ) );
+		assertFalse( frozen.iterator().hasNext() );
+		assertFalse( frozen.iterator( "a" ).hasNext() );
+
+		zft.add( "a" );
+		frozen = zft.freeze();
+		assertSameQueries( zft, frozen, new String[] { "", "a", "b", "aa" } );
+
+		final File temp = File.createTempFile( getClass().getSimpleName(), "test" );
+		temp.deleteOnExit();
+		BinIO.storeObject( frozen, temp );
+		frozen = (FrozenZFastTrie<String>)BinIO.loadObject( temp );
+		assertSameQueries( zft, frozen, new String[] { "", "a", "b", "aa" } );
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testNumbers() throws IOException, ClassNotFoundException {
+		final RandomGenerator random = new XorShift1024StarRandomGenerator( 0 );
+		for( int d = 10; d < 100000; d *= 10 ) {
+			for( int rand = 0; rand < 2; rand++ ) {
+				final String[] s = new String[ d ];
+				for( int i = s.length; i-- != 0; ) s[ i ] = ZFastTrieTest.binary( rand == 0 ? i * 3 : random.nextInt( Integer.MAX_VALUE ) );
+				final ZFastTrie<String> zft = new ZFastTrie<String>( Arrays.asList( s ), TransformationStrategies.prefixFreeIso() );
+				FrozenZFastTrie<String> frozen = zft.freeze();
+
+				final String[] query = new String[ 2 * d ];
+				for( int i = d; i-- != 0; ) {
+					query[ i ] = s[ i ];
+					query[ d + i ] = ZFastTrieTest.binary( rand == 0 ? i * 3 + 1 : random.nextInt( Integer.MAX_VALUE ) );
+				}
+				assertSameQueries( zft, frozen, query );
+
+				final File temp = File.createTempFile( getClass().getSimpleName(), "test" );
+				temp.deleteOnExit();
+				BinIO.storeObject( frozen, temp );
+				frozen = (FrozenZFastTrie<String>)BinIO.loadObject( temp );
+				assertSameQueries( zft, frozen, query );
+
+				ObjectBidirectionalIterator<String> i = zft.iterator(), j = frozen.iterator();
+				while( i.hasNext() ) assertEquals( i.next(), j.next() );
+				assertFalse( j.hasNext() );
+				while( i.hasPrevious() ) assertEquals( i.previous(), j.previous() );
+				assertFalse( j.hasPrevious() );
+
+				for( int k = 0; k < d; k += 17 ) {
+					i = zft.iterator( query[ d + k ] );
+					j = frozen.iterator( query[ d + k ] );
+					while( i.hasNext() ) assertEquals( i.next(), j.next() );
+					assertFalse( j.hasNext() );
+				}
+
+				assertEquals( zft.first(), frozen.first() );
+				assertEquals( zft.last(), frozen.last() );
+			}
+		}
+	}
+
+	@Test
+	public void testBitVectors() {
+		final RandomGenerator random = new XorShift1024StarRandomGenerator( 1 );
+		final LongArrayBitVector[] v = new LongArrayBitVector[ 1000 ];
+		for( int i = v.length; i-- != 0; ) {
+			// Long keys with long common prefixes
+			v[ i ] = LongArrayBitVector.getInstance().length( 1000 );
+			for( int j = 0; j < 10; j++ ) v[ i ].set( 900 + random.nextInt( 100 ) );
+		}
+		final ZFastTrie<LongArrayBitVector> zft = new ZFastTrie<LongArrayBitVector>( TransformationStrategies.prefixFree() );
+		for( LongArrayBitVector b : v ) zft.add( b );
+		final FrozenZFastTrie<LongArrayBitVector> frozen = zft.freeze();
+		assertEquals( zft.size(), frozen.size() );
+		for( LongArrayBitVector b : v ) {
+			assertTrue( frozen.contains( b ) );
+			final LongArrayBitVector c = b.copy();
+			c.flip( random.nextInt( 1000 ) );
+			assertEquals( zft.contains( c ), frozen.contains( c ) );
+			assertEquals( zft.pred( c ), frozen.pred( c ) );
+			assertEquals( zft.succ( c ), frozen.succ( c ) );
+		}
+	}
+
+	@Test
+	public void testRanges() {
+		final XorShift1024StarRandom r = new XorShift1024StarRandom( 0 );
+		for( int d = 1; d < 10000; d *= 10 ) {
+			final TreeSet<String> t = new TreeSet<String>();
+			while( t.size() < d ) t.add( Integer.toString( r.nextInt( 10 * d ) ) );
+			final FrozenZFastTrie<String> frozen = new ZFastTrie<String>( t, TransformationStrategies.prefixFreeIso() ).freeze();
+
+			for( int i = 0; i < 100; i++ ) {
+				String a = Integer.toString( r.nextInt( 10 * d ) ), b = Integer.toString( r.nextInt( 10 * d ) );
+				if ( a.compareTo( b ) > 0 ) {
+					final String x = a;
+					a = b;
+					b = x;
+				}
+				ZFastTrieTest.assertSameElements( t.subSet( a, b ), frozen.subSet( a, b ) );
+				ZFastTrieTest.assertSameElements( t.headSet( b ), frozen.headSet( b ) );
+				ZFastTrieTest.assertSameElements( t.tailSet( a ), frozen.tailSet( a ) );
+				ZFastTrieTest.assertSameElements( t.subSet( a, b ), frozen.tailSet( a ).headSet( b ) );
+				assertEquals( a, t.contains( a ), frozen.tailSet( a ).contains( a ) );
+				assertFalse( b, frozen.headSet( b ).contains( b ) );
+
+				final String p = a.substring( 0, r.nextInt( Math.min( 3, a.length() ) + 1 ) );
+				final SortedSet<String> expected = t.subSet( p, p + ':' );
+				ZFastTrieTest.assertSameElements( expected, frozen.prefixRange( TransformationStrategies.iso().toBitVector( p ) ) );
+				ZFastTrieTest.assertSameElements( new TreeSet<String>( expected ).tailSet( b ), frozen.prefixRange( TransformationStrategies.iso().toBitVector( p ) ).tailSet( b ) );
+			}
+		}
+
+		final FrozenZFastTrie<String> empty = new ZFastTrie<String>( TransformationStrategies.prefixFreeIso() ).freeze();
+		assertTrue( empty.prefixRange( TransformationStrategies.iso().toBitVector( "a" ) ).isEmpty() );
+		assertTrue( empty.subSet( "a", "b" ).isEmpty() );
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNotSorted() {
+		new FrozenZFastTrie<String>( Arrays.asList( "b", "a" ).iterator(), TransformationStrategies.prefixFreeIso() );
+	}
+}
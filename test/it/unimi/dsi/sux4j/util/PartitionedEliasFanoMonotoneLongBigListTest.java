@@ -0,0 +1,114 @@
+package it.unimi.dsi.sux4j.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.util.XorShift1024StarRandomGenerator;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class PartitionedEliasFanoMonotoneLongBigListTest {
+
+	private static long successorIndex( final long[] s, final long lowerBound ) {
+		int i = 0;
+		while( i < s.length && s[ i ] < lowerBound ) i++;
+		return i;
+	}
+
+	private static void check( final long[] s, final int log2PartitionSize, final XorShift1024StarRandomGenerator r ) {
+		final PartitionedEliasFanoMonotoneLongBigList l = new PartitionedEliasFanoMonotoneLongBigList( LongArrayList.wrap( s ), log2PartitionSize );
+		assertEquals( s.length, l.size64() );
+		for( int i = 0; i < s.length; i++ ) assertEquals( s[ i ], l.getLong( i ) );
+		if ( s.length > 10 ) {
+			final long[] dest = l.get( 3, new long[ 7 ] );
+			for( int i = 0; i < dest.length; i++ ) assertEquals( s[ 3 + i ], dest[ i ] );
+		}
+		// Bulk extraction across partition boundaries
+		for( int t = 0; t < 100 && s.length > 0; t++ ) {
+			final int from = r.nextInt( s.length );
+			final int length = r.nextInt( Math.min( s.length - from, 3 << log2PartitionSize ) + 1 );
+			final long[] dest = l.get( from, new long[ length + 2 ], 1, length );
+			for( int i = 0; i < length; i++ ) assertEquals( "From " + from + ", length " + length, s[ from + i ], dest[ 1 + i ] );
+			assertEquals( 0, dest[ 0 ] );
+			assertEquals( 0, dest[ length + 1 ] );
+		}
+
+		final long max = s.length == 0 ? 10 : s[ s.length - 1 ] + 10;
+		for( long x = -2; x <= Math.min( max, 1000 ); x++ ) {
+			final long index = successorIndex( s, x );
+			assertEquals( "Bound " + x, index, l.successorIndex( x ) );
+			assertEquals( "Bound " + x, index == s.length ? Long.MAX_VALUE : s[ (int)index ], l.successor( x ) );
+		}
+		for( int i = 0; i < 1000; i++ ) {
+			final long x = ( r.nextLong() & Long.MAX_VALUE ) % max;
+			final long index = LongArrays.binarySearch( s, x );
+			assertEquals( "Bound " + x, index >= 0 ? successorIndex( s, x ) : -index - 1, l.successorIndex( x ) );
+		}
+		for( int i = 0; i < s.length; i += 1 + s.length / 1000 ) {
+			assertEquals( successorIndex( s, s[ i ] ), l.successorIndex( s[ i ] ) );
+			assertEquals( successorIndex( s, s[ i ] + 1 ), l.successorIndex( s[ i ] + 1 ) );
+		}
+		assertEquals( s.length, l.successorIndex( Long.MAX_VALUE ) );
+	}
+
+	@Test
+	public void testSmall() {
+		final XorShift1024StarRandomGenerator r = new XorShift1024StarRandomGenerator( 0 );
+		for( int log2PartitionSize: new int[] { 0, 1, 2, 7 } ) {
+			check( new long[ 0 ], log2PartitionSize, r );
+			check( new long[] { 0 }, log2PartitionSize, r );
+			check( new long[] { 5 }, log2PartitionSize, r );
+			check( new long[] { 0, 1, 2 }, log2PartitionSize, r );
+			check( new long[] { 0, 10, 20 }, log2PartitionSize, r );
+			check( new long[] { 3, 3, 3, 7, 7, 100 }, log2PartitionSize, r );
+			check( new long[] { 1L << 40, 1L << 41, 1L << 62 }, log2PartitionSize, r );
+		}
+	}
+
+	@Test
+	public void testRandom() {
+		final XorShift1024StarRandomGenerator r = new XorShift1024StarRandomGenerator( 0 );
+		for( int log2PartitionSize: new int[] { 3, 7, 10 } ) {
+			for( int size: new int[] { 10, 1000, 100000 } ) {
+				for( int gap: new int[] { 1, 2, 3, 10, 1000, 1000000 } ) {
+					final long[] s = new long[ size ];
+					for( int i = 1; i < size; i++ ) s[ i ] = s[ i - 1 ] + r.nextInt( gap );
+					check( s, log2PartitionSize, r );
+					// Strictly increasing
+					for( int i = 1; i < size; i++ ) s[ i ] = s[ i - 1 ] + 1 + r.nextInt( gap );
+					check( s, log2PartitionSize, r );
+					// Clustered
+					for( int i = 1; i < size; i++ ) s[ i ] = s[ i - 1 ] + ( r.nextInt( 100 ) == 0 ? r.nextInt( (int)Math.min( gap * 1000L, Integer.MAX_VALUE ) ) : 1 + r.nextInt( 2 ) );
+					check( s, log2PartitionSize, r );
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testClusteredIsSmaller() {
+		final XorShift1024StarRandomGenerator r = new XorShift1024StarRandomGenerator( 0 );
+		final long[] s = new long[ 1000000 ];
+		for( int i = 1; i < s.length; i++ ) s[ i ] = s[ i - 1 ] + ( r.nextInt( 1000 ) == 0 ? r.nextInt( 1000000 ) : 1 + r.nextInt( 3 ) );
+		final PartitionedEliasFanoMonotoneLongBigList partitioned = new PartitionedEliasFanoMonotoneLongBigList( LongArrayList.wrap( s ) );
+		final EliasFanoMonotoneLongBigList eliasFano = new EliasFanoMonotoneLongBigList( LongArrayList.wrap( s ) );
+		assertTrue( partitioned.numBits() + " >= " + eliasFano.numBits(), partitioned.numBits() < eliasFano.numBits() );
+	}
+
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException {
+		final long[] s = new long[ 1000 ];
+		for( int i = 1; i < s.length; i++ ) s[ i ] = s[ i - 1 ] + i % 17;
+		final File temp = File.createTempFile( getClass().getSimpleName(), "test" );
+		temp.deleteOnExit();
+		BinIO.storeObject( new PartitionedEliasFanoMonotoneLongBigList( LongArrayList.wrap( s ) ), temp );
+		final PartitionedEliasFanoMonotoneLongBigList l = (PartitionedEliasFanoMonotoneLongBigList)BinIO.loadObject( temp );
+		for( int i = 0; i < s.length; i++ ) assertEquals( s[ i ], l.getLong( i ) );
+		temp.delete();
+	}
+}
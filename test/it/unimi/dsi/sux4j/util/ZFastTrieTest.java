@@ -10,13 +10,18 @@ import it.unimi.dsi.bits.LongArrayBitVector;
 import it.unimi.dsi.bits.TransformationStrategies;
 import it.unimi.dsi.fastutil.io.BinIO;
 import it.unimi.dsi.fastutil.objects.ObjectBidirectionalIterator;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectSortedSet;
 import it.unimi.dsi.util.XorShift1024StarRandom;
 import it.unimi.dsi.util.XorShift1024StarRandomGenerator;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import org.apache.commons.math3.random.RandomGenerator;
 import org.junit.Test;
@@ -346,6 +351,18 @@ public class ZFastTrieTest {
 		zft.contains( q );
 	}
 
+	@Test
+	public void testPredSucc() {
+		final ZFastTrie<String> zft = new ZFastTrie<String>( Arrays.asList( "b", "d", "f" ), TransformationStrategies.prefixFreeIso() );
+		final String[] query = { "a", "b", "c", "d", "e", "f", "g" };
+		final String[] pred = { null, null, "b", "b", "d", "d", "f" };
+		final String[] succ = { "b", "b", "d", "d", "f", "f", null };
+		for( int i = 0; i < query.length; i++ ) {
+			assertEquals( query[ i ], pred[ i ], zft.pred( query[ i ] ) );
+			assertEquals( query[ i ], succ[ i ], zft.succ( query[ i ] ) );
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	@Test
 	public void testNumbers() throws IOException, ClassNotFoundException {
@@ -421,4 +438,140 @@ public class ZFastTrieTest {
 
 		}
 	}
+
+	/** Checks that a sorted set has the same elements as a reference sorted set, in both directions. */
+	public static void assertSameElements( final SortedSet<String> expected, final ObjectSortedSet<String> actual ) {
+		assertEquals( expected.size(), actual.size() );
+		assertEquals( expected.isEmpty(), actual.isEmpty() );
+		final ObjectBidirectionalIterator<String> iterator = actual.iterator();
+		for( String s : expected ) assertEquals( s, iterator.next() );
+		assertFalse( iterator.hasNext() );
+		final ArrayList<String> list = new ArrayList<String>( expected );
+		for( int i = list.size(); i-- != 0; ) assertEquals( list.get( i ), iterator.previous() );
+		assertFalse( iterator.hasPrevious() );
+		if ( ! expected.isEmpty() ) {
+			assertEquals( expected.first(), actual.first() );
+			assertEquals( expected.last(), actual.last() );
+		}
+	}
+
+	@Test
+	public void testRanges() {
+		final XorShift1024StarRandom r = new XorShift1024StarRandom( 0 );
+		for( int d = 1; d < 10000; d *= 10 ) {
+			final TreeSet<String> t = new TreeSet<String>();
+			while( t.size() < d ) t.add( Integer.toString( r.nextInt( 10 * d ) ) );
+			final ZFastTrie<String> zft = new ZFastTrie<String>( t, TransformationStrategies.prefixFreeIso() );
+
+			for( int i = 0; i < 100; i++ ) {
+				String a = Integer.toString( r.nextInt( 10 * d ) ), b = Integer.toString( r.nextInt( 10 * d ) );
+				if ( a.compareTo( b ) > 0 ) {
+					final String x = a;
+					a = b;
+					b = x;
+				}
+				assertSameElements( t.subSet( a, b ), zft.subSet( a, b ) );
+				assertSameElements( t.headSet( b ), zft.headSet( b ) );
+				assertSameElements( t.tailSet( a ), zft.tailSet( a ) );
+				assertSameElements( t.subSet( a, b ), zft.tailSet( a ).headSet( b ) );
+				assertEquals( a, t.contains( a ), zft.tailSet( a ).contains( a ) );
+				assertFalse( b, zft.headSet( b ).contains( b ) );
+
+				final ObjectBidirectionalIterator<String> iterator = zft.subSet( a, b ).iterator( a );
+				for( String s : t.subSet( a, b ) ) assertEquals( s, iterator.next() );
+				assertFalse( iterator.hasNext() );
+
+				final String p = a.substring( 0, r.nextInt( Math.min( 3, a.length() ) + 1 ) );
+				final SortedSet<String> expected = t.subSet( p, p + ':' );
+				assertSameElements( expected, zft.prefixRange( TransformationStrategies.iso().toBitVector( p ) ) );
+				assertSameElements( new TreeSet<String>( expected ).headSet( b ), zft.prefixRange( TransformationStrategies.iso().toBitVector( p ) ).headSet( b ) );
+				assertSameElements( new TreeSet<String>( expected ).tailSet( b ), zft.prefixRange( TransformationStrategies.iso().toBitVector( p ) ).tailSet( b ) );
+			}
+
+			// Views are backed by the trie
+			final String m = t.first();
+			final ObjectSortedSet<String> prefixRange = zft.prefixRange( TransformationStrategies.iso().toBitVector( m ) );
+			final ObjectSortedSet<String> tailSet = zft.tailSet( m );
+			assertTrue( prefixRange.remove( m ) );
+			t.remove( m );
+			assertFalse( zft.contains( m ) );
+			assertSameElements( t.subSet( m, m + ':' ), prefixRange );
+			assertSameElements( t.tailSet( m ), tailSet );
+			assertTrue( tailSet.add( m ) );
+			t.add( m );
+			assertSameElements( t.subSet( m, m + ':' ), prefixRange );
+			assertSameElements( t, zft.tailSet( "" ) );
+			// Cached intervals and sizes are recomputed after modifications of the trie
+			assertTrue( zft.remove( m ) );
+			t.remove( m );
+			assertSameElements( t.tailSet( m ), tailSet );
+			assertSameElements( t.subSet( m, m + ':' ), prefixRange );
+			assertTrue( zft.add( m ) );
+			t.add( m );
+			assertSameElements( t.tailSet( m ), tailSet );
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRangeOutOfBounds() {
+		new ZFastTrie<String>( Arrays.asList( "b", "d" ), TransformationStrategies.prefixFreeIso() ).headSet( "c" ).add( "c" );
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSorted() throws IOException, ClassNotFoundException {
+		final RandomGenerator random = new XorShift1024StarRandomGenerator( 2 );
+		for( int d = 1; d < 100000; d *= 10 ) {
+			for( int rand = 0; rand < 2; rand++ ) {
+				final String[] s = new String[ d ];
+				for( int i = s.length; i-- != 0; ) s[ i ] = binary( rand == 0 ? i : random.nextInt( Integer.MAX_VALUE ) );
+				final ObjectOpenHashSet<String> distinct = new ObjectOpenHashSet<String>( s );
+				final String[] t = distinct.toArray( new String[ distinct.size() ] );
+				Arrays.sort( t );
+
+				ZFastTrie<String> zft = new ZFastTrie<String>( Arrays.asList( t ).iterator(), TransformationStrategies.prefixFreeIso(), true );
+				final ZFastTrie<String> reference = new ZFastTrie<String>( Arrays.asList( t ), TransformationStrategies.prefixFreeIso() );
+				assertEquals( t.length, zft.size() );
+
+				for( int i = t.length; i-- != 0; ) assertTrue( t[ i ], zft.contains( t[ i ] ) );
+				for( int i = 1000; i-- != 0; ) {
+					final String u = binary( i * i + d );
+					assertEquals( u, reference.contains( u ), zft.contains( u ) );
+					assertEquals( u, reference.pred( u ), zft.pred( u ) );
+					assertEquals( u, reference.succ( u ), zft.succ( u ) );
+				}
+
+				int p = 0;
+				ObjectBidirectionalIterator<String> iterator;
+				for( iterator = zft.iterator(); iterator.hasNext(); ) assertEquals( t[ p++ ], iterator.next() );
+				assertEquals( t.length, p );
+				while( iterator.hasPrevious() ) assertEquals( t[ --p ], iterator.previous() );
+
+				final File temp = File.createTempFile( getClass().getSimpleName(), "test" );
+				temp.deleteOnExit();
+				BinIO.storeObject( zft, temp );
+				zft = (ZFastTrie<String>)BinIO.loadObject( temp );
+				for( int i = t.length; i-- != 0; ) assertTrue( t[ i ], zft.contains( t[ i ] ) );
+
+				// The trie must be fully functional after bulk loading
+				zft = new ZFastTrie<String>( Arrays.asList( t ).iterator(), TransformationStrategies.prefixFreeIso(), true );
+				for( int i = 0; i < t.length; i += 2 ) assertTrue( zft.remove( t[ i ] ) );
+				for( int i = t.length; i-- != 0; ) assertEquals( t[ i ], i % 2 != 0, zft.contains( t[ i ] ) );
+				for( int i = 0; i < t.length; i += 2 ) assertTrue( zft.add( t[ i ] ) );
+				for( int i = t.length; i-- != 0; ) assertTrue( t[ i ], zft.contains( t[ i ] ) );
+				for( int i = t.length; i-- != 0; ) assertTrue( zft.remove( t[ i ] ) );
+				assertEquals( 0, zft.size() );
+			}
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testSortedNotSorted() {
+		new ZFastTrie<String>( Arrays.asList( "b", "a" ).iterator(), TransformationStrategies.prefixFreeIso(), true );
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testSortedDuplicate() {
+		new ZFastTrie<String>( Arrays.asList( "a", "b", "b" ).iterator(), TransformationStrategies.prefixFreeIso(), true );
+	}
 }